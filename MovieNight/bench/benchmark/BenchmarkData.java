@@ -0,0 +1,228 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import dao.GenreDAO;
+import dao.HasGenreDAO;
+import dao.LobbyDAO;
+import dao.MovieDAO;
+import dao.UserDAO;
+import dao.VoteDAO;
+import models.Genre;
+import models.HasGenre;
+import models.Movie;
+import models.User;
+import utils.ConnectionProvider;
+
+/**
+ * Seeds an in-memory H2 database with a MovieNight data set of the given
+ * size. The same seed always produces the same rows, so runs compare.
+ *
+ * User i is called "user" + i with password "pass" + i. User i for i up to
+ * the lobby count owns lobby i, which holds lobbySize members, each of the
+ * lobby's suggestions and a few votes per member.
+ */
+public final class BenchmarkData {
+	private static final long SEED = 42;
+
+	private static final String SCHEMA = """
+			CREATE TABLE "User"(
+			    id INT PRIMARY KEY,
+			    fname VARCHAR(50),
+			    lname VARCHAR(50),
+			    username VARCHAR(50) UNIQUE,
+			    password VARCHAR(50),
+			    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+			);
+			CREATE VIEW user_identifiers AS SELECT id, username FROM "User";
+			CREATE TABLE Movie(
+			    id INT PRIMARY KEY,
+			    title VARCHAR(100),
+			    description TEXT,
+			    trailerPath VARCHAR(200)
+			);
+			CREATE TABLE Genre (
+			    id INT PRIMARY KEY,
+			    name VARCHAR(255)
+			);
+			CREATE TABLE HasGenre (
+			    movie_id INTEGER REFERENCES Movie(id),
+			    genre_id INTEGER REFERENCES Genre(id),
+			    PRIMARY KEY (movie_id, genre_id)
+			);
+			CREATE TABLE Lobby(
+			    id INT PRIMARY KEY,
+			    owner_id INTEGER REFERENCES "User"(id),
+			    is_ready BOOLEAN DEFAULT FALSE,
+			    date DATE
+			);
+			CREATE TABLE InLobby (
+			    lobby_id INTEGER REFERENCES Lobby(id),
+			    user_id INTEGER REFERENCES "User"(id),
+			    PRIMARY KEY (lobby_id, user_id)
+			);
+			CREATE TABLE Suggestion(
+			    lobby_id INTEGER REFERENCES Lobby(id),
+			    suggested_by INTEGER REFERENCES "User"(id),
+			    movie_id INTEGER REFERENCES Movie(id),
+			    PRIMARY KEY (lobby_id, movie_id)
+			);
+			CREATE TABLE Vote(
+			    lobby_id INTEGER REFERENCES Lobby(id),
+			    user_id INTEGER REFERENCES "User"(id),
+			    movie_id INTEGER REFERENCES Movie(id),
+			    PRIMARY KEY (lobby_id, user_id, movie_id)
+			);
+			-- Static after seeding; without the counter MovieCatalog would reload on every read.
+			CREATE TABLE catalog_version (
+			    id INTEGER PRIMARY KEY,
+			    version BIGINT NOT NULL
+			);
+			INSERT INTO catalog_version (id, version) VALUES (1, 1);
+			CREATE VIEW vote_tally AS
+			    SELECT lobby_id, movie_id, COUNT(*) AS vote_count FROM Vote GROUP BY lobby_id, movie_id;
+			CREATE ALIAS get_user_by_credentials AS $$
+			import java.sql.*;
+			@CODE
+			ResultSet getUserByCredentials(Connection conn, String username, String password) throws SQLException {
+			    PreparedStatement stmt = conn.prepareStatement(
+			        "SELECT * FROM \\"User\\" WHERE username = ? AND password = ?"
+			    );
+			    stmt.setString(1, username);
+			    stmt.setString(2, password);
+			    return stmt.executeQuery();
+			}
+			$$;
+			""";
+
+	private static final String[] WORDS = {
+			"Night", "Star", "Return", "Last", "Dark", "River", "City", "Secret", "Winter", "Road",
+			"Garden", "Storm", "Silent", "Golden", "Empire", "Ghost", "Summer", "Iron", "Lost", "Dream" };
+
+	public final int users;
+	public final int movies;
+	public final int genres;
+	public final int lobbies;
+	public final int lobbySize;
+	public final int suggestionsPerLobby;
+	public final int votesPerMember;
+
+	public BenchmarkData(int users, int movies, int genres, int lobbies) {
+		this(users, movies, genres, lobbies, 8, 10, 3);
+	}
+
+	public BenchmarkData(int users, int movies, int genres, int lobbies, int lobbySize,
+			int suggestionsPerLobby, int votesPerMember) {
+		if (lobbies + lobbySize - 1 > users || suggestionsPerLobby > movies || votesPerMember > suggestionsPerLobby) {
+			throw new IllegalArgumentException("Data set does not fit: " + users + " users, " + movies
+					+ " movies, " + lobbies + " lobbies");
+		}
+		this.users = users;
+		this.movies = movies;
+		this.genres = genres;
+		this.lobbies = lobbies;
+		this.lobbySize = lobbySize;
+		this.suggestionsPerLobby = suggestionsPerLobby;
+		this.votesPerMember = votesPerMember;
+	}
+
+	public static String newUrl(String name) {
+		return "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+	}
+
+	public static String username(int userId) {
+		return "user" + userId;
+	}
+
+	public static String password(int userId) {
+		return "pass" + userId;
+	}
+
+	public static String genreName(int genreId) {
+		return "Genre " + genreId;
+	}
+
+	// Creates the schema and loads the data set through the DAOs' batch paths.
+	public void seed(String url, ConnectionProvider connectionProvider) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement stmt = connection.createStatement()) {
+			stmt.execute(SCHEMA);
+		}
+		SplittableRandom random = new SplittableRandom(SEED);
+
+		List<User> userRows = new ArrayList<>(users);
+		for (int i = 1; i <= users; i++) {
+			userRows.add(new User(i, "First" + i, "Last" + i, username(i), password(i), null));
+		}
+		new UserDAO(connectionProvider).createUsersWithID(userRows);
+
+		List<Genre> genreRows = new ArrayList<>(genres);
+		for (int i = 1; i <= genres; i++) {
+			genreRows.add(new Genre(i, genreName(i)));
+		}
+		new GenreDAO(connectionProvider).createGenres(genreRows);
+
+		List<Movie> movieRows = new ArrayList<>(movies);
+		List<HasGenre> links = new ArrayList<>(movies * 2);
+		for (int i = 1; i <= movies; i++) {
+			String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+			movieRows.add(new Movie(i, title, "Description of " + title, "/trailers/" + i + ".mp4"));
+			int first = 1 + random.nextInt(genres);
+			links.add(new HasGenre(i, first));
+			int second = 1 + random.nextInt(genres);
+			if (second != first) {
+				links.add(new HasGenre(i, second));
+			}
+		}
+		new MovieDAO(connectionProvider).createMoviesWithID(movieRows);
+		new HasGenreDAO(connectionProvider).assignGenres(links);
+
+		LobbyDAO lobbyDAO = new LobbyDAO(connectionProvider);
+		List<Object[]> lobbyRows = new ArrayList<>(lobbies);
+		List<Object[]> memberRows = new ArrayList<>(lobbies * lobbySize);
+		List<Object[]> suggestionRows = new ArrayList<>(lobbies * suggestionsPerLobby);
+		List<Object[]> voteRows = new ArrayList<>(lobbies * lobbySize * votesPerMember);
+		for (int lobby = 1; lobby <= lobbies; lobby++) {
+			lobbyRows.add(new Object[] { lobby, lobby });
+			int[] members = new int[lobbySize];
+			members[0] = lobby;
+			for (int m = 1; m < lobbySize; m++) {
+				// Members after the owners, wrapping around when the users run out.
+				members[m] = lobbies + 1 + ((lobby - 1) * (lobbySize - 1) + m - 1) % Math.max(1, users - lobbies);
+			}
+			members = Arrays.stream(members).distinct().toArray();
+			for (int member : members) {
+				memberRows.add(new Object[] { lobby, member });
+			}
+			int[] suggested = random.ints(1, movies + 1).distinct().limit(suggestionsPerLobby).toArray();
+			for (int movieId : suggested) {
+				suggestionRows.add(new Object[] { lobby, members[random.nextInt(members.length)], movieId });
+			}
+			for (int member : members) {
+				int start = random.nextInt(suggested.length);
+				for (int v = 0; v < votesPerMember; v++) {
+					voteRows.add(new Object[] { lobby, member, suggested[(start + v) % suggested.length] });
+				}
+			}
+		}
+		lobbyDAO.createBatch("INSERT INTO Lobby (id, owner_id, is_ready, date) VALUES (?, ?, FALSE, CURRENT_DATE)", lobbyRows);
+		lobbyDAO.createBatch("INSERT INTO InLobby (lobby_id, user_id) VALUES (?, ?)", memberRows);
+		lobbyDAO.createBatch("INSERT INTO Suggestion (lobby_id, suggested_by, movie_id) VALUES (?, ?, ?)", suggestionRows);
+		new VoteDAO(connectionProvider).addVotes(voteRows);
+	}
+
+	// Frees the in-memory database; DB_CLOSE_DELAY=-1 would keep it for the whole JVM.
+	public static void drop(String url) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement stmt = connection.createStatement()) {
+			stmt.execute("SHUTDOWN");
+		}
+	}
+}
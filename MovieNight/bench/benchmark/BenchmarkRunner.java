@@ -0,0 +1,46 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks twice: once for throughput in ops/s and once for
+ * sampled latency in microseconds, both with the gc profiler, whose
+ * gc.alloc.rate.norm column is the bytes allocated per call. Results are
+ * also written as JSON (bench-throughput.json, bench-latency.json) so runs
+ * can be diffed for regressions.
+ *
+ * This source folder needs jmh-core and, as annotation processor,
+ * jmh-generator-annprocess next to the jars in lib and the classes of src:
+ *
+ *   javac -cp bin:lib/*:jmh/* -processorpath jmh/* -d bench-bin bench/benchmark/*.java
+ *   java -cp bench-bin:bin:lib/*:jmh/* benchmark.BenchmarkRunner [regex]
+ *
+ * The optional regex picks benchmarks, e.g. "FacadeBenchmark.getVotes2".
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "benchmark\\..*Benchmark";
+		new Runner(options(include, Mode.Throughput, TimeUnit.SECONDS, "bench-throughput.json")).run();
+		new Runner(options(include, Mode.SampleTime, TimeUnit.MICROSECONDS, "bench-latency.json")).run();
+	}
+
+	private static Options options(String include, Mode mode, TimeUnit timeUnit, String resultFile) {
+		return new OptionsBuilder()
+				.include(include)
+				.mode(mode)
+				.timeUnit(timeUnit)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile)
+				.build();
+	}
+}
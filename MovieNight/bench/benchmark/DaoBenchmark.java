@@ -0,0 +1,120 @@
+package benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dao.UserDAO;
+import models.User;
+import utils.ConnectionPool;
+import utils.IntObjectMap;
+
+/**
+ * The AbstractDAO paths every DAO inherits, on the User table. Run with and
+ * without the pooled statement cache to see what reusing statements saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+	private static final int POOL_SIZE = 10;
+	private static final int MULTI_GET_SIZE = 64;
+	private static final int PAGE_SIZE = 100;
+	private static final int BATCH_SIZE = 100;
+
+	@Param("10000")
+	public int users;
+
+	// StatementCache capacity per pooled connection; 0 prepares every statement anew.
+	@Param({ "0", "256" })
+	public int statementCacheSize;
+
+	private String url;
+	private ConnectionPool pool;
+	private UserDAO userDAO;
+	// Ids above the seeded users, for rows the write benchmarks create and delete again.
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void seed() throws SQLException {
+		url = BenchmarkData.newUrl("dao");
+		pool = new ConnectionPool(url, "sa", "", POOL_SIZE, 30_000, 600_000, 1_800_000, statementCacheSize);
+		new BenchmarkData(users, 100, 5, 10).seed(url, pool);
+		userDAO = new UserDAO(pool);
+		nextId.set(users * 10);
+	}
+
+	@TearDown(Level.Trial)
+	public void drop() throws SQLException {
+		pool.close();
+		BenchmarkData.drop(url);
+	}
+
+	@State(Scope.Thread)
+	public static class Picks {
+		private final SplittableRandom random = new SplittableRandom();
+
+		int userId(DaoBenchmark b) {
+			return 1 + random.nextInt(b.users);
+		}
+
+		int[] userIds(DaoBenchmark b, int count) {
+			return random.ints(count, 1, b.users + 1).toArray();
+		}
+	}
+
+	@Benchmark
+	public User findById(Picks picks) {
+		return userDAO.findById(picks.userId(this));
+	}
+
+	@Benchmark
+	public IntObjectMap<User> findByIds(Picks picks) {
+		return userDAO.findByIds(picks.userIds(this, MULTI_GET_SIZE));
+	}
+
+	@Benchmark
+	public List<User> findPage(Picks picks) {
+		return userDAO.findPage(picks.userId(this), PAGE_SIZE);
+	}
+
+	@Benchmark
+	public boolean createAndDelete() {
+		int id = nextId.incrementAndGet();
+		userDAO.createUserWithID(new User(id, "Bench", "User", "bench" + id, "pass", null));
+		return userDAO.deleteById(id);
+	}
+
+	// One batch of BATCH_SIZE inserts and a range delete; divide the score by BATCH_SIZE for rows.
+	@Benchmark
+	public int createBatchAndDelete() {
+		int first = nextId.getAndAdd(BATCH_SIZE) + 1;
+		List<User> batch = new ArrayList<>(BATCH_SIZE);
+		for (int id = first; id < first + BATCH_SIZE; id++) {
+			batch.add(new User(id, "Bench", "User", "bench" + id, "pass", null));
+		}
+		int created = userDAO.createUsersWithID(batch);
+		userDAO.delete("DELETE FROM \"User\" WHERE id >= ? AND id < ?", first, first + BATCH_SIZE);
+		return created;
+	}
+}
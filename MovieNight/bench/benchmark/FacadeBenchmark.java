@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dao.LobbyDAO.VoteResult;
+import movienightgui.Database;
+import utils.ConnectionPool;
+
+/**
+ * The facade calls the lobby screens make most, against a seeded H2 data
+ * set and a connection pool, as the desktop client runs them. Each call
+ * picks a random lobby, user or genre pair so caches see a realistic spread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FacadeBenchmark {
+	private static final int POOL_SIZE = 10;
+
+	@Param("10000")
+	public int users;
+
+	@Param("5000")
+	public int movies;
+
+	@Param("20")
+	public int genres;
+
+	@Param("500")
+	public int lobbies;
+
+	// true: votes served by VoteEngine, as in MovieNightServer.
+	@Param({ "false", "true" })
+	public boolean inMemoryVotes;
+
+	private String url;
+	private ConnectionPool pool;
+	private Database database;
+
+	@Setup(Level.Trial)
+	public void seed() throws SQLException {
+		url = BenchmarkData.newUrl("facade");
+		pool = new ConnectionPool(url, "sa", "", POOL_SIZE);
+		new BenchmarkData(users, movies, genres, lobbies).seed(url, pool);
+		database = new Database(pool, null, inMemoryVotes);
+	}
+
+	@TearDown(Level.Trial)
+	public void drop() throws SQLException {
+		database.close();
+		pool.close();
+		BenchmarkData.drop(url);
+	}
+
+	@State(Scope.Thread)
+	public static class Picks {
+		private final SplittableRandom random = new SplittableRandom();
+
+		String lobbyOwner(FacadeBenchmark b) {
+			return BenchmarkData.username(1 + random.nextInt(b.lobbies));
+		}
+
+		int userId(FacadeBenchmark b) {
+			return 1 + random.nextInt(b.users);
+		}
+
+		ArrayList<String> genrePair(FacadeBenchmark b) {
+			ArrayList<String> pair = new ArrayList<>(2);
+			pair.add(BenchmarkData.genreName(1 + random.nextInt(b.genres)));
+			pair.add(BenchmarkData.genreName(1 + random.nextInt(b.genres)));
+			return pair;
+		}
+	}
+
+	@Benchmark
+	public ArrayList<String> getSuggestionTitles(Picks picks) {
+		return database.getSuggestionTitles(picks.lobbyOwner(this));
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> getVotes2(Picks picks) {
+		return database.getVotes2(picks.lobbyOwner(this));
+	}
+
+	@Benchmark
+	public ArrayList<Integer> findMovieIdsByGenres(Picks picks) {
+		return database.findMovieIdsByGenres(picks.genrePair(this));
+	}
+
+	@Benchmark
+	public ArrayList<String> getUsersAtLobby(Picks picks) {
+		return database.getUsersAtLobby(picks.lobbyOwner(this));
+	}
+
+	@Benchmark
+	public VoteResult[] getWinnerMovies(Picks picks) {
+		return database.getWinnerMovies(picks.lobbyOwner(this));
+	}
+
+	@Benchmark
+	public boolean validateLogin(Picks picks) {
+		int userId = picks.userId(this);
+		return database.validateLogin(BenchmarkData.username(userId), BenchmarkData.password(userId));
+	}
+}
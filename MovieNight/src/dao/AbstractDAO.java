@@ -1,25 +1,72 @@
 package dao;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+
+import utils.ConnectionProvider;
+import utils.IntObjectMap;
 
 public abstract class AbstractDAO<T> {
-	protected final Connection connection;
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	public static final int DEFAULT_FETCH_SIZE = 500;
+	// Largest IN list sent where arrays are not available; longer id lists are split.
+	private static final int MAX_IN_LIST = 1024;
+	// Cursor for the first page of findPage.
+	public static final int BEFORE_FIRST_ID = Integer.MIN_VALUE;
+	
+	protected final ConnectionProvider connectionProvider;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	// Built once, so the pooled statement cache sees the same SQL text on every call.
+	private volatile Queries queries;
 	
 	public AbstractDAO(Connection connection){
-		this.connection = connection;
+		this(ConnectionProvider.of(connection));
+	}
+	
+	public AbstractDAO(ConnectionProvider connectionProvider){
+		this.connectionProvider = connectionProvider;
 	}
 	
 	protected abstract String getTableName();
 	protected abstract T mapResultSetToEntity(ResultSet rs) throws SQLException;
 	
+	// Not built in the constructor: getTableName() may depend on subclass state.
+	private Queries queries() {
+		Queries built = queries;
+		if (built == null) {
+			built = new Queries(getTableName());
+			queries = built;
+		}
+		return built;
+	}
+	
+	private static final class Queries {
+		final String findById;
+		final String findByIds;
+		final String findAll;
+		final String findPage;
+		final String deleteById;
+		
+		Queries(String table) {
+			this.findById = "SELECT * FROM " + table + " WHERE id = ?";
+			this.findByIds = "SELECT * FROM " + table + " WHERE id";
+			this.findAll = "SELECT * FROM " + table;
+			this.findPage = "SELECT * FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?";
+			this.deleteById = "DELETE FROM " + table + " WHERE id = ?";
+		}
+	}
+	
 	// Create (Insert)
     public boolean create(String insertQuery, Object... parameters) {
-        try (PreparedStatement stmt = connection.prepareStatement(insertQuery)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
             setParameters(stmt, parameters);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -28,10 +75,67 @@ public abstract class AbstractDAO<T> {
         }
     }
 
+    // Create many rows with one statement; see executeBatch.
+    public int createBatch(String insertQuery, List<Object[]> rows) {
+        return executeBatch(insertQuery, rows);
+    }
+
+    // Runs the statement once per parameter row, sending batchSize rows per round trip.
+    // Every chunk is its own transaction: a failing chunk is rolled back and stops the
+    // batch, chunks committed before it stay. Returns the number of rows committed.
+    // Inside a TransactionTemplate unit the chunks join it and commit with it instead.
+    public int executeBatch(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int committed = 0;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (int start = 0; start < rows.size(); start += batchSize) {
+                    int end = Math.min(start + batchSize, rows.size());
+                    for (Object[] row : rows.subList(start, end)) {
+                        setParameters(stmt, row);
+                        stmt.addBatch();
+                    }
+                    try {
+                        stmt.executeBatch();
+                        conn.commit();
+                        committed += end - start;
+                    } catch (SQLException e) {
+                        stmt.clearBatch();
+                        conn.rollback();
+                        throw e;
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            // PostgreSQL reports the failing row in the chained exception
+            SQLException cause = e.getNextException() != null ? e.getNextException() : e;
+            System.err.println("Batch error: " + cause.getMessage());
+        }
+        return committed;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
     // Read (Find by ID)
     public T findById(int id) {
-        String query = "SELECT * FROM " + getTableName() + " WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(queries().findById)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -43,11 +147,67 @@ public abstract class AbstractDAO<T> {
         return null;
     }
 
+    // Read (Find many by ID): one round trip however many ids; missing ids are absent.
+    public IntObjectMap<T> findByIds(int[] ids) {
+        IntObjectMap<T> results = new IntObjectMap<>(ids.length);
+        try {
+            queryByIds(queries().findByIds, ids, rs -> results.put(rs.getInt("id"), mapResultSetToEntity(rs)));
+        } catch (SQLException e) {
+            System.err.println("FindByIds error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    // Runs query + " = ANY(?)" with an int array on PostgreSQL. Elsewhere (H2) it
+    // runs query + " IN (?, ...)", padded to a power of two so only a few distinct
+    // statements reach the statement cache. query must end with the id column.
+    protected void queryByIds(String query, int[] ids, RowHandler handler) throws SQLException {
+        if (ids.length == 0) {
+            return;
+        }
+        try (Connection conn = getConnection()) {
+            if ("PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                Integer[] boxed = new Integer[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    boxed[i] = ids[i];
+                }
+                Array array = conn.createArrayOf("integer", boxed);
+                try (PreparedStatement stmt = conn.prepareStatement(query + " = ANY(?)")) {
+                    stmt.setArray(1, array);
+                    handleRows(stmt, handler);
+                } finally {
+                    array.free();
+                }
+                return;
+            }
+            for (int start = 0; start < ids.length; start += MAX_IN_LIST) {
+                int count = Math.min(MAX_IN_LIST, ids.length - start);
+                int padded = Integer.highestOneBit(count) == count ? count : Integer.highestOneBit(count) << 1;
+                String placeholders = "?" + ", ?".repeat(padded - 1);
+                try (PreparedStatement stmt = conn.prepareStatement(query + " IN (" + placeholders + ")")) {
+                    for (int i = 0; i < padded; i++) {
+                        // Repeating the last id fills the padding without changing the result.
+                        stmt.setInt(i + 1, ids[start + Math.min(i, count - 1)]);
+                    }
+                    handleRows(stmt, handler);
+                }
+            }
+        }
+    }
+
+    private static void handleRows(PreparedStatement stmt, RowHandler handler) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                handler.handle(rs);
+            }
+        }
+    }
+
     // Read (Find All)
     public List<T> findAll() {
-        String query = "SELECT * FROM " + getTableName();
         List<T> results = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(queries().findAll)) {
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 results.add(mapResultSetToEntity(rs));
@@ -58,9 +218,78 @@ public abstract class AbstractDAO<T> {
         return results;
     }
 
+    // Visits every row without holding them all; see streamQuery.
+    public boolean stream(Consumer<? super T> action) {
+        return streamQuery(queries().findAll, rs -> action.accept(mapResultSetToEntity(rs)));
+    }
+
+    // Keyset pagination: up to limit rows with id > afterId, in id order. Pass
+    // BEFORE_FIRST_ID for the first page and the last id seen for the next one.
+    public List<T> findPage(int afterId, int limit) {
+        List<T> results = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(queries().findPage)) {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.add(mapResultSetToEntity(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("FindPage error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    protected interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    // Runs a query and hands each row to the handler as it arrives, fetchSize rows
+    // per round trip. pgjdbc only uses a cursor outside autocommit, so the query runs
+    // in a read transaction of its own unless the caller already has one.
+    protected boolean streamQuery(String query, RowHandler handler, Object... parameters) {
+        try (Connection conn = getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(fetchSize);
+                setParameters(stmt, parameters);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(rs);
+                    }
+                }
+            } finally {
+                if (autoCommit) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Stream error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
     // Update
     public boolean update(String updateQuery, Object... parameters) {
-        try (PreparedStatement stmt = connection.prepareStatement(updateQuery)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
             setParameters(stmt, parameters);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -71,8 +300,8 @@ public abstract class AbstractDAO<T> {
 
     // Delete
     public boolean deleteById(int id) {
-        String query = "DELETE FROM " + getTableName() + " WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(queries().deleteById)) {
             stmt.setInt(1, id);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -83,7 +312,8 @@ public abstract class AbstractDAO<T> {
     
     // Delete with any condition 
     public boolean delete(String deleteQuery, Object... parameters) {
-        try (PreparedStatement stmt = connection.prepareStatement(deleteQuery)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(deleteQuery)) {
             setParameters(stmt, parameters);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -99,7 +329,8 @@ public abstract class AbstractDAO<T> {
         }
     }
 
-	public Connection getConnection() {
-		return connection;
-	}   
+	// Borrows a connection for one operation; close it to give it back.
+	public Connection getConnection() throws SQLException {
+		return connectionProvider.getConnection();
+	}
 }
@@ -5,16 +5,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import models.Actor;
+import utils.ConnectionProvider;
 
 public class ActorDAO extends AbstractDAO<Actor> {
+	private static final String TABLE = "\"Actor\"";
 
 	public ActorDAO(Connection connection) {
 		super(connection);
 	}
 
+	public ActorDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "\"Actor\"";
+		return TABLE;
 	}
 
 	@Override
@@ -27,12 +33,12 @@ public class ActorDAO extends AbstractDAO<Actor> {
 	}
 	
 	public boolean createActor(Actor actor) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (id, fname, lname) VALUES (?, ?, ?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, fname, lname) VALUES (?, ?, ?, ?, ?)";
 	    return create(insertQuery,actor.getId(), actor.getFname(), actor.getLname());
 	}
 	
     public boolean updateActorDetails(int actorId, String fname, String lname) {
-        String updateQuery = "UPDATE " + getTableName() + " SET fname = ?, lname = ? WHERE id = ?";
+        String updateQuery = "UPDATE " + TABLE + " SET fname = ?, lname = ? WHERE id = ?";
         return update(updateQuery, fname, lname, actorId);
     }
 }
@@ -4,18 +4,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import models.Genre;
+import utils.ConnectionProvider;
 
 public class GenreDAO extends AbstractDAO<Genre> {
+	private static final String TABLE = "genre";
 
 	public GenreDAO(Connection connection) {
 		super(connection);
 	}
 
+	public GenreDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "genre";
+		return TABLE;
 	}
 
 	@Override
@@ -27,13 +35,23 @@ public class GenreDAO extends AbstractDAO<Genre> {
 	}
 
 	public boolean createGenre(Genre g) {
-		String insertQuery = "INSERT INTO " + getTableName() + " (id, name) VALUES (?, ?)";
+		String insertQuery = "INSERT INTO " + TABLE + " (id, name) VALUES (?, ?)";
 	    return create(insertQuery, g.getId(), g.getName());
 	}
 
+	public int createGenres(List<Genre> genres) {
+		String insertQuery = "INSERT INTO " + TABLE + " (id, name) VALUES (?, ?)";
+		List<Object[]> rows = new ArrayList<>(genres.size());
+		for (Genre g : genres) {
+			rows.add(new Object[] {g.getId(), g.getName()});
+		}
+		return createBatch(insertQuery, rows);
+	}
+	
 	public Genre getGenre(String name) {
-		String query = "SELECT * FROM " + getTableName() + " WHERE name = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+		String query = "SELECT * FROM " + TABLE + " WHERE name = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, name);
 			ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
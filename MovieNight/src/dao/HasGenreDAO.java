@@ -11,16 +11,22 @@ import models.Genre;
 import models.HasGenre;
 import models.InLobby;
 import models.Movie;
+import utils.ConnectionProvider;
 
 public class HasGenreDAO extends AbstractDAO<HasGenre> {
+	private static final String TABLE = "HasGenre";
 
 	public HasGenreDAO(Connection connection) {
 		super(connection);
 	}
 
+	public HasGenreDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "HasGenre";
+		return TABLE;
 	}
 
 	@Override
@@ -32,14 +38,24 @@ public class HasGenreDAO extends AbstractDAO<HasGenre> {
 	}
 
 	public boolean assignGenreToMovie(Movie m, Genre g) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (movie_id, genre_id) VALUES (?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (movie_id, genre_id) VALUES (?, ?)";
 	    return create(insertQuery, m.getId(), g.getId());
 	}
 	
+	public int assignGenres(List<HasGenre> links) {
+	    String insertQuery = "INSERT INTO " + TABLE + " (movie_id, genre_id) VALUES (?, ?)";
+	    List<Object[]> rows = new ArrayList<>(links.size());
+	    for (HasGenre link : links) {
+	        rows.add(new Object[] {link.getMovieId(), link.getGenreId()});
+	    }
+	    return createBatch(insertQuery, rows);
+	}
+	
 	public List<HasGenre> getMovieGenres(int movieId) {
-    	String query = "SELECT * FROM " + getTableName() + " WHERE movie_id = ?";
+    	String query = "SELECT * FROM " + TABLE + " WHERE movie_id = ?";
         List<HasGenre> results = new ArrayList<>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
         	stmt.setInt(1, movieId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
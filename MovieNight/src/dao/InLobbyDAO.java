@@ -11,15 +11,22 @@ import models.InLobby;
 import models.Invitation;
 import models.Lobby;
 import models.User;
+import utils.ConnectionProvider;
 
 public class InLobbyDAO extends AbstractDAO<InLobby> {
+	private static final String TABLE = "InLobby";
+
 	public InLobbyDAO(Connection connection) {
 		super(connection);
 	}
 
+	public InLobbyDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "InLobby";
+		return TABLE;
 	}
 
 	@Override
@@ -31,24 +38,37 @@ public class InLobbyDAO extends AbstractDAO<InLobby> {
 	}
 	
 	public boolean assignUserToLobby(User u, Lobby l) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (lobby_id, user_id) VALUES (?, ?)";
-	    return create(insertQuery, l.getId(), u.getId());
+	    return assignUserToLobby(u.getId(), l.getId());
+	}
+	
+	public boolean assignUserToLobby(int userId, int lobbyId) {
+	    String insertQuery = "INSERT INTO " + TABLE + " (lobby_id, user_id) VALUES (?, ?)";
+	    return create(insertQuery, lobbyId, userId);
 	}
 	
 	public boolean removeUserToLobby(User u, Lobby l) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where lobby_id = ? and user_id = ?";
-	    return delete(insertQuery, l.getId(), u.getId());
+	    return removeUserFromLobby(u.getId(), l.getId());
+	}
+	
+	public boolean removeUserFromLobby(int userId, int lobbyId) {
+	    String insertQuery = "DELETE FROM " + TABLE + " where lobby_id = ? and user_id = ?";
+	    return delete(insertQuery, lobbyId, userId);
 	}
 	
 	public boolean removeAllUsers(Lobby l) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where lobby_id = ?";
-	    return delete(insertQuery, l.getId());
+	    return removeAllUsers(l.getId());
+	}
+	
+	public boolean removeAllUsers(int lobbyId) {
+	    String insertQuery = "DELETE FROM " + TABLE + " where lobby_id = ?";
+	    return delete(insertQuery, lobbyId);
 	}
 	
     public List<InLobby> findByLobbyId(int lobbyId) {
-    	String query = "SELECT * FROM " + getTableName() + " WHERE lobby_id = ?";
+    	String query = "SELECT * FROM " + TABLE + " WHERE lobby_id = ?";
         List<InLobby> results = new ArrayList<>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
         	stmt.setInt(1, lobbyId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -61,8 +81,9 @@ public class InLobbyDAO extends AbstractDAO<InLobby> {
     }
     
     public InLobby findByUserId(int userId) {
-    	String query = "SELECT * FROM " + getTableName() + " WHERE user_id = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+    	String query = "SELECT * FROM " + TABLE + " WHERE user_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
         	stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
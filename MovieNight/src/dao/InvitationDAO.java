@@ -11,15 +11,22 @@ import models.Invitation;
 import models.Lobby;
 import models.Lobby;
 import models.User;
+import utils.ConnectionProvider;
 
 public class InvitationDAO extends AbstractDAO<Invitation> {
+	private static final String TABLE = "Invitation";
+
 	public InvitationDAO(Connection connection) {
 		super(connection);
 	}
 
+	public InvitationDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "Invitation";
+		return TABLE;
 	}
 
 	@Override
@@ -32,24 +39,25 @@ public class InvitationDAO extends AbstractDAO<Invitation> {
 	}
 	
 	public boolean createInvitation(Invitation invitation) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (sender_id, lobby_id, receiver_id) VALUES (?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (sender_id, lobby_id, receiver_id) VALUES (?, ?, ?)";
 	    return create(insertQuery, invitation.getSenderId(), invitation.getLobbyId(), invitation.getReceiverId());
 	}
 	
 	public boolean deleteInvitation(int senderId, int receiverId) {
-	    String deleteQuery = "DELETE FROM " + getTableName() + " WHERE sender_id = ? AND receiver_id = ?";
+	    String deleteQuery = "DELETE FROM " + TABLE + " WHERE sender_id = ? AND receiver_id = ?";
 	    return delete(deleteQuery, senderId, receiverId);
 	}
 	
 	public boolean removeAllInvitations(int senderId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where sender_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " where sender_id = ?";
 	    return delete(insertQuery, senderId);
 	}
 	
     public List<Invitation> findByReceiver(int receiverId) {
-    	String query = "SELECT * FROM " + getTableName() + " WHERE receiver_id = ?";
+    	String query = "SELECT * FROM " + TABLE + " WHERE receiver_id = ?";
         List<Invitation> results = new ArrayList<>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
         	stmt.setInt(1, receiverId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -62,9 +70,10 @@ public class InvitationDAO extends AbstractDAO<Invitation> {
     }
     
     public List<Invitation> findBySender(int senderId) {
-    	String query = "SELECT * FROM " + getTableName() + " WHERE sender_id = ?";
+    	String query = "SELECT * FROM " + TABLE + " WHERE sender_id = ?";
         List<Invitation> results = new ArrayList<>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
         	stmt.setInt(1, senderId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -76,7 +85,16 @@ public class InvitationDAO extends AbstractDAO<Invitation> {
         return results;
     }
 	public boolean sendInvitation(User sender, Lobby lobby, User receiver) {
-		String insertQuery = "INSERT INTO " + getTableName() + " (sender_id, lobby_id, receiver_id) VALUES (?, ?, ?)";
+		String insertQuery = "INSERT INTO " + TABLE + " (sender_id, lobby_id, receiver_id) VALUES (?, ?, ?)";
 	    return create(insertQuery, sender.getId(), lobby.getId(), receiver.getId());
 	}
+	
+	public int sendInvitations(User sender, Lobby lobby, List<User> receivers) {
+		String insertQuery = "INSERT INTO " + TABLE + " (sender_id, lobby_id, receiver_id) VALUES (?, ?, ?)";
+		List<Object[]> rows = new ArrayList<>(receivers.size());
+		for (User receiver : receivers) {
+			rows.add(new Object[] {sender.getId(), lobby.getId(), receiver.getId()});
+		}
+		return createBatch(insertQuery, rows);
+	}
 }
@@ -5,19 +5,36 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import models.Lobby;
 import models.Movie;
+import utils.ConnectionProvider;
 
 public class LobbyDAO extends AbstractDAO<Lobby> {
+	private static final String TABLE = "Lobby";
+	private static final String IF_EMPTY = " AND NOT EXISTS (SELECT 1 FROM InLobby WHERE lobby_id = ?)";
+	// In the trigger's order; the last one removes the lobby itself.
+	private static final String[] DELETE_IF_EMPTY_QUERIES = {
+			"DELETE FROM Vote WHERE lobby_id = ?" + IF_EMPTY,
+			"DELETE FROM Suggestion WHERE lobby_id = ?" + IF_EMPTY,
+			"DELETE FROM Invitation WHERE lobby_id = ?" + IF_EMPTY,
+			"DELETE FROM " + TABLE + " WHERE id = ?" + IF_EMPTY,
+	};
+
 	public LobbyDAO(Connection connection) {
 		super(connection);
 	}
 
+	public LobbyDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "Lobby";
+		return TABLE;
 	}
 
 	@Override
@@ -31,18 +48,19 @@ public class LobbyDAO extends AbstractDAO<Lobby> {
 	}
 	
 	public boolean createLobby(int lobbyId, int ownerId) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (id, owner_id, is_ready, date) VALUES (?, ?, FALSE, now())";
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, owner_id, is_ready, date) VALUES (?, ?, FALSE, now())";
 	    return create(insertQuery, lobbyId, ownerId);
 	}
 	
 	public boolean deleteLobby(int lobbyId) {
-	    String deleteQuery = "DELETE FROM " + getTableName() + " WHERE id = ?";
+	    String deleteQuery = "DELETE FROM " + TABLE + " WHERE id = ?";
 	    return delete(deleteQuery, lobbyId);
 	}
 	
 	public boolean lobbyExists(int ownerId) {
 	    String query = "SELECT COUNT(*) FROM lobby WHERE owner_id = ?";
-	    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+	    try (Connection conn = getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
 	        stmt.setInt(1, ownerId);
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            if (rs.next()) {
@@ -55,7 +73,48 @@ public class LobbyDAO extends AbstractDAO<Lobby> {
 	    return false;
 	}
 	
-	public class VoteResult {
+	// Id of the owner's lobby, or null when the owner has none. An owner has one lobby at a
+	// time; should there be more, the newest wins.
+	public Integer findIdByOwner(int ownerId) {
+	    String query = "SELECT id FROM " + TABLE + " WHERE owner_id = ? ORDER BY id DESC LIMIT 1";
+	    try (Connection conn = getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
+	        stmt.setInt(1, ownerId);
+	        try (ResultSet rs = stmt.executeQuery()) {
+	            if (rs.next()) {
+	                return rs.getInt("id");
+	            }
+	        }
+	    } catch (SQLException e) {
+	        System.err.println("FindIdByOwner error: " + e.getMessage());
+	    }
+	    return null;
+	}
+	
+	// What the delete_lobby_if_empty trigger does on PostgreSQL, for databases without it
+	// (H2): once nobody is in the lobby, drops it with its votes, suggestions and invitations.
+	// Call it after removing members, in the same unit of work. True if the lobby was dropped.
+	public boolean deleteIfEmpty(int lobbyId) {
+	    try (Connection conn = getConnection()) {
+	        if ("PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+	            return false;
+	        }
+	        int deleted = 0;
+	        for (String query : DELETE_IF_EMPTY_QUERIES) {
+	            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+	                stmt.setInt(1, lobbyId);
+	                stmt.setInt(2, lobbyId);
+	                deleted = stmt.executeUpdate();
+	            }
+	        }
+	        return deleted > 0;
+	    } catch (SQLException e) {
+	        System.err.println("DeleteIfEmpty error: " + e.getMessage());
+	        return false;
+	    }
+	}
+	
+	public static class VoteResult {
 	    public int movieID;
 	    public String movieTitle;  // Should be a String for the movie title
 	    public int voteCount;
@@ -64,8 +123,16 @@ public class LobbyDAO extends AbstractDAO<Lobby> {
 	public VoteResult[] getWinningMoviesByVotes(int lobbyID) {
 	    List<VoteResult> results = new ArrayList<>();  // Use a list to dynamically collect results
 
-	    String query = "SELECT * from get_winning_movies_by_votes(?)";
-	    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+	    // vote_tally is maintained by triggers on Vote, so this is an indexed read.
+	    String query = """
+	            SELECT t.movie_id, m.title AS movie_title, t.vote_count
+	            FROM vote_tally t
+	            JOIN Movie m ON m.id = t.movie_id
+	            WHERE t.lobby_id = ? AND t.vote_count > 0
+	            ORDER BY t.vote_count DESC, t.movie_id
+	            """;
+	    try (Connection conn = getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
 	        stmt.setInt(1, lobbyID);
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            while (rs.next()) {
@@ -77,20 +144,64 @@ public class LobbyDAO extends AbstractDAO<Lobby> {
 	            }
 	        }
 	    } catch (SQLException e) {
-	        System.err.println("Error checking lobby existence: " + e.getMessage());
+	        System.err.println("GetWinningMoviesByVotes error: " + e.getMessage());
 	        return null;
 	    }
 
 	    return results.toArray(new VoteResult[0]);  // Convert the list to an array and return it
 	}
 	
+	// change_seq is bumped on every lobby change; H2 test schemas may not have it.
+	public boolean hasChangeSeq() {
+	    String query = "SELECT change_seq FROM " + TABLE + " WHERE 1 = 0";
+	    try (Connection conn = getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
+	        stmt.executeQuery();
+	        return true;
+	    } catch (SQLException e) {
+	        return false;
+	    }
+	}
+	
+	public long getChangeSeq(int lobbyId) {
+	    String query = "SELECT change_seq FROM " + TABLE + " WHERE id = ?";
+	    try (Connection conn = getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
+	        stmt.setInt(1, lobbyId);
+	        try (ResultSet rs = stmt.executeQuery()) {
+	            if (rs.next()) {
+	                return rs.getLong(1);
+	            }
+	        }
+	    } catch (SQLException e) {
+	        System.err.println("GetChangeSeq error: " + e.getMessage());
+	    }
+	    return -1;
+	}
+	
+	public Map<Integer, Long> findChangeSeqs(int[] lobbyIds) {
+	    Map<Integer, Long> results = new HashMap<>();
+	    String query = "SELECT id, change_seq FROM " + TABLE + " WHERE id";
+	    try {
+	        queryByIds(query, lobbyIds, rs -> results.put(rs.getInt("id"), rs.getLong("change_seq")));
+	    } catch (SQLException e) {
+	        System.err.println("FindChangeSeqs error: " + e.getMessage());
+	    }
+	    return results;
+	}
+	
+	public boolean bumpChangeSeq(int lobbyId) {
+		String updateQuery = "UPDATE " + TABLE + " SET change_seq = change_seq + 1 WHERE id = ?";
+		return update(updateQuery, lobbyId);
+	}
+	
 	public boolean setLobbyReady(int lobbyId) {
-		String updateQuery = "UPDATE " + getTableName() + " SET is_ready = TRUE WHERE id = ?";
+		String updateQuery = "UPDATE " + TABLE + " SET is_ready = TRUE WHERE id = ?";
 		return update(updateQuery, lobbyId);
 	}
 
 	public boolean createLobby(Lobby lobby) {
-		String insertQuery = "INSERT INTO " + getTableName() + " (id, owner_id, date) VALUES (?, ?, ?)";
+		String insertQuery = "INSERT INTO " + TABLE + " (id, owner_id, date) VALUES (?, ?, ?)";
 	    return create(insertQuery, lobby.getId(), lobby.getOwnerId(), lobby.getDate());
 	}
 }
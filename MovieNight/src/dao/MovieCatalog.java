@@ -0,0 +1,249 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import models.Genre;
+import models.HasGenre;
+import models.Movie;
+import search.GenreBitmapIndex;
+import search.TitleIndex;
+
+/**
+ * Read-through cache of the movie catalog (movies, genres and their links).
+ *
+ * The whole catalog is loaded into arrays sorted by movie id and replaced as
+ * one snapshot when the catalog_version counter in the database moves. The
+ * counter is checked at most once per {@code versionCheckIntervalMillis};
+ * without a counter (H2 test schemas) the catalog is simply reloaded that
+ * often. One thread checks and reloads while the others keep reading the
+ * previous snapshot; only the very first load makes readers wait.
+ */
+public class MovieCatalog {
+	private static final long DEFAULT_VERSION_CHECK_INTERVAL_MILLIS = 1_000;
+
+	private final MovieDAO movieDAO;
+	private final GenreDAO genreDAO;
+	private final HasGenreDAO hasGenreDAO;
+	private final long versionCheckIntervalMillis;
+
+	// Not synchronized: callers are often virtual threads, which must not block in JDBC while pinned.
+	private final ReentrantLock reloadLock = new ReentrantLock();
+	private volatile Snapshot snapshot;
+	private volatile long lastVersionCheck;
+
+	public MovieCatalog(MovieDAO movieDAO, GenreDAO genreDAO, HasGenreDAO hasGenreDAO) {
+		this(movieDAO, genreDAO, hasGenreDAO, DEFAULT_VERSION_CHECK_INTERVAL_MILLIS);
+	}
+
+	public MovieCatalog(MovieDAO movieDAO, GenreDAO genreDAO, HasGenreDAO hasGenreDAO, long versionCheckIntervalMillis) {
+		this.movieDAO = movieDAO;
+		this.genreDAO = genreDAO;
+		this.hasGenreDAO = hasGenreDAO;
+		this.versionCheckIntervalMillis = versionCheckIntervalMillis;
+	}
+
+	private static final class Snapshot {
+		final long version;
+		final int[] movieIds;          // sorted
+		final String[] titles;
+		final String[] descriptions;
+		final String[] trailerPaths;
+		final int[] genreOffsets;      // genres of movie i are genreRefs[genreOffsets[i] .. genreOffsets[i + 1])
+		final int[] genreRefs;         // indexes into genreIds / genreNames
+		final int[] genreIds;          // sorted
+		final String[] genreNames;
+		volatile TitleIndex titleIndex;    // built on first use
+		volatile GenreBitmapIndex genreIndex;
+
+		Snapshot(long version, List<Movie> movies, List<Genre> genres, List<HasGenre> links) {
+			this.version = version;
+
+			Movie[] sortedMovies = movies.toArray(new Movie[0]);
+			Arrays.sort(sortedMovies, (a, b) -> Integer.compare(a.getId(), b.getId()));
+			int n = sortedMovies.length;
+			movieIds = new int[n];
+			titles = new String[n];
+			descriptions = new String[n];
+			trailerPaths = new String[n];
+			for (int i = 0; i < n; i++) {
+				movieIds[i] = sortedMovies[i].getId();
+				titles[i] = sortedMovies[i].getTitle();
+				descriptions[i] = sortedMovies[i].getDescription();
+				trailerPaths[i] = sortedMovies[i].getTrailerPath();
+			}
+
+			Genre[] sortedGenres = genres.toArray(new Genre[0]);
+			Arrays.sort(sortedGenres, (a, b) -> Integer.compare(a.getId(), b.getId()));
+			genreIds = new int[sortedGenres.length];
+			genreNames = new String[sortedGenres.length];
+			for (int i = 0; i < sortedGenres.length; i++) {
+				genreIds[i] = sortedGenres[i].getId();
+				genreNames[i] = sortedGenres[i].getName();
+			}
+
+			// Counting sort of the links by movie, keeping their original order per movie.
+			genreOffsets = new int[n + 1];
+			int[] linkMovie = new int[links.size()];
+			int[] linkGenre = new int[links.size()];
+			int linkCount = 0;
+			for (HasGenre link : links) {
+				int movie = Arrays.binarySearch(movieIds, link.getMovieId());
+				int genre = Arrays.binarySearch(genreIds, link.getGenreId());
+				if (movie >= 0 && genre >= 0) {
+					linkMovie[linkCount] = movie;
+					linkGenre[linkCount] = genre;
+					genreOffsets[movie + 1]++;
+					linkCount++;
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				genreOffsets[i + 1] += genreOffsets[i];
+			}
+			genreRefs = new int[linkCount];
+			int[] next = Arrays.copyOf(genreOffsets, n);
+			for (int i = 0; i < linkCount; i++) {
+				genreRefs[next[linkMovie[i]]++] = linkGenre[i];
+			}
+		}
+
+		int indexOf(int movieId) {
+			return Arrays.binarySearch(movieIds, movieId);
+		}
+	}
+
+	private Snapshot current() {
+		Snapshot s = snapshot;
+		if (s != null && System.currentTimeMillis() - lastVersionCheck < versionCheckIntervalMillis) {
+			return s;
+		}
+		if (s == null) {
+			reloadLock.lock();
+		} else if (!reloadLock.tryLock()) {
+			return s;   // another thread is checking
+		}
+		try {
+			s = snapshot;
+			long now = System.currentTimeMillis();
+			if (s != null && now - lastVersionCheck < versionCheckIntervalMillis) {
+				return s;
+			}
+			long version = movieDAO.getCatalogVersion();
+			if (s == null || version < 0 || version != s.version) {
+				// Read the version first: a change during the load just triggers another reload.
+				s = new Snapshot(version, movieDAO.findAll(), genreDAO.findAll(), hasGenreDAO.findAll());
+				snapshot = s;
+			}
+			lastVersionCheck = now;
+			return s;
+		} finally {
+			reloadLock.unlock();
+		}
+	}
+
+	public long getVersion() {
+		return current().version;
+	}
+
+	public int size() {
+		return current().movieIds.length;
+	}
+
+	public int[] getMovieIds() {
+		return current().movieIds.clone();
+	}
+
+	public boolean contains(int movieId) {
+		return current().indexOf(movieId) >= 0;
+	}
+
+	public String getTitle(int movieId) {
+		Snapshot s = current();
+		int i = s.indexOf(movieId);
+		return i < 0 ? null : s.titles[i];
+	}
+
+	public interface MovieConsumer {
+		void accept(int movieId, String title);
+	}
+
+	// Visits every movie in id order, all from the same snapshot.
+	public void forEachMovie(MovieConsumer consumer) {
+		Snapshot s = current();
+		for (int i = 0; i < s.movieIds.length; i++) {
+			consumer.accept(s.movieIds[i], s.titles[i]);
+		}
+	}
+
+	// Substring index over the titles of the current snapshot, built once per snapshot.
+	public TitleIndex getTitleIndex() {
+		Snapshot s = current();
+		TitleIndex index = s.titleIndex;
+		if (index == null) {
+			index = TitleIndex.build(s.movieIds, s.titles);
+			s.titleIndex = index;
+		}
+		return index;
+	}
+
+	// Genre bitmaps over the current snapshot, built once per snapshot.
+	public GenreBitmapIndex getGenreIndex() {
+		Snapshot s = current();
+		GenreBitmapIndex index = s.genreIndex;
+		if (index == null) {
+			GenreBitmapIndex.Builder builder = new GenreBitmapIndex.Builder(s.movieIds, s.genreIds, s.genreNames);
+			for (int i = 0; i < s.movieIds.length; i++) {
+				for (int j = s.genreOffsets[i]; j < s.genreOffsets[i + 1]; j++) {
+					builder.add(i, s.genreRefs[j]);
+				}
+			}
+			index = builder.build();
+			s.genreIndex = index;
+		}
+		return index;
+	}
+
+	public String getDescription(int movieId) {
+		Snapshot s = current();
+		int i = s.indexOf(movieId);
+		return i < 0 ? null : s.descriptions[i];
+	}
+
+	public String getTrailerPath(int movieId) {
+		Snapshot s = current();
+		int i = s.indexOf(movieId);
+		return i < 0 ? null : s.trailerPaths[i];
+	}
+
+	public List<String> getGenreNames(int movieId) {
+		Snapshot s = current();
+		int i = s.indexOf(movieId);
+		List<String> names = new ArrayList<>();
+		if (i >= 0) {
+			for (int j = s.genreOffsets[i]; j < s.genreOffsets[i + 1]; j++) {
+				names.add(s.genreNames[s.genreRefs[j]]);
+			}
+		}
+		return names;
+	}
+
+	public int[] getGenreIds(int movieId) {
+		Snapshot s = current();
+		int i = s.indexOf(movieId);
+		if (i < 0) {
+			return new int[0];
+		}
+		int[] ids = new int[s.genreOffsets[i + 1] - s.genreOffsets[i]];
+		for (int j = 0; j < ids.length; j++) {
+			ids[j] = s.genreIds[s.genreRefs[s.genreOffsets[i] + j]];
+		}
+		return ids;
+	}
+
+	public List<String> getAllGenreNames() {
+		return Collections.unmodifiableList(Arrays.asList(current().genreNames));
+	}
+}
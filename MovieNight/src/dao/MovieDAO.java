@@ -10,16 +10,22 @@ import java.util.List;
 import models.HasGenre;
 import models.InLobby;
 import models.Movie;
+import utils.ConnectionProvider;
 
 public class MovieDAO extends AbstractDAO<Movie> {
+	private static final String TABLE = "Movie";
 
 	public MovieDAO(Connection connection) {
 		super(connection);
 	}
 
+	public MovieDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "Movie";
+		return TABLE;
 	}
 
 	@Override
@@ -33,18 +39,28 @@ public class MovieDAO extends AbstractDAO<Movie> {
 	}
 	
 	public boolean createMovieWithID(Movie movie) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (id, title, description, trailerPath) VALUES (?, ?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, title, description, trailerPath) VALUES (?, ?, ?, ?)";
 	    return create(insertQuery, movie.getId(), movie.getTitle(), movie.getDescription(), movie.getTrailerPath());
 	}
 	
+	public int createMoviesWithID(List<Movie> movies) {
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, title, description, trailerPath) VALUES (?, ?, ?, ?)";
+	    List<Object[]> rows = new ArrayList<>(movies.size());
+	    for (Movie movie : movies) {
+	        rows.add(new Object[] {movie.getId(), movie.getTitle(), movie.getDescription(), movie.getTrailerPath()});
+	    }
+	    return createBatch(insertQuery, rows);
+	}
+	
 	public boolean createMovie(Movie movie) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (title, description, trailerPath) VALUES (?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (title, description, trailerPath) VALUES (?, ?, ?)";
 	    return create(insertQuery, movie.getTitle(), movie.getDescription(), movie.getTrailerPath());
 	}
 	
     public Movie findByTitle(String title) {
-        String query = "SELECT * FROM " + getTableName() + " WHERE title = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        String query = "SELECT * FROM " + TABLE + " WHERE title = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, title);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -56,8 +72,23 @@ public class MovieDAO extends AbstractDAO<Movie> {
         return null;
     }
     
+    // Bumped by triggers whenever Movie, Genre or HasGenre change; -1 if the counter is unavailable.
+    public long getCatalogVersion() {
+        String query = "SELECT version FROM catalog_version WHERE id = 1";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("version");
+            }
+        } catch (SQLException e) {
+            // Schemas without the counter (e.g. H2 test databases) are simply never cached.
+        }
+        return -1;
+    }
+    
     public boolean updateUserDetails(int userId, String fname, String lname) {
-        String updateQuery = "UPDATE " + getTableName() + " SET fname = ?, lname = ? WHERE id = ?";
+        String updateQuery = "UPDATE " + TABLE + " SET fname = ?, lname = ? WHERE id = ?";
         return update(updateQuery, fname, lname, userId);
     }
     
@@ -66,7 +97,8 @@ public class MovieDAO extends AbstractDAO<Movie> {
         List<Movie> movies = new ArrayList<>();
         String query = "SELECT * FROM get_movies_by_all_genres(?)";
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             // Convert primitive int[] to Integer[] for compatibility with createArrayOf
             Integer[] genreIdsObject = new Integer[genreIds.length];
             for (int i = 0; i < genreIds.length; i++) {
@@ -74,7 +106,7 @@ public class MovieDAO extends AbstractDAO<Movie> {
             }
 
             // Set the genre array as a parameter
-            stmt.setArray(1, getConnection().createArrayOf("INTEGER", genreIdsObject));
+            stmt.setArray(1, conn.createArrayOf("INTEGER", genreIdsObject));
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
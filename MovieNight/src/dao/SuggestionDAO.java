@@ -10,15 +10,22 @@ import java.util.List;
 import models.Lobby;
 import models.Suggestion;
 import models.User;
+import utils.ConnectionProvider;
 
 public class SuggestionDAO extends AbstractDAO<Suggestion> {
+	private static final String TABLE = "Suggestion";
+
 	public SuggestionDAO(Connection connection) {
 		super(connection);
 	}
 
+	public SuggestionDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "Suggestion";
+		return TABLE;
 	}
 
 	@Override
@@ -31,20 +38,21 @@ public class SuggestionDAO extends AbstractDAO<Suggestion> {
 	}
 	
 	public boolean addSuggestion(int lobbyId, int userId, int movieId) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (lobby_id, suggested_by, movie_id) VALUES (?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (lobby_id, suggested_by, movie_id) VALUES (?, ?, ?)";
 	    return create(insertQuery, lobbyId, userId, movieId);
 	    // TODO: Do not insert if suggestion already exists.
 	}
 	
 	public boolean removeSuggestion(int lobbyId, int movieId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where lobby_id = ? and movie_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " where lobby_id = ? and movie_id = ?";
 	    return delete(insertQuery, lobbyId, movieId);
 	}
 	
     public List<Suggestion> findByLobbyId(int lobbyId) {
-        String query = "SELECT * FROM " + getTableName() + " WHERE lobby_id = ?";
+        String query = "SELECT * FROM " + TABLE + " WHERE lobby_id = ? ORDER BY movie_id";
         List<Suggestion> results = new ArrayList<Suggestion>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, lobbyId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -56,9 +64,48 @@ public class SuggestionDAO extends AbstractDAO<Suggestion> {
         return results;
     }
     
+    public static class SuggestionDetail {
+        public int movieId;
+        public String movieTitle;
+        public String suggestedBy;
+        public int voteCount;
+    }
+
+    // Suggestions of a lobby with movie title, suggester and vote count in one round trip.
+    public List<SuggestionDetail> findDetailsByLobbyId(int lobbyId) {
+        String query = """
+                SELECT s.movie_id, m.title, u.username, COUNT(v.user_id) AS vote_count
+                FROM Suggestion s
+                JOIN Movie m ON m.id = s.movie_id
+                JOIN "User" u ON u.id = s.suggested_by
+                LEFT JOIN Vote v ON v.lobby_id = s.lobby_id AND v.movie_id = s.movie_id
+                WHERE s.lobby_id = ?
+                GROUP BY s.movie_id, m.title, u.username
+                ORDER BY s.movie_id
+                """;
+        List<SuggestionDetail> results = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, lobbyId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                SuggestionDetail detail = new SuggestionDetail();
+                detail.movieId = rs.getInt("movie_id");
+                detail.movieTitle = rs.getString("title");
+                detail.suggestedBy = rs.getString("username");
+                detail.voteCount = rs.getInt("vote_count");
+                results.add(detail);
+            }
+        } catch (SQLException e) {
+            System.err.println("FindDetailsByLobbyId error: " + e.getMessage());
+        }
+        return results;
+    }
+    
     public boolean suggestionExists(int lobbyId, int userId, int movieId) {
         String query = "SELECT COUNT(*) FROM suggestion WHERE lobby_id = ? AND suggested_by = ? AND movie_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, lobbyId);
             stmt.setInt(2, userId);
             stmt.setInt(3, movieId);
@@ -74,7 +121,7 @@ public class SuggestionDAO extends AbstractDAO<Suggestion> {
     }
     
 	public boolean removeAllSuggestions(int lobbyId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where lobby_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " where lobby_id = ?";
 	    return delete(insertQuery, lobbyId);
 	}
 }
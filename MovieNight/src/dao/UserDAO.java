@@ -4,20 +4,31 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import models.User;
+import utils.ConnectionProvider;
+import utils.IntObjectMap;
 
 public class UserDAO extends AbstractDAO<User> {
+	private static final String TABLE = "\"User\"";
 
 	public UserDAO(Connection connection) {
 		super(connection);
 	}
 
+	public UserDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "\"User\"";
+		return TABLE;
 	}
 
 	@Override
@@ -33,18 +44,28 @@ public class UserDAO extends AbstractDAO<User> {
     }
 	
 	public boolean createUserWithID(User user) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (id, fname, lname, username, password) VALUES (?, ?, ?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, fname, lname, username, password) VALUES (?, ?, ?, ?, ?)";
 	    return create(insertQuery, user.getId(), user.getFname(), user.getLname(), user.getUsername(), user.getPassword());
 	}
 	
+	public int createUsersWithID(List<User> users) {
+	    String insertQuery = "INSERT INTO " + TABLE + " (id, fname, lname, username, password) VALUES (?, ?, ?, ?, ?)";
+	    List<Object[]> rows = new ArrayList<>(users.size());
+	    for (User user : users) {
+	        rows.add(new Object[] {user.getId(), user.getFname(), user.getLname(), user.getUsername(), user.getPassword()});
+	    }
+	    return createBatch(insertQuery, rows);
+	}
+	
 	public boolean createUser(User user) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (fname, lname, username, password) VALUES (?, ?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (fname, lname, username, password) VALUES (?, ?, ?, ?)";
 	    return create(insertQuery, user.getFname(), user.getLname(), user.getUsername(), user.getPassword());
 	}
 	
     public User findByUsername(String username) {
-        String query = "SELECT * FROM " + getTableName() + " WHERE username = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        String query = "SELECT * FROM " + TABLE + " WHERE username = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -56,19 +77,50 @@ public class UserDAO extends AbstractDAO<User> {
         return null;
     }
     
+    public Integer findIdByUsername(String username) {
+        String query = "SELECT id FROM user_identifiers WHERE username = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("id");
+            }
+        } catch (SQLException e) {
+            System.err.println("FindIdByUsername error: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    public String findUsernameById(int id) {
+        String query = "SELECT username FROM user_identifiers WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, id);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getString("username");
+            }
+        } catch (SQLException e) {
+            System.err.println("FindUsernameById error: " + e.getMessage());
+        }
+        return null;
+    }
+    
     public boolean updateUserDetails(int userId, String fname, String lname) {
-        String updateQuery = "UPDATE " + getTableName() + " SET fname = ?, lname = ? WHERE id = ?";
+        String updateQuery = "UPDATE " + TABLE + " SET fname = ?, lname = ? WHERE id = ?";
         return update(updateQuery, fname, lname, userId);
     }
     
     public boolean updateUserPassword(int userId, String password) {
-        String updateQuery = "UPDATE " + getTableName() + " SET password = ? WHERE id = ?";
+        String updateQuery = "UPDATE " + TABLE + " SET password = ? WHERE id = ?";
         return update(updateQuery, password, userId);
     }
     
     public boolean getUserByCredentials(String username, String password) {
         String query = "SELECT * FROM get_user_by_credentials(?, ?)";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, username);
             stmt.setString(2, password);
             ResultSet rs = stmt.executeQuery();
@@ -84,7 +136,8 @@ public class UserDAO extends AbstractDAO<User> {
     public List<String> findAllUsername() {
         String query = "SELECT * FROM user_identifiers";
         List<String> results = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 results.add(rs.getString("username"));
@@ -95,4 +148,191 @@ public class UserDAO extends AbstractDAO<User> {
         return results;
 
     }
+
+    // Usernames of many users in one round trip; unknown ids are absent.
+    public IntObjectMap<String> findUsernamesByIds(int[] ids) {
+        String query = "SELECT id, username FROM user_identifiers WHERE id";
+        IntObjectMap<String> results = new IntObjectMap<>(ids.length);
+        try {
+            queryByIds(query, ids, rs -> results.put(rs.getInt("id"), rs.getString("username")));
+        } catch (SQLException e) {
+            System.err.println("FindUsernamesByIds error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    public Map<Integer, String> findAllIdentifiers() {
+        String query = "SELECT id, username FROM user_identifiers";
+        Map<Integer, String> results = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getInt("id"), rs.getString("username"));
+            }
+        } catch (SQLException e) {
+            System.err.println("FindAllIdentifiers error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    // One keyset page of user_identifiers in id order; a non-blank filter keeps
+    // usernames containing it. See AbstractDAO.findPage.
+    public Map<Integer, String> findIdentifierPage(int afterId, int limit, String filter) {
+        boolean filtered = filter != null && !filter.isBlank();
+        String query = filtered
+                ? "SELECT id, username FROM user_identifiers WHERE id > ? AND username LIKE ? ORDER BY id LIMIT ?"
+                : "SELECT id, username FROM user_identifiers WHERE id > ? ORDER BY id LIMIT ?";
+        Map<Integer, String> results = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setInt(i++, afterId);
+            if (filtered) {
+                stmt.setString(i++, "%" + escapeLike(filter) + "%");
+            }
+            stmt.setInt(i, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getInt("id"), rs.getString("username"));
+            }
+        } catch (SQLException e) {
+            System.err.println("FindIdentifierPage error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    // Visits id and username of every user with an id above afterId, in id order,
+    // without holding them all. Pass BEFORE_FIRST_ID for every user.
+    public boolean streamIdentifiers(int afterId, IntObjectMap.Consumer<String> consumer) {
+        String query = "SELECT id, username FROM user_identifiers WHERE id > ? ORDER BY id";
+        return streamQuery(query, rs -> consumer.accept(rs.getInt("id"), rs.getString("username")), afterId);
+    }
+
+    // Visits id and username of every user created at or after since, by the database's
+    // created_at, and returns the latest created_at seen (since if none), or null on error.
+    // Ids are handed out in blocks per process, so a new user's id may be below ones seen.
+    public Timestamp streamIdentifiersCreatedSince(Timestamp since, IntObjectMap.Consumer<String> consumer) {
+        String query = "SELECT id, username, created_at FROM " + TABLE + " WHERE created_at >= ? ORDER BY created_at";
+        Timestamp[] latest = { since };
+        boolean streamed = streamQuery(query, rs -> {
+            consumer.accept(rs.getInt("id"), rs.getString("username"));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            if (createdAt.after(latest[0])) {
+                latest[0] = createdAt;
+            }
+        }, since);
+        return streamed ? latest[0] : null;
+    }
+
+    // Latest created_at of any user, or the epoch when there are none; null on error.
+    public Timestamp findLatestCreatedAt() {
+        String query = "SELECT MAX(created_at) FROM " + TABLE;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            Timestamp latest = rs.next() ? rs.getTimestamp(1) : null;
+            return latest != null ? latest : new Timestamp(0);
+        } catch (SQLException e) {
+            System.err.println("FindLatestCreatedAt error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // One keyset page of the users whose name starts with prefix, ignoring case, ordered by
+    // lower(username) and id, the order of "User"'s lower(username) index. afterUsername and
+    // afterId are the last user of the previous page; a null afterUsername starts at the top.
+    public Map<Integer, String> findIdentifierPrefixPage(String prefix, String afterUsername, int afterId, int limit) {
+        String query = afterUsername == null
+                ? "SELECT id, username FROM user_identifiers WHERE lower(username) LIKE ? "
+                        + "ORDER BY lower(username), id LIMIT ?"
+                : "SELECT id, username FROM user_identifiers WHERE lower(username) LIKE ? "
+                        + "AND (lower(username) > ? OR (lower(username) = ? AND id > ?)) "
+                        + "ORDER BY lower(username), id LIMIT ?";
+        Map<Integer, String> results = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int i = 1;
+            stmt.setString(i++, escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%");
+            if (afterUsername != null) {
+                String afterKey = afterUsername.toLowerCase(Locale.ROOT);
+                stmt.setString(i++, afterKey);
+                stmt.setString(i++, afterKey);
+                stmt.setInt(i++, afterId);
+            }
+            stmt.setInt(i, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getInt("id"), rs.getString("username"));
+            }
+        } catch (SQLException e) {
+            System.err.println("FindIdentifierPrefixPage error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    // What the home screen shows about one user, names resolved. Lists are in user id order.
+    public static class HomeSnapshot {
+        public ArrayList<String> invitationsFrom = new ArrayList<>();   // senders of invitations to the user
+        public ArrayList<String> invitationsTo = new ArrayList<>();     // receivers of the user's invitations
+        public ArrayList<String> lobbyMembers = new ArrayList<>();      // members of the user's own lobby
+        public String lobbyOwner;                                       // owner of the lobby the user is in, or null
+    }
+
+    private static final int INVITATION_FROM = 1;
+    private static final int INVITATION_TO = 2;
+    private static final int LOBBY_MEMBER = 3;
+    private static final int LOBBY_OWNER = 4;
+
+    // The whole home screen in one round trip; an unknown username gives an empty snapshot.
+    // Every branch looks the user up itself, so each one is an index lookup; joining the user
+    // to a union of all four would read all of Invitation and InLobby. No CTE: H2 reuses the
+    // result of a CTE that takes a parameter. Lobbies are reported by their owner.
+    public static final String HOME_SNAPSHOT_QUERY = """
+            SELECT 1 AS kind, i.sender_id AS user_id, u.username
+            FROM Invitation i JOIN "User" u ON u.id = i.sender_id
+            WHERE i.receiver_id = (SELECT id FROM "User" WHERE username = ?)
+            UNION ALL
+            SELECT 2, i.receiver_id, u.username
+            FROM Invitation i JOIN "User" u ON u.id = i.receiver_id
+            WHERE i.sender_id = (SELECT id FROM "User" WHERE username = ?)
+            UNION ALL
+            SELECT 3, il.user_id, u.username
+            FROM Lobby l JOIN InLobby il ON il.lobby_id = l.id JOIN "User" u ON u.id = il.user_id
+            WHERE l.owner_id = (SELECT id FROM "User" WHERE username = ?)
+            UNION ALL
+            SELECT 4, l.owner_id, u.username
+            FROM InLobby il JOIN Lobby l ON l.id = il.lobby_id JOIN "User" u ON u.id = l.owner_id
+            WHERE il.user_id = (SELECT id FROM "User" WHERE username = ?)
+            ORDER BY kind, user_id
+            """;
+
+    public HomeSnapshot findHomeSnapshot(String username) {
+        HomeSnapshot snapshot = new HomeSnapshot();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(HOME_SNAPSHOT_QUERY)) {
+            for (int i = 1; i <= 4; i++) {
+                stmt.setString(i, username);
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String name = rs.getString("username");
+                switch (rs.getInt("kind")) {
+                    case INVITATION_FROM -> snapshot.invitationsFrom.add(name);
+                    case INVITATION_TO -> snapshot.invitationsTo.add(name);
+                    case LOBBY_MEMBER -> snapshot.lobbyMembers.add(name);
+                    case LOBBY_OWNER -> snapshot.lobbyOwner = name;
+                    default -> { }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("FindHomeSnapshot error: " + e.getMessage());
+        }
+        return snapshot;
+    }
+
+    // LIKE treats % and _ as wildcards; both databases use \ as the default escape.
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,157 @@
+package dao;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import search.UsernameIndex;
+
+/**
+ * Username typeahead over every account, served from a {@link UsernameIndex}.
+ *
+ * The index is loaded in the background on first use; until it is there,
+ * pages come from the lower(username) index in the database. Accounts
+ * created or deleted through this process are applied right away. Accounts
+ * created elsewhere are picked up by asking for those created since the
+ * latest created_at seen, at most once per {@code refreshIntervalMillis}.
+ * Ids would not do: every process allocates them from its own block, so a
+ * new account may well have a lower id than one already seen. Accounts
+ * deleted elsewhere disappear with the full reload every
+ * {@code reloadIntervalMillis}.
+ */
+public class UserDirectory {
+	private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 1_000;
+	private static final long DEFAULT_RELOAD_INTERVAL_MILLIS = 10 * 60_000;
+	// created_at is when the creating transaction started, so one that commits late
+	// shows up behind later accounts; each refresh looks back this far for it.
+	private static final long CREATED_AT_OVERLAP_MILLIS = 60_000;
+
+	private final UserDAO userDAO;
+	private final long refreshIntervalMillis;
+	private final long reloadIntervalMillis;
+	private final AtomicBoolean loading = new AtomicBoolean();
+	// Not synchronized: callers are often virtual threads, which must not block in JDBC while pinned.
+	private final ReentrantLock refreshLock = new ReentrantLock();
+
+	private volatile UsernameIndex index;  // null until loaded
+	private volatile Timestamp latestCreatedAt;
+	private volatile long lastRefresh;
+	private volatile long nextReload;
+
+	public UserDirectory(UserDAO userDAO) {
+		this(userDAO, DEFAULT_REFRESH_INTERVAL_MILLIS, DEFAULT_RELOAD_INTERVAL_MILLIS);
+	}
+
+	public UserDirectory(UserDAO userDAO, long refreshIntervalMillis, long reloadIntervalMillis) {
+		this.userDAO = userDAO;
+		this.refreshIntervalMillis = refreshIntervalMillis;
+		this.reloadIntervalMillis = reloadIntervalMillis;
+	}
+
+	// Up to limit users whose name starts with prefix, ignoring case, id to username in
+	// name order, after the user with id afterId (AbstractDAO.BEFORE_FIRST_ID for the top).
+	public Map<Integer, String> page(String prefix, int afterId, int limit) {
+		UsernameIndex current = current();
+		if (current != null) {
+			return current.page(prefix, afterId, limit);
+		}
+		String afterUsername = afterId == AbstractDAO.BEFORE_FIRST_ID ? null : userDAO.findUsernameById(afterId);
+		if (afterId != AbstractDAO.BEFORE_FIRST_ID && afterUsername == null) {
+			return Map.of();
+		}
+		return userDAO.findIdentifierPrefixPage(prefix, afterUsername, afterId, limit);
+	}
+
+	public boolean isLoaded() {
+		return index != null;
+	}
+
+	// Loads the index on the calling thread, e.g. on a server at startup.
+	public void load() {
+		reload();
+	}
+
+	public void added(int id, String username) {
+		UsernameIndex current = index;
+		if (current != null) {
+			current.add(id, username);
+		}
+	}
+
+	public void removed(int id) {
+		UsernameIndex current = index;
+		if (current != null) {
+			current.remove(id);
+		}
+	}
+
+	private UsernameIndex current() {
+		UsernameIndex current = index;
+		long now = System.currentTimeMillis();
+		if (now >= nextReload) {
+			if (loading.compareAndSet(false, true)) {
+				Thread.ofVirtual().name("user-directory-load").start(() -> {
+					try {
+						reload();
+					} finally {
+						loading.set(false);
+					}
+				});
+			}
+			return current;
+		}
+		// Whoever finds the lock taken serves the index as it is.
+		if (current != null && now - lastRefresh >= refreshIntervalMillis && refreshLock.tryLock()) {
+			try {
+				if (now - lastRefresh >= refreshIntervalMillis) {
+					lastRefresh = now;
+					Timestamp since = new Timestamp(latestCreatedAt.getTime() - CREATED_AT_OVERLAP_MILLIS);
+					Timestamp latest = userDAO.streamIdentifiersCreatedSince(since, (id, username) -> {
+						if (!username.equals(current.getUsername(id))) {
+							current.add(id, username);
+						}
+					});
+					if (latest != null && latest.after(latestCreatedAt)) {
+						latestCreatedAt = latest;
+					}
+				}
+			} finally {
+				refreshLock.unlock();
+			}
+		}
+		return current;
+	}
+
+	private void reload() {
+		long started = System.currentTimeMillis();
+		// Read first: accounts created during the load are found again by the next refresh.
+		Timestamp loadedCreatedAt = userDAO.findLatestCreatedAt();
+		int[][] ids = { new int[1024] };
+		String[][] usernames = { new String[1024] };
+		int[] count = { 0 };
+		boolean loaded = userDAO.streamIdentifiers(AbstractDAO.BEFORE_FIRST_ID, (id, username) -> {
+			if (count[0] == ids[0].length) {
+				ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+				usernames[0] = Arrays.copyOf(usernames[0], count[0] * 2);
+			}
+			ids[0][count[0]] = id;
+			usernames[0][count[0]] = username;
+			count[0]++;
+		});
+		if (!loaded || loadedCreatedAt == null) {
+			// Try again after the refresh interval rather than on every keystroke.
+			nextReload = started + refreshIntervalMillis;
+			return;
+		}
+		int[] loadedIds = Arrays.copyOf(ids[0], count[0]);
+		UsernameIndex loadedIndex = new UsernameIndex(loadedIds, Arrays.copyOf(usernames[0], count[0]));
+		synchronized (this) {
+			index = loadedIndex;
+			latestCreatedAt = loadedCreatedAt;
+			lastRefresh = started;
+			nextReload = started + reloadIntervalMillis;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package dao;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import utils.IntObjectMap;
+
+/**
+ * Bounded, thread-safe username <-> id cache in front of user_identifiers.
+ *
+ * Only existing users are cached, so a miss always goes to the database and
+ * a new account is visible right away. Entries must be invalidated when a
+ * user is deleted; when the cache is full an arbitrary tenth of it is dropped.
+ */
+public class UserIdentityCache {
+	private static final int DEFAULT_MAX_SIZE = 10_000;
+
+	private final UserDAO userDAO;
+	private final int maxSize;
+	private final ConcurrentHashMap<String, Integer> idsByUsername = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Integer, String> usernamesById = new ConcurrentHashMap<>();
+
+	public UserIdentityCache(UserDAO userDAO) {
+		this(userDAO, DEFAULT_MAX_SIZE);
+	}
+
+	public UserIdentityCache(UserDAO userDAO, int maxSize) {
+		this.userDAO = userDAO;
+		this.maxSize = maxSize;
+	}
+
+	// Loads identifiers up to the cache size in one query.
+	public void preload() {
+		preload(userDAO.findAllIdentifiers());
+	}
+
+	public void preload(Map<Integer, String> identifiers) {
+		for (Map.Entry<Integer, String> entry : identifiers.entrySet()) {
+			if (idsByUsername.size() >= maxSize) {
+				break;
+			}
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	// Returns null when no such user exists.
+	public Integer getId(String username) {
+		if (username == null) {
+			return null;
+		}
+		Integer id = idsByUsername.get(username);
+		if (id == null) {
+			id = userDAO.findIdByUsername(username);
+			if (id != null) {
+				put(id, username);
+			}
+		}
+		return id;
+	}
+
+	// Returns null when no such user exists.
+	public String getUsername(int id) {
+		String username = usernamesById.get(id);
+		if (username == null) {
+			username = userDAO.findUsernameById(id);
+			if (username != null) {
+				put(id, username);
+			}
+		}
+		return username;
+	}
+
+	// Usernames of many users, fetching every miss in one query; unknown ids are absent.
+	public IntObjectMap<String> getUsernames(int[] ids) {
+		IntObjectMap<String> result = new IntObjectMap<>(ids.length);
+		int[] misses = new int[ids.length];
+		int missCount = 0;
+		for (int id : ids) {
+			String username = usernamesById.get(id);
+			if (username != null) {
+				result.put(id, username);
+			} else {
+				misses[missCount++] = id;
+			}
+		}
+		if (missCount > 0) {
+			userDAO.findUsernamesByIds(Arrays.copyOf(misses, missCount)).forEach((id, username) -> {
+				put(id, username);
+				result.put(id, username);
+			});
+		}
+		return result;
+	}
+
+	public void invalidate(String username) {
+		if (username == null) {
+			return;
+		}
+		Integer id = idsByUsername.remove(username);
+		if (id != null) {
+			usernamesById.remove(id, username);
+		}
+	}
+
+	public void invalidate(int id) {
+		String username = usernamesById.remove(id);
+		if (username != null) {
+			idsByUsername.remove(username, id);
+		}
+	}
+
+	public void clear() {
+		idsByUsername.clear();
+		usernamesById.clear();
+	}
+
+	public int size() {
+		return idsByUsername.size();
+	}
+
+	private void put(int id, String username) {
+		if (idsByUsername.size() >= maxSize) {
+			evict();
+		}
+		idsByUsername.put(username, id);
+		usernamesById.put(id, username);
+	}
+
+	private void evict() {
+		int toRemove = Math.max(1, maxSize / 10);
+		Iterator<Map.Entry<String, Integer>> it = idsByUsername.entrySet().iterator();
+		while (it.hasNext() && toRemove-- > 0) {
+			Map.Entry<String, Integer> entry = it.next();
+			it.remove();
+			usernamesById.remove(entry.getValue(), entry.getKey());
+		}
+	}
+}
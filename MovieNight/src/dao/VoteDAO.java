@@ -9,15 +9,23 @@ import java.util.List;
 
 import models.Suggestion;
 import models.Vote;
+import utils.ConnectionProvider;
+import utils.IntIntMap;
 
 public class VoteDAO extends AbstractDAO<Vote> {
+	private static final String TABLE = "Vote";
+
 	public VoteDAO(Connection connection) {
 		super(connection);
 	}
 
+	public VoteDAO(ConnectionProvider connectionProvider) {
+		super(connectionProvider);
+	}
+
 	@Override
 	protected String getTableName() {
-		return "Vote";
+		return TABLE;
 	}
 
 	@Override
@@ -30,9 +38,10 @@ public class VoteDAO extends AbstractDAO<Vote> {
 	}
 	
     public List<Vote> findVotesOfUser(int lobbyId, int userId) {
-        String query = "SELECT * FROM " + getTableName() + " WHERE lobby_id = ? and user_id = ?";
+        String query = "SELECT * FROM " + TABLE + " WHERE lobby_id = ? and user_id = ?";
         List<Vote> results = new ArrayList<>();
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, lobbyId);
             stmt.setInt(2, userId);
             ResultSet rs = stmt.executeQuery();
@@ -45,26 +54,77 @@ public class VoteDAO extends AbstractDAO<Vote> {
         return results;
     }
     
+    public List<Vote> findVotesOfLobby(int lobbyId) {
+        String query = "SELECT * FROM " + TABLE + " WHERE lobby_id = ?";
+        List<Vote> results = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, lobbyId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.add(mapResultSetToEntity(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("FindVotesOfLobby error: " + e.getMessage());
+        }
+        return results;
+    }
+    
+    // Number of votes per movie in a lobby; movies without votes are absent.
+    public IntIntMap countVotesByMovie(int lobbyId) {
+        String query = "SELECT movie_id, COUNT(*) AS vote_count FROM " + TABLE + " WHERE lobby_id = ? GROUP BY movie_id";
+        IntIntMap results = new IntIntMap();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, lobbyId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getInt("movie_id"), rs.getInt("vote_count"));
+            }
+        } catch (SQLException e) {
+            System.err.println("CountVotesByMovie error: " + e.getMessage());
+        }
+        return results;
+    }
+    
 	public boolean addVote(int lobbyId, int userId, int movieId) {
-	    String insertQuery = "INSERT INTO " + getTableName() + " (lobby_id, user_id, movie_id) VALUES (?, ?, ?)";
+	    String insertQuery = "INSERT INTO " + TABLE + " (lobby_id, user_id, movie_id) VALUES (?, ?, ?)";
 	    return create(insertQuery, lobbyId, userId, movieId);
 	    // TODO: Do not insert if suggestion already exists.
 	}
 
 	public boolean removeVote(int lobbyId, int userId, int movieId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " WHERE lobby_id = ? and user_id = ? and movie_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " WHERE lobby_id = ? and user_id = ? and movie_id = ?";
 	    return delete(insertQuery, lobbyId, userId, movieId);
 	    // TODO: Do not insert if suggestion already exists.
 	}
 	
+	// Rows of {lobbyId, userId, movieId}; votes already present are skipped, so one
+	// duplicate does not fail the whole chunk. Returns the number of rows committed.
+	public int addVotes(List<Object[]> votes) {
+	    String insertQuery = "INSERT INTO " + TABLE + " (lobby_id, user_id, movie_id) SELECT CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS INTEGER) "
+	            + "WHERE NOT EXISTS (SELECT 1 FROM " + TABLE + " WHERE lobby_id = ? AND user_id = ? AND movie_id = ?)";
+	    List<Object[]> rows = new ArrayList<>(votes.size());
+	    for (Object[] vote : votes) {
+	        rows.add(new Object[] { vote[0], vote[1], vote[2], vote[0], vote[1], vote[2] });
+	    }
+	    return executeBatch(insertQuery, rows);
+	}
+	
+	// Rows of {lobbyId, userId, movieId}.
+	public int removeVotes(List<Object[]> votes) {
+	    String deleteQuery = "DELETE FROM " + TABLE + " WHERE lobby_id = ? and user_id = ? and movie_id = ?";
+	    return executeBatch(deleteQuery, votes);
+	}
+	
 	public boolean removeVotesOfMovie(int lobbyId, int movieId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " WHERE lobby_id = ? and movie_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " WHERE lobby_id = ? and movie_id = ?";
 	    return delete(insertQuery, lobbyId, movieId);
 	    // TODO: Do not insert if suggestion already exists.
 	}
 	
 	public boolean removeAllVotes(int lobbyId) {
-	    String insertQuery = "DELETE FROM " + getTableName() + " where lobby_id = ?";
+	    String insertQuery = "DELETE FROM " + TABLE + " where lobby_id = ?";
 	    return delete(insertQuery, lobbyId);
 	}
 }
@@ -0,0 +1,334 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import models.Vote;
+import utils.IntIntMap;
+
+/**
+ * Vote tallies held in memory and written to the Vote table behind the
+ * callers' backs.
+ *
+ * A lobby's ballots are loaded once, on first use. After that, votes and
+ * reads touch only a concurrent set of ballots and a LongAdder per movie, so
+ * voting never waits for the database or for other voters. Changes queue up
+ * and are written every flush interval, or as soon as a batch is full, with
+ * one batched statement per kind. A ballot cast and withdrawn between two
+ * flushes is never written at all. A ballot's changes are queued under a
+ * lock striped by ballot, in the order they were applied in memory.
+ *
+ * The tallies are only right while this process is the only writer of Vote
+ * for the lobbies it holds, as a MovieNightServer is for its clients. Rows
+ * the table refuses, e.g. votes for a lobby deleted meanwhile, are dropped
+ * together with their lobby's tally, which is then read again from the table.
+ * Call {@link #start()} to begin flushing on the interval. After
+ * {@link #close()} every change is written before its call returns.
+ */
+public class VoteEngine implements AutoCloseable {
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+	private static final int ADD = 0;
+	private static final int REMOVE = 1;
+	private static final int CLEAR_MOVIE = 2;
+	private static final int CLEAR_LOBBY = 3;
+	private static final int BALLOT_LOCK_STRIPES = 64;
+
+	private final VoteDAO voteDAO;
+	private final Map<Integer, LobbyTally> tallies = new ConcurrentHashMap<>();
+	private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final ReentrantLock[] ballotLocks = new ReentrantLock[BALLOT_LOCK_STRIPES];
+	private final ScheduledExecutorService flusher;
+	private final long flushIntervalMillis;
+
+	public VoteEngine(VoteDAO voteDAO) {
+		this(voteDAO, DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	public VoteEngine(VoteDAO voteDAO, long flushIntervalMillis) {
+		this.voteDAO = voteDAO;
+		this.flushIntervalMillis = flushIntervalMillis;
+		for (int i = 0; i < ballotLocks.length; i++) {
+			ballotLocks[i] = new ReentrantLock();
+		}
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "vote-engine-flusher");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public VoteEngine start() {
+		flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		return this;
+	}
+
+	private static final class LobbyTally {
+		final Set<Long> ballots = ConcurrentHashMap.newKeySet();
+		final Map<Integer, LongAdder> counts = new ConcurrentHashMap<>();
+
+		void add(long ballot, int movieId) {
+			ballots.add(ballot);
+			counts.computeIfAbsent(movieId, m -> new LongAdder()).increment();
+		}
+	}
+
+	private static final class Change {
+		final int kind;
+		final int lobbyId;
+		final int userId;
+		final int movieId;
+
+		Change(int kind, int lobbyId, int userId, int movieId) {
+			this.kind = kind;
+			this.lobbyId = lobbyId;
+			this.userId = userId;
+			this.movieId = movieId;
+		}
+
+		// Changes of the same ballot compare equal, whatever their kind.
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Change c && c.lobbyId == lobbyId && c.userId == userId && c.movieId == movieId;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(lobbyId, userId, movieId);
+		}
+	}
+
+	private static long ballot(int userId, int movieId) {
+		return ((long) userId << 32) | (movieId & 0xFFFFFFFFL);
+	}
+
+	private ReentrantLock ballotLock(int lobbyId, long ballot) {
+		return ballotLocks[Math.floorMod(31 * Long.hashCode(ballot) + lobbyId, ballotLocks.length)];
+	}
+
+	private LobbyTally tallyOf(int lobbyId) {
+		LobbyTally tally = tallies.get(lobbyId);
+		return tally != null ? tally : tallies.computeIfAbsent(lobbyId, this::load);
+	}
+
+	private LobbyTally load(int lobbyId) {
+		LobbyTally tally = new LobbyTally();
+		for (Vote v : voteDAO.findVotesOfLobby(lobbyId)) {
+			tally.add(ballot(v.getUserId(), v.getMovieId()), v.getMovieId());
+		}
+		return tally;
+	}
+
+	// False if the user had already voted for the movie.
+	public boolean addVote(int lobbyId, int userId, int movieId) {
+		LobbyTally tally = tallyOf(lobbyId);
+		long ballot = ballot(userId, movieId);
+		ReentrantLock lock = ballotLock(lobbyId, ballot);
+		int queued;
+		lock.lock();
+		try {
+			if (!tally.ballots.add(ballot)) {
+				return false;
+			}
+			queued = enqueue(new Change(ADD, lobbyId, userId, movieId));
+		} finally {
+			lock.unlock();
+		}
+		tally.counts.computeIfAbsent(movieId, m -> new LongAdder()).increment();
+		flushIfDue(queued);
+		return true;
+	}
+
+	// False if the user had not voted for the movie.
+	public boolean removeVote(int lobbyId, int userId, int movieId) {
+		LobbyTally tally = tallyOf(lobbyId);
+		long ballot = ballot(userId, movieId);
+		ReentrantLock lock = ballotLock(lobbyId, ballot);
+		int queued;
+		lock.lock();
+		try {
+			if (!tally.ballots.remove(ballot)) {
+				return false;
+			}
+			queued = enqueue(new Change(REMOVE, lobbyId, userId, movieId));
+		} finally {
+			lock.unlock();
+		}
+		tally.counts.computeIfAbsent(movieId, m -> new LongAdder()).decrement();
+		flushIfDue(queued);
+		return true;
+	}
+
+	public void removeVotesOfMovie(int lobbyId, int movieId) {
+		LobbyTally tally = tallyOf(lobbyId);
+		tally.ballots.removeIf(ballot -> ballot.intValue() == movieId);
+		tally.counts.remove(movieId);
+		flushIfDue(enqueue(new Change(CLEAR_MOVIE, lobbyId, 0, movieId)));
+	}
+
+	public void removeAllVotes(int lobbyId) {
+		tallies.put(lobbyId, new LobbyTally());
+		flushIfDue(enqueue(new Change(CLEAR_LOBBY, lobbyId, 0, 0)));
+	}
+
+	// Writes what is queued and drops the lobby from memory, before the lobby is changed outside the engine.
+	public void forget(int lobbyId) {
+		flush();
+		tallies.remove(lobbyId);
+	}
+
+	public int countVotes(int lobbyId, int movieId) {
+		LongAdder count = tallyOf(lobbyId).counts.get(movieId);
+		return count == null ? 0 : count.intValue();
+	}
+
+	// Number of votes per movie in a lobby; movies without votes are absent.
+	public IntIntMap countVotesByMovie(int lobbyId) {
+		Map<Integer, LongAdder> counts = tallyOf(lobbyId).counts;
+		IntIntMap results = new IntIntMap(counts.size());
+		for (Map.Entry<Integer, LongAdder> entry : counts.entrySet()) {
+			int count = entry.getValue().intValue();
+			if (count > 0) {
+				results.put(entry.getKey(), count);
+			}
+		}
+		return results;
+	}
+
+	// Movies the user voted for, in id order.
+	public int[] findMovieIdsOfUser(int lobbyId, int userId) {
+		return tallyOf(lobbyId).ballots.stream()
+				.filter(ballot -> (int) (ballot >>> 32) == userId)
+				.mapToInt(Long::intValue)
+				.sorted()
+				.toArray();
+	}
+
+	// Movies with at least one vote, most votes first, ties by movie id.
+	public int[] rankMovies(int lobbyId) {
+		Map<Integer, LongAdder> counts = tallyOf(lobbyId).counts;
+		long[] ranked = new long[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, LongAdder> entry : counts.entrySet()) {
+			long count = entry.getValue().sum();
+			if (count > 0) {
+				// Descending count in the high half, ascending id in the low half, so one sort orders both.
+				ranked[n++] = ((Integer.MAX_VALUE - count) << 32) | (entry.getKey() & 0xFFFFFFFFL);
+			}
+		}
+		Arrays.sort(ranked, 0, n);
+		int[] movieIds = new int[n];
+		for (int i = 0; i < n; i++) {
+			movieIds[i] = (int) ranked[i];
+		}
+		return movieIds;
+	}
+
+	// Returns the number of queued changes, for flushIfDue.
+	private int enqueue(Change change) {
+		pending.add(change);
+		return pendingCount.incrementAndGet();
+	}
+
+	// Once closed there is no flusher left, so the caller writes its change itself.
+	private void flushIfDue(int queued) {
+		if (flusher.isShutdown()) {
+			flush();
+		} else if (queued % voteDAO.getBatchSize() == 0) {
+			try {
+				flusher.execute(this::flush);
+			} catch (RejectedExecutionException e) {
+				// Closed meanwhile
+				flush();
+			}
+		}
+	}
+
+	// Writes every queued change. Flushes run one at a time, so changes reach the table in order.
+	public void flush() {
+		flushLock.lock();
+		try {
+			Map<Change, Change[]> run = new LinkedHashMap<>();
+			Change change;
+			while ((change = pending.poll()) != null) {
+				pendingCount.decrementAndGet();
+				if (change.kind == ADD || change.kind == REMOVE) {
+					// First and last change of each ballot in this run.
+					Change[] firstLast = run.computeIfAbsent(change, c -> new Change[2]);
+					if (firstLast[0] == null) {
+						firstLast[0] = change;
+					}
+					firstLast[1] = change;
+					continue;
+				}
+				write(run);
+				run.clear();
+				if (change.kind == CLEAR_MOVIE) {
+					voteDAO.removeVotesOfMovie(change.lobbyId, change.movieId);
+				} else {
+					voteDAO.removeAllVotes(change.lobbyId);
+				}
+			}
+			write(run);
+		} catch (RuntimeException e) {
+			System.err.println("Vote flush error: " + e.getMessage());
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void write(Map<Change, Change[]> run) {
+		List<Object[]> adds = new ArrayList<>();
+		List<Object[]> removes = new ArrayList<>();
+		for (Change[] firstLast : run.values()) {
+			// A ballot only alternates between add and remove, so if the first and last
+			// change differ, the table already holds the end state.
+			if (firstLast[0].kind != firstLast[1].kind) {
+				continue;
+			}
+			Change last = firstLast[1];
+			Object[] row = { last.lobbyId, last.userId, last.movieId };
+			(last.kind == ADD ? adds : removes).add(row);
+		}
+		if (!removes.isEmpty()) {
+			writeRows(removes, voteDAO.removeVotes(removes), voteDAO::removeVotes);
+		}
+		if (!adds.isEmpty()) {
+			writeRows(adds, voteDAO.addVotes(adds), voteDAO::addVotes);
+		}
+	}
+
+	// A failed chunk rolls back every row in it, so the rows after the committed ones are
+	// sent again one at a time. The lobby of a row that still fails is read again on next use.
+	private void writeRows(List<Object[]> rows, int committed, ToIntFunction<List<Object[]>> batch) {
+		for (Object[] row : rows.subList(committed, rows.size())) {
+			if (batch.applyAsInt(List.<Object[]>of(row)) == 0) {
+				tallies.remove((Integer) row[0]);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		flusher.shutdown();
+		flush();
+	}
+}
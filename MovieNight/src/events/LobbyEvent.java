@@ -0,0 +1,96 @@
+package events;
+
+/**
+ * A change in one lobby. Events from the PostgreSQL triggers carry the delta
+ * (which table, insert/delete/update, user and movie) when a statement changed
+ * one row of the lobby, and {@link Kind#CHANGED} when it changed several; the
+ * polling fallback only knows that something changed and sends CHANGED too.
+ */
+public class LobbyEvent {
+
+	public enum Kind {
+		VOTE, SUGGESTION, MEMBERSHIP, READY, CHANGED
+	}
+
+	public enum Operation {
+		INSERT, DELETE, UPDATE, UNKNOWN
+	}
+
+	private final int lobbyId;
+	private final Kind kind;
+	private final Operation operation;
+	private final int userId;
+	private final int movieId;
+	private final long sequence;
+
+	public LobbyEvent(int lobbyId, Kind kind, Operation operation, int userId, int movieId, long sequence) {
+		this.lobbyId = lobbyId;
+		this.kind = kind;
+		this.operation = operation;
+		this.userId = userId;
+		this.movieId = movieId;
+		this.sequence = sequence;
+	}
+
+	public static LobbyEvent changed(int lobbyId, long sequence) {
+		return new LobbyEvent(lobbyId, Kind.CHANGED, Operation.UNKNOWN, 0, 0, sequence);
+	}
+
+	// Payload format written by notify_lobby_change(): table:op:user_id:movie_id:sequence, where the
+	// sequence is the writing transaction's id (Lobby.change_seq for lobby:U, from notify_lobby_ready).
+	public static LobbyEvent parse(int lobbyId, String payload) {
+		String[] parts = payload.split(":");
+		if (parts.length != 5) {
+			return changed(lobbyId, -1);
+		}
+		try {
+			Kind kind = switch (parts[0]) {
+				case "vote" -> Kind.VOTE;
+				case "suggestion" -> Kind.SUGGESTION;
+				case "inlobby" -> Kind.MEMBERSHIP;
+				case "lobby" -> Kind.READY;
+				default -> Kind.CHANGED;
+			};
+			Operation operation = switch (parts[1]) {
+				case "I" -> Operation.INSERT;
+				case "D" -> Operation.DELETE;
+				case "U" -> Operation.UPDATE;
+				default -> Operation.UNKNOWN;
+			};
+			return new LobbyEvent(lobbyId, kind, operation,
+					Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), Long.parseLong(parts[4]));
+		} catch (NumberFormatException e) {
+			return changed(lobbyId, -1);
+		}
+	}
+
+	public int getLobbyId() {
+		return lobbyId;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public int getUserId() {
+		return userId;
+	}
+
+	public int getMovieId() {
+		return movieId;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	@Override
+	public String toString() {
+		return "LobbyEvent[lobby=" + lobbyId + ", " + kind + " " + operation
+				+ ", user=" + userId + ", movie=" + movieId + ", seq=" + sequence + "]";
+	}
+}
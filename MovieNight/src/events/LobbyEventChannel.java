@@ -0,0 +1,72 @@
+package events;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fan-out of lobby changes to the panels currently showing those lobbies.
+ * Subclasses decide how changes are detected and call {@link #dispatch}.
+ */
+public abstract class LobbyEventChannel implements AutoCloseable {
+
+	public interface Subscription extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	private final Map<Integer, List<LobbyEventListener>> listeners = new ConcurrentHashMap<>();
+
+	public synchronized Subscription subscribe(int lobbyId, LobbyEventListener listener) {
+		List<LobbyEventListener> lobbyListeners = listeners.get(lobbyId);
+		if (lobbyListeners == null) {
+			lobbyListeners = new CopyOnWriteArrayList<>();
+			listeners.put(lobbyId, lobbyListeners);
+			startListening(lobbyId);
+		}
+		lobbyListeners.add(listener);
+		return () -> unsubscribe(lobbyId, listener);
+	}
+
+	private synchronized void unsubscribe(int lobbyId, LobbyEventListener listener) {
+		List<LobbyEventListener> lobbyListeners = listeners.get(lobbyId);
+		if (lobbyListeners != null && lobbyListeners.remove(listener) && lobbyListeners.isEmpty()) {
+			listeners.remove(lobbyId);
+			stopListening(lobbyId);
+		}
+	}
+
+	/**
+	 * Called by the facade after it wrote to a lobby. Channels that learn about
+	 * changes from the database itself can ignore it.
+	 */
+	public abstract void localChange(int lobbyId);
+
+	protected abstract void startListening(int lobbyId);
+
+	protected abstract void stopListening(int lobbyId);
+
+	protected int[] subscribedLobbies() {
+		return listeners.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	protected void dispatch(LobbyEvent event) {
+		List<LobbyEventListener> lobbyListeners = listeners.get(event.getLobbyId());
+		if (lobbyListeners == null) {
+			return;
+		}
+		for (LobbyEventListener listener : lobbyListeners) {
+			try {
+				listener.onLobbyEvent(event);
+			} catch (RuntimeException e) {
+				System.err.println("Lobby event listener error: " + e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		listeners.clear();
+	}
+}
@@ -0,0 +1,9 @@
+package events;
+
+/**
+ * Receives lobby events on the channel's dispatch thread, never on the Swing
+ * EDT; Swing listeners hand the work over with SwingUtilities.invokeLater.
+ */
+public interface LobbyEventListener {
+	void onLobbyEvent(LobbyEvent event);
+}
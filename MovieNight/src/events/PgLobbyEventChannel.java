@@ -0,0 +1,162 @@
+package events;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import utils.ConnectionProvider;
+
+/**
+ * Push-based channel on PostgreSQL LISTEN/NOTIFY. Triggers on Vote,
+ * Suggestion, InLobby and Lobby.is_ready send NOTIFY lobby_<id>. One
+ * listener thread keeps a connection, runs all LISTEN/UNLISTEN commands and
+ * dispatches the notifications, so idle lobbies cost no queries. Call
+ * {@link #start()} to start that thread.
+ */
+public class PgLobbyEventChannel extends LobbyEventChannel {
+	private static final int POLL_TIMEOUT_MILLIS = 500;
+	private static final long RECONNECT_DELAY_MILLIS = 1_000;
+	private static final String CHANNEL_PREFIX = "lobby_";
+
+	private final ConnectionProvider connectionProvider;
+	private final Queue<String> pendingCommands = new ConcurrentLinkedQueue<>();
+	private Thread listenerThread;
+	private volatile boolean running = true;
+	private Connection connection;
+
+	public PgLobbyEventChannel(ConnectionProvider connectionProvider) {
+		this.connectionProvider = connectionProvider;
+	}
+
+	public synchronized PgLobbyEventChannel start() {
+		if (listenerThread == null) {
+			listenerThread = new Thread(this::listen, "lobby-event-listener");
+			listenerThread.setDaemon(true);
+			listenerThread.start();
+		}
+		return this;
+	}
+
+	@Override
+	public void localChange(int lobbyId) {
+		// The triggers notify every listener, this process included.
+	}
+
+	@Override
+	protected void startListening(int lobbyId) {
+		pendingCommands.add("LISTEN " + CHANNEL_PREFIX + lobbyId);
+	}
+
+	@Override
+	protected void stopListening(int lobbyId) {
+		pendingCommands.add("UNLISTEN " + CHANNEL_PREFIX + lobbyId);
+	}
+
+	private void listen() {
+		while (running) {
+			try {
+				if (connection == null) {
+					connect();
+				}
+				runPendingCommands();
+				PGNotification[] notifications = connection.unwrap(PGConnection.class)
+						.getNotifications(POLL_TIMEOUT_MILLIS);
+				if (notifications != null) {
+					for (PGNotification notification : notifications) {
+						handle(notification);
+					}
+				}
+			} catch (SQLException e) {
+				if (!running) {
+					break;
+				}
+				System.err.println("Lobby event listener error: " + e.getMessage());
+				disconnect();
+				sleepBeforeReconnect();
+			}
+		}
+		disconnect();
+	}
+
+	// A new session has no LISTENs, and notifications sent meanwhile are lost.
+	private void connect() throws SQLException {
+		connection = connectionProvider.getConnection();
+		pendingCommands.clear();
+		for (int lobbyId : subscribedLobbies()) {
+			pendingCommands.add("LISTEN " + CHANNEL_PREFIX + lobbyId);
+			dispatch(LobbyEvent.changed(lobbyId, -1));
+		}
+	}
+
+	private void runPendingCommands() throws SQLException {
+		String command;
+		try (Statement stmt = connection.createStatement()) {
+			while ((command = pendingCommands.poll()) != null) {
+				stmt.execute(command);
+			}
+		}
+	}
+
+	private void handle(PGNotification notification) {
+		String name = notification.getName();
+		if (!name.startsWith(CHANNEL_PREFIX)) {
+			return;
+		}
+		try {
+			int lobbyId = Integer.parseInt(name.substring(CHANNEL_PREFIX.length()));
+			dispatch(LobbyEvent.parse(lobbyId, notification.getParameter()));
+		} catch (NumberFormatException e) {
+			System.err.println("Unexpected notification channel: " + name);
+		}
+	}
+
+	private void disconnect() {
+		if (connection != null) {
+			// The session may go back to a pool; don't leave it subscribed.
+			try (Statement stmt = connection.createStatement()) {
+				stmt.execute("UNLISTEN *");
+			} catch (SQLException e) {
+				// Broken connection, nothing to clean up.
+			}
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				System.err.println("Lobby event listener close error: " + e.getMessage());
+			}
+			connection = null;
+		}
+	}
+
+	private void sleepBeforeReconnect() {
+		try {
+			Thread.sleep(RECONNECT_DELAY_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			running = false;
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		super.close();
+		Thread thread;
+		synchronized (this) {
+			thread = listenerThread;
+		}
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		try {
+			thread.join(2 * POLL_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package events;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.LobbyDAO;
+
+/**
+ * Fallback channel for databases without LISTEN/NOTIFY (H2). The facade bumps
+ * Lobby.change_seq on every write, and subscribed lobbies are polled for it
+ * in one query per tick. Without a change_seq column, only writes made
+ * through this process are seen, and they are dispatched right away.
+ */
+public class PollingLobbyEventChannel extends LobbyEventChannel {
+	private static final long DEFAULT_INTERVAL_MILLIS = 1_000;
+
+	private final LobbyDAO lobbyDAO;
+	private final long intervalMillis;
+	private final Map<Integer, Long> lastSeen = new ConcurrentHashMap<>();
+	private ScheduledExecutorService scheduler;
+	private volatile Boolean supported;
+
+	public PollingLobbyEventChannel(LobbyDAO lobbyDAO) {
+		this(lobbyDAO, DEFAULT_INTERVAL_MILLIS);
+	}
+
+	public PollingLobbyEventChannel(LobbyDAO lobbyDAO, long intervalMillis) {
+		this.lobbyDAO = lobbyDAO;
+		this.intervalMillis = intervalMillis;
+	}
+
+	private boolean isSupported() {
+		if (supported == null) {
+			supported = lobbyDAO.hasChangeSeq();
+		}
+		return supported;
+	}
+
+	@Override
+	public void localChange(int lobbyId) {
+		if (isSupported()) {
+			lobbyDAO.bumpChangeSeq(lobbyId);
+		} else {
+			dispatch(LobbyEvent.changed(lobbyId, -1));
+		}
+	}
+
+	@Override
+	protected synchronized void startListening(int lobbyId) {
+		if (!isSupported()) {
+			return;
+		}
+		lastSeen.put(lobbyId, lobbyDAO.getChangeSeq(lobbyId));
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "lobby-event-poller");
+				t.setDaemon(true);
+				return t;
+			});
+			scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected void stopListening(int lobbyId) {
+		lastSeen.remove(lobbyId);
+	}
+
+	void poll() {
+		int[] lobbyIds = subscribedLobbies();
+		if (lobbyIds.length == 0) {
+			return;
+		}
+		for (Map.Entry<Integer, Long> entry : lobbyDAO.findChangeSeqs(lobbyIds).entrySet()) {
+			int lobbyId = entry.getKey();
+			long sequence = entry.getValue();
+			Long previous = lastSeen.get(lobbyId);
+			if (previous != null && sequence > previous) {
+				lastSeen.put(lobbyId, sequence);
+				dispatch(LobbyEvent.changed(lobbyId, sequence));
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		super.close();
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+}
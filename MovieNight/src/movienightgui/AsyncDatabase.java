@@ -0,0 +1,129 @@
+package movienightgui;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs {@link Database} calls on virtual threads so the Swing EDT never
+ * waits for JDBC. Writes run one after another in submission order; reads
+ * run concurrently but only after every write submitted before them, so a
+ * panel always reads its own changes. The {@code load}, {@code update} and
+ * {@code write} variants hand their result to the EDT.
+ */
+public class AsyncDatabase implements AutoCloseable {
+	private final Database database;
+	private final ExecutorService executor;
+	private CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+	public AsyncDatabase(Database database) {
+		this(database, Executors.newVirtualThreadPerTaskExecutor());
+	}
+
+	public AsyncDatabase(Database database, ExecutorService executor) {
+		this.database = database;
+		this.executor = executor;
+	}
+
+	public <T> CompletableFuture<T> supply(Function<Database, T> query) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		// whenComplete: a failed write must not block what is queued behind it.
+		previousWrite().whenCompleteAsync((result, error) -> {
+			if (future.isDone()) {
+				return; // cancelled before it started
+			}
+			try {
+				future.complete(query.apply(database));
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}, executor);
+		return future;
+	}
+
+	public synchronized <T> CompletableFuture<T> execute(Function<Database, T> action) {
+		CompletableFuture<T> future = lastWrite.handleAsync((result, error) -> action.apply(database), executor);
+		lastWrite = future;
+		return future;
+	}
+
+	private synchronized CompletableFuture<?> previousWrite() {
+		return lastWrite;
+	}
+
+	public <T> CompletableFuture<Void> load(Function<Database, T> query, Consumer<T> apply) {
+		return onEdt(supply(query), apply);
+	}
+
+	public <T> CompletableFuture<Void> write(Function<Database, T> action, Consumer<T> apply) {
+		return onEdt(execute(action), apply);
+	}
+
+	public CompletableFuture<Void> update(Consumer<Database> action, Runnable then) {
+		return write(d -> {
+			action.accept(d);
+			return null;
+		}, result -> then.run());
+	}
+
+	public CompletableFuture<Void> update(Consumer<Database> action) {
+		return update(action, () -> {});
+	}
+
+	public LatestRequest newLatestRequest() {
+		return new LatestRequest();
+	}
+
+	/**
+	 * Keeps only the most recent of a series of reads, e.g. a search while the
+	 * user is still typing. Submitting cancels the previous read: if it has not
+	 * started it never runs, otherwise its result is dropped. Use from the EDT.
+	 */
+	public class LatestRequest {
+		private CompletableFuture<?> pending;
+
+		private LatestRequest() {
+		}
+
+		public <T> CompletableFuture<Void> load(Function<Database, T> query, Consumer<T> apply) {
+			cancel();
+			CompletableFuture<T> future = supply(query);
+			pending = future;
+			return onEdt(future, result -> {
+				// A newer request may have been submitted after this one completed.
+				if (pending == future) {
+					pending = null;
+					apply.accept(result);
+				}
+			});
+		}
+
+		public void cancel() {
+			if (pending != null) {
+				pending.cancel(false);
+				pending = null;
+			}
+		}
+	}
+
+	private static <T> CompletableFuture<Void> onEdt(CompletableFuture<T> future, Consumer<T> apply) {
+		return future.thenAcceptAsync(apply, SwingUtilities::invokeLater).exceptionally(e -> {
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			if (!(cause instanceof CancellationException)) {
+				System.err.println("Database error: " + cause);
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -162,6 +162,8 @@ public class CreateUserPanel extends javax.swing.JPanel {
             creationStatusField.setText("FAILED: Blank Password");
         } else if (status == 4) {
             creationStatusField.setText("FAILED: Age Constraint");
+        } else if (status == 5) {
+            creationStatusField.setText("FAILED: Try Again");
         } else {
             CardLayout cl = (CardLayout) parentFrame.getContentPane().getLayout();
             cl.show(parentFrame.getContentPane(), "login");
@@ -1,17 +1,31 @@
 package movienightgui;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import dao.*;
 import dao.LobbyDAO.VoteResult;
+import dao.SuggestionDAO.SuggestionDetail;
+import dao.UserDAO.HomeSnapshot;
+import events.LobbyEventChannel;
+import events.LobbyEventListener;
+import events.PollingLobbyEventChannel;
 import models.*;
+import search.TitleIndex;
+import utils.ConnectionProvider;
+import utils.IdAllocator;
+import utils.IntIntMap;
+import utils.IntObjectMap;
+import utils.TransactionTemplate;
 
 public class Database {
+	private static final int NO_LOBBY = -1;
 	
 	private UserDAO userDAO;
 	private InvitationDAO invitationDAO;
@@ -22,30 +36,126 @@ public class Database {
 	private LobbyDAO lobbyDAO;
 	private GenreDAO genreDAO;
 	private HasGenreDAO hasGenreDAO;
+	private MovieCatalog movieCatalog;
+	private UserIdentityCache identities;
+	private UserDirectory userDirectory;
+	private LobbyEventChannel lobbyEvents;
+	private TransactionTemplate transactions;
+	private VoteEngine votes;              // null: votes are read from and written to the table directly
+	private IdAllocator userIds;
+	private IdAllocator lobbyIds;
+	// Lobbies have their own ids but the facade names them by owner; looked up again when one is created or joined.
+	private ConcurrentHashMap<Integer, Integer> lobbyIdsByOwner = new ConcurrentHashMap<>();
+	
+	// For subclasses that answer every call themselves, see RemoteDatabase.
+	protected Database() {
+	}
 	
 	public Database(Connection connection) {
-		this.userDAO = new UserDAO(connection);
-		this.invitationDAO = new InvitationDAO(connection);
-		this.inLobbyDAO = new InLobbyDAO(connection);
-		this.movieDAO = new MovieDAO(connection);
-		this.suggestionDAO = new SuggestionDAO(connection);
-		this.voteDAO = new VoteDAO(connection);
-		this.lobbyDAO = new LobbyDAO(connection);
-		this.genreDAO = new GenreDAO(connection);
-		this.hasGenreDAO = new HasGenreDAO(connection);
+		this(ConnectionProvider.of(connection));
+	}
+	
+	public Database(ConnectionProvider connectionProvider) {
+		this(connectionProvider, null);
+	}
+	
+	// Without a channel, lobby changes are found by polling Lobby.change_seq.
+	public Database(ConnectionProvider connectionProvider, LobbyEventChannel lobbyEvents) {
+		this(connectionProvider, lobbyEvents, false);
+	}
+	
+	// In-memory votes (see VoteEngine) suit a process that is the only one writing votes, like MovieNightServer.
+	public Database(ConnectionProvider connectionProvider, LobbyEventChannel lobbyEvents, boolean inMemoryVotes) {
+		// Reserving ids is not part of any unit of work: sequences are not rolled back anyway.
+		this.userIds = new IdAllocator(connectionProvider, "user_id_seq");
+		this.lobbyIds = new IdAllocator(connectionProvider, "lobby_id_seq");
+		// DAOs share the template, so they join whatever unit of work is running.
+		this.transactions = TransactionTemplate.of(connectionProvider);
+		connectionProvider = transactions;
+		this.userDAO = new UserDAO(connectionProvider);
+		this.invitationDAO = new InvitationDAO(connectionProvider);
+		this.inLobbyDAO = new InLobbyDAO(connectionProvider);
+		this.movieDAO = new MovieDAO(connectionProvider);
+		this.suggestionDAO = new SuggestionDAO(connectionProvider);
+		this.voteDAO = new VoteDAO(connectionProvider);
+		this.lobbyDAO = new LobbyDAO(connectionProvider);
+		this.genreDAO = new GenreDAO(connectionProvider);
+		this.hasGenreDAO = new HasGenreDAO(connectionProvider);
+		this.movieCatalog = new MovieCatalog(movieDAO, genreDAO, hasGenreDAO);
+		this.identities = new UserIdentityCache(userDAO);
+		this.userDirectory = new UserDirectory(userDAO);
+		this.lobbyEvents = lobbyEvents != null ? lobbyEvents : new PollingLobbyEventChannel(lobbyDAO);
+		this.votes = inMemoryVotes ? new VoteEngine(voteDAO).start() : null;
+	}
+	
+	// Writes the votes still held in memory.
+	public void close() {
+		if (votes != null) {
+			votes.close();
+		}
+	}
+	
+	public LobbyEventChannel.Subscription subscribeToLobby(String ownerUser, LobbyEventListener listener) {
+		return subscribeToLobby(lobbyIdOf(ownerUser), listener);
+	}
+	
+	public LobbyEventChannel.Subscription subscribeToLobby(int lobbyId, LobbyEventListener listener) {
+		return lobbyEvents.subscribe(lobbyId, listener);
+	}
+	
+	// Id of the owner's current lobby; an owner gets a new id with every lobby they create.
+	public int getLobbyId(String ownerUser) {
+		return lobbyIdOf(ownerUser);
+	}
+	
+	private int lobbyIdOf(String ownerUser) {
+		return lobbyIdOf(identities.getId(ownerUser));
+	}
+	
+	private int lobbyIdOf(int ownerId) {
+		Integer lobbyId = lobbyIdsByOwner.get(ownerId);
+		return lobbyId != null ? lobbyId : findLobbyId(ownerId);
+	}
+	
+	// NO_LOBBY, which matches no rows, when the owner has no lobby.
+	private int findLobbyId(int ownerId) {
+		Integer lobbyId = lobbyDAO.findIdByOwner(ownerId);
+		if (lobbyId == null) {
+			lobbyIdsByOwner.remove(ownerId);
+			return NO_LOBBY;
+		}
+		lobbyIdsByOwner.put(ownerId, lobbyId);
+		return lobbyId;
+	}
+	
+	private void lobbyChanged(int lobbyId) {
+		lobbyEvents.localChange(lobbyId);
+	}
+	
+	// Runs several facade calls as one transaction; false if it was rolled back.
+	public boolean inTransaction(Runnable work) {
+		return transactions.run(work);
 	}
 	
 	public void removeVotesForMovie(String ownerUser, int movieId) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		voteDAO.removeVotesOfMovie(lobbyId, movieId);
+		int lobbyId = lobbyIdOf(ownerUser);
+		if (votes != null) {
+			votes.removeVotesOfMovie(lobbyId, movieId);
+			lobbyChanged(lobbyId);
+			return;
+		}
+		transactions.run(() -> {
+			voteDAO.removeVotesOfMovie(lobbyId, movieId);
+			lobbyChanged(lobbyId);
+		});
 	}
 	
 	
 	public String getSuggestedByUsername(int suggestedMovieId, String ownerUser) {
-		ArrayList<Suggestion> suggestions = (ArrayList<Suggestion>) suggestionDAO.findByLobbyId(userDAO.findByUsername(ownerUser).getId());
-		for (Suggestion s : suggestions) {
-			if (s.getMovieId() == suggestedMovieId) {
-				return userDAO.findById(s.getSuggestedBy()).getUsername();
+		int lobbyId = lobbyIdOf(ownerUser);
+		for (SuggestionDetail s : suggestionDAO.findDetailsByLobbyId(lobbyId)) {
+			if (s.movieId == suggestedMovieId) {
+				return s.suggestedBy;
 			}
 		}
 		return null;
@@ -64,47 +174,54 @@ public class Database {
 
 	
 	public ArrayList<String> getUsers() {
-		return (ArrayList<String>) userDAO.findAllUsername();
+		// Same single read of user_identifiers, also warming the identity cache.
+		Map<Integer, String> identifiers = userDAO.findAllIdentifiers();
+		identities.preload(identifiers);
+		return new ArrayList<>(identifiers.values());
+	}
+	
+	// One page of users after the given id, for lists that load as they scroll.
+	public Map<Integer, String> getUserPage(int afterId, int limit, String filter) {
+		Map<Integer, String> page = userDAO.findIdentifierPage(afterId, limit, filter);
+		identities.preload(page);
+		return page;
+	}
+	
+	// Typeahead: one page of the users whose name starts with prefix, ignoring case, in name order.
+	// afterId is the last user of the previous page, AbstractDAO.BEFORE_FIRST_ID for the first.
+	public Map<Integer, String> getUsersByPrefix(String prefix, int afterId, int limit) {
+		Map<Integer, String> page = userDirectory.page(prefix, afterId, limit);
+		identities.preload(page);
+		return page;
 	}
 	
 	public ArrayList<String> getInvitiationsForUser(String username) {
-		int receiverId = userDAO.findByUsername(username).getId();
+		int receiverId = identities.getId(username);
 		List<Invitation> invitations = invitationDAO.findByReceiver(receiverId);
-		ArrayList<String> invitationSenders = new ArrayList<String>();
-		
-		for (Invitation invitation : invitations) {
-			int senderId = invitation.getSenderId();
-			invitationSenders.add(userDAO.findById(senderId).getUsername());
-		}
-		return invitationSenders;
+		int[] senderIds = invitations.stream().mapToInt(Invitation::getSenderId).toArray();
+		return usernamesOf(senderIds);
 	}
 	
 	
 	public ArrayList<String> getInvitationsOfUser(String username) {
-		int senderId = userDAO.findByUsername(username).getId();
+		int senderId = identities.getId(username);
 		List<Invitation> invitations = invitationDAO.findBySender(senderId);
-		ArrayList<String> invitationReceivers = new ArrayList<String>();
-		
-		for (Invitation invitation : invitations) {
-			int receiverId = invitation.getReceiverId();
-			invitationReceivers.add(userDAO.findById(receiverId).getUsername());
-		}
-		return invitationReceivers;
+		int[] receiverIds = invitations.stream().mapToInt(Invitation::getReceiverId).toArray();
+		return usernamesOf(receiverIds);
 	}
 	
 	
 	public void sendInvitationToUser(String fromUser, String toUser) {
-		int senderId = userDAO.findByUsername(fromUser).getId();
-		int receiverId = userDAO.findByUsername(toUser).getId();
+		int senderId = identities.getId(fromUser);
+		int receiverId = identities.getId(toUser);
 		
-		invitationDAO.createInvitation(new Invitation(senderId, senderId, receiverId));
-		// TODO: Putting senderId instead of lobbyId.
+		invitationDAO.createInvitation(new Invitation(senderId, lobbyIdOf(senderId), receiverId));
 	}
 
 	
 	public void removeInvitationFromUser(String user, String sender) {
-		int senderId = userDAO.findByUsername(sender).getId();
-		int receiverId = userDAO.findByUsername(user).getId();
+		int senderId = identities.getId(sender);
+		int receiverId = identities.getId(user);
 		
 		invitationDAO.deleteInvitation(senderId, receiverId);
 		// TODO: Is correct?
@@ -112,12 +229,23 @@ public class Database {
 
 	
 	public ArrayList<String> getUsersAtLobby(String ownerUser) {
-		ArrayList<String> usernames = new ArrayList<String>();
-		int lobbyOwnerId = userDAO.findByUsername(ownerUser).getId();
-		for (InLobby inLobby : inLobbyDAO.findByLobbyId(lobbyOwnerId)) {
-			int userId = inLobby.getUserId();
-			String username = userDAO.findById(userId).getUsername();
-			usernames.add(username);
+		int lobbyId = lobbyIdOf(ownerUser);
+		int[] userIds = inLobbyDAO.findByLobbyId(lobbyId).stream().mapToInt(InLobby::getUserId).toArray();
+		return usernamesOf(userIds);
+	}
+	
+	// Everything the home screen lists for the user in one query: invitations both ways,
+	// the members of the user's lobby and the owner of the lobby the user has joined.
+	public HomeSnapshot getHomeSnapshot(String username) {
+		return userDAO.findHomeSnapshot(username);
+	}
+	
+	// Usernames in the order of the ids, resolving all cache misses in one query.
+	private ArrayList<String> usernamesOf(int[] userIds) {
+		IntObjectMap<String> byId = identities.getUsernames(userIds);
+		ArrayList<String> usernames = new ArrayList<>(userIds.length);
+		for (int userId : userIds) {
+			usernames.add(byId.get(userId));
 		}
 		return usernames;
 	}
@@ -125,23 +253,30 @@ public class Database {
 	
 	public ArrayList<String> getMovieTitles() {
 		ArrayList<String> movieTitles = new ArrayList<String>();
-		for (Movie movie : movieDAO.findAll()) {
-			movieTitles.add(movie.getTitle() + " (" + movie.getId() + ")");
-		}
+		movieCatalog.forEachMovie((movieId, title) -> movieTitles.add(title + " (" + movieId + ")"));
 		return movieTitles;
 	}
 	
 	
 	public String getMovieTitle(int movieId) {
-		Movie movie = movieDAO.findById(movieId);
-		return movie.getTitle() + " (" + movie.getId() + ")";
+		return movieCatalog.getTitle(movieId) + " (" + movieId + ")";
+	}
+	
+	
+	public TitleIndex getTitleIndex() {
+		return movieCatalog.getTitleIndex();
+	}
+	
+	// Moves whenever the catalog changes; negative where the schema has no counter.
+	public long getCatalogVersion() {
+		return movieCatalog.getVersion();
 	}
 	
 	
 	public ArrayList<Integer> getMovieIds() {
 		ArrayList<Integer> ids = new ArrayList<>();
-		for (Movie movie : movieDAO.findAll()) {
-			ids.add(movie.getId());
+		for (int movieId : movieCatalog.getMovieIds()) {
+			ids.add(movieId);
 		}
 		return ids;
 	}
@@ -149,29 +284,26 @@ public class Database {
 	
 	public void suggestMovie(String ownerUser, String user, int movieId) {
 		
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		int userId = userDAO.findByUsername(user).getId();
-
-	    // Check if the suggestion already exists
-	    if (!suggestionDAO.suggestionExists(lobbyId, userId, movieId)) {
-	        suggestionDAO.addSuggestion(lobbyId, userId, movieId);
-	    } else {
-	        System.out.println("Suggestion already exists.");
-	    }
+		int lobbyId = lobbyIdOf(ownerUser);
+		int userId = identities.getId(user);
+
+	    transactions.run(() -> {
+	        // Check if the suggestion already exists
+	        if (!suggestionDAO.suggestionExists(lobbyId, userId, movieId)) {
+	            suggestionDAO.addSuggestion(lobbyId, userId, movieId);
+	            lobbyChanged(lobbyId);
+	        } else {
+	            System.out.println("Suggestion already exists.");
+	        }
+	    });
 	}
 
 	
 	public ArrayList<String> getSuggestions(String ownerUser) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		System.out.println(suggestionDAO.findByLobbyId(lobbyId));
+		int lobbyId = lobbyIdOf(ownerUser);
 		ArrayList<String> suggestions = new ArrayList<String>();
-		for (Suggestion suggestion : suggestionDAO.findByLobbyId(lobbyId)) {
-			int movieId = suggestion.getMovieId();
-			int userId = suggestion.getSuggestedBy();
-			String movieTitle = movieDAO.findById(movieId).getTitle();
-			String username = userDAO.findById(userId).getUsername();
-			suggestions.add(movieTitle + " (" + movieId + ")");
-			System.out.println(movieTitle + " (" + movieId + ")");
+		for (SuggestionDetail s : suggestionDAO.findDetailsByLobbyId(lobbyId)) {
+			suggestions.add(s.movieTitle + " (" + s.movieId + ")");
 		}
 		return suggestions;
 	}
@@ -185,31 +317,29 @@ public class Database {
 	
 	public HashMap<Integer, Integer> getVotes2(String ownerUser) {
 		
-		// Movie name by vote count.
-		HashMap<Integer, Integer> votes = new HashMap<>();
-		for (Movie movie : movieDAO.findAll()) {
-			votes.put(movie.getId(), 0);
-		}
+		// Movie id by vote count, every movie included.
+		int lobbyId = lobbyIdOf(ownerUser);
+		IntIntMap counts = votes != null ? votes.countVotesByMovie(lobbyId) : voteDAO.countVotesByMovie(lobbyId);
 		
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		for (User user : userDAO.findAll()) {
-			int userId = user.getId();
-			ArrayList<Vote> userVotes = (ArrayList<Vote>) voteDAO.findVotesOfUser(lobbyId, userId);
-			for (Vote vote : userVotes) {
-				int movieId = movieDAO.findById(vote.getMovieId()).getId();
-				int voteCount = votes.get(movieId);
-				votes.put(movieId, voteCount + 1);
-			}
+		HashMap<Integer, Integer> votes = new HashMap<>();
+		for (int movieId : movieCatalog.getMovieIds()) {
+			votes.put(movieId, counts.get(movieId));
 		}
 		return votes;
 	}
 	
 	
 	public ArrayList<Integer> getVoteMovieIdsOfUser(String ownerUser, String username) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		int userId = userDAO.findByUsername(username).getId();
+		int lobbyId = lobbyIdOf(ownerUser);
+		int userId = identities.getId(username);
 		
 		ArrayList<Integer> votedMovieIds = new ArrayList<Integer>();
+		if (votes != null) {
+			for (int movieId : votes.findMovieIdsOfUser(lobbyId, userId)) {
+				votedMovieIds.add(movieId);
+			}
+			return votedMovieIds;
+		}
 		for (Vote v : voteDAO.findVotesOfUser(lobbyId, userId)) {
 			votedMovieIds.add(v.getMovieId());
 		}
@@ -218,54 +348,85 @@ public class Database {
 
 	
 	public void createLobby(String ownerUser) {
-	    int ownerId = userDAO.findByUsername(ownerUser).getId();
-
-	    // Check if a lobby already exists for this owner
-	    if (!lobbyDAO.lobbyExists(ownerId)) {
-	    	System.out.println("creating new lobby!");
-	        lobbyDAO.createLobby(ownerId, ownerId);
-	    } else {
-	        System.out.println("Lobby already exists for user: " + ownerUser);
+	    int ownerId = identities.getId(ownerUser);
+	    // Taken before the unit of work: refilling the block borrows a connection of its own,
+	    // which must not wait while this one is held. Unused when the lobby exists, which is harmless.
+	    int lobbyId;
+	    try {
+	        lobbyId = lobbyIds.next();
+	    } catch (SQLException e) {
+	        System.err.println("CreateLobby error: " + e.getMessage());
+	        return;
 	    }
+
+	    transactions.run(() -> {
+	        // Check if a lobby already exists for this owner
+	        if (findLobbyId(ownerId) == NO_LOBBY) {
+	        	System.out.println("creating new lobby!");
+	            if (lobbyDAO.createLobby(lobbyId, ownerId)) {
+	                lobbyIdsByOwner.put(ownerId, lobbyId);
+	            }
+	        } else {
+	            System.out.println("Lobby already exists for user: " + ownerUser);
+	        }
+	    });
 	}
 
 	
 	public void addUserToLobby(String ownerUser, String username) {
-		int ownerId = userDAO.findByUsername(ownerUser).getId();
-		Lobby lobby = lobbyDAO.findById(ownerId);
-		User user = userDAO.findByUsername(username);
-		System.out.println(ownerId);
-
-		inLobbyDAO.assignUserToLobby(user, lobby);
+		int ownerId = identities.getId(ownerUser);
+		int userId = identities.getId(username);
+		transactions.run(() -> {
+			// The owner may have made a new lobby since it was cached, maybe in another process.
+			int lobbyId = findLobbyId(ownerId);
+			inLobbyDAO.assignUserToLobby(userId, lobbyId);
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
 	public void removeUserFromLobby(String ownerUser, String username) {
-		int ownerId = userDAO.findByUsername(ownerUser).getId();
-		Lobby lobby = lobbyDAO.findById(ownerId);
-		User user = userDAO.findByUsername(username);
-		inLobbyDAO.removeUserToLobby(user, lobby);
+		int lobbyId = lobbyIdOf(ownerUser);
+		int userId = identities.getId(username);
+		// The last member leaving deletes the lobby and its votes
+		if (votes != null) {
+			votes.forget(lobbyId);
+		}
+		transactions.run(() -> {
+			if (inLobbyDAO.removeUserFromLobby(userId, lobbyId) && lobbyDAO.deleteIfEmpty(lobbyId)) {
+				lobbyIdsByOwner.values().remove(lobbyId);
+			}
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
 	public void deleteLobby(String ownerUser) {
-		int ownerId = userDAO.findByUsername(ownerUser).getId();
-		lobbyDAO.deleteLobby(ownerId);
-		// TODO Keep in mind, ownerId == lobbyId
+		int ownerId = identities.getId(ownerUser);
+		int lobbyId = lobbyIdOf(ownerId);
+		if (votes != null) {
+			votes.forget(lobbyId);
+		}
+		lobbyDAO.deleteLobby(lobbyId);
+		lobbyIdsByOwner.remove(ownerId);
 	}
 
 	
 	public void removeSuggestion(String ownerUser, int movieId) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		suggestionDAO.removeSuggestion(lobbyId, movieId);
+		int lobbyId = lobbyIdOf(ownerUser);
+		transactions.run(() -> {
+			suggestionDAO.removeSuggestion(lobbyId, movieId);
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
 	public String getBelongingLobbyOwner(String user) {
 		try {
-			int userId = userDAO.findByUsername(user).getId();
-			int ownerId = inLobbyDAO.findByUserId(userId).getLobbyId();
-			return userDAO.findById(ownerId).getUsername();
+			int userId = identities.getId(user);
+			Lobby lobby = lobbyDAO.findById(inLobbyDAO.findByUserId(userId).getLobbyId());
+			lobbyIdsByOwner.put(lobby.getOwnerId(), lobby.getId());
+			return identities.getUsername(lobby.getOwnerId());
 		} catch (NullPointerException e) {
 			return null;
 		}
@@ -279,8 +440,7 @@ public class Database {
 
 	
 	public boolean isLobbyStillVoting(String ownerUser) {
-		int ownerId = userDAO.findByUsername(ownerUser).getId();
-		return !lobbyDAO.findById(ownerId).isReady();
+		return !lobbyDAO.findById(lobbyIdOf(ownerUser)).isReady();
 	}
 
 	
@@ -317,53 +477,94 @@ public class Database {
 	    }
 
 	    // If all checks pass, create and add the user to the database
-	    Random rn = new Random();
-	    int userId = rn.nextInt(100000);
+	    int userId;
+	    try {
+	        userId = userIds.next();
+	    } catch (SQLException e) {
+	        System.err.println("AddUser error: " + e.getMessage());
+	        return 5; // Not created
+	    }
 	    User newUser = new User(userId, "", "", username, password, "");
-	    userDAO.createUser(newUser);
+	    if (!userDAO.createUserWithID(newUser)) {
+	        return 5; // Not created
+	    }
+	    identities.preload(Map.of(userId, username));
+	    userDirectory.added(userId, username);
 
 	    return 0; // Success
 	}
 
 	
 	public boolean deleteUser(String username) {
-	    User user = userDAO.findByUsername(username);
-	    return userDAO.deleteById(user.getId());
+	    int userId = identities.getId(username);
+	    identities.invalidate(username);
+	    boolean deleted = userDAO.deleteById(userId);
+	    if (deleted) {
+	        userDirectory.removed(userId);
+	    }
+	    return deleted;
+	}
+	
+	// deleteUser for the account's own user: only with its current password.
+	public boolean deleteAccount(String username, String password) {
+		return validateLogin(username, password) && deleteUser(username);
 	}
 
 	
 	public void suggestMovie(String ownerUser, String movieName) {
-	    int lobbyId = userDAO.findByUsername(ownerUser).getId();
-	    Movie movie = movieDAO.findByTitle(movieName);
-	    if (movie != null) {
-	        suggestionDAO.addSuggestion(lobbyId, lobbyId, movie.getId());
-	    }
+	    int ownerId = identities.getId(ownerUser);
+	    int lobbyId = lobbyIdOf(ownerId);
+	    transactions.run(() -> {
+	        Movie movie = movieDAO.findByTitle(movieName);
+	        if (movie != null) {
+	            suggestionDAO.addSuggestion(lobbyId, ownerId, movie.getId());
+	            lobbyChanged(lobbyId);
+	        }
+	    });
 	}
 
 	
 	public void removeSuggestion(String ownerUser, String movieName) {
-	    int lobbyId = userDAO.findByUsername(ownerUser).getId();
-	    Movie movie = movieDAO.findByTitle(movieName);
-	    if (movie != null) {
-	        suggestionDAO.removeSuggestion(lobbyId, lobbyId);
-	    }
+	    int lobbyId = lobbyIdOf(ownerUser);
+	    transactions.run(() -> {
+	        Movie movie = movieDAO.findByTitle(movieName);
+	        if (movie != null) {
+	            suggestionDAO.removeSuggestion(lobbyId, movie.getId());
+	            lobbyChanged(lobbyId);
+	        }
+	    });
 	}
 
 	
 	public void setLobbyReady(String ownerUser) {
-		lobbyDAO.setLobbyReady(userDAO.findByUsername(ownerUser).getId());
+		int lobbyId = lobbyIdOf(ownerUser);
+		if (votes != null) {
+			// Voting is over: the table holds the final votes before the lobby says so.
+			votes.flush();
+		}
+		transactions.run(() -> {
+			lobbyDAO.setLobbyReady(lobbyId);
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
 	public void emptyLobby(String ownerUser) {
-		int ownerId = userDAO.findByUsername(ownerUser).getId();
-		Lobby lobby = lobbyDAO.findById(ownerId);
-		inLobbyDAO.removeAllUsers(lobby);
+		int lobbyId = lobbyIdOf(ownerUser);
+		if (votes != null) {
+			votes.forget(lobbyId);
+		}
+		transactions.run(() -> {
+			if (inLobbyDAO.removeAllUsers(lobbyId)) {
+				lobbyDAO.deleteIfEmpty(lobbyId);
+			}
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
 	public void emptyInvitations(String sender) {
-		int ownerId = userDAO.findByUsername(sender).getId();
+		int ownerId = identities.getId(sender);
 		invitationDAO.removeAllInvitations(ownerId);
 	}
 
@@ -375,7 +576,7 @@ public class Database {
 	
 	
 	public ArrayList<Integer> getSuggestedMovieIds(String ownerUser) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
+		int lobbyId = lobbyIdOf(ownerUser);
 		ArrayList<Integer> suggestions = new ArrayList<>();
 		for (Suggestion s : suggestionDAO.findByLobbyId(lobbyId)) {
 			suggestions.add(s.getMovieId());
@@ -385,19 +586,22 @@ public class Database {
 	
 	
 	public String getSuggestionTitle(String ownerUser, int movieId, String suggestedBy) {
-		int voteCount = getVotes2(ownerUser).get(movieId);
-		Movie m = movieDAO.findById(movieId);
-		return String.format("%s (%d) (s: %s) %d", 
-				m.getTitle(), m.getId(), suggestedBy, voteCount);
+		int lobbyId = lobbyIdOf(ownerUser);
+		int voteCount = votes != null ? votes.countVotes(lobbyId, movieId) : voteDAO.countVotesByMovie(lobbyId).get(movieId);
+		return formatSuggestionTitle(movieCatalog.getTitle(movieId), movieId, suggestedBy, voteCount);
+	}
+	
+	private static String formatSuggestionTitle(String title, int movieId, String suggestedBy, int voteCount) {
+		return String.format("%s (%d) (s: %s) %d", title, movieId, suggestedBy, voteCount);
 	}
 	
 	
 	public ArrayList<String> getSuggestionTitles(String ownerUser) {
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
+		int lobbyId = lobbyIdOf(ownerUser);
 		ArrayList<String> suggestionTitles = new ArrayList<>();
-		for (Suggestion s : suggestionDAO.findByLobbyId(lobbyId)) {
-			String suggestedBy = userDAO.findById(s.getSuggestedBy()).getUsername();
-			suggestionTitles.add(getSuggestionTitle(ownerUser, s.getMovieId(), suggestedBy));
+		for (SuggestionDetail s : suggestionDAO.findDetailsByLobbyId(lobbyId)) {
+			int voteCount = votes != null ? votes.countVotes(lobbyId, s.movieId) : s.voteCount;
+			suggestionTitles.add(formatSuggestionTitle(s.movieTitle, s.movieId, s.suggestedBy, voteCount));
 		}
 		return suggestionTitles;
 	}
@@ -410,21 +614,43 @@ public class Database {
 	
 	
 	public void voteMovie(String user, String ownerUser, int movieId) {
-		voteDAO.addVote(
-				userDAO.findByUsername(ownerUser).getId(), 
-				userDAO.findByUsername(user).getId(), movieId);
+		int lobbyId = lobbyIdOf(ownerUser);
+		int userId = identities.getId(user);
+		if (votes != null) {
+			if (votes.addVote(lobbyId, userId, movieId)) {
+				lobbyChanged(lobbyId);
+			}
+			return;
+		}
+		transactions.run(() -> {
+			voteDAO.addVote(lobbyId, userId, movieId);
+			lobbyChanged(lobbyId);
+		});
 	}
 	
 	
 	public void removeVote(String user, String ownerUser, int movieId) {
-		voteDAO.removeVote(
-				userDAO.findByUsername(ownerUser).getId(), 
-				userDAO.findByUsername(user).getId(), movieId);
+		int lobbyId = lobbyIdOf(ownerUser);
+		int userId = identities.getId(user);
+		if (votes != null) {
+			if (votes.removeVote(lobbyId, userId, movieId)) {
+				lobbyChanged(lobbyId);
+			}
+			return;
+		}
+		transactions.run(() -> {
+			voteDAO.removeVote(lobbyId, userId, movieId);
+			lobbyChanged(lobbyId);
+		});
 	}
 	
 	
 	public void emptySuggestions(String ownerUser) {
-		suggestionDAO.removeAllSuggestions(userDAO.findByUsername(ownerUser).getId());
+		int lobbyId = lobbyIdOf(ownerUser);
+		transactions.run(() -> {
+			suggestionDAO.removeAllSuggestions(lobbyId);
+			lobbyChanged(lobbyId);
+		});
 	}
 
 	
@@ -435,55 +661,70 @@ public class Database {
 	
 	
 	public void emptyVotes(String ownerUser) {
-		voteDAO.removeAllVotes(userDAO.findByUsername(ownerUser).getId());
+		int lobbyId = lobbyIdOf(ownerUser);
+		if (votes != null) {
+			votes.removeAllVotes(lobbyId);
+			lobbyChanged(lobbyId);
+			return;
+		}
+		transactions.run(() -> {
+			voteDAO.removeAllVotes(lobbyId);
+			lobbyChanged(lobbyId);
+		});
 	}
 	
 	public void updatePassword(String username, String newPassword) {
-		int userId = userDAO.findByUsername(username).getId();
+		int userId = identities.getId(username);
 		userDAO.updateUserPassword(userId, newPassword);
 	}
 	
-	public ArrayList<String> getGenres() {
-		ArrayList<String> genres = new ArrayList<>();
-		for (Genre g : genreDAO.findAll()) {
-			genres.add(g.getName());
+	// updatePassword for the account's own user: only with its current password.
+	public boolean changePassword(String username, String password, String newPassword) {
+		if (newPassword.isBlank() || !validateLogin(username, password)) {
+			return false;
 		}
-		return genres;
+		updatePassword(username, newPassword);
+		return true;
+	}
+	
+	public ArrayList<String> getGenres() {
+		return new ArrayList<>(movieCatalog.getAllGenreNames());
 	}
 	
 	public ArrayList<Integer> findMovieIdsByGenres(ArrayList<String> genres) {
-		ArrayList<Integer> genreIds = new ArrayList<>();
-		for (String genreName : genres) {
-			Genre g = genreDAO.getGenre(genreName);
-			if (g != null) {
-				genreIds.add(g.getId());
-			}
-		}
-		int[] genreIdsArray = genreIds.stream().mapToInt(Integer::intValue).toArray();
-		ArrayList<Movie> movies = (ArrayList<Movie>) movieDAO.findMoviesByGenres(genreIdsArray);
-		ArrayList<Integer> movieIds = new ArrayList<>();
-		for (Movie m : movies) {
-			movieIds.add(m.getId());
+		int[] ids = movieCatalog.getGenreIndex().findAll(genres);
+		ArrayList<Integer> movieIds = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			movieIds.add(id);
 		}
-		System.out.println(movieIds);
 		return movieIds;
 	}
 	
 	public String getMovieGenresLabel(int movieId) {
-		String label = "";
-		for (HasGenre g : hasGenreDAO.getMovieGenres(movieId)) {
-			label += genreDAO.findById(g.getGenreId()).getName() + ", ";
+		StringBuilder label = new StringBuilder();
+		for (String genreName : movieCatalog.getGenreNames(movieId)) {
+			label.append(genreName).append(", ");
 		}
-		return label;
+		return label.toString();
 	}
 	
 	public String getDescription(int movieId) {
-		return movieDAO.findById(movieId).getDescription();
+		return movieCatalog.getDescription(movieId);
 	}
 	
 	public VoteResult[] getWinnerMovies(String ownerUser) {
-		System.out.println("aaa " + ownerUser + " " + userDAO.findByUsername(ownerUser));
-		int lobbyId = userDAO.findByUsername(ownerUser).getId();
-		return lobbyDAO.getWinningMoviesByVotes(lobbyId);
+		int lobbyId = lobbyIdOf(ownerUser);
+		if (votes == null) {
+			return lobbyDAO.getWinningMoviesByVotes(lobbyId);
+		}
+		int[] ranked = votes.rankMovies(lobbyId);
+		VoteResult[] results = new VoteResult[ranked.length];
+		for (int i = 0; i < ranked.length; i++) {
+			results[i] = new VoteResult();
+			results[i].movieID = ranked[i];
+			results[i].movieTitle = movieCatalog.getTitle(ranked[i]);
+			results[i].voteCount = votes.countVotes(lobbyId, ranked[i]);
+		}
+		return results;
 	}
 }
@@ -10,22 +10,29 @@ import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.function.Consumer;
 import javax.swing.DefaultListModel;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPasswordField;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
+import dao.UserDAO.HomeSnapshot;
+
 /**
  *
  * @author deneg
  */
 public class HomePanel extends javax.swing.JPanel {
     
+    private static final String SEARCH_PLACEHOLDER = "Search user...";
+    
     private String loggedUser;
-    private ArrayList<String> users = new ArrayList<>();
-    private DefaultListModel<String> usersModel = new DefaultListModel<>();
+    private PagedListModel<String> usersModel;
+    private String usersFilter;
     private HashMap<String, Boolean> usersAndInvitations = new HashMap<>();
-    private Database db;
+    private final AsyncDatabase db;
     
     private String selectedUser = "";
     private ArrayList<String> invitedUsers = new ArrayList<>();
@@ -57,7 +64,7 @@ public class HomePanel extends javax.swing.JPanel {
      * @param loggedUser
      * @param db
      */
-    public HomePanel(Database db, SharedUserModel sharedUserModel, JFrame parentFrame) {
+    public HomePanel(AsyncDatabase db, SharedUserModel sharedUserModel, JFrame parentFrame) {
         initComponents();
         this.db = db;
         this.sharedUserModel = sharedUserModel;
@@ -71,7 +78,6 @@ public class HomePanel extends javax.swing.JPanel {
 
         loginAs(sharedUserModel.getUsername());
         loadUsers();
-        loadInvitations();
         this.acceptedInvitation = null;
 
         userInviteCancelButton.setEnabled(false);
@@ -81,9 +87,12 @@ public class HomePanel extends javax.swing.JPanel {
     	invitationsList.setEnabled(true);
     	refreshButton.setEnabled(true);
         
-        // Is user in a lobby right now?
-        if (db.getBelongingLobbyOwner(loggedUser) != null) {
-        	System.out.println("Belongs to lobby: " + db.getBelongingLobbyOwner(loggedUser));
+        // Is user in a lobby right now? Checked after the invitations are shown, which resets the accept button.
+        loadHome(home -> {
+            if (home.lobbyOwner == null) {
+                return;
+            }
+        	System.out.println("Belongs to lobby: " + home.lobbyOwner);
         	usersList.setEnabled(false);
         	invitationsList.setEnabled(false);
         	refreshButton.setEnabled(false);
@@ -93,7 +102,7 @@ public class HomePanel extends javax.swing.JPanel {
         	invitationAcceptButton.setForeground(Color.RED);
         
         	isAlreadyInLobby = true;
-        }
+        });
     }
     
     private void initSearch() {
@@ -118,82 +127,79 @@ public class HomePanel extends javax.swing.JPanel {
     
     private void refreshSearch() {
         searchEmpty = true;
-        searchUserField.setText("Search user...");
+        searchUserField.setText(SEARCH_PLACEHOLDER);
         searchUserField.setForeground(Color.GRAY);
     }
     
     private void search(String input) {
-        usersModel.removeAllElements();
-        usersModel.addAll(users);
-        for (String user : users) {
-            if (!user.contains(input)) {
-                usersModel.removeElement(user);
-            }
+        String filter = input.equals(SEARCH_PLACEHOLDER) ? "" : input;
+        if (!filter.equals(usersFilter)) {
+            usersFilter = filter;
+            showUsers();
         }
     }
     
     private void loadUsers() {
-        users = db.getUsers();
-        usersModel.removeAllElements();
-        usersModel.addAll(users); 
-        usersList.setModel(usersModel);
-        
-        for (String user : users) {
-        	if (!usersAndInvitations.containsKey(user)) {
-        		usersAndInvitations.put(user, false);
-        	}
-        } // Update for newly created users
-        
-        for (String user : usersAndInvitations.keySet()) {
-        	if (!users.contains(user)) {
-        		usersAndInvitations.remove(user);
-        	}
-        } // Update for deleted users
-        
-        updateInLobby();
+        usersFilter = "";
+        showUsers();
     }
     
-    private void loadInvitations() {
-    	// invitations to logged user
-    	invitations = db.getInvitiationsForUser(loggedUser);
-    	invitationsModel.removeAllElements();
-    	invitationsModel.addAll(invitations);
-    	invitationsList.setModel(invitationsModel);
-    	
-    	System.out.println(db.getInvitationsOfUser(loggedUser));
-    	
-    	// invitations sent from the logged user
-        invitationsSentToLabel.setText("Invitations sent to: ");
-    	for (String user : db.getInvitationsOfUser(loggedUser)) {
-    		usersAndInvitations.put(user, true);
-    		invitationsSentToLabel.setText(invitationsSentToLabel.getText() + user + ", ");
-    	}
-    	
-        invitationAcceptButton.setText("Accept");
-        invitationAcceptButton.setEnabled(false);
-    	if (db.getInvitationsOfUser(loggedUser).size() > 0) {
-    		displayLobbyCreate();
-    	}
+    // Typeahead: users whose name starts with the search text, in name order, paged in as the list scrolls.
+    private void showUsers() {
+        String prefix = usersFilter.strip();
+        usersModel = new PagedListModel<>(db, (d, afterId, limit) -> d.getUsersByPrefix(prefix, afterId, limit));
+        usersModel.attachTo(usersList);
     }
     
-    private void updateSentInvitations() {
-        invitationsSentToLabel.setText("Invitations sent to: ");
-    	for (String user : db.getInvitationsOfUser(loggedUser)) {
-            invitationsSentToLabel.setText(invitationsSentToLabel.getText() + user + ", ");
-    	}
-    	System.out.println(loggedUser + " " + db.getInvitationsOfUser(loggedUser));
+    private void loadHome() {
+        loadHome(home -> { });
     }
     
-    private void updateInLobby() {
-        inLobbyLabel.setText("Users in " + loggedUser + "'s lobby: ");
-    	for (String user : db.getUsersAtLobby(loggedUser)) {
-            inLobbyLabel.setText(inLobbyLabel.getText() + user + ", ");
-    	}
-    	System.out.println(loggedUser + " " + db.getUsersAtLobby(loggedUser));
+    // Invitations both ways and the lobby members in one round trip; then runs after they are shown.
+    private void loadHome(Consumer<HomeSnapshot> then) {
+        String user = loggedUser;
+    	db.load(d -> d.getHomeSnapshot(user), home -> {
+        	// invitations to logged user
+        	invitations = home.invitationsFrom;
+        	invitationsModel.removeAllElements();
+        	invitationsModel.addAll(invitations);
+        	invitationsList.setModel(invitationsModel);
+        	System.out.println(home.invitationsTo);
+        	
+        	// invitations sent from the logged user
+            invitationsSentToLabel.setText("Invitations sent to: ");
+        	for (String invited : home.invitationsTo) {
+        		usersAndInvitations.put(invited, true);
+        		invitationsSentToLabel.setText(invitationsSentToLabel.getText() + invited + ", ");
+        	}
+        	
+            invitationAcceptButton.setText("Accept");
+            invitationAcceptButton.setEnabled(false);
+        	if (home.invitationsTo.size() > 0) {
+        		displayLobbyCreate();
+        	}
+        	
+            inLobbyLabel.setText("Users in " + user + "'s lobby: ");
+        	for (String member : home.lobbyMembers) {
+                inLobbyLabel.setText(inLobbyLabel.getText() + member + ", ");
+        	}
+        	then.accept(home);
+    	});
+    }
+    
+    private void updateSentInvitations() {
+        String user = loggedUser;
+        db.load(d -> d.getInvitationsOfUser(user), sentTo -> {
+            invitationsSentToLabel.setText("Invitations sent to: ");
+        	for (String invited : sentTo) {
+                invitationsSentToLabel.setText(invitationsSentToLabel.getText() + invited + ", ");
+        	}
+        	System.out.println(user + " " + sentTo);
+        });
     }
     
     private void displayInvitations() {
-        loadInvitations();
+        loadHome();
         invitationAcceptButton.setText("Accept");
     }
     
@@ -497,8 +503,9 @@ public class HomePanel extends javax.swing.JPanel {
                 System.out.println("Creating a new lobby...");
                 sharedUserModel.setLobby(loggedUser);
             }
-            db.addUserToLobby(acceptedInvitation, loggedUser);
-            showLobby();
+            String lobbyOwner = acceptedInvitation;
+            String user = loggedUser;
+            db.update(d -> d.addUserToLobby(lobbyOwner, user), this::showLobby);
         }
         if (isAlreadyInLobby) {
         	showLobby();
@@ -519,7 +526,7 @@ public class HomePanel extends javax.swing.JPanel {
         }
         
         System.out.println(usersAndInvitations);
-        if (!usersAndInvitations.get(selectedUser)) {
+        if (!usersAndInvitations.getOrDefault(selectedUser, false)) {
             userInviteCancelButton.setText("Invite");
         } else {
             userInviteCancelButton.setText("Cancel");
@@ -529,37 +536,48 @@ public class HomePanel extends javax.swing.JPanel {
 
     private void userInviteCancelButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_userInviteCancelButtonActionPerformed
         // TODO add your handling code here:
-        usersAndInvitations.put(selectedUser, !usersAndInvitations.get(selectedUser));
+        usersAndInvitations.put(selectedUser, !usersAndInvitations.getOrDefault(selectedUser, false));
+        String user = loggedUser;
+        String invitedUser = selectedUser;
         
         if (!usersAndInvitations.get(selectedUser)) {
             numOfInvited -= 1;
             userInviteCancelButton.setText("Invite");
-            db.removeInvitationFromUser(selectedUser, loggedUser);
+            boolean lastInvitation = numOfInvited == 0;
+            db.update(d -> d.inTransaction(() -> {
+                d.removeInvitationFromUser(invitedUser, user);
+                if (lastInvitation) {
+                    d.deleteLobby(user);
+                }
+            }));
             
             // If no other user is invited, show invitations again.
-            if (numOfInvited == 0) {
+            if (lastInvitation) {
                 displayInvitations();
-                db.deleteLobby(loggedUser);
             }
         } else {
             numOfInvited += 1;
             
             // If invited any user, stop displaying other invitations and only
             // display created lobby invitation.            
-            if (numOfInvited == 1) {
+            boolean firstInvitation = numOfInvited == 1;
+            if (firstInvitation) {
             	System.out.println("Creating lobby...");
-                db.createLobby(loggedUser);
-                displayLobbyCreate();
-            } else if (numOfInvited > 1) {
+            }
+            if (numOfInvited >= 1) {
                 displayLobbyCreate();
             }
             
             // Create a lobby first, then send invitation.
             userInviteCancelButton.setText("Cancel");
-            db.sendInvitationToUser(loggedUser, selectedUser);
+            db.update(d -> d.inTransaction(() -> {
+                if (firstInvitation) {
+                    d.createLobby(user);
+                }
+                d.sendInvitationToUser(user, invitedUser);
+            }));
         }
         updateSentInvitations();
-        System.out.println(selectedUser + db.getInvitiationsForUser(selectedUser));
     }//GEN-LAST:event_userInviteCancelButtonActionPerformed
 
     private void searchUserFieldFocusGained(java.awt.event.FocusEvent evt) {//GEN-FIRST:event_searchUserFieldFocusGained
@@ -575,7 +593,7 @@ public class HomePanel extends javax.swing.JPanel {
         // TODO add your handling code here:
         if (searchUserField.getText().equals("")) {
             searchEmpty = true;
-            searchUserField.setText("Search user...");
+            searchUserField.setText(SEARCH_PLACEHOLDER);
             searchUserField.setForeground(Color.GRAY);
             search("");
         }
@@ -585,19 +603,28 @@ public class HomePanel extends javax.swing.JPanel {
         // TODO add your handling code here:
         refreshSearch();
         loadUsers();
-        loadInvitations();
-        if (numOfInvited >= 1) {
-            displayLobbyCreate();
-        } else {
-            displayInvitations();
-        }
+        loadHome(home -> {
+            if (numOfInvited >= 1) {
+                displayLobbyCreate();
+            }
+        });
     }//GEN-LAST:event_refreshButtonActionPerformed
 
     private void deleteButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteButtonActionPerformed
         // TODO add your handling code here:
-        if (db.deleteUser(loggedUser)) {
-            showLogin();
+        String user = loggedUser;
+        JPasswordField passwordField = new JPasswordField();
+        int answer = JOptionPane.showConfirmDialog(this, passwordField, "Password of " + user,
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (answer != JOptionPane.OK_OPTION) {
+            return;
         }
+        String password = String.valueOf(passwordField.getPassword());
+        db.write(d -> d.deleteAccount(user, password), deleted -> {
+            if (deleted) {
+                showLogin();
+            }
+        });
     }//GEN-LAST:event_deleteButtonActionPerformed
 
     private void logoutButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_logoutButtonActionPerformed
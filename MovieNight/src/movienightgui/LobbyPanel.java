@@ -7,21 +7,23 @@ package movienightgui;
 import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Component;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JFrame;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
+import events.LobbyEvent;
+import events.LobbyEventChannel;
+import search.TitleIndex;
+
 /**
  *
  * @author deneg
@@ -30,10 +32,12 @@ public class LobbyPanel extends javax.swing.JPanel {
 
     private String ownerUser;
     private String loggedUser;
-    private Database db;
+    private final AsyncDatabase db;
+    private final AsyncDatabase.LatestRequest searchRequest;
+    private final AsyncDatabase.LatestRequest movieInfoRequest;
     
-    private HashMap<Integer, String> movies = new HashMap<>();
-    private DefaultListModel<String> moviesModel = new DefaultListModel<>();
+    private TitleIndex titleIndex = TitleIndex.EMPTY;
+    private MovieListModel moviesModel = new MovieListModel(TitleIndex.EMPTY, new int[0]);
     private DefaultListModel<String> lobbyUsers = new DefaultListModel<>();
     private DefaultListModel<String> suggestionsModel = new DefaultListModel<>();
     private ArrayList<Integer> suggestionMovieIds = new ArrayList<>();
@@ -41,7 +45,6 @@ public class LobbyPanel extends javax.swing.JPanel {
     private String selectedMovie = "";
     private int selectedMovieId = 0;
     private Boolean searchEmpty = true;
-    private ArrayList<Integer> searchedMovies = new ArrayList<>();
     
     private int genreIndex = 0;
     private String genreName = "";
@@ -50,55 +53,73 @@ public class LobbyPanel extends javax.swing.JPanel {
     private final SharedUserModel sharedUserModel;
     private final JFrame parentFrame;
         
-    private final int DELAY = 1000;
-    private final int READYWAITSECONDS = 1;
-    private int readyWaitCounter = 0;
-    private Timer timer;
+    private LobbyEventChannel.Subscription lobbySubscription;
+    private int lobbySession = 0; // bumped on leaving, so late callbacks of a past visit are ignored
+    
+    private static final class SuggestionList {
+        final ArrayList<String> titles;
+        final ArrayList<Integer> movieIds;
+        
+        SuggestionList(ArrayList<String> titles, ArrayList<Integer> movieIds) {
+            this.titles = titles;
+            this.movieIds = movieIds;
+        }
+    }
+    
+    private static final class MovieInfo {
+        final String genres;
+        final String description;
+        final String suggestedBy;
+        
+        MovieInfo(String genres, String description, String suggestedBy) {
+            this.genres = genres;
+            this.description = description;
+            this.suggestedBy = suggestedBy;
+        }
+    }
     
     /**
      * Creates new form LobbyPanel
      */
-    public LobbyPanel(Database db, SharedUserModel sharedUserModel, JFrame parentFrame) {
+    public LobbyPanel(AsyncDatabase db, SharedUserModel sharedUserModel, JFrame parentFrame) {
         initComponents();
         this.db = db;
+        this.searchRequest = db.newLatestRequest();
+        this.movieInfoRequest = db.newLatestRequest();
         this.sharedUserModel = sharedUserModel;
         this.parentFrame = parentFrame;      
         descriptionTextArea.setLineWrap(true);
         descriptionTextArea.setWrapStyleWord(true);
     }
     
-    private static <K, V> Map<K, V> zipToMap(List<K> keys, List<V> values) {
-        return IntStream.range(0, keys.size()).boxed()
-                .collect(Collectors.toMap(keys::get, values::get));
-    }
-
     public void init() {
         this.loggedUser = sharedUserModel.getUsername();
-        this.ownerUser = db.getBelongingLobbyOwner(loggedUser);
+        String username = loggedUser;
+        leaveLobby(); // drops whatever is left of a previous visit
         
         initSearch();
-        loadMovies();
-        loadLobbyUsers();
-        loadSuggestions();
-        loadVotes();
-        initDatabaseAccessTimer();
         voteStatusLabel.setText("User \"" + loggedUser + "\" is voting...");
+        readyButton.setEnabled(false);
         this.parentFrame.pack();
         
-        String username = sharedUserModel.getUsername();
-        this.ownerUser = db.getBelongingLobbyOwner(username);
-        if (!username.equals(ownerUser)) {
-        	readyButton.setEnabled(false);
-        } else {
-        	readyButton.setEnabled(true);
-        }
-        
-        if (!db.isLobbyStillVoting(ownerUser)) {
-        	showResults();
-        }
+        int session = lobbySession;
+        db.load(d -> d.getBelongingLobbyOwner(username), owner -> {
+            if (session != lobbySession) {
+                return;
+            }
+            this.ownerUser = owner;
+            readyButton.setEnabled(username.equals(ownerUser));
+            loadMovies();
+            loadLobbyUsers();
+            loadSuggestions();
+            loadVotes();
+            subscribeToLobbyEvents();
+            showResultsIfVotingDone();
+        });
     }
     
     private void showHome() {
+        leaveLobby();
         CardLayout cl = (CardLayout) parentFrame.getContentPane().getLayout();
         cl.show(parentFrame.getContentPane(), "home");
         for (Component component : parentFrame.getContentPane().getComponents()) {
@@ -108,61 +129,77 @@ public class LobbyPanel extends javax.swing.JPanel {
         }
     }
 
-    private void loadMovies() {
-        movies = (HashMap<Integer, String>) zipToMap(db.getMovieIds(), db.getMovieTitles());
-        moviesModel.removeAllElements();
-        moviesModel.addAll(movies.values());
-        moviesList.setModel(moviesModel);
-        
-        searchedMovies.addAll(movies.keySet());
+    private CompletableFuture<Void> loadMovies() {
+        return db.load(d -> d.getTitleIndex(), index -> {
+            titleIndex = index;
+            showSearchResults(titleIndex.getMovieIds(), null);
+        });
     }
     
-    private void loadLobbyUsers() {
-        lobbyUsers.removeAllElements();
-        lobbyUsers.addAll(db.getUsersAtLobby(ownerUser));
-        usersInLobbyList.setModel(lobbyUsers);
+    private CompletableFuture<Void> loadLobbyUsers() {
+        String lobbyOwner = ownerUser;
+        return db.load(d -> d.getUsersAtLobby(lobbyOwner), users -> {
+            lobbyUsers.removeAllElements();
+            lobbyUsers.addAll(users);
+            usersInLobbyList.setModel(lobbyUsers);
+        });
     }
     
-    private void loadSuggestions() {
-        suggestionsModel.removeAllElements();
-        suggestionsModel.addAll(db.getSuggestionTitles(ownerUser));
-        suggestionMovieIds = db.getSuggestedMovieIds(ownerUser);
-        suggestionsList.setModel(suggestionsModel);
+    private CompletableFuture<Void> loadSuggestions() {
+        String lobbyOwner = ownerUser;
+        return db.load(d -> new SuggestionList(d.getSuggestionTitles(lobbyOwner), d.getSuggestedMovieIds(lobbyOwner)), loaded -> {
+            suggestionsModel.removeAllElements();
+            suggestionsModel.addAll(loaded.titles);
+            suggestionMovieIds = loaded.movieIds;
+            suggestionsList.setModel(suggestionsModel);
+        });
     }
 
-    private void loadVotes() {
-    	votes = db.getVoteMovieIdsOfUser(ownerUser, loggedUser);
-    	System.out.println(votes);
-    	System.out.println(selectedMovie);
+    private CompletableFuture<Void> loadVotes() {
+        String lobbyOwner = ownerUser;
+        String user = loggedUser;
+        return db.load(d -> d.getVoteMovieIdsOfUser(lobbyOwner, user), loaded -> {
+            votes = loaded;
+            System.out.println(votes);
+            System.out.println(selectedMovie);
+        });
     }
     
     private void showSelectedMovieInfo() {
-        
-    	movieGenresLabel.setText(db.getMovieGenresLabel(selectedMovieId));
+        int movieId = selectedMovieId;
+        String lobbyOwner = ownerUser;
+        boolean suggested = suggestionMovieIds.contains(movieId);
         movieName.setText(selectedMovie);
-        descriptionTextArea.setText(db.getDescription(selectedMovieId));
         
-        if (suggestionMovieIds.contains(selectedMovieId)) {
-            voteButton.setEnabled(true);
-            if (votes.contains(selectedMovieId)) {
-                voteButton.setSelected(true);
-                suggestButton.setSelected(true);
-                suggestButton.setEnabled(false);
+        movieInfoRequest.load(d -> new MovieInfo(
+                d.getMovieGenresLabel(movieId),
+                d.getDescription(movieId),
+                suggested ? d.getSuggestedByUsername(movieId, lobbyOwner) : null), info -> {
+            movieGenresLabel.setText(info.genres);
+            descriptionTextArea.setText(info.description);
+            
+            if (suggested) {
+                voteButton.setEnabled(true);
+                if (votes.contains(movieId)) {
+                    voteButton.setSelected(true);
+                    suggestButton.setSelected(true);
+                    suggestButton.setEnabled(false);
+                } else {
+                    voteButton.setSelected(false);
+                    suggestButton.setSelected(true);
+                    suggestButton.setEnabled(true);   
+                }
+                if (!loggedUser.equals(info.suggestedBy)) {
+                	// Movie suggested by someone else
+                	suggestButton.setEnabled(false);
+                }
             } else {
+                voteButton.setEnabled(false);
                 voteButton.setSelected(false);
-                suggestButton.setSelected(true);
-                suggestButton.setEnabled(true);   
+                suggestButton.setEnabled(true);
+                suggestButton.setSelected(false);
             }
-            if (!db.getSuggestedByUsername(selectedMovieId, ownerUser).equals(loggedUser)) {
-            	// Movie suggested by someone else
-            	suggestButton.setEnabled(false);
-            }
-        } else {
-            voteButton.setEnabled(false);
-            voteButton.setSelected(false);
-            suggestButton.setEnabled(true);
-            suggestButton.setSelected(false);
-        }
+        });
     }
     
     private ArrayList<String> parseGenreField() {
@@ -177,26 +214,27 @@ public class LobbyPanel extends javax.swing.JPanel {
     }
     
     private void search(String input) {
-        moviesModel.removeAllElements();
-        moviesModel.addAll(movies.values());
-        searchedMovies.clear();
-    	ArrayList<Integer> genreMovieIds = db.findMovieIdsByGenres(parseGenreField());
-
-        for (Integer movieId : movies.keySet()) {
-        	String title = movies.get(movieId);
-
-        	if (!genreMovieIds.isEmpty() && !genreMovieIds.contains(movieId)) {
-        		moviesModel.removeElement(title);
-        	} 
-
-        	if (!title.contains(input)) {
-                moviesModel.removeElement(title);
-            }
-        	
-        	if (moviesModel.contains(title)) {
-            	searchedMovies.add(movieId);
-        	}
+        int[] titleMatches = titleIndex.search(input);
+        ArrayList<String> genres = parseGenreField();
+        if (genres.isEmpty()) {
+            searchRequest.cancel();
+            showSearchResults(titleMatches, null);
+            return;
+        }
+        // Superseded genre lookups are cancelled, so fast typing never applies a stale result.
+        searchRequest.load(d -> d.findMovieIdsByGenres(genres),
+                genreMovieIds -> showSearchResults(titleMatches, genreMovieIds));
+    }
+    
+    // Swaps in a new list model at once; an empty genre list means no genre filter.
+    private void showSearchResults(int[] movieIds, List<Integer> genreMovieIds) {
+        int[] matches = movieIds;
+        if (genreMovieIds != null && !genreMovieIds.isEmpty()) {
+            Set<Integer> genreFilter = new HashSet<>(genreMovieIds);
+            matches = Arrays.stream(movieIds).filter(genreFilter::contains).toArray();
         }
+        moviesModel = new MovieListModel(titleIndex, matches);
+        moviesList.setModel(moviesModel);
     }
     
     private void initSearch() {
@@ -220,15 +258,6 @@ public class LobbyPanel extends javax.swing.JPanel {
         moviesList.requestFocus();  // To prevent search field to focus with placeholder.
     }
     
-    private Integer findIdOfSelectedMovie() {
-    	for (int movieId : movies.keySet()) {
-    		if (selectedMovie.contains(movies.get(movieId))) {
-    			return movieId;
-    		}
-    	}
-    	return null;
-    }
-    
     private void refreshSearch() {
         searchEmpty = true;
         searchMovieField.setText("Search movie...");
@@ -236,34 +265,61 @@ public class LobbyPanel extends javax.swing.JPanel {
         genreField.setText("");
     }
     
-    private void initDatabaseAccessTimer() {
-        ActionListener listener = (ActionEvent e) -> {
-            int userSelectedIndex = usersInLobbyList.getSelectedIndex();
-            
-//            loadLobbyUsers();
-//            loadSuggestions();
-//            loadVotes();
-//            showSelectedMovieInfo();
-//            
-//            usersInLobbyList.isSelectedIndex(userSelectedIndex);
-            
-            if (!db.isLobbyStillVoting(ownerUser)) {
-                if (READYWAITSECONDS * 1000 / DELAY >= readyWaitCounter) {
-                    voteStatusLabel.setText(
-                            "Voting done: " + (READYWAITSECONDS - readyWaitCounter * DELAY / 1000)
-                    );
-                    readyWaitCounter += 1;
-                } else {
-                    this.timer.stop();
-                }
-            } 
-            System.out.println("AAAA");
-        };
-//        this.timer = new Timer(DELAY, listener);
-//        this.timer.start();
+    private void subscribeToLobbyEvents() {
+        int session = lobbySession;
+        String lobbyOwner = ownerUser;
+        db.load(d -> d.subscribeToLobby(lobbyOwner, event -> SwingUtilities.invokeLater(() -> {
+            if (session == lobbySession) {
+                onLobbyEvent(event);
+            }
+        })), subscription -> {
+            if (session == lobbySession) {
+                lobbySubscription = subscription;
+            } else {
+                subscription.close();
+            }
+        });
+    }
+    
+    private void leaveLobby() {
+        lobbySession++;
+        searchRequest.cancel();
+        movieInfoRequest.cancel();
+        if (lobbySubscription != null) {
+            lobbySubscription.close();
+            lobbySubscription = null;
+        }
+    }
+    
+    private void showResultsIfVotingDone() {
+        int session = lobbySession;
+        String lobbyOwner = ownerUser;
+        db.load(d -> d.isLobbyStillVoting(lobbyOwner), stillVoting -> {
+            if (!stillVoting && session == lobbySession) {
+                showResults();
+            }
+        });
+    }
+    
+    // Runs on the EDT; reloads only what the event touched.
+    private void onLobbyEvent(LobbyEvent event) {
+        switch (event.getKind()) {
+            case VOTE, SUGGESTION -> {
+                loadSuggestions();
+                loadVotes();
+            }
+            case MEMBERSHIP -> loadLobbyUsers();
+            default -> {
+                loadLobbyUsers();
+                loadSuggestions();
+                loadVotes();
+                showResultsIfVotingDone();
+            }
+        }
     }
     
     private void showResults() {
+        leaveLobby();
         CardLayout cl = (CardLayout) parentFrame.getContentPane().getLayout();
         cl.show(parentFrame.getContentPane(), "result");
         for (Component component : parentFrame.getContentPane().getComponents()) {
@@ -599,7 +655,7 @@ public class LobbyPanel extends javax.swing.JPanel {
         // TODO add your handling code here:
         if (moviesList.getSelectedValue() != null) {
             selectedMovie = moviesList.getSelectedValue();
-            selectedMovieId = searchedMovies.get(moviesList.getSelectedIndex());
+            selectedMovieId = moviesModel.getMovieIdAt(moviesList.getSelectedIndex());
             showSelectedMovieInfo();
         }
     }//GEN-LAST:event_moviesListMouseClicked
@@ -616,29 +672,34 @@ public class LobbyPanel extends javax.swing.JPanel {
     private void readyButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_readyButtonActionPerformed
         System.out.println("User ready!");
         System.out.println(votes);
-        db.setLobbyReady(ownerUser);
+        String lobbyOwner = ownerUser;
         readyButton.setEnabled(false);
-        showResults();
+        db.update(d -> d.setLobbyReady(lobbyOwner), this::showResults);
         System.out.println("ready then?");
     }//GEN-LAST:event_readyButtonActionPerformed
 
     private void suggestButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_suggestButtonActionPerformed
         // TODO add your handling code here:
-        int movieId = findIdOfSelectedMovie();
+        int movieId = selectedMovieId;
+        String lobbyOwner = ownerUser;
+        String user = loggedUser;
+        String movie = selectedMovie;
         if (suggestButton.isSelected()) {
             suggestionsModel.addElement(selectedMovie);
             voteButton.setEnabled(true);
-            db.suggestMovie(ownerUser, loggedUser, movieId);
+            db.update(d -> d.suggestMovie(lobbyOwner, user, movieId));
         } else {
-            db.removeSuggestion(ownerUser, movieId);
-            if (db.getSuggestedMovieIds(ownerUser).contains(movieId)) {
-            	// That means TRIGGER prevented deletion as there are users already voted this movie...
-            	voteStatusLabel.setText("Suggestion cannot be removed; other users have voted.");
-            	suggestButton.setSelected(true);
-            } else {
-                suggestionsModel.removeElement(selectedMovie);
-                voteButton.setEnabled(false);
-            }
+            db.update(d -> d.removeSuggestion(lobbyOwner, movieId));
+            db.load(d -> d.getSuggestedMovieIds(lobbyOwner), movieIds -> {
+                if (movieIds.contains(movieId)) {
+                	// That means TRIGGER prevented deletion as there are users already voted this movie...
+                	voteStatusLabel.setText("Suggestion cannot be removed; other users have voted.");
+                	suggestButton.setSelected(true);
+                } else {
+                    suggestionsModel.removeElement(movie);
+                    voteButton.setEnabled(false);
+                }
+            });
         }
         loadSuggestions();
         System.out.println(suggestionsModel);
@@ -646,16 +707,18 @@ public class LobbyPanel extends javax.swing.JPanel {
 
     private void voteButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_voteButtonActionPerformed
         // TODO add your handling code here:
+        int movieId = selectedMovieId;
+        String lobbyOwner = ownerUser;
+        String user = loggedUser;
         if (voteButton.isSelected()) {
             suggestButton.setEnabled(false);
-            db.voteMovie(loggedUser, ownerUser, findIdOfSelectedMovie());
+            db.update(d -> d.voteMovie(user, lobbyOwner, movieId));
         } else {
             suggestButton.setEnabled(true);
-            db.removeVote(loggedUser, ownerUser, findIdOfSelectedMovie());
+            db.update(d -> d.removeVote(user, lobbyOwner, movieId));
         }
         loadSuggestions();
         loadVotes();
-        System.out.println(votes);
     }//GEN-LAST:event_voteButtonActionPerformed
 
     private void backToHomeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_backToHomeButtonActionPerformed
@@ -666,13 +729,10 @@ public class LobbyPanel extends javax.swing.JPanel {
     private void refreshButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_refreshButtonActionPerformed
         // TODO add your handling code here:
         loadLobbyUsers();
-        loadSuggestions();
-        loadVotes();
-        showSelectedMovieInfo();       
-        
-        if (!db.isLobbyStillVoting(ownerUser)) {
-        	showResults();
-        }
+        // The movie info depends on the reloaded suggestions and votes.
+        CompletableFuture.allOf(loadSuggestions(), loadVotes())
+                .thenRunAsync(this::showSelectedMovieInfo, SwingUtilities::invokeLater);
+        showResultsIfVotingDone();
     }//GEN-LAST:event_refreshButtonActionPerformed
 
 
@@ -7,7 +7,6 @@ package movienightgui;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Component;
-import java.util.HashMap;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
@@ -18,7 +17,6 @@ import javax.swing.JPanel;
 public class LoginPanel extends javax.swing.JPanel {
     
     private String loggedUsername;
-    private HashMap<String, String> usersAndPasswords;
     private Database db;
     private SharedUserModel sharedUserModel;
     private JFrame parentFrame; 
@@ -28,7 +26,6 @@ public class LoginPanel extends javax.swing.JPanel {
      */
     public LoginPanel(Database db, SharedUserModel sharedUserModel, JFrame parentFrame) {
         this.db = db;
-        this.usersAndPasswords = db.getUsersAndPasswords();
         this.sharedUserModel = sharedUserModel;
         this.parentFrame = parentFrame;
         initComponents();    
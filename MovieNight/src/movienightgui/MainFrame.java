@@ -19,12 +19,13 @@ public class MainFrame extends javax.swing.JFrame {
         initComponents();
 
         SharedUserModel sharedUserModel = new SharedUserModel();
+        AsyncDatabase asyncDb = new AsyncDatabase(db);
         this.getContentPane().setLayout(new CardLayout());
         this.add(new LoginPanel(db, sharedUserModel, this), "login");
-        this.add(new HomePanel(db, sharedUserModel, this), "home");
-        this.add(new LobbyPanel(db, sharedUserModel, this), "lobby");
+        this.add(new HomePanel(asyncDb, sharedUserModel, this), "home");
+        this.add(new LobbyPanel(asyncDb, sharedUserModel, this), "lobby");
         this.add(new CreateUserPanel(db, this), "create");
-        this.add(new ResultPanel(db, sharedUserModel, this), "result");
+        this.add(new ResultPanel(asyncDb, sharedUserModel, this), "result");
         this.add(new PasswordChangePanel(db, sharedUserModel, this), "change");
 
         // Set default card
@@ -0,0 +1,34 @@
+package movienightgui;
+
+import javax.swing.AbstractListModel;
+
+import search.TitleIndex;
+
+/**
+ * Read-only list of movies backed by their ids. Titles are looked up in the
+ * catalog's {@link TitleIndex} only for the rows the list actually paints,
+ * so a search result costs one int per movie however large the catalog is.
+ */
+public class MovieListModel extends AbstractListModel<String> {
+	private final TitleIndex titleIndex;
+	private final int[] movieIds;
+
+	public MovieListModel(TitleIndex titleIndex, int[] movieIds) {
+		this.titleIndex = titleIndex;
+		this.movieIds = movieIds;
+	}
+
+	@Override
+	public int getSize() {
+		return movieIds.length;
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		return titleIndex.getTitle(movieIds[index]);
+	}
+
+	public int getMovieIdAt(int index) {
+		return movieIds[index];
+	}
+}
@@ -1,20 +1,35 @@
 package movienightgui;
 
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.net.URI;
+
+import events.PgLobbyEventChannel;
+import utils.ConnectionPool;
+import utils.ConnectionProvider;
 import utils.DatabaseConnection;
+import utils.InstrumentedConnectionProvider;
+import utils.QueryMetrics;
 
 public class MovieNightGUI {
 	
 	public static void main(String[] args) {
-		Connection connection;
-		try {
-			connection = DatabaseConnection.connect();
-			new MainFrame(new Database(connection)).setVisible(true);
-		} catch (SQLException e) {
-			
-			e.printStackTrace();
+		// -Dmovienight.server=http://host:8765/rpc talks to a MovieNightServer instead of the database.
+		String server = System.getProperty("movienight.server");
+		if (server != null) {
+			new MainFrame(new RemoteDatabase(URI.create(server))).setVisible(true);
+			return;
+		}
+		ConnectionPool pool = DatabaseConnection.createPool();
+		Runtime.getRuntime().addShutdownHook(new Thread(pool::close));
+		PgLobbyEventChannel lobbyEvents = new PgLobbyEventChannel(pool).start();
+		Runtime.getRuntime().addShutdownHook(new Thread(lobbyEvents::close));
+		ConnectionProvider connections = pool;
+		// -Dmovienight.metrics=true publishes statement timings over JMX (movienight:type=QueryMetrics).
+		if (Boolean.getBoolean("movienight.metrics")) {
+			QueryMetrics metrics = new QueryMetrics(
+					Long.getLong("movienight.slowQueryMillis", QueryMetrics.DEFAULT_SLOW_QUERY_MILLIS));
+			metrics.register("desktop");
+			connections = new InstrumentedConnectionProvider(pool, metrics);
 		}
-        
+		new MainFrame(new Database(connections, lobbyEvents)).setVisible(true);
 	}
 }
@@ -0,0 +1,135 @@
+package movienightgui;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JList;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+
+import dao.AbstractDAO;
+
+/**
+ * List model that loads keyset pages through {@link AsyncDatabase} as the
+ * list is scrolled towards its end. Only the rows the user scrolled past are
+ * held, never the whole table.
+ */
+public class PagedListModel<E> extends AbstractListModel<E> {
+	private static final int DEFAULT_PAGE_SIZE = 100;
+
+	@FunctionalInterface
+	public interface PageLoader<E> {
+		// Up to limit rows with a key greater than afterKey, ordered by key.
+		Map<Integer, E> load(Database db, int afterKey, int limit);
+	}
+
+	private final AsyncDatabase db;
+	private final PageLoader<E> loader;
+	private final int pageSize;
+	private final ArrayList<E> rows = new ArrayList<>();
+	private final ArrayList<Integer> keys = new ArrayList<>();
+	private int lastKey = AbstractDAO.BEFORE_FIRST_ID;
+	private CompletableFuture<Void> pending;
+	private boolean exhausted;
+	private JList<E> list;
+	private JViewport viewport;
+	private final ChangeListener viewportListener = e -> loadIfNearEnd();
+
+	public PagedListModel(AsyncDatabase db, PageLoader<E> loader) {
+		this(db, loader, DEFAULT_PAGE_SIZE);
+	}
+
+	public PagedListModel(AsyncDatabase db, PageLoader<E> loader, int pageSize) {
+		this.db = db;
+		this.loader = loader;
+		this.pageSize = pageSize;
+	}
+
+	@Override
+	public int getSize() {
+		return rows.size();
+	}
+
+	@Override
+	public E getElementAt(int index) {
+		return rows.get(index);
+	}
+
+	public int getKeyAt(int index) {
+		return keys.get(index);
+	}
+
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+	// Shows this model in the list and keeps loading while its end is in view,
+	// detaching the paged model it replaces.
+	public void attachTo(JList<E> list) {
+		if (list.getModel() instanceof PagedListModel<?> previous) {
+			previous.detach();
+		}
+		this.list = list;
+		list.setModel(this);
+		if (list.getParent() instanceof JViewport parent) {
+			viewport = parent;
+			viewport.addChangeListener(viewportListener);
+		}
+		loadIfNearEnd();
+	}
+
+	// Stops following the list's scrolling, so the list no longer holds on to this model.
+	public void detach() {
+		if (viewport != null) {
+			viewport.removeChangeListener(viewportListener);
+			viewport = null;
+		}
+		list = null;
+	}
+
+	// Must be called on the EDT.
+	public void loadNextPage() {
+		if (pending != null || exhausted) {
+			return;
+		}
+		int afterKey = lastKey;
+		CompletableFuture<Void> request = db.load(d -> loader.load(d, afterKey, pageSize), page -> {
+			pending = null;
+			if (page.size() < pageSize) {
+				exhausted = true;
+			}
+			if (!page.isEmpty()) {
+				int first = rows.size();
+				for (Map.Entry<Integer, E> entry : page.entrySet()) {
+					keys.add(entry.getKey());
+					rows.add(entry.getValue());
+					lastKey = entry.getKey();
+				}
+				fireIntervalAdded(this, first, rows.size() - 1);
+			}
+			loadIfNearEnd();
+		});
+		pending = request;
+		// A failed load never reaches the callback above; allow a retry on the next scroll.
+		request.thenRunAsync(() -> {
+			if (pending == request) {
+				pending = null;
+			}
+		}, SwingUtilities::invokeLater);
+	}
+
+	private void loadIfNearEnd() {
+		if (list == null || list.getModel() != this) {
+			return;
+		}
+		// Half a page short of the end, or the list does not fill the viewport yet.
+		// A list that is not showing has no visible index and waits.
+		int lastVisible = list.getLastVisibleIndex();
+		if (rows.isEmpty() || (lastVisible >= 0 && lastVisible >= rows.size() - pageSize / 2)) {
+			loadNextPage();
+		}
+	}
+}
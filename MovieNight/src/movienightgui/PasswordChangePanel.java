@@ -144,8 +144,7 @@ public class PasswordChangePanel extends javax.swing.JPanel {
         String pass = String.valueOf(oldPassField.getPassword());
         String newPass = String.valueOf(newPassField.getPassword());
         
-        if (db.validateLogin(user, pass) && !newPass.isBlank()) {
-            db.updatePassword(user, String.valueOf(newPassField.getPassword()));
+        if (db.changePassword(user, pass, newPass)) {
             showHome();
         } else {
         	passWarning.setText("Failed to change password.");
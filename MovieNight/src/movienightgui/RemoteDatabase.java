@@ -0,0 +1,458 @@
+package movienightgui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dao.LobbyDAO.VoteResult;
+import dao.UserDAO.HomeSnapshot;
+import events.LobbyEvent;
+import events.LobbyEventChannel;
+import events.LobbyEventListener;
+import search.TitleIndex;
+import server.MovieNightServer;
+import server.WireFormat;
+
+/**
+ * The {@link Database} facade answered by a {@link MovieNightServer}, so a
+ * desktop client needs no database connection of its own. Calls block like
+ * the local facade does; AsyncDatabase keeps them off the EDT. A call the
+ * server could not answer throws {@link RemoteException}. A successful
+ * {@link #validateLogin} opens the session later calls are made in.
+ */
+public class RemoteDatabase extends Database {
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+	private static final Duration CALL_TIMEOUT = Duration.ofSeconds(30);
+	private static final long POLL_MILLIS = 25_000;
+	private static final long RETRY_MILLIS = 2_000;
+
+	public static class RemoteException extends RuntimeException {
+		public RemoteException(String message) {
+			super(message);
+		}
+
+		public RemoteException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+
+	private final URI uri;
+	private final HttpClient client;
+	private volatile long titleIndexVersion = -1;
+	private volatile TitleIndex titleIndex;
+	private volatile String sessionToken;
+
+	public RemoteDatabase(URI uri) {
+		this.uri = uri;
+		this.client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+	}
+
+	private <T> T call(String key, Object... args) {
+		return callWithTimeout(CALL_TIMEOUT, key, args);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T callWithTimeout(Duration timeout, String key, Object... args) {
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(buffer);
+			WireFormat.writeString(out, key);
+			out.writeInt(args.length);
+			for (Object arg : args) {
+				WireFormat.write(out, arg);
+			}
+			HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+					.timeout(timeout)
+					.header("Content-Type", "application/octet-stream")
+					.POST(HttpRequest.BodyPublishers.ofByteArray(buffer.toByteArray()));
+			String token = sessionToken;
+			if (token != null) {
+				request.header(MovieNightServer.SESSION_HEADER, token);
+			}
+			HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+			if (response.statusCode() != 200) {
+				throw new RemoteException(key + " failed with HTTP " + response.statusCode());
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.body()));
+			if (in.readByte() != 0) {
+				throw new RemoteException(key + " failed: " + WireFormat.readString(in));
+			}
+			return (T) WireFormat.read(in);
+		} catch (IOException e) {
+			throw new RemoteException(key + " failed: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemoteException(key + " interrupted", e);
+		}
+	}
+
+	// Long polls the server on a virtual thread until closed.
+	@Override
+	public LobbyEventChannel.Subscription subscribeToLobby(String ownerUser, LobbyEventListener listener) {
+		// Subscribe now, so changes made right after this returns are not missed.
+		List<Object> first = call(MovieNightServer.AWAIT_LOBBY_EVENTS, ownerUser, -1L, 0L);
+		long[] cursor = { (Long) first.get(0) };
+		AtomicBoolean closed = new AtomicBoolean();
+		Thread poller = Thread.ofVirtual().name("lobby-event-poll-" + ownerUser).start(() -> {
+			while (!closed.get()) {
+				try {
+					List<Object> events = callWithTimeout(CALL_TIMEOUT.plusMillis(POLL_MILLIS),
+							MovieNightServer.AWAIT_LOBBY_EVENTS, ownerUser, cursor[0], POLL_MILLIS);
+					cursor[0] = (Long) events.get(0);
+					for (Object event : events.subList(1, events.size())) {
+						if (!closed.get()) {
+							listener.onLobbyEvent((LobbyEvent) event);
+						}
+					}
+				} catch (RemoteException e) {
+					if (closed.get()) {
+						return;
+					}
+					System.err.println("Lobby event poll error: " + e.getMessage());
+					try {
+						Thread.sleep(RETRY_MILLIS);
+					} catch (InterruptedException interrupted) {
+						return;
+					}
+				}
+			}
+		});
+		return () -> {
+			closed.set(true);
+			poller.interrupt();
+		};
+	}
+
+	@Override
+	public LobbyEventChannel.Subscription subscribeToLobby(int lobbyId, LobbyEventListener listener) {
+		throw new UnsupportedOperationException("Not served by MovieNightServer");
+	}
+
+	@Override
+	public int getLobbyId(String ownerUser) {
+		throw new UnsupportedOperationException("Not served by MovieNightServer");
+	}
+
+	// Runs the calls one by one: a transaction cannot span several requests.
+	@Override
+	public boolean inTransaction(Runnable work) {
+		work.run();
+		return true;
+	}
+
+	@Override
+	public void removeVotesForMovie(String ownerUser, int movieId) {
+		call("removeVotesForMovie(String,int)", ownerUser, movieId);
+	}
+
+	@Override
+	public String getSuggestedByUsername(int suggestedMovieId, String ownerUser) {
+		return call("getSuggestedByUsername(int,String)", suggestedMovieId, ownerUser);
+	}
+
+	@Override
+	public boolean validateLogin(String username, String password) {
+		String token = call(MovieNightServer.LOGIN, username, password);
+		if (token != null) {
+			sessionToken = token;
+		}
+		return token != null;
+	}
+
+	@Override
+	public HashMap<String, String> getUsersAndPasswords() {
+		throw new UnsupportedOperationException("Not served by MovieNightServer");
+	}
+
+	@Override
+	public ArrayList<String> getUsers() {
+		return call("getUsers()");
+	}
+
+	@Override
+	public Map<Integer, String> getUserPage(int afterId, int limit, String filter) {
+		return call("getUserPage(int,int,String)", afterId, limit, filter);
+	}
+
+	@Override
+	public Map<Integer, String> getUsersByPrefix(String prefix, int afterId, int limit) {
+		return call("getUsersByPrefix(String,int,int)", prefix, afterId, limit);
+	}
+
+	@Override
+	public ArrayList<String> getInvitiationsForUser(String username) {
+		return call("getInvitiationsForUser(String)", username);
+	}
+
+	@Override
+	public ArrayList<String> getInvitationsOfUser(String username) {
+		return call("getInvitationsOfUser(String)", username);
+	}
+
+	@Override
+	public void sendInvitationToUser(String fromUser, String toUser) {
+		call("sendInvitationToUser(String,String)", fromUser, toUser);
+	}
+
+	@Override
+	public void removeInvitationFromUser(String user, String sender) {
+		call("removeInvitationFromUser(String,String)", user, sender);
+	}
+
+	@Override
+	public ArrayList<String> getUsersAtLobby(String ownerUser) {
+		return call("getUsersAtLobby(String)", ownerUser);
+	}
+
+	@Override
+	public HomeSnapshot getHomeSnapshot(String username) {
+		return call("getHomeSnapshot(String)", username);
+	}
+
+	@Override
+	public ArrayList<String> getMovieTitles() {
+		return call("getMovieTitles()");
+	}
+
+	@Override
+	public String getMovieTitle(int movieId) {
+		return call("getMovieTitle(int)", movieId);
+	}
+
+	// Fetched again only when the server's catalog version moved.
+	@Override
+	public TitleIndex getTitleIndex() {
+		List<Object> fresh = call(MovieNightServer.TITLE_INDEX, titleIndexVersion);
+		if (fresh != null) {
+			titleIndex = TitleIndex.build((int[]) fresh.get(1), (String[]) fresh.get(2));
+			titleIndexVersion = (Long) fresh.get(0);
+		}
+		return titleIndex;
+	}
+
+	@Override
+	public long getCatalogVersion() {
+		return (Long) call("getCatalogVersion()");
+	}
+
+	@Override
+	public ArrayList<Integer> getMovieIds() {
+		return call("getMovieIds()");
+	}
+
+	@Override
+	public void suggestMovie(String ownerUser, String user, int movieId) {
+		call("suggestMovie(String,String,int)", ownerUser, user, movieId);
+	}
+
+	@Override
+	public ArrayList<String> getSuggestions(String ownerUser) {
+		return call("getSuggestions(String)", ownerUser);
+	}
+
+	@Override
+	public HashMap<String, Integer> getVotes(String ownerUser) {
+		return call("getVotes(String)", ownerUser);
+	}
+
+	@Override
+	public HashMap<Integer, Integer> getVotes2(String ownerUser) {
+		return call("getVotes2(String)", ownerUser);
+	}
+
+	@Override
+	public ArrayList<Integer> getVoteMovieIdsOfUser(String ownerUser, String username) {
+		return call("getVoteMovieIdsOfUser(String,String)", ownerUser, username);
+	}
+
+	@Override
+	public void createLobby(String ownerUser) {
+		call("createLobby(String)", ownerUser);
+	}
+
+	@Override
+	public void addUserToLobby(String ownerUser, String username) {
+		call("addUserToLobby(String,String)", ownerUser, username);
+	}
+
+	@Override
+	public void removeUserFromLobby(String ownerUser, String username) {
+		call("removeUserFromLobby(String,String)", ownerUser, username);
+	}
+
+	@Override
+	public void deleteLobby(String ownerUser) {
+		call("deleteLobby(String)", ownerUser);
+	}
+
+	@Override
+	public void removeSuggestion(String ownerUser, int movieId) {
+		call("removeSuggestion(String,int)", ownerUser, movieId);
+	}
+
+	@Override
+	public String getBelongingLobbyOwner(String user) {
+		return call("getBelongingLobbyOwner(String)", user);
+	}
+
+	@Override
+	public void updateVotesUserReady(String ownerUser, ArrayList<String> votedMoviesOfUser) {
+		call("updateVotesUserReady(String,ArrayList)", ownerUser, votedMoviesOfUser);
+	}
+
+	@Override
+	public boolean isLobbyStillVoting(String ownerUser) {
+		return (Boolean) call("isLobbyStillVoting(String)", ownerUser);
+	}
+
+	@Override
+	public int getLobbyReadyCount(String ownerUser) {
+		return (Integer) call("getLobbyReadyCount(String)", ownerUser);
+	}
+
+	@Override
+	public boolean isUsernameExists(String username) {
+		return (Boolean) call("isUsernameExists(String)", username);
+	}
+
+	@Override
+	public int addUser(String username, String password, int age) {
+		return (Integer) call("addUser(String,String,int)", username, password, age);
+	}
+
+	@Override
+	public boolean deleteUser(String username) {
+		throw new UnsupportedOperationException("Not served by MovieNightServer, use deleteAccount");
+	}
+
+	@Override
+	public boolean deleteAccount(String username, String password) {
+		boolean deleted = (Boolean) call("deleteAccount(String,String)", username, password);
+		if (deleted) {
+			sessionToken = null;
+		}
+		return deleted;
+	}
+
+	@Override
+	public void suggestMovie(String ownerUser, String movieName) {
+		call("suggestMovie(String,String)", ownerUser, movieName);
+	}
+
+	@Override
+	public void removeSuggestion(String ownerUser, String movieName) {
+		call("removeSuggestion(String,String)", ownerUser, movieName);
+	}
+
+	@Override
+	public void setLobbyReady(String ownerUser) {
+		call("setLobbyReady(String)", ownerUser);
+	}
+
+	@Override
+	public void emptyLobby(String ownerUser) {
+		call("emptyLobby(String)", ownerUser);
+	}
+
+	@Override
+	public void emptyInvitations(String sender) {
+		call("emptyInvitations(String)", sender);
+	}
+
+	@Override
+	public void removeSuggestion(String ownerUser, String user, String movieName) {
+		call("removeSuggestion(String,String,String)", ownerUser, user, movieName);
+	}
+
+	@Override
+	public ArrayList<Integer> getSuggestedMovieIds(String ownerUser) {
+		return call("getSuggestedMovieIds(String)", ownerUser);
+	}
+
+	@Override
+	public String getSuggestionTitle(String ownerUser, int movieId, String suggestedBy) {
+		return call("getSuggestionTitle(String,int,String)", ownerUser, movieId, suggestedBy);
+	}
+
+	@Override
+	public ArrayList<String> getSuggestionTitles(String ownerUser) {
+		return call("getSuggestionTitles(String)", ownerUser);
+	}
+
+	@Override
+	public ArrayList<String> getMovies() {
+		return call("getMovies()");
+	}
+
+	@Override
+	public void voteMovie(String user, String ownerUser, int movieId) {
+		call("voteMovie(String,String,int)", user, ownerUser, movieId);
+	}
+
+	@Override
+	public void removeVote(String user, String ownerUser, int movieId) {
+		call("removeVote(String,String,int)", user, ownerUser, movieId);
+	}
+
+	@Override
+	public void emptySuggestions(String ownerUser) {
+		call("emptySuggestions(String)", ownerUser);
+	}
+
+	@Override
+	public void emptySuggestions(int lobbyId) {
+		throw new UnsupportedOperationException("Not served by MovieNightServer, use emptySuggestions(String)");
+	}
+
+	@Override
+	public void emptyVotes(String ownerUser) {
+		call("emptyVotes(String)", ownerUser);
+	}
+
+	@Override
+	public void updatePassword(String username, String newPassword) {
+		throw new UnsupportedOperationException("Not served by MovieNightServer, use changePassword");
+	}
+
+	@Override
+	public boolean changePassword(String username, String password, String newPassword) {
+		return (Boolean) call("changePassword(String,String,String)", username, password, newPassword);
+	}
+
+	@Override
+	public ArrayList<String> getGenres() {
+		return call("getGenres()");
+	}
+
+	@Override
+	public ArrayList<Integer> findMovieIdsByGenres(ArrayList<String> genres) {
+		return call("findMovieIdsByGenres(ArrayList)", genres);
+	}
+
+	@Override
+	public String getMovieGenresLabel(int movieId) {
+		return call("getMovieGenresLabel(int)", movieId);
+	}
+
+	@Override
+	public String getDescription(int movieId) {
+		return call("getDescription(int)", movieId);
+	}
+
+	@Override
+	public VoteResult[] getWinnerMovies(String ownerUser) {
+		return call("getWinnerMovies(String)", ownerUser);
+	}
+}
@@ -20,7 +20,7 @@ import movienightgui.HomePanel;
  */
 public class ResultPanel extends javax.swing.JPanel {
 
-    private final Database db;
+    private final AsyncDatabase db;
     private final SharedUserModel sharedUserModel;
     private final JFrame parentFrame;
     private HashMap<Integer, Integer> lobbyVotes;
@@ -30,7 +30,7 @@ public class ResultPanel extends javax.swing.JPanel {
      * @param db
      * @param sharedUserModel1
      */
-    public ResultPanel(Database db, SharedUserModel sharedUserModel, JFrame parentFrame) {
+    public ResultPanel(AsyncDatabase db, SharedUserModel sharedUserModel, JFrame parentFrame) {
         initComponents();
         this.db = db;
         this.sharedUserModel = sharedUserModel;
@@ -40,23 +40,25 @@ public class ResultPanel extends javax.swing.JPanel {
     public void init() {
         String username = sharedUserModel.getUsername();
         System.out.println(username);
-    	String ownerUser = db.getBelongingLobbyOwner(username);
         
         DefaultListModel<String> model = new DefaultListModel<>();
         jList1.setModel(model);
-        for (VoteResult v : db.getWinnerMovies(ownerUser)) {
-        	model.addElement(v.movieTitle + ", " + v.voteCount + " votes");
-        }
-        
-        
-        if (model.size() > 0) {
-            jLabel1.setText("Movie: " + model.getElementAt(0));
-        }
-        
-        if (username != null && ownerUser != null && username.equals(ownerUser)) {
-        	// db.emptyLobby(ownerUser); TODO USERS LEAVE THE LOBBY
-        	db.emptyInvitations(ownerUser);
-        } 
+        db.load(d -> d.getBelongingLobbyOwner(username), ownerUser -> {
+            db.load(d -> d.getWinnerMovies(ownerUser), winners -> {
+                for (VoteResult v : winners) {
+                	model.addElement(v.movieTitle + ", " + v.voteCount + " votes");
+                }
+                
+                if (model.size() > 0) {
+                    jLabel1.setText("Movie: " + model.getElementAt(0));
+                }
+            });
+            
+            if (username != null && ownerUser != null && username.equals(ownerUser)) {
+            	// db.emptyLobby(ownerUser); TODO USERS LEAVE THE LOBBY
+            	db.update(d -> d.emptyInvitations(ownerUser));
+            }
+        });
     }
 
     private void showHome() {
@@ -134,9 +136,7 @@ public class ResultPanel extends javax.swing.JPanel {
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
         // TODO add your handling code here:
         String username = sharedUserModel.getUsername();
-    	String ownerUser = db.getBelongingLobbyOwner(username);
-        db.removeUserFromLobby(ownerUser, username);
-        showHome();
+        db.update(d -> d.removeUserFromLobby(d.getBelongingLobbyOwner(username), username), this::showHome);
     }//GEN-LAST:event_jButton1ActionPerformed
 
 
@@ -0,0 +1,150 @@
+package search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable genre to movie bitmap index.
+ *
+ * Movies are numbered by their position in the sorted id array and every
+ * genre keeps one bitset over those positions, so filtering by several
+ * genres is a word-by-word AND or OR whose cost depends on the catalog size
+ * only, not on how many links each movie has.
+ */
+public final class GenreBitmapIndex {
+	private final int[] movieIds;          // sorted, bit i stands for movieIds[i]
+	private final int[] genreIds;          // sorted
+	private final long[][] bitmaps;        // per genre, parallel to genreIds
+	private final Map<String, Integer> genresByName;
+
+	private GenreBitmapIndex(int[] movieIds, int[] genreIds, long[][] bitmaps, Map<String, Integer> genresByName) {
+		this.movieIds = movieIds;
+		this.genreIds = genreIds;
+		this.bitmaps = bitmaps;
+		this.genresByName = genresByName;
+	}
+
+	public static class Builder {
+		private final int[] movieIds;
+		private final int[] genreIds;
+		private final long[][] bitmaps;
+		private final Map<String, Integer> genresByName = new HashMap<>();
+
+		// Both id arrays must be sorted; names run parallel to genreIds.
+		public Builder(int[] movieIds, int[] genreIds, String[] genreNames) {
+			this.movieIds = movieIds.clone();
+			this.genreIds = genreIds.clone();
+			this.bitmaps = new long[genreIds.length][(movieIds.length + 63) >>> 6];
+			for (int i = 0; i < genreNames.length; i++) {
+				// Like GenreDAO.getGenre, the first genre with a name wins.
+				genresByName.putIfAbsent(genreNames[i], genreIds[i]);
+			}
+		}
+
+		public Builder add(int movieOrdinal, int genreOrdinal) {
+			bitmaps[genreOrdinal][movieOrdinal >>> 6] |= 1L << movieOrdinal;
+			return this;
+		}
+
+		public GenreBitmapIndex build() {
+			return new GenreBitmapIndex(movieIds, genreIds, bitmaps, genresByName);
+		}
+	}
+
+	// Returns null for an unknown genre name.
+	public Integer getGenreId(String name) {
+		return genresByName.get(name);
+	}
+
+	// Movies having every given genre, in id order. Unknown names are skipped
+	// and no known genre matches nothing, as get_movies_by_all_genres does.
+	public int[] findAll(Collection<String> genreNames) {
+		return findAll(resolve(genreNames));
+	}
+
+	public int[] findAll(int... genreIds) {
+		if (genreIds.length == 0) {
+			return new int[0];
+		}
+		long[] result = null;
+		for (int genreId : genreIds) {
+			long[] bitmap = bitmapOf(genreId);
+			if (bitmap == null) {
+				return new int[0];
+			}
+			if (result == null) {
+				result = bitmap.clone();
+			} else {
+				for (int w = 0; w < result.length; w++) {
+					result[w] &= bitmap[w];
+				}
+			}
+		}
+		return toMovieIds(result);
+	}
+
+	// Movies having at least one of the given genres, in id order.
+	public int[] findAny(Collection<String> genreNames) {
+		return findAny(resolve(genreNames));
+	}
+
+	public int[] findAny(int... genreIds) {
+		long[] result = new long[(movieIds.length + 63) >>> 6];
+		for (int genreId : genreIds) {
+			long[] bitmap = bitmapOf(genreId);
+			if (bitmap != null) {
+				for (int w = 0; w < result.length; w++) {
+					result[w] |= bitmap[w];
+				}
+			}
+		}
+		return toMovieIds(result);
+	}
+
+	public int countMovies(int genreId) {
+		long[] bitmap = bitmapOf(genreId);
+		int count = 0;
+		if (bitmap != null) {
+			for (long word : bitmap) {
+				count += Long.bitCount(word);
+			}
+		}
+		return count;
+	}
+
+	private int[] resolve(Collection<String> genreNames) {
+		int[] ids = new int[genreNames.size()];
+		int count = 0;
+		for (String name : genreNames) {
+			Integer id = genresByName.get(name);
+			if (id != null) {
+				ids[count++] = id;
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	private long[] bitmapOf(int genreId) {
+		int i = Arrays.binarySearch(genreIds, genreId);
+		return i < 0 ? null : bitmaps[i];
+	}
+
+	private int[] toMovieIds(long[] bits) {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		int[] ids = new int[count];
+		int k = 0;
+		for (int w = 0; w < bits.length; w++) {
+			long word = bits[w];
+			while (word != 0) {
+				ids[k++] = movieIds[(w << 6) + Long.numberOfTrailingZeros(word)];
+				word &= word - 1;
+			}
+		}
+		return ids;
+	}
+}
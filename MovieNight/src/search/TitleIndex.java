@@ -0,0 +1,260 @@
+package search;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable substring index over movie titles.
+ *
+ * Titles are case-folded and stripped of accents, then every distinct 1, 2
+ * and 3 character gram is mapped to the sorted list of titles containing it.
+ * A query of up to three characters is a single lookup; a longer one
+ * intersects the posting lists of its trigrams and checks the few remaining
+ * candidates with {@code String.contains}.
+ */
+public final class TitleIndex {
+	private static final int MAX_GRAM = 3;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	public static final TitleIndex EMPTY = build(new int[0], new String[0]);
+
+	private final int[] movieIds;          // sorted
+	private final String[] titles;
+	private final String[] normalizedTitles;
+	private final GramTable grams;
+	private final int[][] postings;        // title positions per gram id, ascending
+
+	private TitleIndex(int[] movieIds, String[] titles, String[] normalizedTitles, GramTable grams, int[][] postings) {
+		this.movieIds = movieIds;
+		this.titles = titles;
+		this.normalizedTitles = normalizedTitles;
+		this.grams = grams;
+		this.postings = postings;
+	}
+
+	public static TitleIndex build(int[] movieIds, String[] titles) {
+		if (movieIds.length != titles.length) {
+			throw new IllegalArgumentException("Got " + movieIds.length + " ids for " + titles.length + " titles");
+		}
+		int n = movieIds.length;
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(movieIds[a], movieIds[b]));
+
+		int[] sortedIds = new int[n];
+		String[] sortedTitles = new String[n];
+		String[] normalized = new String[n];
+		GramTable grams = new GramTable();
+		// Pass 1: give every gram an id and count the titles containing it.
+		int[] counts = new int[64];
+		int[] lastTitle = new int[64];     // 1 + last title counted for the gram
+		for (int i = 0; i < n; i++) {
+			sortedIds[i] = movieIds[order[i]];
+			sortedTitles[i] = titles[order[i]];
+			normalized[i] = normalize(sortedTitles[i]);
+			String s = normalized[i];
+			for (int start = 0; start < s.length(); start++) {
+				for (int len = 1; len <= MAX_GRAM && start + len <= s.length(); len++) {
+					int gram = grams.idOf(gramKey(s, start, len), true);
+					if (gram == counts.length) {
+						counts = Arrays.copyOf(counts, gram * 2);
+						lastTitle = Arrays.copyOf(lastTitle, gram * 2);
+					}
+					if (lastTitle[gram] != i + 1) {
+						lastTitle[gram] = i + 1;
+						counts[gram]++;
+					}
+				}
+			}
+		}
+
+		// Pass 2: fill the posting lists; titles are visited in order, so they come out sorted.
+		int[][] postings = new int[grams.size()][];
+		for (int gram = 0; gram < postings.length; gram++) {
+			postings[gram] = new int[counts[gram]];
+			counts[gram] = 0;
+			lastTitle[gram] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			String s = normalized[i];
+			for (int start = 0; start < s.length(); start++) {
+				for (int len = 1; len <= MAX_GRAM && start + len <= s.length(); len++) {
+					int gram = grams.idOf(gramKey(s, start, len), false);
+					if (lastTitle[gram] != i + 1) {
+						lastTitle[gram] = i + 1;
+						postings[gram][counts[gram]++] = i;
+					}
+				}
+			}
+		}
+		return new TitleIndex(sortedIds, sortedTitles, normalized, grams, postings);
+	}
+
+	public static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		if (isAscii(text)) {
+			return text.toLowerCase(Locale.ROOT);
+		}
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	private static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int size() {
+		return movieIds.length;
+	}
+
+	// Ids of the movies whose title contains the query, in id order. A blank query matches all.
+	public int[] search(String query) {
+		String q = normalize(query);
+		if (q.isEmpty()) {
+			return movieIds.clone();
+		}
+		if (q.length() <= MAX_GRAM) {
+			return toMovieIds(postingsOf(gramKey(q, 0, q.length())), null);
+		}
+
+		int gramCount = q.length() - MAX_GRAM + 1;
+		int[][] lists = new int[gramCount][];
+		for (int i = 0; i < gramCount; i++) {
+			lists[i] = postingsOf(gramKey(q, i, MAX_GRAM));
+			if (lists[i].length == 0) {
+				return new int[0];
+			}
+		}
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+		int[] candidates = lists[0];
+		for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+			candidates = intersect(candidates, lists[i]);
+		}
+		// All trigrams present does not mean they are adjacent, so verify.
+		return toMovieIds(candidates, q);
+	}
+
+	public int[] getMovieIds() {
+		return movieIds.clone();
+	}
+
+	public String getTitle(int movieId) {
+		int i = Arrays.binarySearch(movieIds, movieId);
+		return i < 0 ? null : titles[i];
+	}
+
+	private int[] postingsOf(long key) {
+		int gram = grams.idOf(key, false);
+		return gram < 0 ? new int[0] : postings[gram];
+	}
+
+	private int[] toMovieIds(int[] positions, String verify) {
+		int[] ids = new int[positions.length];
+		int count = 0;
+		for (int p : positions) {
+			if (verify == null || normalizedTitles[p].contains(verify)) {
+				ids[count++] = movieIds[p];
+			}
+		}
+		return count == ids.length ? ids : Arrays.copyOf(ids, count);
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	// Up to three UTF-16 units in 16 bits each, tagged with the length.
+	private static long gramKey(String s, int start, int len) {
+		long key = len;
+		for (int i = 0; i < len; i++) {
+			key = (key << 16) | s.charAt(start + i);
+		}
+		return key;
+	}
+
+	// Open-addressing map from gram key to a dense gram id.
+	private static final class GramTable {
+		private long[] keys = new long[64];
+		private int[] ids = new int[64];
+		private int size;
+
+		GramTable() {
+			Arrays.fill(ids, -1);
+		}
+
+		// Returns -1 for an unknown gram unless asked to add it.
+		int idOf(long key, boolean add) {
+			int mask = keys.length - 1;
+			int slot = mix(key) & mask;
+			while (ids[slot] >= 0) {
+				if (keys[slot] == key) {
+					return ids[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (!add) {
+				return -1;
+			}
+			keys[slot] = key;
+			ids[slot] = size;
+			if (++size * 2 > keys.length) {
+				resize();
+			}
+			return size - 1;
+		}
+
+		int size() {
+			return size;
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldIds = ids;
+			keys = new long[oldKeys.length * 2];
+			ids = new int[oldIds.length * 2];
+			Arrays.fill(ids, -1);
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldIds[i] >= 0) {
+					int slot = mix(oldKeys[i]) & mask;
+					while (ids[slot] >= 0) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = oldKeys[i];
+					ids[slot] = oldIds[i];
+				}
+			}
+		}
+
+		private static int mix(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
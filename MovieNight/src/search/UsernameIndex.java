@@ -0,0 +1,204 @@
+package search;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import utils.IntObjectMap;
+
+/**
+ * Prefix index over usernames for typeahead.
+ *
+ * Usernames sit in parallel arrays sorted by lower-cased name and then id,
+ * as UserDAO.findIdentifierPrefixPage pages them, so the users starting
+ * with a prefix are one contiguous run found by binary search. Pages are
+ * keyset pages: the next one starts after the id last shown. A lower-case
+ * name is its own key, so the common case stores no second string.
+ *
+ * Users can be added and removed one at a time; that shifts the arrays,
+ * which is cheap next to the round trip that created the account.
+ */
+public final class UsernameIndex {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private String[] keys;            // lower-cased usernames, sorted together with ids
+	private String[] usernames;
+	private int[] ids;
+	private int size;
+	private final IntObjectMap<String> usernamesById;
+
+	public UsernameIndex(int[] ids, String[] usernames) {
+		if (ids.length != usernames.length) {
+			throw new IllegalArgumentException("Got " + ids.length + " ids for " + usernames.length + " usernames");
+		}
+		int n = ids.length;
+		String[] unsortedKeys = new String[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			unsortedKeys[i] = keyOf(usernames[i]);
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compare(unsortedKeys[a], ids[a], unsortedKeys[b], ids[b]));
+
+		this.keys = new String[Math.max(16, n)];
+		this.usernames = new String[keys.length];
+		this.ids = new int[keys.length];
+		this.usernamesById = new IntObjectMap<>(n);
+		for (int i = 0; i < n; i++) {
+			int from = order[i];
+			if (usernamesById.containsKey(ids[from])) {
+				continue;
+			}
+			keys[size] = unsortedKeys[from];
+			this.usernames[size] = usernames[from];
+			this.ids[size] = ids[from];
+			usernamesById.put(ids[from], usernames[from]);
+			size++;
+		}
+	}
+
+	public static String keyOf(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public String getUsername(int id) {
+		lock.readLock().lock();
+		try {
+			return usernamesById.get(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Adds the user, or renames it when the id is already indexed.
+	public void add(int id, String username) {
+		String key = keyOf(username);
+		lock.writeLock().lock();
+		try {
+			removeLocked(id);
+			int position = lowerBound(key, id);
+			if (size == keys.length) {
+				int capacity = keys.length + (keys.length >> 1);
+				keys = Arrays.copyOf(keys, capacity);
+				usernames = Arrays.copyOf(usernames, capacity);
+				ids = Arrays.copyOf(ids, capacity);
+			}
+			System.arraycopy(keys, position, keys, position + 1, size - position);
+			System.arraycopy(usernames, position, usernames, position + 1, size - position);
+			System.arraycopy(ids, position, ids, position + 1, size - position);
+			keys[position] = key;
+			usernames[position] = username;
+			ids[position] = id;
+			size++;
+			usernamesById.put(id, username);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean remove(int id) {
+		lock.writeLock().lock();
+		try {
+			return removeLocked(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private boolean removeLocked(int id) {
+		String username = usernamesById.remove(id);
+		if (username == null) {
+			return false;
+		}
+		int position = lowerBound(keyOf(username), id);
+		System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+		System.arraycopy(usernames, position + 1, usernames, position, size - position - 1);
+		System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+		size--;
+		keys[size] = null;
+		usernames[size] = null;
+		return true;
+	}
+
+	// Number of usernames starting with the prefix, ignoring case.
+	public int count(String prefix) {
+		String key = keyOf(prefix);
+		lock.readLock().lock();
+		try {
+			int start = lowerBound(key, Integer.MIN_VALUE);
+			return endOf(key, start) - start;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Up to limit users whose name starts with the prefix (ignoring case), id to username
+	// in index order, after the user with id afterId; afterId may be AbstractDAO.BEFORE_FIRST_ID.
+	// A user removed since the previous page ends the listing.
+	public Map<Integer, String> page(String prefix, int afterId, int limit) {
+		String key = keyOf(prefix);
+		Map<Integer, String> page = new LinkedHashMap<>();
+		lock.readLock().lock();
+		try {
+			int start = lowerBound(key, Integer.MIN_VALUE);
+			String after = usernamesById.get(afterId);
+			if (after != null) {
+				start = Math.max(start, lowerBound(keyOf(after), afterId) + 1);
+			} else if (afterId != Integer.MIN_VALUE) {
+				return page;
+			}
+			for (int i = start; i < size && page.size() < limit && keys[i].startsWith(key); i++) {
+				page.put(ids[i], usernames[i]);
+			}
+			return page;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// First position whose (key, id) is not below the given pair.
+	private int lowerBound(String key, int id) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(keys[mid], ids[mid], key, id) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	// End of the run of keys starting with the prefix that begins at start.
+	private int endOf(String prefix, int start) {
+		int low = start;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid].startsWith(prefix)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int compare(String key1, int id1, String key2, int id2) {
+		int byKey = key1.compareTo(key2);
+		return byKey != 0 ? byKey : Integer.compare(id1, id2);
+	}
+}
@@ -0,0 +1,188 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import events.LobbyEvent;
+import events.LobbyEventChannel;
+import events.LobbyEventListener;
+import movienightgui.Database;
+
+/**
+ * Lobby events for remote clients, fetched by long polling. Every lobby has
+ * one subscription on the facade however many clients follow it; its recent
+ * events are kept in a ring with increasing cursors, so a client asks for
+ * everything after the cursor it last saw. Clients name the lobby by its
+ * owner, who gets a new lobby id with every lobby they create, so the owner is
+ * resolved on every poll; a client still holding a cursor of the old lobby
+ * then gets a {@link LobbyEvent.Kind#CHANGED} event. Lobbies nobody polled
+ * for a while are unsubscribed.
+ */
+final class LobbyEventHub implements AutoCloseable {
+	static final int BUFFER_SIZE = 256;
+	private static final long SWEEP_INTERVAL_MILLIS = 30_000;
+	// Every feed starts its cursors at a fresh multiple of this, so a cursor from a swept feed is recognised.
+	private static final long FEED_STRIDE = 1L << 32;
+
+	private final Database database;
+	private final long idleMillis;
+	private final Map<Integer, Feed> feeds = new ConcurrentHashMap<>();
+	private final AtomicLong nextBase = new AtomicLong();
+	private final ScheduledExecutorService sweeper;
+
+	LobbyEventHub(Database database, long idleMillis) {
+		this.database = database;
+		this.idleMillis = idleMillis;
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lobby-event-hub-sweeper");
+			t.setDaemon(true);
+			return t;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Waits up to timeoutMillis for events after the cursor. The first element
+	 * of the result is the cursor to pass next time, followed by the events. A
+	 * negative cursor only subscribes and returns the current cursor. A client
+	 * that fell behind the ring, or holds a cursor of a swept feed, gets a
+	 * {@link LobbyEvent.Kind#CHANGED} event.
+	 */
+	ArrayList<Object> await(String ownerUser, long afterCursor, long timeoutMillis) throws InterruptedException {
+		while (true) {
+			int lobbyId = database.getLobbyId(ownerUser);
+			ArrayList<Object> result = feeds.computeIfAbsent(lobbyId, this::subscribe).await(afterCursor, timeoutMillis);
+			if (result != null) {
+				return result;
+			}
+			// Swept while we looked it up; the next lookup subscribes again.
+		}
+	}
+
+	private Feed subscribe(int lobbyId) {
+		Feed feed = new Feed(nextBase.addAndGet(FEED_STRIDE), lobbyId);
+		feed.subscription = database.subscribeToLobby(lobbyId, feed);
+		return feed;
+	}
+
+	void sweep() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<Integer, Feed> entry : feeds.entrySet()) {
+			Feed feed = entry.getValue();
+			if (feed.closeIfIdleSince(now - idleMillis)) {
+				feeds.remove(entry.getKey(), feed);
+				feed.subscription.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		sweeper.shutdownNow();
+		for (Feed feed : feeds.values()) {
+			feed.subscription.close();
+		}
+		feeds.clear();
+	}
+
+	private static final class Feed implements LobbyEventListener {
+		// A ReentrantLock rather than wait/notify, which would pin the waiting virtual threads.
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition arrived = lock.newCondition();
+		private final ArrayDeque<LobbyEvent> events = new ArrayDeque<>();
+		private final long baseCursor;
+		private long lastCursor;          // cursor of the newest event
+		private int lastLobbyId;
+		private int waiters;
+		private boolean closed;
+		private long lastAccess = System.currentTimeMillis();
+		LobbyEventChannel.Subscription subscription;
+
+		Feed(long baseCursor, int lobbyId) {
+			this.baseCursor = baseCursor;
+			this.lastCursor = baseCursor;
+			this.lastLobbyId = lobbyId;
+		}
+
+		@Override
+		public void onLobbyEvent(LobbyEvent event) {
+			lock.lock();
+			try {
+				if (events.size() == BUFFER_SIZE) {
+					events.removeFirst();
+				}
+				events.addLast(event);
+				lastCursor++;
+				lastLobbyId = event.getLobbyId();
+				arrived.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// Null if the feed was swept.
+		ArrayList<Object> await(long afterCursor, long timeoutMillis) throws InterruptedException {
+			lock.lock();
+			try {
+				if (closed) {
+					return null;
+				}
+				lastAccess = System.currentTimeMillis();
+				ArrayList<Object> result = new ArrayList<>();
+				if (afterCursor >= 0 && (afterCursor < baseCursor || afterCursor > lastCursor)) {
+					result.add(lastCursor);
+					result.add(LobbyEvent.changed(lastLobbyId, -1));
+					return result;
+				}
+				if (afterCursor >= 0 && afterCursor == lastCursor) {
+					waiters++;
+					try {
+						long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+						while (lastCursor <= afterCursor && remaining > 0) {
+							remaining = arrived.awaitNanos(remaining);
+						}
+					} finally {
+						waiters--;
+						lastAccess = System.currentTimeMillis();
+					}
+				}
+				result.add(lastCursor);
+				if (afterCursor < 0 || afterCursor >= lastCursor) {
+					return result;
+				}
+				long firstCursor = lastCursor - events.size() + 1;
+				if (afterCursor + 1 < firstCursor) {
+					result.add(LobbyEvent.changed(lastLobbyId, -1));
+				}
+				long cursor = firstCursor;
+				for (LobbyEvent event : events) {
+					if (cursor > afterCursor) {
+						result.add(event);
+					}
+					cursor++;
+				}
+				return result;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		boolean closeIfIdleSince(long time) {
+			lock.lock();
+			try {
+				closed = waiters == 0 && lastAccess < time;
+				return closed;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
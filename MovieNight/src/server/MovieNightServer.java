@@ -0,0 +1,404 @@
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import events.PgLobbyEventChannel;
+import movienightgui.Database;
+import search.TitleIndex;
+import utils.ConnectionPool;
+import utils.DatabaseConnection;
+import utils.InstrumentedConnectionProvider;
+import utils.QueryMetrics;
+
+/**
+ * Headless server sharing one {@link Database} facade, and so one connection
+ * pool and one set of caches, between any number of desktop clients.
+ *
+ * Every request is a POST to {@value #RPC_PATH} carrying the operation key,
+ * such as {@code "removeSuggestion(String,int)"}, and its arguments in
+ * {@link WireFormat}. The answer is a status byte followed by the result or
+ * an error message. Each request runs on its own virtual thread, so a client
+ * blocked in a long poll or a slow query only costs a parked thread; the
+ * pool size bounds what reaches the database.
+ *
+ * Only the operations in {@link #SERVED} are callable. Apart from signing up,
+ * signing in and reading the movie catalog they need a session: {@link #LOGIN}
+ * checks the password and returns a token, which the client sends in the
+ * {@value #SESSION_HEADER} header. An operation naming the user it acts for
+ * must name the session's user, and changes to a lobby's suggestions, votes
+ * or ready state need the session's user to be in that lobby. Changing a
+ * password or deleting an account takes the account's current password;
+ * listing credentials is not served at all. Nothing is encrypted, so beyond
+ * loopback put the server behind a TLS-terminating proxy.
+ *
+ * With a {@link QueryMetrics}, every operation is timed and a GET to
+ * {@value #METRICS_PATH} returns its plain-text dump.
+ */
+public class MovieNightServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 8765;
+	public static final String RPC_PATH = "/rpc";
+	public static final String METRICS_PATH = "/metrics";
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+
+	public static final String TITLE_INDEX = "titleIndex(long)";
+	public static final String AWAIT_LOBBY_EVENTS = "awaitLobbyEvents(String,long,long)";
+	// Answers a session token, or null for a wrong username or password.
+	public static final String LOGIN = "login(String,String)";
+	public static final String SESSION_HEADER = "X-MovieNight-Session";
+
+	private static final int MAX_REQUEST_BYTES = 1 << 20;
+	private static final int MAX_ARGUMENTS = 16;
+	private static final long MAX_POLL_MILLIS = 60_000;
+	private static final long IDLE_FEED_MILLIS = 5 * 60_000;
+	private static final long SESSION_IDLE_MILLIS = 12 * 60 * 60_000;
+	private static final int TOKEN_BYTES = 32;
+	// Database operations clients may call. Not here: those handing out live objects
+	// (see the client-side equivalents in RemoteDatabase), getUsersAndPasswords,
+	// updatePassword and deleteUser, which changePassword and deleteAccount replace,
+	// validateLogin, which LOGIN replaces, and emptySuggestions(int), which names no
+	// lobby owner to check the session against.
+	public static final Set<String> SERVED = Set.of(
+			"addUser(String,String,int)", "isUsernameExists(String)",
+			"changePassword(String,String,String)", "deleteAccount(String,String)",
+			"getUsers()", "getUserPage(int,int,String)", "getUsersByPrefix(String,int,int)",
+			"getHomeSnapshot(String)", "getBelongingLobbyOwner(String)",
+			"getInvitiationsForUser(String)", "getInvitationsOfUser(String)",
+			"sendInvitationToUser(String,String)", "removeInvitationFromUser(String,String)", "emptyInvitations(String)",
+			"createLobby(String)", "deleteLobby(String)", "emptyLobby(String)", "getUsersAtLobby(String)",
+			"addUserToLobby(String,String)", "removeUserFromLobby(String,String)",
+			"setLobbyReady(String)", "isLobbyStillVoting(String)", "getLobbyReadyCount(String)",
+			"getCatalogVersion()", "getMovies()", "getMovieIds()", "getMovieTitles()", "getMovieTitle(int)",
+			"getDescription(int)", "getGenres()", "getMovieGenresLabel(int)", "findMovieIdsByGenres(ArrayList)",
+			"suggestMovie(String,String)", "suggestMovie(String,String,int)",
+			"removeSuggestion(String,int)", "removeSuggestion(String,String)", "removeSuggestion(String,String,String)",
+			"emptySuggestions(String)", "getSuggestions(String)", "getSuggestedMovieIds(String)",
+			"getSuggestedByUsername(int,String)", "getSuggestionTitle(String,int,String)", "getSuggestionTitles(String)",
+			"voteMovie(String,String,int)", "removeVote(String,String,int)", "removeVotesForMovie(String,int)",
+			"emptyVotes(String)", "getVotes(String)", "getVotes2(String)", "getVoteMovieIdsOfUser(String,String)",
+			"updateVotesUserReady(String,ArrayList)", "getWinnerMovies(String)");
+
+	// Callable without a session, besides LOGIN and TITLE_INDEX.
+	private static final Set<String> PUBLIC = Set.of(
+			"addUser(String,String,int)", "isUsernameExists(String)",
+			"changePassword(String,String,String)", "deleteAccount(String,String)",
+			"getCatalogVersion()", "getMovies()", "getMovieIds()", "getMovieTitles()", "getMovieTitle(int)",
+			"getDescription(int)", "getGenres()", "getMovieGenresLabel(int)", "findMovieIdsByGenres(ArrayList)");
+	// Arguments naming the user an operation acts for; one of them must be the session's user.
+	private static final Map<String, int[]> ACTING_USER = Map.ofEntries(
+			Map.entry("getHomeSnapshot(String)", new int[] { 0 }),
+			Map.entry("getInvitiationsForUser(String)", new int[] { 0 }),
+			Map.entry("getInvitationsOfUser(String)", new int[] { 0 }),
+			Map.entry("sendInvitationToUser(String,String)", new int[] { 0 }),
+			Map.entry("removeInvitationFromUser(String,String)", new int[] { 0, 1 }),  // declined or withdrawn
+			Map.entry("emptyInvitations(String)", new int[] { 0 }),
+			Map.entry("createLobby(String)", new int[] { 0 }),
+			Map.entry("deleteLobby(String)", new int[] { 0 }),
+			Map.entry("emptyLobby(String)", new int[] { 0 }),
+			Map.entry("addUserToLobby(String,String)", new int[] { 1 }),
+			Map.entry("removeUserFromLobby(String,String)", new int[] { 0, 1 }),   // removed by the owner or left
+			Map.entry("suggestMovie(String,String)", new int[] { 0 }),
+			Map.entry("suggestMovie(String,String,int)", new int[] { 1 }),
+			Map.entry("voteMovie(String,String,int)", new int[] { 0 }),
+			Map.entry("removeVote(String,String,int)", new int[] { 0 }));
+	// Changes to a lobby named by its owner, the first argument; the session's user must be in it.
+	private static final Set<String> LOBBY_MEMBER = Set.of(
+			"setLobbyReady(String)", "removeSuggestion(String,int)", "removeSuggestion(String,String)",
+			"removeSuggestion(String,String,String)", "emptySuggestions(String)", "removeVotesForMovie(String,int)",
+			"emptyVotes(String)", "updateVotesUserReady(String,ArrayList)");
+
+	private static final class Session {
+		final String username;
+		volatile long lastUsed = System.currentTimeMillis();
+
+		Session(String username) {
+			this.username = username;
+		}
+	}
+
+	private final Database database;
+	private final HttpServer httpServer;
+	private final ExecutorService executor;
+	private final LobbyEventHub lobbyEvents;
+	private final Map<String, Method> operations = new HashMap<>();
+	private final QueryMetrics metrics;
+	private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+	private final SecureRandom random = new SecureRandom();
+
+	public MovieNightServer(Database database, InetSocketAddress address) throws IOException {
+		this(database, address, null);
+	}
+
+	public MovieNightServer(Database database, InetSocketAddress address, QueryMetrics metrics) throws IOException {
+		this.database = database;
+		this.metrics = metrics;
+		this.lobbyEvents = new LobbyEventHub(database, IDLE_FEED_MILLIS);
+		for (Method method : Database.class.getDeclaredMethods()) {
+			String key = keyOf(method.getName(), method.getParameterTypes());
+			if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+					&& SERVED.contains(key)) {
+				operations.put(key, method);
+			}
+		}
+		if (operations.size() != SERVED.size()) {
+			Set<String> missing = new HashSet<>(SERVED);
+			missing.removeAll(operations.keySet());
+			throw new IllegalStateException("Database has no operations " + missing);
+		}
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		this.httpServer = HttpServer.create(address, 0);
+		httpServer.createContext(RPC_PATH, this::handle);
+		if (metrics != null) {
+			httpServer.createContext(METRICS_PATH, this::handleMetrics);
+		}
+		httpServer.setExecutor(executor);
+	}
+
+	public static String keyOf(String name, Class<?>... parameterTypes) {
+		StringJoiner key = new StringJoiner(",", name + "(", ")");
+		for (Class<?> type : parameterTypes) {
+			key.add(type.getSimpleName());
+		}
+		return key.toString();
+	}
+
+	public void start() {
+		httpServer.start();
+	}
+
+	public int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	public URI getUri() {
+		InetSocketAddress address = httpServer.getAddress();
+		return URI.create("http://" + address.getHostString() + ":" + address.getPort() + RPC_PATH);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body;
+			try (InputStream in = exchange.getRequestBody()) {
+				body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+			}
+			if (body.length > MAX_REQUEST_BYTES) {
+				exchange.sendResponseHeaders(413, -1);
+				return;
+			}
+			String token = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(buffer);
+			try {
+				Object result = invoke(new DataInputStream(new ByteArrayInputStream(body)), token);
+				out.writeByte(OK);
+				WireFormat.write(out, result);
+			} catch (IOException | RuntimeException | InterruptedException e) {
+				System.err.println("Server request error: " + e.getMessage());
+				buffer.reset();
+				out.writeByte(ERROR);
+				WireFormat.writeString(out, String.valueOf(e.getMessage()));
+			}
+			out.flush();
+			exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+			exchange.sendResponseHeaders(200, buffer.size());
+			try (OutputStream response = exchange.getResponseBody()) {
+				buffer.writeTo(response);
+			}
+		}
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] dump = metrics.dump().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, dump.length);
+			try (OutputStream response = exchange.getResponseBody()) {
+				response.write(dump);
+			}
+		}
+	}
+
+	private Object invoke(DataInputStream in, String token) throws IOException, InterruptedException {
+		String key = WireFormat.readString(in);
+		int count = in.readInt();
+		if (count < 0 || count > MAX_ARGUMENTS) {
+			throw new IOException("Bad argument count " + count);
+		}
+		Object[] args = new Object[count];
+		for (int i = 0; i < count; i++) {
+			args[i] = WireFormat.read(in);
+		}
+		if (key.equals(LOGIN)) {
+			return login((String) args[0], (String) args[1]);
+		}
+		authorize(key, args, token);
+		// Not timed: it waits for events on purpose.
+		if (key.equals(AWAIT_LOBBY_EVENTS)) {
+			long timeout = Math.min(Math.max((Long) args[2], 0), MAX_POLL_MILLIS);
+			return lobbyEvents.await((String) args[0], (Long) args[1], timeout);
+		}
+		Method method = operations.get(key);
+		if (method == null && !key.equals(TITLE_INDEX)) {
+			throw new IllegalArgumentException("Unknown operation " + key);
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = method == null ? titleIndex((Long) args[0]) : call(method, args);
+			failed = false;
+			if (key.equals("deleteAccount(String,String)") && Boolean.TRUE.equals(result)) {
+				sessions.values().removeIf(session -> session.username.equals(args[0]));
+			}
+			return result;
+		} finally {
+			if (metrics != null) {
+				metrics.recordOperation(key, System.nanoTime() - start, failed);
+			}
+		}
+	}
+
+	private String login(String username, String password) {
+		if (!database.validateLogin(username, password)) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		sessions.values().removeIf(session -> now - session.lastUsed >= SESSION_IDLE_MILLIS);
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		sessions.put(token, new Session(username));
+		return token;
+	}
+
+	private void authorize(String key, Object[] args, String token) {
+		if (PUBLIC.contains(key) || key.equals(TITLE_INDEX)) {
+			return;
+		}
+		Session session = token != null ? sessions.get(token) : null;
+		long now = System.currentTimeMillis();
+		if (session == null || now - session.lastUsed >= SESSION_IDLE_MILLIS) {
+			throw new SecurityException("Not signed in");
+		}
+		session.lastUsed = now;
+		String user = session.username;
+		int[] acting = ACTING_USER.get(key);
+		if (acting != null) {
+			for (int index : acting) {
+				if (index < args.length && Objects.equals(user, args[index])) {
+					return;
+				}
+			}
+			throw new SecurityException(key + " is not allowed for " + user);
+		}
+		if (LOBBY_MEMBER.contains(key)) {
+			Object owner = args.length > 0 ? args[0] : null;
+			if (!user.equals(owner) && !Objects.equals(owner, database.getBelongingLobbyOwner(user))) {
+				throw new SecurityException(key + " is not allowed for " + user);
+			}
+		}
+	}
+
+	private Object call(Method method, Object[] args) {
+		try {
+			return method.invoke(database, args);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	// Null when the client's copy is current, else [version, movie ids, titles].
+	// The version is read first: a catalog change in between only costs the client a refetch.
+	private List<Object> titleIndex(long knownVersion) {
+		long version = database.getCatalogVersion();
+		if (version >= 0 && version == knownVersion) {
+			return null;
+		}
+		TitleIndex index = database.getTitleIndex();
+		int[] movieIds = index.getMovieIds();
+		String[] titles = new String[movieIds.length];
+		for (int i = 0; i < movieIds.length; i++) {
+			titles[i] = index.getTitle(movieIds[i]);
+		}
+		List<Object> result = new ArrayList<>(3);
+		result.add(version);
+		result.add(movieIds);
+		result.add(titles);
+		return result;
+	}
+
+	@Override
+	public void close() {
+		httpServer.stop(0);
+		executor.shutdownNow();
+		lobbyEvents.close();
+	}
+
+	// Listens on loopback unless -Dmovienight.bindAddress names another address, e.g. 0.0.0.0 for all.
+	// Traffic is plain HTTP: expose it beyond loopback only through a TLS-terminating proxy.
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		String bindAddress = System.getProperty("movienight.bindAddress");
+		InetAddress address = bindAddress != null ? InetAddress.getByName(bindAddress) : InetAddress.getLoopbackAddress();
+		ConnectionPool pool = DatabaseConnection.createPool();
+		PgLobbyEventChannel channel = new PgLobbyEventChannel(pool).start();
+		QueryMetrics metrics = new QueryMetrics(
+				Long.getLong("movienight.slowQueryMillis", QueryMetrics.DEFAULT_SLOW_QUERY_MILLIS));
+		metrics.register("server");
+		// The server is the only writer of votes for its clients, so tallies can live in memory.
+		Database database = new Database(new InstrumentedConnectionProvider(pool, metrics), channel, true);
+		MovieNightServer server = new MovieNightServer(database,
+				new InetSocketAddress(address, port), metrics);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			metrics.unregister();
+			database.close();
+			channel.close();
+			pool.close();
+		}));
+		server.start();
+		System.out.println("MovieNight server listening on " + server.getUri());
+	}
+}
@@ -0,0 +1,224 @@
+package server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dao.LobbyDAO.VoteResult;
+import dao.UserDAO.HomeSnapshot;
+import events.LobbyEvent;
+
+/**
+ * Tagged binary encoding of the values the {@code Database} facade takes and
+ * returns. Lists decode as ArrayList and maps as LinkedHashMap, so they fit
+ * the facade's ArrayList and HashMap signatures. Values are always read from
+ * a fully buffered body, so before anything is allocated each length is
+ * checked against the bytes left in it, at the smallest encoded size of one
+ * element.
+ */
+public final class WireFormat {
+
+	private static final byte NULL = 0;
+	private static final byte INT = 1;
+	private static final byte LONG = 2;
+	private static final byte BOOLEAN = 3;
+	private static final byte STRING = 4;
+	private static final byte INT_ARRAY = 5;
+	private static final byte STRING_ARRAY = 6;
+	private static final byte LIST = 7;
+	private static final byte MAP = 8;
+	private static final byte VOTE_RESULTS = 9;
+	private static final byte LOBBY_EVENT = 10;
+	private static final byte HOME_SNAPSHOT = 11;
+
+	private WireFormat() {
+	}
+
+	public static void write(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Integer i) {
+			out.writeByte(INT);
+			out.writeInt(i);
+		} else if (value instanceof Long l) {
+			out.writeByte(LONG);
+			out.writeLong(l);
+		} else if (value instanceof Boolean b) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(b);
+		} else if (value instanceof String s) {
+			out.writeByte(STRING);
+			writeString(out, s);
+		} else if (value instanceof int[] ints) {
+			out.writeByte(INT_ARRAY);
+			out.writeInt(ints.length);
+			for (int i : ints) {
+				out.writeInt(i);
+			}
+		} else if (value instanceof String[] strings) {
+			out.writeByte(STRING_ARRAY);
+			out.writeInt(strings.length);
+			for (String s : strings) {
+				writeNullableString(out, s);
+			}
+		} else if (value instanceof List<?> list) {
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				write(out, element);
+			}
+		} else if (value instanceof Map<?, ?> map) {
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				write(out, entry.getKey());
+				write(out, entry.getValue());
+			}
+		} else if (value instanceof VoteResult[] results) {
+			out.writeByte(VOTE_RESULTS);
+			out.writeInt(results.length);
+			for (VoteResult r : results) {
+				out.writeInt(r.movieID);
+				writeNullableString(out, r.movieTitle);
+				out.writeInt(r.voteCount);
+			}
+		} else if (value instanceof LobbyEvent e) {
+			out.writeByte(LOBBY_EVENT);
+			out.writeInt(e.getLobbyId());
+			out.writeByte(e.getKind().ordinal());
+			out.writeByte(e.getOperation().ordinal());
+			out.writeInt(e.getUserId());
+			out.writeInt(e.getMovieId());
+			out.writeLong(e.getSequence());
+		} else if (value instanceof HomeSnapshot home) {
+			out.writeByte(HOME_SNAPSHOT);
+			writeStrings(out, home.invitationsFrom);
+			writeStrings(out, home.invitationsTo);
+			writeStrings(out, home.lobbyMembers);
+			writeNullableString(out, home.lobbyOwner);
+		} else {
+			throw new IOException("Cannot encode " + value.getClass().getName());
+		}
+	}
+
+	public static Object read(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case INT:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case BOOLEAN:
+				return in.readBoolean();
+			case STRING:
+				return readString(in);
+			case INT_ARRAY: {
+				int[] ints = new int[readLength(in, 4)];
+				for (int i = 0; i < ints.length; i++) {
+					ints[i] = in.readInt();
+				}
+				return ints;
+			}
+			case STRING_ARRAY: {
+				String[] strings = new String[readLength(in, 1)];
+				for (int i = 0; i < strings.length; i++) {
+					strings[i] = readNullableString(in);
+				}
+				return strings;
+			}
+			case LIST: {
+				int size = readLength(in, 1);
+				ArrayList<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(read(in));
+				}
+				return list;
+			}
+			case MAP: {
+				int size = readLength(in, 2);
+				LinkedHashMap<Object, Object> map = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++) {
+					map.put(read(in), read(in));
+				}
+				return map;
+			}
+			case VOTE_RESULTS: {
+				VoteResult[] results = new VoteResult[readLength(in, 9)];
+				for (int i = 0; i < results.length; i++) {
+					VoteResult r = new VoteResult();
+					r.movieID = in.readInt();
+					r.movieTitle = readNullableString(in);
+					r.voteCount = in.readInt();
+					results[i] = r;
+				}
+				return results;
+			}
+			case LOBBY_EVENT:
+				return new LobbyEvent(in.readInt(),
+						LobbyEvent.Kind.values()[in.readByte()],
+						LobbyEvent.Operation.values()[in.readByte()],
+						in.readInt(), in.readInt(), in.readLong());
+			case HOME_SNAPSHOT: {
+				HomeSnapshot home = new HomeSnapshot();
+				readStrings(in, home.invitationsFrom);
+				readStrings(in, home.invitationsTo);
+				readStrings(in, home.lobbyMembers);
+				home.lobbyOwner = readNullableString(in);
+				return home;
+			}
+			default:
+				throw new IOException("Unknown value tag " + tag);
+		}
+	}
+
+	public static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readLength(in, 1)];
+		in.readFully(bytes);
+		return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String s : strings) {
+			writeNullableString(out, s);
+		}
+	}
+
+	private static void readStrings(DataInputStream in, List<String> strings) throws IOException {
+		int size = readLength(in, 1);
+		for (int i = 0; i < size; i++) {
+			strings.add(readNullableString(in));
+		}
+	}
+
+	private static void writeNullableString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			writeString(out, s);
+		}
+	}
+
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+
+	private static int readLength(DataInputStream in, int minElementBytes) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > in.available() / minElementBytes) {
+			throw new IOException("Bad length " + length);
+		}
+		return length;
+	}
+}
@@ -0,0 +1,164 @@
+package test;
+
+import movienightgui.AsyncDatabase;
+import org.junit.jupiter.api.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AsyncDatabase sıralaması ve LatestRequest iptali için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class AsyncDatabaseTest {
+
+    private AsyncDatabase db;
+
+    @BeforeEach
+    void setup() {
+        // The actions below never touch the database.
+        db = new AsyncDatabase(null, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @AfterEach
+    void cleanup() {
+        db.close();
+    }
+
+    // A write that holds the queue until the latch is released.
+    private CompletableFuture<Void> blockingWrite(CountDownLatch release, List<String> log, String name) {
+        return db.execute(d -> {
+            await(release);
+            log.add(name);
+            return null;
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Okumalar önceki yazmaları beklemeli, yazmalar sırayla çalışmalı")
+    void testReadsWaitForEarlierWrites() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = blockingWrite(release, log, "write1");
+        CompletableFuture<Void> second = db.execute(d -> {
+            log.add("write2");
+            return null;
+        });
+        CompletableFuture<List<String>> read = db.supply(d -> List.copyOf(log));
+
+        Thread.sleep(100);
+        assertFalse(read.isDone(), "Okuma önceki yazmadan önce çalışmamalı");
+        assertFalse(second.isDone(), "İkinci yazma ilkini beklemeli");
+
+        release.countDown();
+        assertEquals(List.of("write1", "write2"), read.get(5, TimeUnit.SECONDS), "Okuma kendi yazmalarını görmeli");
+        assertTrue(first.isDone());
+
+        // Reads with no write in between do not wait for each other.
+        CountDownLatch slowRead = new CountDownLatch(1);
+        CompletableFuture<String> blocked = db.supply(d -> {
+            await(slowRead);
+            return "slow";
+        });
+        assertEquals("fast", db.supply(d -> "fast").get(5, TimeUnit.SECONDS));
+        slowRead.countDown();
+        assertEquals("slow", blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Başarısız yazma sonrakileri engellememeli")
+    void testFailedWriteDoesNotBlock() throws Exception {
+        CompletableFuture<Object> failed = db.execute(d -> {
+            throw new IllegalStateException("write failed");
+        });
+        CompletableFuture<String> next = db.execute(d -> "written");
+        CompletableFuture<String> read = db.supply(d -> "read");
+
+        assertEquals("written", next.get(5, TimeUnit.SECONDS));
+        assertEquals("read", read.get(5, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+
+        // The EDT variants swallow the failure after logging it.
+        assertNull(db.write(d -> {
+            throw new IllegalStateException("write failed");
+        }, result -> fail("Başarısız yazmanın sonucu uygulanmamalı")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Yerine yenisi gelen okuma çalışmamalı ya da uygulanmamalı")
+    void testLatestRequestCancellation() throws Exception {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        AtomicInteger ran = new AtomicInteger();
+        AsyncDatabase.LatestRequest search = db.newLatestRequest();
+
+        // Not started yet: queued behind a write, so the first query never runs.
+        CountDownLatch release = new CountDownLatch(1);
+        blockingWrite(release, new CopyOnWriteArrayList<>(), "write");
+        List<CompletableFuture<Void>> loads = new CopyOnWriteArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            loads.add(search.load(d -> {
+                ran.incrementAndGet();
+                return "a";
+            }, applied::add));
+            loads.add(search.load(d -> "ab", applied::add));
+        });
+        release.countDown();
+        for (CompletableFuture<Void> load : loads) {
+            load.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("ab"), applied);
+        assertEquals(0, ran.get(), "İptal edilen sorgu çalışmamalı");
+
+        // Already running: it finishes, but its result is dropped.
+        applied.clear();
+        loads.clear();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        SwingUtilities.invokeAndWait(() -> loads.add(search.load(d -> {
+            started.countDown();
+            await(finish);
+            return "x";
+        }, applied::add)));
+        await(started);
+        SwingUtilities.invokeAndWait(() -> loads.add(search.load(d -> "xy", applied::add)));
+        finish.countDown();
+        for (CompletableFuture<Void> load : loads) {
+            load.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("xy"), applied, "Eski sonuç uygulanmamalı");
+
+        // cancel() alone drops the pending read.
+        applied.clear();
+        CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        CountDownLatch hold = new CountDownLatch(1);
+        blockingWrite(hold, new CopyOnWriteArrayList<>(), "write");
+        SwingUtilities.invokeAndWait(() -> {
+            search.load(d -> "z", applied::add).whenComplete((result, error) -> cancelled.complete(null));
+            search.cancel();
+        });
+        hold.countDown();
+        cancelled.get(5, TimeUnit.SECONDS);
+        SwingUtilities.invokeAndWait(() -> { });
+        assertTrue(applied.isEmpty());
+    }
+}
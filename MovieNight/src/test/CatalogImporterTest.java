@@ -0,0 +1,151 @@
+package test;
+
+import utils.CatalogImporter;
+import utils.ConnectionProvider;
+import org.junit.jupiter.api.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CatalogImporter için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CatalogImporterTest {
+
+    private static Connection connection;
+    private Path file;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:importdb;DB_CLOSE_DELAY=-1", "sa", "");
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Movie(
+                    id INT PRIMARY KEY,
+                    title VARCHAR(255),
+                    description VARCHAR(1000),
+                    trailerPath VARCHAR(255)
+                );
+                CREATE TABLE Genre(id INT PRIMARY KEY, name VARCHAR(100));
+                CREATE TABLE Actor(id INT PRIMARY KEY, name VARCHAR(100));
+                CREATE TABLE HasGenre(
+                    movie_id INT REFERENCES Movie(id),
+                    genre_id INT REFERENCES Genre(id),
+                    PRIMARY KEY (movie_id, genre_id)
+                );
+                CREATE TABLE HasActor(
+                    movie_id INT REFERENCES Movie(id),
+                    actor_id INT REFERENCES Actor(id),
+                    role VARCHAR(100),
+                    PRIMARY KEY (movie_id, actor_id)
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws SQLException, IOException {
+        file = Files.createTempFile("catalog", ".tsv");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO Genre VALUES (1, 'Action')");
+            stmt.execute("INSERT INTO Movie VALUES (4, 'Existing', NULL, NULL)");
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException, IOException {
+        Files.deleteIfExists(file);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM HasActor");
+            stmt.execute("DELETE FROM HasGenre");
+            stmt.execute("DELETE FROM Movie");
+            stmt.execute("DELETE FROM Actor");
+            stmt.execute("DELETE FROM Genre");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Filmler, türler ve oyuncular içe aktarılmalı")
+    void testImportDeduplicatesGenresAndActors() throws IOException, SQLException {
+        Files.writeString(file, """
+                title\tdescription\ttrailerPath\tgenres\tactors
+                Heat\tLA crime\t/heat.mp4\tAction|Crime\tAl Pacino|Robert De Niro
+                Ronin\t\t\tAction | Thriller|Action\tRobert De Niro\r
+                \tno title\t\t\t
+                Tab\\tTitle\tline one\\nline two\t\t\t
+                """, StandardCharsets.UTF_8);
+
+        CatalogImporter.Report report = new CatalogImporter(ConnectionProvider.of(connection)).importFile(file);
+
+        assertEquals(3, report.movies);
+        assertEquals(1, report.skippedLines);
+        assertEquals(2, report.genresAdded);
+        assertEquals(2, report.actorsAdded);
+        assertEquals(7, report.links);
+        assertEquals(4, count("SELECT COUNT(*) FROM Movie"));
+        assertEquals(3, count("SELECT COUNT(*) FROM Genre"));
+        // Existing genre is reused and ids continue after the existing rows
+        assertEquals(2, count("SELECT COUNT(*) FROM HasGenre WHERE genre_id = 1"));
+        assertEquals(5, count("SELECT MIN(id) FROM Movie WHERE title = 'Heat'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM Movie WHERE title = 'Tab\tTitle' "
+                + "AND description = 'line one' || CHAR(10) || 'line two' AND trailerPath IS NULL"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Küçük pencerelerle ve uzun satırlarla içe aktarma doğru olmalı")
+    void testImportAcrossWindows() throws IOException, SQLException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("Movie ").append(i).append('\t').append(i == 50 ? "x".repeat(300) : "d")
+              .append("\t\tGenre").append(i % 7).append("\tActor").append(i % 11).append('\n');
+        }
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+
+        CatalogImporter importer = new CatalogImporter(ConnectionProvider.of(connection), 128, 3, '\t');
+        List<long[]> progress = new ArrayList<>();
+        CatalogImporter.Report report = importer.importFile(file,
+                (movies, bytesRead, totalBytes) -> progress.add(new long[] { movies, bytesRead, totalBytes }));
+
+        assertEquals(200, report.movies);
+        assertEquals(0, report.skippedLines);
+        assertEquals(7, report.genresAdded);
+        assertEquals(11, report.actorsAdded);
+        assertEquals(200, count("SELECT COUNT(DISTINCT title) FROM Movie WHERE id > 4"));
+        assertEquals(400, count("SELECT COUNT(*) FROM HasGenre") + count("SELECT COUNT(*) FROM HasActor"));
+        assertEquals(300, count("SELECT LENGTH(description) FROM Movie WHERE title = 'Movie 50'"));
+        // Progress is reported once per committed window, ending at the whole file
+        assertTrue(progress.size() > 1);
+        long[] lastProgress = progress.get(progress.size() - 1);
+        assertEquals(200, lastProgress[0]);
+        assertEquals(lastProgress[2], lastProgress[1]);
+    }
+}
@@ -0,0 +1,177 @@
+package test;
+
+import models.User;
+import dao.UserDAO;
+import utils.ConnectionPool;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConnectionPool için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE "User"(
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 2, 200, 60_000, 60_000);
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM \"User\"");
+        }
+        pool.close();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Kapatılan bağlantı havuza geri dönmeli")
+    void testConnectionReturnedOnClose() throws SQLException {
+        Connection connection = pool.getConnection();
+        assertEquals(1, pool.getAvailablePermits(), "Bir bağlantı ödünç alınmış olmalı");
+
+        connection.close();
+
+        assertEquals(2, pool.getAvailablePermits(), "Bağlantı havuza geri dönmeli");
+        assertEquals(1, pool.getIdleCount(), "Boştaki bağlantı tekrar kullanılmak üzere saklanmalı");
+        assertTrue(connection.isClosed(), "Geri verilen bağlantı kapalı görünmeli");
+        assertThrows(SQLException.class, connection::createStatement, "Geri verilen bağlantı kullanılamamalı");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Havuz dolduğunda bekleme zaman aşımına uğramalı")
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+
+        assertThrows(SQLTimeoutException.class, pool::getConnection, "Üçüncü bağlantı beklemede kalmalı");
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Bekleyen istek, bağlantı geri verilince devam etmeli")
+    void testWaiterServedAfterRelease() throws Exception {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> waiter = executor.submit(() -> {
+            try (Connection connection = pool.getConnection()) {
+                return connection.isValid(1);
+            }
+        });
+        first.close();
+
+        assertTrue(waiter.get(1, TimeUnit.SECONDS), "Bekleyen istek bağlantı almalı");
+        second.close();
+        executor.shutdown();
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: DAO her işlemde bağlantıyı ödünç alıp geri vermeli")
+    void testDaoBorrowsPerOperation() {
+        UserDAO userDAO = new UserDAO(pool);
+
+        assertTrue(userDAO.createUser(new User(0, "Ali", "Yılmaz", "ali", "pass", null)), "Kullanıcı oluşturulmalı");
+        assertNotNull(userDAO.findByUsername("ali"), "Kullanıcı bulunmalı");
+        assertEquals(1, userDAO.findAll().size(), "Bir kullanıcı listelenmeli");
+
+        assertEquals(2, pool.getAvailablePermits(), "Tüm bağlantılar havuza geri dönmeli");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Açık kalan işlem geri alınarak havuza dönmeli")
+    void testUncommittedWorkRolledBackOnRelease() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            stmt.execute("INSERT INTO \"User\" (username) VALUES ('yarim')");
+        }
+
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.getAutoCommit(), "Bağlantı autocommit modunda dönmeli");
+            assertNull(new UserDAO(pool).findByUsername("yarim"), "Commit edilmeyen kayıt geri alınmalı");
+        }
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Test 6: Hazırlanmış ifadeler ödünç almalar arasında yeniden kullanılmalı")
+    void testStatementsReusedAcrossBorrows() throws SQLException {
+        UserDAO userDAO = new UserDAO(pool);
+        userDAO.createUser(new User(0, "Ali", "Yılmaz", "ali", "pass", null));
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(userDAO.findByUsername("ali"), "Kullanıcı her seferinde bulunmalı");
+        }
+        assertEquals(2, pool.getStatementCacheHits(), "Aynı SQL önbellekten gelmeli");
+        assertNull(userDAO.findByUsername("yok"), "Önceki parametreler sızmamalı");
+
+        // Hits on a borrowed connection count too.
+        try (Connection connection = pool.getConnection()) {
+            for (int i = 0; i < 2; i++) {
+                try (PreparedStatement stmt = connection.prepareStatement("SELECT 1")) {
+                    stmt.executeQuery().close();
+                }
+            }
+            assertEquals(4, pool.getStatementCacheHits(), "Ödünç alınmış bağlantının isabetleri de sayılmalı");
+        }
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Test 7: Kapatılan ifade kullanılamamalı, iç içe aynı SQL çalışmalı")
+    void testClosedStatementHandleRejected() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM \"User\" WHERE id > ?";
+        try (Connection connection = pool.getConnection()) {
+            PreparedStatement first = connection.prepareStatement(sql);
+            try (PreparedStatement nested = connection.prepareStatement(sql)) {
+                nested.setInt(1, 0);
+                assertTrue(nested.executeQuery().next(), "İç içe ifade çalışmalı");
+            }
+            first.close();
+            assertTrue(first.isClosed(), "Geri verilen ifade kapalı görünmeli");
+            assertThrows(SQLException.class, first::executeQuery, "Geri verilen ifade kullanılamamalı");
+
+            try (PreparedStatement again = connection.prepareStatement(sql)) {
+                again.setInt(1, 0);
+                try (ResultSet rs = again.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(0, rs.getInt(1));
+                }
+            }
+        }
+    }
+}
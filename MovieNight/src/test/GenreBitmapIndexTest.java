@@ -0,0 +1,67 @@
+package test;
+
+import search.GenreBitmapIndex;
+import org.junit.jupiter.api.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GenreBitmapIndex için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class GenreBitmapIndexTest {
+
+    private GenreBitmapIndex index;
+
+    @BeforeEach
+    void setup() {
+        // Movies 10, 20, 30 and 100 are ordinals 0..3; 100 also checks the word boundary.
+        int[] movieIds = {10, 20, 30, 100};
+        GenreBitmapIndex.Builder builder = new GenreBitmapIndex.Builder(
+                movieIds, new int[] {1, 2, 3}, new String[] {"Action", "Comedy", "Drama"});
+        builder.add(0, 0);           // 10: Action
+        builder.add(1, 1);           // 20: Comedy
+        builder.add(2, 0).add(2, 1); // 30: Action, Comedy
+        builder.add(3, 2);           // 100: Drama
+        index = builder.build();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Tüm türleri içeren filmler bulunmalı")
+    void testFindAllIntersectsGenres() {
+        assertArrayEquals(new int[] {10, 30}, index.findAll(1));
+        assertArrayEquals(new int[] {30}, index.findAll(1, 2));
+        assertArrayEquals(new int[0], index.findAll(1, 3));
+        assertArrayEquals(new int[0], index.findAll(1, 99));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Türlerden herhangi birini içeren filmler bulunmalı")
+    void testFindAnyUnitesGenres() {
+        assertArrayEquals(new int[] {10, 30, 100}, index.findAny(1, 3));
+        assertArrayEquals(new int[] {20, 30}, index.findAny(2, 99));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: İsimle arama bilinmeyen türleri atlamalı")
+    void testFindByNamesSkipsUnknownGenres() {
+        assertArrayEquals(new int[] {10, 30}, index.findAll(List.of("Action", "Western")));
+        assertArrayEquals(new int[0], index.findAll(List.of("Western")));
+        assertArrayEquals(new int[0], index.findAll(List.<String>of()));
+        assertEquals(Integer.valueOf(2), index.getGenreId("Comedy"));
+        assertNull(index.getGenreId("comedy"));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Türdeki film sayısı doğru olmalı")
+    void testCountMovies() {
+        assertEquals(2, index.countMovies(1));
+        assertEquals(1, index.countMovies(3));
+        assertEquals(0, index.countMovies(99));
+    }
+}
@@ -0,0 +1,121 @@
+package test;
+
+import utils.ConnectionPool;
+import utils.IdAllocator;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IdAllocator için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class IdAllocatorTest {
+
+    private static final String URL = "jdbc:h2:mem:idallocatortest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE SEQUENCE item_id_seq START WITH 1 INCREMENT BY 1;
+                CREATE TABLE item(
+                    id INT DEFAULT nextval('item_id_seq') PRIMARY KEY,
+                    name VARCHAR(50)
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 4);
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM item");
+            stmt.execute("ALTER SEQUENCE item_id_seq RESTART WITH 1");
+        }
+        pool.close();
+    }
+
+    private long sequenceValue() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT nextval('item_id_seq')")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Kimlikler blok blok ayrılmalı")
+    void testBlocks() throws SQLException {
+        IdAllocator allocator = new IdAllocator(pool, "item_id_seq", 10);
+        for (int expected = 1; expected <= 10; expected++) {
+            assertEquals(expected, allocator.next());
+        }
+        assertEquals(11, sequenceValue(), "Tek blok tek sorguda ayrılmalı");
+        assertEquals(12, allocator.next(), "Yeni blok sıradan devam etmeli");
+
+        int[] batch = allocator.next(15);
+        assertEquals(15, batch.length);
+        assertEquals(13, batch[0], "Önce kalan blok kullanılmalı");
+        assertEquals(27, batch[14]);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Eşzamanlı ayırıcılar ve varsayılan değerler çakışmamalı")
+    void testNoClashes() throws Exception {
+        IdAllocator first = new IdAllocator(pool, "item_id_seq", 7);
+        IdAllocator second = new IdAllocator(pool, "item_id_seq", 5);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            IdAllocator allocator = t % 2 == 0 ? first : second;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        assertTrue(ids.add(allocator.next()), "Kimlik tekrar verilmemeli");
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800, ids.size());
+
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO item (name) VALUES ('varsayılan')");
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM item")) {
+                rs.next();
+                assertFalse(ids.contains(rs.getInt(1)), "Varsayılan değer ayrılmış kimliklerle çakışmamalı");
+            }
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Geçersiz dizi adı ve blok boyutu reddedilmeli")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(pool, "item_id_seq'); DROP TABLE item; --"));
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(pool, "item_id_seq", 0));
+        assertThrows(SQLException.class, () -> new IdAllocator(pool, "missing_seq").next());
+    }
+}
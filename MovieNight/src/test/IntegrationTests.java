@@ -26,6 +26,7 @@ class IntegrationTests {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute("""
                 CREATE SEQUENCE user_id_seq START WITH 1 INCREMENT BY 1;
+                CREATE SEQUENCE lobby_id_seq START WITH 1 INCREMENT BY 1;
                 CREATE TABLE "User"(
                     id INT DEFAULT nextval('user_id_seq') PRIMARY KEY,
                     fname VARCHAR(50),
@@ -530,4 +531,82 @@ class IntegrationTests {
         database.emptyVotes("alice");
         database.deleteLobby("alice");
     }
-}
\ No newline at end of file
+    
+    /**
+     * IT11: Öneri Başlıkları (öneren ve oy sayısı ile)
+     */
+    @Test
+    @Order(11)
+    @DisplayName("IT11: Öneri başlıkları öneren ve oy sayısı ile listelenmeli")
+    void testSuggestionTitlesWithVoteCounts() {
+        database.addUser("host", "pass", 25);
+        database.addUser("guest", "pass", 26);
+        database.createLobby("host");
+        database.addUserToLobby("host", "host");
+        database.addUserToLobby("host", "guest");
+        
+        MovieDAO movieDAO = new MovieDAO(connection);
+        movieDAO.createMovie(new Movie(0, "Voted", "Desc", "/t"));
+        movieDAO.createMovie(new Movie(0, "Unvoted", "Desc", "/t"));
+        Movie voted = movieDAO.findByTitle("Voted");
+        Movie unvoted = movieDAO.findByTitle("Unvoted");
+        
+        database.suggestMovie("host", "host", voted.getId());
+        database.suggestMovie("host", "guest", unvoted.getId());
+        database.voteMovie("host", "host", voted.getId());
+        database.voteMovie("guest", "host", voted.getId());
+        
+        ArrayList<String> titles = database.getSuggestionTitles("host");
+        assertEquals(2, titles.size(), "2 öneri başlığı olmalı");
+        assertTrue(titles.contains("Voted (" + voted.getId() + ") (s: host) 2"), "Oylanan film 2 oy göstermeli");
+        assertTrue(titles.contains("Unvoted (" + unvoted.getId() + ") (s: guest) 0"), "Oylanmayan film 0 oy göstermeli");
+        
+        assertEquals(database.getSuggestedMovieIds("host").size(), titles.size(), "Başlıklar ve film id'leri aynı sırada olmalı");
+    }
+    
+    /**
+     * IT12: Boşalan Lobinin Temizlenmesi
+     */
+    @Test
+    @Order(12)
+    @DisplayName("IT12: Son üye ayrılınca lobi öneri, oy ve davetleriyle silinmeli")
+    void testEmptiedLobbyIsDeleted() throws SQLException {
+        database.addUser("host", "pass", 25);
+        database.addUser("guest", "pass", 26);
+        database.addUser("invited", "pass", 27);
+        database.createLobby("host");
+        database.addUserToLobby("host", "host");
+        database.addUserToLobby("host", "guest");
+        database.sendInvitationToUser("host", "invited");
+        
+        MovieDAO movieDAO = new MovieDAO(connection);
+        movieDAO.createMovie(new Movie(0, "Film", "Desc", "/t"));
+        Movie movie = movieDAO.findByTitle("Film");
+        database.suggestMovie("host", "guest", movie.getId());
+        database.voteMovie("host", "host", movie.getId());
+        
+        database.removeUserFromLobby("host", "guest");
+        assertEquals(1, count("Lobby"), "Üyesi kalan lobi silinmemeli");
+        assertEquals(1, count("Suggestion"), "Üyesi kalan lobinin önerileri kalmalı");
+        
+        database.removeUserFromLobby("host", "host");
+        assertEquals(0, count("Lobby"), "Boşalan lobi silinmeli");
+        assertEquals(0, count("Suggestion"), "Öneriler silinmeli");
+        assertEquals(0, count("Vote"), "Oylar silinmeli");
+        assertEquals(0, count("Invitation"), "Davetler silinmeli");
+        
+        database.createLobby("guest");
+        database.addUserToLobby("guest", "guest");
+        database.addUserToLobby("guest", "invited");
+        database.emptyLobby("guest");
+        assertEquals(0, count("Lobby"), "Toplu boşaltılan lobi de silinmeli");
+    }
+    
+    private static int count(String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
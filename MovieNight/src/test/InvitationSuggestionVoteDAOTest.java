@@ -2,6 +2,7 @@ package test;
 
 import models.*;
 import dao.*;
+import utils.IntIntMap;
 import org.junit.jupiter.api.*;
 import java.sql.*;
 import java.util.List;
@@ -22,6 +23,7 @@ class InvitationSuggestionVoteDAOTest {
     private InvitationDAO invitationDAO;
     private SuggestionDAO suggestionDAO;
     private VoteDAO voteDAO;
+    private InLobbyDAO inLobbyDAO;
     
     @BeforeAll
     static void setupDatabase() throws SQLException {
@@ -61,6 +63,12 @@ class InvitationSuggestionVoteDAOTest {
                     PRIMARY KEY (sender_id, receiver_id, lobby_id)
                 );
                 
+                CREATE TABLE InLobby (
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    user_id INTEGER REFERENCES "User"(id),
+                    PRIMARY KEY (lobby_id, user_id)
+                );
+                
                 CREATE TABLE Suggestion(
                     lobby_id INTEGER REFERENCES Lobby(id),
                     suggested_by INTEGER REFERENCES "User"(id),
@@ -86,6 +94,7 @@ class InvitationSuggestionVoteDAOTest {
         invitationDAO = new InvitationDAO(connection);
         suggestionDAO = new SuggestionDAO(connection);
         voteDAO = new VoteDAO(connection);
+        inLobbyDAO = new InLobbyDAO(connection);
     }
     
     @AfterEach
@@ -94,6 +103,7 @@ class InvitationSuggestionVoteDAOTest {
             stmt.execute("DELETE FROM Vote");
             stmt.execute("DELETE FROM Suggestion");
             stmt.execute("DELETE FROM Invitation");
+            stmt.execute("DELETE FROM InLobby");
             stmt.execute("DELETE FROM Lobby");
             stmt.execute("DELETE FROM Movie");
             stmt.execute("DELETE FROM \"User\"");
@@ -390,4 +400,78 @@ class InvitationSuggestionVoteDAOTest {
         
         assertEquals(2, votes.size(), "2 oy olmalı");
     }
-}
\ No newline at end of file
+    
+    // Gereksinim 48: Lobideki oylar film bazında sayılabilmeli
+    @Test
+    @Order(13)
+    @DisplayName("Test 51: Lobideki oylar film bazında tek sorguda sayılmalı")
+    void testCountVotesByMovie() {
+        User user1 = new User(0, "Ali", "Y", "ali", "pass", null);
+        User user2 = new User(0, "Veli", "D", "veli", "pass", null);
+        userDAO.createUser(user1);
+        userDAO.createUser(user2);
+        User createdUser1 = userDAO.findByUsername("ali");
+        User createdUser2 = userDAO.findByUsername("veli");
+        
+        lobbyDAO.createLobby(createdUser1.getId(), createdUser1.getId());
+        
+        Movie movie1 = new Movie(0, "Inception", "Thriller", "/trailer1");
+        Movie movie2 = new Movie(0, "Interstellar", "Sci-fi", "/trailer2");
+        movieDAO.createMovie(movie1);
+        movieDAO.createMovie(movie2);
+        Movie createdMovie1 = movieDAO.findByTitle("Inception");
+        Movie createdMovie2 = movieDAO.findByTitle("Interstellar");
+        
+        int lobbyId = createdUser1.getId();
+        suggestionDAO.addSuggestion(lobbyId, createdUser1.getId(), createdMovie1.getId());
+        suggestionDAO.addSuggestion(lobbyId, createdUser1.getId(), createdMovie2.getId());
+        voteDAO.addVote(lobbyId, createdUser1.getId(), createdMovie1.getId());
+        voteDAO.addVote(lobbyId, createdUser2.getId(), createdMovie1.getId());
+        
+        IntIntMap counts = voteDAO.countVotesByMovie(lobbyId);
+        
+        assertEquals(2, counts.get(createdMovie1.getId()), "Inception 2 oy almalı");
+        assertFalse(counts.containsKey(createdMovie2.getId()), "Oy almayan film sayımda olmamalı");
+        assertEquals(1, counts.size(), "Sadece oylanan filmler sayılmalı");
+    }
+    
+    // Gereksinim 32-33: Ana ekran davetleri ve lobiyi tek sorguda almalı
+    @Test
+    @Order(14)
+    @DisplayName("Test 52: Ana ekran özeti davetleri ve lobi üyelerini tek sorguda getirmeli")
+    void testFindHomeSnapshot() {
+        for (String username : new String[] { "ali", "veli", "ayse", "can" }) {
+            userDAO.createUser(new User(0, "", "", username, "pass", null));
+        }
+        User ali = userDAO.findByUsername("ali");
+        User veli = userDAO.findByUsername("veli");
+        User ayse = userDAO.findByUsername("ayse");
+        User can = userDAO.findByUsername("can");
+        
+        // ali invites veli and ayse to ali's lobby; can invites ali to can's lobby, which ayse has joined.
+        lobbyDAO.createLobby(ali.getId(), ali.getId());
+        lobbyDAO.createLobby(can.getId(), can.getId());
+        invitationDAO.sendInvitation(ali, lobbyDAO.findById(ali.getId()), veli);
+        invitationDAO.sendInvitation(ali, lobbyDAO.findById(ali.getId()), ayse);
+        invitationDAO.sendInvitation(can, lobbyDAO.findById(can.getId()), ali);
+        inLobbyDAO.assignUserToLobby(ali.getId(), ali.getId());
+        inLobbyDAO.assignUserToLobby(veli.getId(), ali.getId());
+        inLobbyDAO.assignUserToLobby(ayse.getId(), can.getId());
+        
+        UserDAO.HomeSnapshot home = userDAO.findHomeSnapshot("ali");
+        assertEquals(List.of("can"), home.invitationsFrom, "Alınan davetler");
+        assertEquals(List.of("veli", "ayse"), home.invitationsTo, "Gönderilen davetler");
+        assertEquals(List.of("ali", "veli"), home.lobbyMembers, "Lobi üyeleri");
+        assertEquals("ali", home.lobbyOwner, "Kullanıcı kendi lobisinde");
+        
+        UserDAO.HomeSnapshot ayseHome = userDAO.findHomeSnapshot("ayse");
+        assertEquals(List.of("ali"), ayseHome.invitationsFrom);
+        assertTrue(ayseHome.invitationsTo.isEmpty());
+        assertTrue(ayseHome.lobbyMembers.isEmpty());
+        assertEquals("can", ayseHome.lobbyOwner);
+        
+        UserDAO.HomeSnapshot unknown = userDAO.findHomeSnapshot("yok");
+        assertTrue(unknown.invitationsFrom.isEmpty() && unknown.lobbyMembers.isEmpty());
+        assertNull(unknown.lobbyOwner);
+    }
+}
@@ -49,6 +49,24 @@ class LobbyDAOTest {
                     user_id INTEGER REFERENCES "User"(id),
                     PRIMARY KEY (lobby_id, user_id)
                 );
+                
+                CREATE TABLE Movie(
+                    id INTEGER PRIMARY KEY,
+                    title VARCHAR(100)
+                );
+                
+                CREATE TABLE Vote(
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    user_id INTEGER REFERENCES "User"(id),
+                    movie_id INTEGER REFERENCES Movie(id),
+                    PRIMARY KEY (lobby_id, user_id, movie_id)
+                );
+                
+                -- PostgreSQL keeps vote_tally up to date with triggers; a view gives the same rows.
+                CREATE VIEW vote_tally AS
+                    SELECT lobby_id, movie_id, COUNT(*) AS vote_count FROM Vote GROUP BY lobby_id, movie_id;
+                
+                INSERT INTO Movie (id, title) VALUES (1, 'Heat'), (2, 'Ronin'), (3, 'Alien');
             """);
         }
     }
@@ -62,6 +80,7 @@ class LobbyDAOTest {
     @AfterEach
     void cleanup() throws SQLException {
         try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM Vote");
             stmt.execute("DELETE FROM InLobby");
             stmt.execute("DELETE FROM Lobby");
             stmt.execute("DELETE FROM \"User\"");
@@ -243,4 +262,37 @@ class LobbyDAOTest {
         
         assertEquals(2, lobbies.size(), "2 lobi olmalı");
     }
-}
\ No newline at end of file
+    
+    // Gereksinim 20: Oylama sonuçları en çok oy alandan başlayarak listelenmeli
+    @Test
+    @Order(11)
+    @DisplayName("Test 26: Kazanan filmler oy sayısına göre sıralanmalı")
+    void testGetWinningMoviesByVotes() throws SQLException {
+        for (String username : new String[] {"ali", "veli", "ayse"}) {
+            userDAO.createUser(new User(0, "Ad", "Soyad", username, "pass", null));
+        }
+        int ali = userDAO.findByUsername("ali").getId();
+        int veli = userDAO.findByUsername("veli").getId();
+        int ayse = userDAO.findByUsername("ayse").getId();
+        lobbyDAO.createLobby(ali, ali);
+        lobbyDAO.createLobby(ayse, ayse);
+        int lobbyId = lobbyDAO.findIdByOwner(ali);
+        int otherLobbyId = lobbyDAO.findIdByOwner(ayse);
+        
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO Vote VALUES (" + lobbyId + ", " + ali + ", 2), (" + lobbyId + ", " + veli + ", 2), "
+                    + "(" + lobbyId + ", " + ali + ", 3), (" + lobbyId + ", " + veli + ", 1), "
+                    + "(" + otherLobbyId + ", " + ayse + ", 1), (" + otherLobbyId + ", " + ali + ", 1)");
+        }
+        
+        LobbyDAO.VoteResult[] winners = lobbyDAO.getWinningMoviesByVotes(lobbyId);
+        
+        assertNotNull(winners, "Sonuçlar okunabilmeli");
+        assertEquals(3, winners.length, "Yalnızca bu lobinin oyları sayılmalı");
+        assertEquals("Ronin", winners[0].movieTitle, "En çok oyu alan film ilk olmalı");
+        assertEquals(2, winners[0].voteCount);
+        assertEquals(1, winners[1].movieID, "Eşit oylarda küçük film id önce gelmeli");
+        assertEquals(3, winners[2].movieID);
+        assertEquals(0, lobbyDAO.getWinningMoviesByVotes(9999).length, "Oy yoksa sonuç boş olmalı");
+    }
+}
@@ -0,0 +1,178 @@
+package test;
+
+import dao.LobbyDAO;
+import events.LobbyEvent;
+import events.LobbyEventChannel;
+import events.PollingLobbyEventChannel;
+import server.WireFormat;
+import utils.ConnectionPool;
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PollingLobbyEventChannel ve LobbyEvent için H2 üzerinde birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LobbyEventChannelTest {
+
+    private static final String URL = "jdbc:h2:mem:lobbyeventtest;DB_CLOSE_DELAY=-1";
+    // Lobby without change_seq, as in databases created before the change feed
+    private static final String PLAIN_URL = "jdbc:h2:mem:lobbyeventplaintest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private PollingLobbyEventChannel channel;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Lobby(
+                    id INT PRIMARY KEY,
+                    owner_id INT,
+                    is_ready BOOLEAN DEFAULT FALSE,
+                    date DATE,
+                    change_seq BIGINT NOT NULL DEFAULT 0
+                );
+                INSERT INTO Lobby (id, owner_id) VALUES (1, 1), (2, 2);
+            """);
+        }
+        try (Connection connection = DriverManager.getConnection(PLAIN_URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Lobby(
+                    id INT PRIMARY KEY,
+                    owner_id INT,
+                    is_ready BOOLEAN DEFAULT FALSE,
+                    date DATE
+                );
+                INSERT INTO Lobby (id, owner_id) VALUES (1, 1);
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 4);
+        channel = new PollingLobbyEventChannel(new LobbyDAO(pool), 20);
+    }
+
+    @AfterEach
+    void cleanup() {
+        channel.close();
+        pool.close();
+    }
+
+    // A write by another process, which only the poll can notice.
+    private void bumpElsewhere(int lobbyId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE Lobby SET change_seq = change_seq + 1 WHERE id = " + lobbyId);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Yoklama change_seq artışını fark etmeli")
+    void testPollDetectsChangeSeq() throws Exception {
+        BlockingQueue<LobbyEvent> received = new LinkedBlockingQueue<>();
+        try (LobbyEventChannel.Subscription subscription = channel.subscribe(1, received::add)) {
+            assertNotNull(subscription);
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS), "Değişiklik yokken olay gelmemeli");
+
+            bumpElsewhere(1);
+            bumpElsewhere(2);
+            LobbyEvent event = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "Başka süreçteki yazma fark edilmeli");
+            assertEquals(1, event.getLobbyId());
+            assertEquals(LobbyEvent.Kind.CHANGED, event.getKind());
+            assertTrue(event.getSequence() > 0);
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS), "Abone olunmayan lobi ve aynı değişiklik tekrar gelmemeli");
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: localChange olayı aboneye ulaştırmalı")
+    void testLocalChangeDispatch() throws Exception {
+        BlockingQueue<LobbyEvent> received = new LinkedBlockingQueue<>();
+        try (LobbyEventChannel.Subscription subscription = channel.subscribe(2, received::add)) {
+            assertNotNull(subscription);
+            channel.localChange(2);
+            LobbyEvent event = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "change_seq ile yerel yazma yoklamada görülmeli");
+            assertEquals(2, event.getLobbyId());
+        }
+
+        // Without change_seq, local writes are dispatched at once.
+        try (ConnectionPool plainPool = new ConnectionPool(PLAIN_URL, "sa", "", 2);
+             PollingLobbyEventChannel plain = new PollingLobbyEventChannel(new LobbyDAO(plainPool), 20)) {
+            try (LobbyEventChannel.Subscription subscription = plain.subscribe(1, received::add)) {
+                assertNotNull(subscription);
+                plain.localChange(1);
+                LobbyEvent event = received.poll();
+                assertNotNull(event, "Olay hemen iletilmeli");
+                assertEquals(LobbyEvent.Kind.CHANGED, event.getKind());
+                assertEquals(-1, event.getSequence());
+            }
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Abonelikten çıkan dinleyiciye olay gelmemeli")
+    void testUnsubscribe() throws Exception {
+        BlockingQueue<LobbyEvent> first = new LinkedBlockingQueue<>();
+        BlockingQueue<LobbyEvent> second = new LinkedBlockingQueue<>();
+        LobbyEventChannel.Subscription firstSubscription = channel.subscribe(1, first::add);
+        try (LobbyEventChannel.Subscription secondSubscription = channel.subscribe(1, second::add)) {
+            assertNotNull(secondSubscription);
+            firstSubscription.close();
+            firstSubscription.close();  // twice is harmless
+
+            bumpElsewhere(1);
+            assertNotNull(second.poll(5, TimeUnit.SECONDS), "Kalan dinleyici olayı almalı");
+            assertTrue(first.isEmpty(), "Çıkan dinleyici olay almamalı");
+        }
+
+        bumpElsewhere(1);
+        assertNull(second.poll(200, TimeUnit.MILLISECONDS), "Son abone çıkınca lobi izlenmemeli");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Tetikleyici yükü çözümlenmeli ve tel biçiminde korunmalı")
+    void testPayloadParseAndRoundTrip() throws IOException {
+        LobbyEvent vote = LobbyEvent.parse(7, "vote:I:3:42:12");
+        assertEquals(LobbyEvent.Kind.VOTE, vote.getKind());
+        assertEquals(LobbyEvent.Operation.INSERT, vote.getOperation());
+        assertEquals(3, vote.getUserId());
+        assertEquals(42, vote.getMovieId());
+        assertEquals(12, vote.getSequence());
+
+        LobbyEvent ready = LobbyEvent.parse(7, "lobby:U:0:0:13");
+        assertEquals(LobbyEvent.Kind.READY, ready.getKind());
+        assertEquals(LobbyEvent.Operation.UPDATE, ready.getOperation());
+        assertEquals(LobbyEvent.Kind.MEMBERSHIP, LobbyEvent.parse(7, "inlobby:D:3:0:14").getKind());
+
+        for (String bad : new String[] { "", "vote:I:3:42", "vote:I:x:42:12", "vote:I:3:42:12:99" }) {
+            LobbyEvent event = LobbyEvent.parse(7, bad);
+            assertEquals(LobbyEvent.Kind.CHANGED, event.getKind(), "Bozuk yük: " + bad);
+            assertEquals(-1, event.getSequence());
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        WireFormat.write(new DataOutputStream(buffer), vote);
+        LobbyEvent copy = (LobbyEvent) WireFormat.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+        assertEquals(vote.toString(), copy.toString(), "Olay tel biçiminde aynı kalmalı");
+    }
+}
@@ -0,0 +1,182 @@
+package test;
+
+import dao.GenreDAO;
+import dao.HasGenreDAO;
+import dao.MovieCatalog;
+import dao.MovieDAO;
+import models.Movie;
+import utils.ConnectionPool;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MovieCatalog için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class MovieCatalogTest {
+
+    private static final String URL = "jdbc:h2:mem:moviecatalogtest;DB_CLOSE_DELAY=-1";
+    // No catalog_version counter, as in the other H2 test schemas
+    private static final String UNVERSIONED_URL = "jdbc:h2:mem:moviecatalogunversionedtest;DB_CLOSE_DELAY=-1";
+    private static final String SCHEMA = """
+            CREATE TABLE Movie(
+                id INT PRIMARY KEY,
+                title VARCHAR(100),
+                description TEXT,
+                trailerPath VARCHAR(200)
+            );
+            CREATE TABLE Genre(id INT PRIMARY KEY, name VARCHAR(255));
+            CREATE TABLE HasGenre(movie_id INT, genre_id INT, PRIMARY KEY (movie_id, genre_id));
+            INSERT INTO Movie VALUES (2, 'Cars', 'd2', NULL), (1, 'Up', 'd1', NULL);
+            INSERT INTO Genre VALUES (1, 'animation'), (2, 'comedy');
+            INSERT INTO HasGenre VALUES (1, 1), (1, 2), (2, 1);
+        """;
+
+    private ConnectionPool pool;
+    private int versionReads;
+    private int movieLoads;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(SCHEMA);
+            stmt.execute("""
+                CREATE TABLE catalog_version(id INT PRIMARY KEY, version BIGINT NOT NULL DEFAULT 0);
+                INSERT INTO catalog_version VALUES (1, 0);
+            """);
+        }
+        try (Connection connection = DriverManager.getConnection(UNVERSIONED_URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(SCHEMA);
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        pool.close();
+    }
+
+    // Catalog over a MovieDAO that counts its version reads and full loads.
+    private MovieCatalog catalog(String url, long versionCheckIntervalMillis) {
+        pool = new ConnectionPool(url, "sa", "", 2);
+        MovieDAO movieDAO = new MovieDAO(pool) {
+            @Override
+            public long getCatalogVersion() {
+                versionReads++;
+                return super.getCatalogVersion();
+            }
+
+            @Override
+            public List<Movie> findAll() {
+                movieLoads++;
+                return super.findAll();
+            }
+        };
+        return new MovieCatalog(movieDAO, new GenreDAO(pool), new HasGenreDAO(pool), versionCheckIntervalMillis);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Katalog yalnızca sürüm sayacı değişince yeniden yüklenmeli")
+    void testVersionedReload() throws SQLException {
+        MovieCatalog catalog = catalog(URL, 0);
+        assertArrayEquals(new int[] { 1, 2 }, catalog.getMovieIds(), "Filmler id sırasında olmalı");
+        assertEquals(List.of("animation", "comedy"), catalog.getGenreNames(1));
+        assertEquals(1, movieLoads);
+
+        // Counter unchanged: only the version is read.
+        assertEquals("Cars", catalog.getTitle(2));
+        assertEquals(0, catalog.getVersion());
+        assertEquals(1, movieLoads, "Sayaç değişmeden yeniden yüklenmemeli");
+
+        execute("INSERT INTO Movie VALUES (3, 'Coco', 'd3', NULL)");
+        assertNull(catalog.getTitle(3), "Sayaç değişmeden yeni film görünmemeli");
+        execute("UPDATE catalog_version SET version = version + 1");
+        assertEquals("Coco", catalog.getTitle(3));
+        assertEquals(1, catalog.getVersion());
+        assertEquals(2, movieLoads);
+        execute("DELETE FROM Movie WHERE id = 3");
+        execute("UPDATE catalog_version SET version = 0");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Sürüm aralık dolmadan tekrar sorulmamalı")
+    void testVersionCheckInterval() {
+        MovieCatalog catalog = catalog(URL, 60_000);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Up", catalog.getTitle(1));
+        }
+        assertEquals(1, versionReads, "Aralık içinde sorgu yapılmamalı");
+        assertEquals(1, movieLoads);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Sayaç olmayan şemada sürüm -1 olmalı ve katalog aralıkla yeniden yüklenmeli")
+    void testUnversionedSchema() throws SQLException {
+        MovieCatalog catalog = catalog(UNVERSIONED_URL, 60_000);
+        assertEquals(-1, catalog.getVersion());
+        assertEquals(2, catalog.size());
+        execute("INSERT INTO Movie VALUES (3, 'Coco', 'd3', NULL)");
+        assertNull(catalog.getTitle(3), "Aralık dolmadan yeniden yüklenmemeli");
+        assertEquals(1, movieLoads, "Her okuma tam tarama yapmamalı");
+        pool.close();
+
+        catalog = catalog(UNVERSIONED_URL, 0);
+        assertEquals("Coco", catalog.getTitle(3), "Aralık dolunca yeni film görünmeli");
+        assertEquals("Coco", catalog.getTitle(3));
+        assertEquals(3, movieLoads);
+        execute("DELETE FROM Movie WHERE id = 3");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Yeniden yükleme sürerken okumalar eski kopyadan sürmeli")
+    void testReadersServeOldSnapshotDuringReload() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool = new ConnectionPool(URL, "sa", "", 2);
+        MovieDAO slowDAO = new MovieDAO(pool) {
+            @Override
+            public List<Movie> findAll() {
+                if (++movieLoads > 1) {
+                    loading.countDown();
+                    try {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.findAll();
+            }
+        };
+        MovieCatalog catalog = new MovieCatalog(slowDAO, new GenreDAO(pool), new HasGenreDAO(pool), 0);
+        assertEquals("Up", catalog.getTitle(1));
+
+        execute("UPDATE Movie SET title = 'Up!' WHERE id = 1");
+        execute("UPDATE catalog_version SET version = version + 1");
+        Thread reloader = Thread.ofVirtual().start(() -> catalog.getTitle(1));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        assertEquals("Up", catalog.getTitle(1), "Yükleme sürerken eski kopya okunmalı");
+
+        release.countDown();
+        reloader.join(5_000);
+        assertEquals("Up!", catalog.getTitle(1));
+        execute("UPDATE Movie SET title = 'Up' WHERE id = 1");
+        execute("UPDATE catalog_version SET version = 0");
+    }
+}
@@ -0,0 +1,341 @@
+package test;
+
+import movienightgui.Database;
+import movienightgui.RemoteDatabase;
+import dao.LobbyDAO.VoteResult;
+import dao.UserDAO.HomeSnapshot;
+import events.LobbyEvent;
+import events.LobbyEventChannel;
+import search.TitleIndex;
+import server.MovieNightServer;
+import server.WireFormat;
+import utils.ConnectionPool;
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MovieNightServer ve RemoteDatabase için localhost üzerinde H2 ile testler
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class MovieNightServerTest {
+
+    private static final String URL = "jdbc:h2:mem:servertest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private Database database;
+    private MovieNightServer server;
+    private RemoteDatabase remote;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE SEQUENCE user_id_seq START WITH 1 INCREMENT BY 1;
+                CREATE SEQUENCE lobby_id_seq START WITH 1 INCREMENT BY 1;
+                CREATE TABLE "User"(
+                    id INT DEFAULT nextval('user_id_seq') PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+                CREATE VIEW user_identifiers AS SELECT id, username FROM "User";
+                CREATE TABLE Movie(
+                    id SERIAL PRIMARY KEY,
+                    title VARCHAR(100),
+                    description TEXT,
+                    trailerPath VARCHAR(200)
+                );
+                CREATE TABLE Genre (
+                    id SERIAL PRIMARY KEY,
+                    name VARCHAR(255)
+                );
+                CREATE TABLE HasGenre (
+                    movie_id INTEGER REFERENCES Movie(id),
+                    genre_id INTEGER REFERENCES Genre(id),
+                    PRIMARY KEY (movie_id, genre_id)
+                );
+                CREATE TABLE Lobby(
+                    id SERIAL PRIMARY KEY,
+                    owner_id INTEGER REFERENCES "User"(id),
+                    is_ready BOOLEAN DEFAULT FALSE,
+                    date DATE
+                );
+                CREATE TABLE InLobby (
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    user_id INTEGER REFERENCES "User"(id),
+                    PRIMARY KEY (lobby_id, user_id)
+                );
+                CREATE TABLE Invitation (
+                    sender_id INTEGER REFERENCES "User"(id),
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    receiver_id INTEGER REFERENCES "User"(id),
+                    PRIMARY KEY (sender_id, receiver_id, lobby_id)
+                );
+                CREATE TABLE Suggestion(
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    suggested_by INTEGER REFERENCES "User"(id),
+                    movie_id INTEGER REFERENCES Movie(id),
+                    PRIMARY KEY (lobby_id, movie_id)
+                );
+                CREATE TABLE Vote(
+                    lobby_id INTEGER REFERENCES Lobby(id),
+                    user_id INTEGER REFERENCES "User"(id),
+                    movie_id INTEGER REFERENCES Movie(id),
+                    PRIMARY KEY (lobby_id, user_id, movie_id)
+                );
+                CREATE VIEW vote_tally AS
+                    SELECT lobby_id, movie_id, COUNT(*) AS vote_count FROM Vote GROUP BY lobby_id, movie_id;
+                CREATE ALIAS IF NOT EXISTS get_user_by_credentials AS $$
+                import java.sql.*;
+                @CODE
+                ResultSet getUserByCredentials(Connection conn, String username, String password) throws SQLException {
+                    PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT * FROM \\"User\\" WHERE username = ? AND password = ?"
+                    );
+                    stmt.setString(1, username);
+                    stmt.setString(2, password);
+                    return stmt.executeQuery();
+                }
+                $$;
+                INSERT INTO Movie (id, title, description, trailerPath) VALUES
+                    (1, 'Inception', 'Rüya içinde rüya', ''),
+                    (2, 'Interstellar', 'Uzay yolculuğu', '');
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        pool = new ConnectionPool(URL, "sa", "", 2);
+        database = new Database(pool, null, true);
+        server = new MovieNightServer(database,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        remote = new RemoteDatabase(server.getUri());
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        server.close();
+        database.close();
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM Vote");
+            stmt.execute("DELETE FROM Suggestion");
+            stmt.execute("DELETE FROM Invitation");
+            stmt.execute("DELETE FROM InLobby");
+            stmt.execute("DELETE FROM Lobby");
+            stmt.execute("DELETE FROM \"User\"");
+        }
+        pool.close();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Kayıt ve giriş sunucu üzerinden çalışmalı")
+    void testUserCallsOverServer() {
+        assertEquals(0, remote.addUser("ali", "sifre", 25), "Kayıt başarılı olmalı");
+        assertEquals(2, remote.addUser("ali", "sifre", 25), "Aynı kullanıcı adı reddedilmeli");
+
+        assertTrue(remote.validateLogin("ali", "sifre"));
+        assertFalse(remote.validateLogin("ali", "yanlis"));
+        assertTrue(remote.isUsernameExists("ali"));
+        assertEquals(List.of("ali"), remote.getUsers());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Lobi, öneri ve oy akışı sunucu üzerinden çalışmalı")
+    void testLobbyFlowOverServer() {
+        remote.addUser("sahip", "pass", 30);
+        remote.addUser("misafir", "pass", 30);
+        assertTrue(remote.validateLogin("sahip", "pass"));
+        RemoteDatabase guest = new RemoteDatabase(server.getUri());
+        assertTrue(guest.validateLogin("misafir", "pass"));
+        remote.createLobby("sahip");
+        remote.addUserToLobby("sahip", "sahip");
+        guest.addUserToLobby("sahip", "misafir");
+        guest.suggestMovie("sahip", "misafir", 2);
+        guest.voteMovie("misafir", "sahip", 2);
+
+        ArrayList<String> users = remote.getUsersAtLobby("sahip");
+        assertEquals(2, users.size());
+        assertTrue(users.contains("misafir"));
+        assertEquals("sahip", remote.getBelongingLobbyOwner("misafir"));
+        HomeSnapshot home = guest.getHomeSnapshot("misafir");
+        assertEquals("sahip", home.lobbyOwner);
+        assertTrue(home.invitationsFrom.isEmpty());
+        assertEquals(List.of("sahip", "misafir"), remote.getHomeSnapshot("sahip").lobbyMembers);
+        assertEquals(List.of(2), remote.getSuggestedMovieIds("sahip"));
+        assertEquals(Integer.valueOf(1), remote.getVotes2("sahip").get(2));
+
+        VoteResult[] winners = remote.getWinnerMovies("sahip");
+        assertEquals(1, winners.length);
+        assertEquals(2, winners[0].movieID);
+        assertEquals("Interstellar", winners[0].movieTitle);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Başlık dizini istemcide kurulmalı")
+    void testTitleIndexOverServer() {
+        TitleIndex index = remote.getTitleIndex();
+
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[] { 2 }, index.search("stell"));
+        assertEquals("Inception", index.getTitle(1));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Lobi olayları uzun yoklama ile gelmeli")
+    void testLobbyEventsLongPoll() throws InterruptedException {
+        remote.addUser("sahip", "pass", 30);
+        assertTrue(remote.validateLogin("sahip", "pass"));
+        remote.createLobby("sahip");
+        BlockingQueue<LobbyEvent> received = new LinkedBlockingQueue<>();
+
+        try (LobbyEventChannel.Subscription subscription = remote.subscribeToLobby("sahip", received::add)) {
+            assertNotNull(subscription);
+            // A second client writes; the first one hears about it without asking.
+            RemoteDatabase other = new RemoteDatabase(server.getUri());
+            assertTrue(other.validateLogin("sahip", "pass"));
+            other.suggestMovie("sahip", "sahip", 1);
+
+            LobbyEvent event = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event, "Olay uzun yoklama ile iletilmeli");
+        }
+    }
+
+    // Status byte of a raw request, for operations RemoteDatabase does not send.
+    private byte rawStatus(String key, Object... args) throws IOException, InterruptedException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        WireFormat.writeString(out, key);
+        out.writeInt(args.length);
+        for (Object arg : args) {
+            WireFormat.write(out, arg);
+        }
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(server.getUri()).POST(HttpRequest.BodyPublishers.ofByteArray(buffer.toByteArray())).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        return response.body()[0];
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Hesap işlemleri şifre istemeli, kimlik dökümü sunulmamalı")
+    void testAccountOperationsNeedPassword() throws IOException, InterruptedException {
+        remote.addUser("veli", "eski", 30);
+        assertFalse(remote.changePassword("veli", "yanlis", "yeni"), "Yanlış şifreyle değiştirilmemeli");
+        assertTrue(remote.changePassword("veli", "eski", "yeni"));
+        assertTrue(remote.validateLogin("veli", "yeni"));
+
+        assertNotEquals(0, rawStatus("updatePassword(String,String)", "veli", "ele-gecirildi"), "Şifresiz değişiklik sunulmamalı");
+        assertNotEquals(0, rawStatus("getUsersAndPasswords()"), "Kimlik dökümü sunulmamalı");
+        assertNotEquals(0, rawStatus("deleteUser(String)", "veli"), "Şifresiz silme sunulmamalı");
+        assertTrue(remote.validateLogin("veli", "yeni"));
+
+        assertFalse(remote.deleteAccount("veli", "eski"), "Yanlış şifreyle silinmemeli");
+        assertTrue(remote.deleteAccount("veli", "yeni"));
+        assertFalse(remote.isUsernameExists("veli"));
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Test 6: Sahibin yeni lobisinin olayları da gelmeli")
+    void testLobbyEventsAfterLobbyRecreated() throws InterruptedException {
+        remote.addUser("sahip", "pass", 30);
+        assertTrue(remote.validateLogin("sahip", "pass"));
+        remote.createLobby("sahip");
+        remote.addUserToLobby("sahip", "sahip");
+        int firstLobbyId = database.getLobbyId("sahip");
+        BlockingQueue<LobbyEvent> stale = new LinkedBlockingQueue<>();
+        BlockingQueue<LobbyEvent> received = new LinkedBlockingQueue<>();
+
+        // A client still following the old lobby keeps its feed alive.
+        try (LobbyEventChannel.Subscription old = remote.subscribeToLobby("sahip", stale::add)) {
+            assertNotNull(old);
+            // The last member leaves, which deletes the lobby; the owner makes a new one at once.
+            remote.removeUserFromLobby("sahip", "sahip");
+            remote.createLobby("sahip");
+            remote.addUserToLobby("sahip", "sahip");
+            int secondLobbyId = database.getLobbyId("sahip");
+            assertNotEquals(firstLobbyId, secondLobbyId, "Yeni lobi yeni id almalı");
+
+            try (LobbyEventChannel.Subscription subscription = remote.subscribeToLobby("sahip", received::add)) {
+                assertNotNull(subscription);
+                RemoteDatabase other = new RemoteDatabase(server.getUri());
+                assertTrue(other.validateLogin("sahip", "pass"));
+                other.suggestMovie("sahip", "sahip", 1);
+
+                LobbyEvent event = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(event, "Yeni lobinin olayı iletilmeli");
+                assertEquals(secondLobbyId, event.getLobbyId());
+            }
+        }
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Test 7: Oturum olmadan ya da başkası adına çağrılar reddedilmeli")
+    void testCallsNeedMatchingSession() throws IOException {
+        remote.addUser("sahip", "pass", 30);
+        remote.addUser("misafir", "pass", 30);
+        remote.addUser("yabanci", "pass", 30);
+        assertThrows(RemoteDatabase.RemoteException.class, () -> remote.createLobby("sahip"), "Oturumsuz çağrı reddedilmeli");
+        assertFalse(remote.validateLogin("sahip", "yanlis"));
+        assertThrows(RemoteDatabase.RemoteException.class, () -> remote.getUsersAtLobby("sahip"), "Yanlış şifre oturum açmamalı");
+
+        assertTrue(remote.validateLogin("sahip", "pass"));
+        remote.createLobby("sahip");
+        remote.addUserToLobby("sahip", "sahip");
+        assertThrows(RemoteDatabase.RemoteException.class, () -> remote.addUserToLobby("sahip", "misafir"),
+                "Başkasını lobiye ekleyememeli");
+        assertThrows(RemoteDatabase.RemoteException.class, () -> remote.voteMovie("misafir", "sahip", 1),
+                "Başkası adına oy verememeli");
+
+        RemoteDatabase guest = new RemoteDatabase(server.getUri());
+        assertTrue(guest.validateLogin("misafir", "pass"));
+        guest.addUserToLobby("sahip", "misafir");
+        remote.suggestMovie("sahip", "sahip", 1);
+        guest.removeSuggestion("sahip", 1);
+        assertTrue(remote.getSuggestedMovieIds("sahip").isEmpty(), "Lobi üyesi öneri kaldırabilmeli");
+
+        RemoteDatabase stranger = new RemoteDatabase(server.getUri());
+        assertTrue(stranger.validateLogin("yabanci", "pass"));
+        assertThrows(RemoteDatabase.RemoteException.class, () -> stranger.setLobbyReady("sahip"),
+                "Lobi dışından değişiklik yapılamamalı");
+        assertThrows(RemoteDatabase.RemoteException.class, () -> stranger.removeUserFromLobby("sahip", "misafir"),
+                "Başkasını lobiden çıkaramamalı");
+        assertEquals(2, remote.getUsersAtLobby("sahip").size());
+
+        // An int array claiming more elements than the body holds is refused before allocation.
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(5); // int array tag
+        out.writeInt(1 << 21);
+        IOException e = assertThrows(IOException.class,
+                () -> WireFormat.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()))));
+        assertTrue(e.getMessage().startsWith("Bad length"), e.getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package test;
+
+import movienightgui.AsyncDatabase;
+import movienightgui.PagedListModel;
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PagedListModel için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PagedListModelTest {
+
+    private AsyncDatabase db;
+
+    @BeforeEach
+    void setup() {
+        // The loaders below never touch the database.
+        db = new AsyncDatabase(null, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @AfterEach
+    void cleanup() {
+        db.close();
+    }
+
+    private PagedListModel<String> model(String prefix) {
+        return new PagedListModel<>(db, (d, afterKey, limit) -> {
+            Map<Integer, String> page = new LinkedHashMap<>();
+            for (int key = Math.max(afterKey, 0) + 1; key <= 5 && page.size() < limit; key++) {
+                page.put(key, prefix + key);
+            }
+            return page;
+        }, 10);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Yeni model eski modelin dinleyicisini kaldırmalı")
+    void testReplacedModelDetached() throws Exception {
+        JList<String> list = new JList<>();
+        JViewport viewport = new JScrollPane(list).getViewport();
+        int listeners = viewport.getChangeListeners().length;
+
+        List<PagedListModel<String>> models = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 3; i++) {
+                models.add(model("m" + i + "-"));
+                models.get(i).attachTo(list);
+            }
+        });
+        PagedListModel<String> last = models.get(2);
+        assertEquals(listeners + 1, viewport.getChangeListeners().length, "Liste başına tek dinleyici kalmalı");
+        assertSame(last, list.getModel());
+
+        // Let the first page arrive on the EDT.
+        for (int i = 0; i < 100 && !last.isExhausted(); i++) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> { });
+        }
+        assertTrue(last.isExhausted());
+        assertEquals(5, last.getSize());
+        assertEquals("m2-1", last.getElementAt(0));
+
+        SwingUtilities.invokeAndWait(last::detach);
+        assertEquals(listeners, viewport.getChangeListeners().length);
+    }
+}
@@ -0,0 +1,151 @@
+package test;
+
+import dao.UserDAO;
+import models.User;
+import utils.ConnectionPool;
+import utils.InstrumentedConnectionProvider;
+import utils.LatencyHistogram;
+import utils.QueryMetrics;
+import org.junit.jupiter.api.*;
+import java.lang.management.ManagementFactory;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryMetrics ve InstrumentedConnectionProvider için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class QueryMetricsTest {
+
+    private static final String URL = "jdbc:h2:mem:querymetricstest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private QueryMetrics metrics;
+    private UserDAO userDAO;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE "User"(
+                    id INT PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 4);
+        metrics = new QueryMetrics();
+        userDAO = new UserDAO(new InstrumentedConnectionProvider(pool, metrics));
+        List<User> users = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            users.add(new User(id, "Ad" + id, "Soyad" + id, "user" + id, "pass" + id, null));
+        }
+        userDAO.createUsersWithID(users);
+        metrics.reset();
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM \"User\"");
+        }
+        pool.close();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Histogram yüzdelikleri %3 içinde olmalı")
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax(), "En büyük değer tam olmalı");
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.03, "p50: " + p50);
+        assertTrue(p99 >= 9_900_000 && p99 <= 9_900_000 * 1.03, "p99: " + p99);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Sorgular şablon bazında sayılmalı")
+    void testStatementsPerTemplate() {
+        for (int id = 1; id <= 5; id++) {
+            assertNotNull(userDAO.findById(id));
+        }
+        assertEquals(3, userDAO.findByIds(new int[] { 1, 2, 3 }).size());
+        assertEquals(5, userDAO.findByIds(new int[] { 4, 5, 6, 7, 8 }).size());
+
+        LatencyHistogram findById = metrics.getStatementLatency("SELECT * FROM \"User\" WHERE id = ?");
+        assertNotNull(findById);
+        assertEquals(5, findById.getCount());
+        LatencyHistogram findByIds = metrics.getStatementLatency("SELECT * FROM \"User\" WHERE id IN (?, ?)");
+        assertNotNull(findByIds, "IN listeleri tek şablonda toplanmalı");
+        assertEquals(2, findByIds.getCount());
+
+        assertEquals(7, metrics.getStatementCount());
+        assertEquals(5 + 3 + 5, metrics.getRowCount(), "Dönen satırlar sayılmalı");
+        assertEquals(7, metrics.getConnectionWaitCount(), "Her bağlantı alımı ölçülmeli");
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Yavaş sorgular ve hatalar kaydedilmeli")
+    void testSlowQueryLogAndErrors() {
+        metrics.setSlowQueryThresholdMillis(0);
+        assertTrue(userDAO.delete("DELETE FROM \"User\" WHERE id > ?", 15));
+        assertFalse(userDAO.update("UPDATE Missing SET x = 1"));
+
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(2, metrics.getSlowQueryCount());
+        String[] slow = metrics.getSlowQueries();
+        assertEquals(2, slow.length);
+        assertTrue(slow[0].contains("5 rows: DELETE FROM \"User\" WHERE id > ?"), slow[0]);
+        assertTrue(slow[1].contains("UPDATE Missing SET x = ?"), "Sabitler şablonda gizlenmeli: " + slow[1]);
+
+        metrics.setSlowQueryThresholdMillis(60_000);
+        userDAO.findById(1);
+        assertEquals(2, metrics.getSlowQueryCount(), "Eşiğin altındaki sorgu kaydedilmemeli");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Metrikler JMX ve metin dökümü ile okunabilmeli")
+    void testJmxAndDump() throws Exception {
+        userDAO.findById(1);
+        metrics.recordOperation("getSuggestionTitles(String)", 2_000_000, false);
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("SELECT * FROM \"User\" WHERE id = ?"), dump);
+        assertTrue(dump.contains("getSuggestionTitles(String)"), dump);
+        assertTrue(dump.contains("Connection wait: count 1"), dump);
+
+        metrics.register("test");
+        try {
+            ObjectName name = new ObjectName("movienight:type=QueryMetrics,name=\"test\"");
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "StatementCount"));
+            String[] operations = (String[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Operations");
+            assertEquals(1, operations.length);
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package test;
+
+import dao.UserDAO;
+import utils.ConnectionPool;
+import utils.DatabaseInitializer;
+import utils.Migration;
+import utils.SchemaMigrator;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SchemaMigrator ve şema göçleri için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SchemaMigratorTest {
+
+    private static final String URL = "jdbc:h2:mem:schemamigratortest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE "User"(id INT PRIMARY KEY, username VARCHAR(50) UNIQUE, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP);
+                CREATE TABLE Movie(id INT PRIMARY KEY, title VARCHAR(100));
+                CREATE TABLE Genre(id INT PRIMARY KEY, name VARCHAR(255));
+                CREATE TABLE HasGenre(movie_id INT, genre_id INT, PRIMARY KEY (movie_id, genre_id));
+                CREATE TABLE Lobby(id INT PRIMARY KEY, owner_id INT);
+                CREATE TABLE InLobby(lobby_id INT, user_id INT, PRIMARY KEY (lobby_id, user_id));
+                CREATE TABLE Invitation(sender_id INT, lobby_id INT, receiver_id INT,
+                    PRIMARY KEY (sender_id, receiver_id, lobby_id));
+                CREATE TABLE Vote(lobby_id INT, user_id INT, movie_id INT, PRIMARY KEY (lobby_id, user_id, movie_id));
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 2);
+    }
+
+    @AfterEach
+    void cleanup() {
+        pool.close();
+    }
+
+    private String plan(String query) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + query)) {
+            rs.next();
+            return rs.getString(1).toUpperCase();
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Göçler bir kez uygulanmalı ve aramalar indeks kullanmalı")
+    void testMigrateOnce() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(pool, DatabaseInitializer.MIGRATIONS);
+        assertEquals(1, migrator.migrate(), "H2'de yalnızca taşınabilir göç çalışmalı");
+        assertEquals(0, migrator.migrate(), "Uygulanmış göç tekrar çalışmamalı");
+        assertEquals(0, new SchemaMigrator(pool, DatabaseInitializer.MIGRATIONS).migrate());
+
+        Map<Integer, String> applied = migrator.findApplied();
+        assertEquals(1, applied.size());
+        assertEquals(DatabaseInitializer.MIGRATIONS.get(1).getChecksum(), applied.get(2));
+
+        assertTrue(plan("SELECT * FROM InLobby WHERE user_id = 1").contains("INLOBBY_USER_ID_IDX"));
+        assertTrue(plan("SELECT * FROM Invitation WHERE receiver_id = 1").contains("INVITATION_RECEIVER_ID_IDX"));
+        assertTrue(plan("SELECT * FROM Genre WHERE name = 'drama'").contains("GENRE_NAME_IDX"));
+        assertTrue(plan("SELECT movie_id, COUNT(*) FROM Vote WHERE lobby_id = 1 AND movie_id = 2 GROUP BY movie_id")
+                .contains("VOTE_LOBBY_MOVIE_IDX"));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Yeni göçler sırayla eklenmeli, değişmiş göç reddedilmeli")
+    void testNewAndChangedMigrations() throws SQLException {
+        Migration added = new Migration(3, "Test column", "ALTER TABLE Genre ADD COLUMN IF NOT EXISTS color VARCHAR(20)");
+        List<Migration> migrations = List.of(added, DatabaseInitializer.MIGRATIONS.get(0), DatabaseInitializer.MIGRATIONS.get(1));
+        assertEquals(1, new SchemaMigrator(pool, migrations).migrate());
+        assertEquals(added.getChecksum(), new SchemaMigrator(pool, migrations).findApplied().get(3));
+
+        Migration changed = new Migration(3, "Test column", "ALTER TABLE Genre ADD COLUMN IF NOT EXISTS color VARCHAR(40)");
+        assertThrows(SQLException.class, () -> new SchemaMigrator(pool, List.of(changed)).migrate());
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(pool, List.of(added, changed)));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Başarısız göç kaydedilmemeli")
+    void testFailedMigrationNotRecorded() throws SQLException {
+        Migration broken = new Migration(4, "Broken", "INSERT INTO missing_table VALUES (1)");
+        SchemaMigrator migrator = new SchemaMigrator(pool, List.of(broken));
+        assertThrows(SQLException.class, migrator::migrate);
+        assertFalse(migrator.findApplied().containsKey(4), "Başarısız göç kaydedilmemeli");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Ana ekran sorgusu yalnızca indeks aramaları yapmalı")
+    void testHomeSnapshotPlan() throws SQLException {
+        String homePlan;
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + UserDAO.HOME_SNAPSHOT_QUERY)) {
+            for (int i = 1; i <= 4; i++) {
+                stmt.setString(i, "ali");
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                homePlan = rs.getString(1).toUpperCase();
+            }
+        }
+        assertTrue(homePlan.contains("INVITATION_RECEIVER_ID_IDX"), homePlan);
+        assertTrue(homePlan.contains("INLOBBY_USER_ID_IDX"), homePlan);
+        assertTrue(homePlan.contains("LOBBY_OWNER_ID_IDX"), homePlan);
+        assertFalse(homePlan.contains("TABLESCAN"), "Hiçbir tablo baştan sona okunmamalı: " + homePlan);
+    }
+}
@@ -27,6 +27,7 @@ class SystemTests {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute("""
                 CREATE SEQUENCE user_id_seq START WITH 1 INCREMENT BY 1;
+                CREATE SEQUENCE lobby_id_seq START WITH 1 INCREMENT BY 1;
                 CREATE TABLE "User"(
                     id INT DEFAULT nextval('user_id_seq') PRIMARY KEY,
                     fname VARCHAR(50),
@@ -104,22 +105,9 @@ class SystemTests {
                 }
                 $$;
                 
-                CREATE ALIAS IF NOT EXISTS get_winning_movies_by_votes AS $$
-                import java.sql.*;
-                import java.util.*;
-                @CODE
-                ResultSet getWinningMoviesByVotes(Connection conn, Integer lobbyId) throws SQLException {
-                    String query = "SELECT m.id as movie_id, m.title as movie_title, COUNT(v.movie_id) as vote_count " +
-                                   "FROM Movie m " +
-                                   "INNER JOIN Vote v ON m.id = v.movie_id " +
-                                   "WHERE v.lobby_id = ? " +
-                                   "GROUP BY m.id, m.title " +
-                                   "ORDER BY vote_count DESC";
-                    PreparedStatement stmt = conn.prepareStatement(query);
-                    stmt.setInt(1, lobbyId);
-                    return stmt.executeQuery();
-                }
-                $$;
+                -- PostgreSQL keeps vote_tally up to date with triggers; a view gives the same rows.
+                CREATE VIEW vote_tally AS
+                    SELECT lobby_id, movie_id, COUNT(*) AS vote_count FROM Vote GROUP BY lobby_id, movie_id;
             """);
         }
     }
@@ -0,0 +1,66 @@
+package test;
+
+import search.TitleIndex;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TitleIndex için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TitleIndexTest {
+
+    private TitleIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = TitleIndex.build(
+                new int[] {7, 3, 5, 1},
+                new String[] {"The Matrix", "Amélie", "Matrix Reloaded", "Inception"});
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Boş sorgu tüm filmleri id sırasıyla döndürmeli")
+    void testBlankQueryReturnsAll() {
+        assertArrayEquals(new int[] {1, 3, 5, 7}, index.search(""));
+        assertArrayEquals(new int[] {1, 3, 5, 7}, index.search("   ".trim()));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Kısa sorgular büyük/küçük harf duyarsız eşleşmeli")
+    void testShortQueriesAreCaseInsensitive() {
+        assertArrayEquals(new int[] {5, 7}, index.search("MA"));
+        assertArrayEquals(new int[] {1, 3, 5, 7}, index.search("e"));
+        assertArrayEquals(new int[0], index.search("zz"));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Uzun sorgular alt dize olarak eşleşmeli")
+    void testLongQueriesMatchSubstrings() {
+        assertArrayEquals(new int[] {5, 7}, index.search("matrix"));
+        assertArrayEquals(new int[] {5}, index.search("x relo"));
+        assertArrayEquals(new int[] {1}, index.search("ception"));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Trigramları bulunan ama bitişik olmayan başlıklar elenmeli")
+    void testTrigramsMustBeAdjacent() {
+        // "matrix" and "reloaded" both occur in id 5, but never as "matrixloaded".
+        assertArrayEquals(new int[0], index.search("matrixloaded"));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Aksanlar göz ardı edilmeli")
+    void testAccentsAreIgnored() {
+        assertArrayEquals(new int[] {3}, index.search("amelie"));
+        assertArrayEquals(new int[] {3}, index.search("AMÉLIE"));
+        assertEquals("Amélie", index.getTitle(3));
+        assertNull(index.getTitle(42));
+    }
+}
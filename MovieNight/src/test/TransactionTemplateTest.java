@@ -0,0 +1,119 @@
+package test;
+
+import models.User;
+import dao.UserDAO;
+import utils.ConnectionPool;
+import utils.TransactionTemplate;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TransactionTemplate için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TransactionTemplateTest {
+
+    private static final String URL = "jdbc:h2:mem:txtest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private TransactionTemplate transactions;
+    private UserDAO userDAO;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE "User"(
+                    id INT PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 2, 200, 60_000, 60_000);
+        transactions = new TransactionTemplate(pool);
+        userDAO = new UserDAO(transactions);
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM \"User\"");
+        }
+        pool.close();
+    }
+
+    private static User user(int id, String username) {
+        return new User(id, "", "", username, "pass", null);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: İşlem içindeki DAO çağrıları tek bağlantıyı paylaşmalı")
+    void testDaosShareOneConnection() throws SQLException {
+        transactions.execute(() -> {
+            assertTrue(userDAO.createUserWithID(user(1, "ali")));
+            assertTrue(userDAO.createUserWithID(user(2, "veli")));
+            assertEquals(1, pool.getAvailablePermits(), "İşlem boyunca tek bağlantı kullanılmalı");
+            assertTrue(transactions.isInTransaction());
+            return null;
+        });
+
+        assertFalse(transactions.isInTransaction());
+        assertEquals(2, pool.getAvailablePermits(), "Bağlantı havuza geri dönmeli");
+        assertEquals(2, userDAO.findAll().size(), "İki kullanıcı commit edilmeli");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Başarısız bir ifade tüm işlemi geri almalı")
+    void testFailedStatementRollsBackUnit() throws SQLException {
+        assertFalse(transactions.run(() -> {
+            userDAO.createUserWithID(user(1, "ali"));
+            userDAO.createUserWithID(user(1, "ayni-id")); // primary key violation, logged by the DAO
+        }));
+
+        assertNull(userDAO.findByUsername("ali"), "İlk kayıt da geri alınmalı");
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.getAutoCommit(), "Bağlantı autocommit modunda dönmeli");
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: İç içe işlemler dıştaki işleme katılmalı")
+    void testNestedUnitJoinsOuter() {
+        assertThrows(IllegalStateException.class, () -> transactions.execute(() -> {
+            transactions.run(() -> userDAO.createUserWithID(user(1, "ali")));
+            assertNotNull(userDAO.findByUsername("ali"), "İşlem içinde kayıt görünmeli");
+            throw new IllegalStateException("vazgeç");
+        }));
+
+        assertNull(userDAO.findByUsername("ali"), "İç işlem ayrıca commit edilmemeli");
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Toplu ekleme işlemin sonunda bir kez commit edilmeli")
+    void testBatchJoinsUnit() {
+        userDAO.setBatchSize(1);
+
+        assertFalse(transactions.run(() -> {
+            userDAO.createUsersWithID(List.of(user(1, "ali"), user(2, "veli")));
+            userDAO.createUserWithID(user(2, "tekrar"));
+        }));
+
+        assertEquals(0, userDAO.findAll().size(), "Parça commitleri işleme katılmalı");
+    }
+}
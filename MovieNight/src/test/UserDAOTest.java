@@ -7,6 +7,8 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -292,4 +294,77 @@ class UserDAOTest {
             userDAO.createUser(null);
         }, "Null kullanıcı ile exception fırlatılmalı");
     }
-}
\ No newline at end of file
+    
+    // Toplu ekleme: her parça ayrı bir işlem olarak yazılmalı
+    @Test
+    @Order(16)
+    @DisplayName("Test 16: Toplu ekleme parçalar halinde işlenmeli")
+    void testCreateUsersWithIDInChunks() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            users.add(new User(i, "Ad" + i, "Soyad" + i, "toplu" + i, "pass", null));
+        }
+        userDAO.setBatchSize(10);
+        
+        assertEquals(25, userDAO.createUsersWithID(users), "25 kullanıcı eklenmeli");
+        assertEquals(25, userDAO.findAll().size(), "25 kullanıcı olmalı");
+        
+        // Second chunk holds a duplicate username: the first chunk stays, the rest is rolled back
+        List<User> more = new ArrayList<>();
+        for (int i = 26; i <= 45; i++) {
+            more.add(new User(i, "Ad" + i, "Soyad" + i, i == 38 ? "toplu1" : "toplu" + i, "pass", null));
+        }
+        assertEquals(10, userDAO.createUsersWithID(more), "Yalnızca ilk parça eklenmeli");
+        assertEquals(35, userDAO.findAll().size(), "35 kullanıcı olmalı");
+    }
+    
+    // Sayfalama: anahtar (id) imleciyle sayfa sayfa okunmalı
+    @Test
+    @Order(17)
+    @DisplayName("Test 17: Kullanıcılar sayfa sayfa ve akış halinde okunabilmeli")
+    void testFindPageAndStream() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            users.add(new User(i * 10, "Ad" + i, "Soyad" + i, i % 2 == 0 ? "cift" + i : "tek_" + i, "pass", null));
+        }
+        userDAO.createUsersWithID(users);
+        
+        List<User> firstPage = userDAO.findPage(UserDAO.BEFORE_FIRST_ID, 3);
+        assertEquals(3, firstPage.size(), "İlk sayfa 3 kullanıcı içermeli");
+        assertEquals(10, firstPage.get(0).getId());
+        List<User> lastPage = userDAO.findPage(60, 3);
+        assertEquals(1, lastPage.size(), "Son sayfada 1 kullanıcı kalmalı");
+        assertEquals(70, lastPage.get(0).getId());
+        
+        var filtered = userDAO.findIdentifierPage(UserDAO.BEFORE_FIRST_ID, 10, "_");
+        assertEquals(4, filtered.size(), "Alt çizgi joker olarak değil harf olarak aranmalı");
+        assertEquals(List.of(10, 30), new ArrayList<>(userDAO.findIdentifierPage(UserDAO.BEFORE_FIRST_ID, 2, "tek").keySet()));
+        
+        userDAO.setFetchSize(2);
+        List<String> streamed = new ArrayList<>();
+        assertTrue(userDAO.stream(user -> streamed.add(user.getUsername())), "Akış başarılı olmalı");
+        assertEquals(7, streamed.size(), "Tüm kullanıcılar akıştan gelmeli");
+    }
+    
+    // Çoklu okuma: tek sorguda birden çok kullanıcı getirilmeli
+    @Test
+    @Order(18)
+    @DisplayName("Test 18: Birden çok kullanıcı id listesiyle tek seferde okunabilmeli")
+    void testFindByIds() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            users.add(new User(i, "Ad" + i, "Soyad" + i, "kullanici" + i, "pass", null));
+        }
+        userDAO.createUsersWithID(users);
+        
+        var found = userDAO.findByIds(new int[] {1, 3, 5, 99, 3});
+        assertEquals(3, found.size(), "Var olan 3 kullanıcı dönmeli");
+        assertEquals("kullanici3", found.get(3).getUsername());
+        assertNull(found.get(99), "Olmayan id dönmemeli");
+        
+        var usernames = userDAO.findUsernamesByIds(new int[] {2, 4, 5});
+        assertEquals(3, usernames.size());
+        assertEquals("kullanici4", usernames.get(4));
+        assertEquals(0, userDAO.findByIds(new int[0]).size(), "Boş liste sorgu gerektirmemeli");
+    }
+}
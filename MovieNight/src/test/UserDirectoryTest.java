@@ -0,0 +1,182 @@
+package test;
+
+import dao.AbstractDAO;
+import dao.UserDAO;
+import dao.UserDirectory;
+import models.User;
+import search.UsernameIndex;
+import utils.ConnectionPool;
+import utils.IdAllocator;
+import utils.IntObjectMap;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UsernameIndex ve UserDirectory için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserDirectoryTest {
+
+    private static final String URL = "jdbc:h2:mem:userdirectorytest;DB_CLOSE_DELAY=-1";
+    private static final String[] NAMES = { "ali", "Alice", "alper", "Bob", "aliye", "berk", "ALI_", "al%" };
+    private ConnectionPool pool;
+    private UserDAO userDAO;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE SEQUENCE user_id_seq START WITH 1000 INCREMENT BY 1;
+                CREATE TABLE "User"(
+                    id INT PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+                CREATE VIEW user_identifiers AS SELECT id, username FROM "User";
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 4);
+        userDAO = new UserDAO(pool);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            users.add(new User(i + 1, "", "", NAMES[i], "pass", null));
+        }
+        userDAO.createUsersWithID(users);
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM \"User\"");
+        }
+        pool.close();
+    }
+
+    private static List<String> names(Map<Integer, String> page) {
+        return new ArrayList<>(page.values());
+    }
+
+    private static UsernameIndex index() {
+        int[] ids = new int[NAMES.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        return new UsernameIndex(ids, NAMES);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Önek araması büyük/küçük harf duyarsız ve isim sıralı olmalı")
+    void testPrefixSearch() {
+        UsernameIndex index = index();
+        assertEquals(List.of("al%", "ali", "ALI_", "Alice", "aliye", "alper"),
+                names(index.page("AL", AbstractDAO.BEFORE_FIRST_ID, 10)));
+        assertEquals(List.of("ali", "ALI_", "Alice", "aliye"), names(index.page("ali", AbstractDAO.BEFORE_FIRST_ID, 10)));
+        assertEquals(4, index.count("ali"));
+        assertEquals(NAMES.length, index.count(""));
+        assertTrue(index.page("z", AbstractDAO.BEFORE_FIRST_ID, 10).isEmpty());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Sayfalar son gösterilen kullanıcıdan devam etmeli")
+    void testKeysetPages() {
+        UsernameIndex index = index();
+        Map<Integer, String> first = index.page("a", AbstractDAO.BEFORE_FIRST_ID, 2);
+        assertEquals(List.of("al%", "ali"), names(first));
+        int lastId = new ArrayList<>(first.keySet()).get(1);
+        assertEquals(List.of("ALI_", "Alice"), names(index.page("a", lastId, 2)));
+
+        index.add(20, "alfa");      // before the cursor
+        index.remove(7);            // ALI_
+        assertEquals(List.of("Alice", "aliye"), names(index.page("a", lastId, 2)), "Güncellemeler sayfalara yansımalı");
+        assertEquals("alfa", index.getUsername(20));
+        index.add(20, "zeynep");    // renamed
+        assertEquals(List.of("zeynep"), names(index.page("Z", AbstractDAO.BEFORE_FIRST_ID, 10)));
+        assertFalse(index.remove(7));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Veritabanı ve bellek yolu aynı sonucu vermeli")
+    void testDatabaseAndMemoryAgree() {
+        for (String prefix : new String[] { "", "a", "AL", "ali", "al%", "b", "x" }) {
+            Map<Integer, String> fromDatabase = userDAO.findIdentifierPrefixPage(prefix, null, 0, 100);
+            assertEquals(names(index().page(prefix, AbstractDAO.BEFORE_FIRST_ID, 100)), names(fromDatabase),
+                    "Önek: " + prefix);
+        }
+        Map<Integer, String> first = userDAO.findIdentifierPrefixPage("a", null, 0, 3);
+        assertEquals(List.of("al%", "ali", "ALI_"), names(first));
+        assertEquals(List.of("Alice", "aliye", "alper"), names(userDAO.findIdentifierPrefixPage("a", "ALI_", 7, 3)));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Dizin yeni ve silinen kullanıcıları izlemeli")
+    void testDirectoryUpdates() {
+        UserDirectory directory = new UserDirectory(userDAO, 0, 60_000);
+        assertEquals(List.of("berk", "Bob"), names(directory.page("b", AbstractDAO.BEFORE_FIRST_ID, 10)),
+                "Yüklenmeden önce veritabanından okunmalı");
+        directory.load();
+        assertTrue(directory.isLoaded());
+
+        // Created elsewhere: found by the id refresh.
+        userDAO.createUserWithID(new User(100, "", "", "bora", "pass", null));
+        assertEquals(List.of("berk", "Bob", "bora"), names(directory.page("b", AbstractDAO.BEFORE_FIRST_ID, 10)));
+
+        // Through this process: applied directly.
+        userDAO.deleteById(4);
+        directory.removed(4);
+        directory.added(101, "Baran");
+        assertEquals(List.of("Baran", "berk", "bora"), names(directory.page("b", AbstractDAO.BEFORE_FIRST_ID, 10)));
+
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int key = 0; key < 100; key++) {
+            map.put(key * 16, "v" + key);
+        }
+        for (int key = 0; key < 100; key += 2) {
+            assertEquals("v" + key, map.remove(key * 16));
+        }
+        assertEquals(50, map.size());
+        for (int key = 1; key < 100; key += 2) {
+            assertEquals("v" + key, map.get(key * 16), "Silme sonrası diğer anahtarlar bulunmalı");
+        }
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Başka süreçlerin bloklarından gelen kullanıcılar da bulunmalı")
+    void testUsersFromOtherBlocks() throws SQLException {
+        // Two processes, each allocating ids from its own block.
+        IdAllocator first = new IdAllocator(pool, "user_id_seq", 50);
+        IdAllocator second = new IdAllocator(pool, "user_id_seq", 50);
+        int firstId = first.next();
+        int secondId = second.next();
+        assertTrue(secondId > firstId + 1);
+
+        UserDirectory directory = new UserDirectory(userDAO, 0, 60_000);
+        directory.load();
+        userDAO.createUserWithID(new User(secondId, "", "", "bulut", "pass", null));
+        assertEquals(List.of("berk", "Bob", "bulut"), names(directory.page("b", AbstractDAO.BEFORE_FIRST_ID, 10)));
+
+        // Below the highest id seen so far
+        userDAO.createUserWithID(new User(firstId, "", "", "bade", "pass", null));
+        userDAO.createUserWithID(new User(first.next(), "", "", "bahar", "pass", null));
+        assertEquals(List.of("bade", "bahar", "berk", "Bob", "bulut"),
+                names(directory.page("b", AbstractDAO.BEFORE_FIRST_ID, 10)));
+    }
+}
@@ -0,0 +1,177 @@
+package test;
+
+import dao.UserDAO;
+import dao.UserIdentityCache;
+import utils.IntObjectMap;
+import org.junit.jupiter.api.*;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserIdentityCache için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserIdentityCacheTest {
+
+    private static Connection connection;
+    private UserDAO userDAO;
+    private int idQueries;
+    private int usernameQueries;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:useridentitycachetest;DB_CLOSE_DELAY=-1", "sa", "");
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE "User"(
+                    id INT PRIMARY KEY,
+                    fname VARCHAR(50),
+                    lname VARCHAR(50),
+                    username VARCHAR(50) UNIQUE,
+                    password VARCHAR(50),
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    age INT CHECK (age >= 18)
+                );
+
+                CREATE OR REPLACE VIEW user_identifiers AS
+                SELECT id, username FROM "User";
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        // Counts the queries that reach the database.
+        userDAO = new UserDAO(connection) {
+            @Override
+            public Integer findIdByUsername(String username) {
+                idQueries++;
+                return super.findIdByUsername(username);
+            }
+
+            @Override
+            public String findUsernameById(int id) {
+                usernameQueries++;
+                return super.findUsernameById(id);
+            }
+        };
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM \"User\"");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void insertUser(int id, String username) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("INSERT INTO \"User\" (id, username) VALUES (" + id + ", '" + username + "')");
+        }
+    }
+
+    private void deleteUser(int id) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM \"User\" WHERE id = " + id);
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Kullanıcı adı ve id her iki yönde önbellekten dönmeli")
+    void testBidirectionalLookup() throws SQLException {
+        insertUser(1, "alice");
+        insertUser(2, "bob");
+        UserIdentityCache cache = new UserIdentityCache(userDAO);
+
+        assertEquals(1, (int) cache.getId("alice"));
+        assertEquals("alice", cache.getUsername(1), "Ad ile bulunan kullanıcı id ile de önbellekte olmalı");
+        assertEquals("bob", cache.getUsername(2));
+        assertEquals(2, (int) cache.getId("bob"), "Id ile bulunan kullanıcı ad ile de önbellekte olmalı");
+        assertEquals(1, idQueries);
+        assertEquals(1, usernameQueries);
+
+        assertNull(cache.getId("nobody"));
+        assertNull(cache.getId(null));
+        assertNull(cache.getUsername(99));
+        assertEquals(2, cache.size(), "Olmayan kullanıcılar önbelleğe alınmamalı");
+
+        IntObjectMap<String> usernames = cache.getUsernames(new int[] { 1, 2, 99 });
+        assertEquals(2, usernames.size());
+        assertEquals("alice", usernames.get(1));
+        assertNull(usernames.get(99));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Önbellek boyut sınırını aşmamalı ve çıkarılan girişler yeniden okunmalı")
+    void testSizeBoundAndEviction() throws SQLException {
+        int[] ids = new int[25];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            insertUser(ids[i], "user" + ids[i]);
+        }
+        UserIdentityCache cache = new UserIdentityCache(userDAO, 10);
+        cache.preload();
+        assertEquals(10, cache.size(), "Ön yükleme sınırda durmalı");
+
+        for (int id : ids) {
+            assertEquals("user" + id, cache.getUsername(id));
+            assertTrue(cache.size() <= 10, "Önbellek sınırı aşılmamalı");
+        }
+        assertEquals(25, cache.getUsernames(ids).size());
+        assertTrue(cache.size() <= 10);
+
+        // Whatever survived eviction still maps both ways.
+        for (int id : ids) {
+            assertEquals(id, (int) cache.getId("user" + id));
+            assertEquals("user" + id, cache.getUsername(id));
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Silinen kullanıcı geçersiz kılınmalı, yeni kullanıcı hemen görünmeli")
+    void testInvalidationOnDeleteAndCreate() throws SQLException {
+        insertUser(1, "alice");
+        insertUser(2, "bob");
+        UserIdentityCache cache = new UserIdentityCache(userDAO);
+        assertEquals(1, (int) cache.getId("alice"));
+        assertEquals("bob", cache.getUsername(2));
+
+        deleteUser(1);
+        cache.invalidate("alice");
+        assertNull(cache.getId("alice"), "Silinen kullanıcı ad ile bulunmamalı");
+        assertNull(cache.getUsername(1), "Silinen kullanıcı id ile bulunmamalı");
+
+        deleteUser(2);
+        cache.invalidate(2);
+        assertNull(cache.getId("bob"));
+        assertEquals(0, cache.size());
+
+        // A miss is not cached, so a new account shows up without invalidation.
+        assertNull(cache.getId("carol"));
+        insertUser(3, "carol");
+        assertEquals(3, (int) cache.getId("carol"));
+
+        // The name of a deleted user may come back with a new id.
+        insertUser(4, "alice");
+        cache.preload(Map.of(4, "alice"));
+        assertEquals(4, (int) cache.getId("alice"));
+        assertEquals("alice", cache.getUsername(4));
+        assertNull(cache.getUsername(1));
+    }
+}
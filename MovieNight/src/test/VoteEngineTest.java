@@ -0,0 +1,241 @@
+package test;
+
+import dao.VoteDAO;
+import dao.VoteEngine;
+import utils.ConnectionPool;
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VoteEngine için birim testleri
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class VoteEngineTest {
+
+    private static final String URL = "jdbc:h2:mem:voteenginetest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private VoteDAO voteDAO;
+    private VoteEngine engine;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Vote(
+                    lobby_id INTEGER,
+                    user_id INTEGER,
+                    movie_id INTEGER,
+                    PRIMARY KEY (lobby_id, user_id, movie_id)
+                );
+            """);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(URL, "sa", "", 4);
+        voteDAO = new VoteDAO(pool);
+        // Long interval: the tests decide when to flush.
+        engine = new VoteEngine(voteDAO, 60_000);
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        engine.close();
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM Vote");
+        }
+        pool.close();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Test 1: Oy ekleme ve geri alma idempotent olmalı")
+    void testIdempotentVotes() {
+        assertTrue(engine.addVote(1, 10, 100));
+        assertFalse(engine.addVote(1, 10, 100), "Aynı oy ikinci kez sayılmamalı");
+        assertTrue(engine.addVote(1, 11, 100));
+        assertTrue(engine.addVote(1, 11, 200));
+        assertFalse(engine.removeVote(1, 12, 100), "Verilmemiş oy geri alınamamalı");
+
+        assertEquals(2, engine.countVotes(1, 100));
+        assertEquals(1, engine.countVotes(1, 200));
+        assertArrayEquals(new int[] { 100, 200 }, engine.findMovieIdsOfUser(1, 11));
+        assertArrayEquals(new int[] { 100, 200 }, engine.rankMovies(1));
+
+        assertTrue(engine.removeVote(1, 10, 100));
+        assertTrue(engine.removeVote(1, 11, 100));
+        assertTrue(engine.addVote(1, 10, 200));
+        assertArrayEquals(new int[] { 200 }, engine.rankMovies(1), "Oyu kalmayan film sıralamada olmamalı");
+        assertEquals(0, voteDAO.findAll().size(), "Oylar flush edilene kadar yazılmamalı");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Test 2: Flush yalnızca net değişiklikleri yazmalı")
+    void testFlushWritesNetChanges() {
+        engine.addVote(1, 10, 100);
+        engine.addVote(1, 11, 100);
+        engine.addVote(1, 12, 100);
+        engine.flush();
+        assertEquals(3, voteDAO.findVotesOfLobby(1).size());
+
+        engine.removeVote(1, 10, 100);            // removed
+        engine.removeVote(1, 11, 100);            // removed and cast again: no write
+        engine.addVote(1, 11, 100);
+        engine.addVote(1, 13, 100);               // cast and withdrawn: no write
+        engine.removeVote(1, 13, 100);
+        engine.addVote(2, 10, 300);
+        engine.flush();
+
+        assertEquals(2, voteDAO.findVotesOfLobby(1).size());
+        assertEquals(2, voteDAO.countVotesByMovie(1).get(100));
+        assertEquals(1, voteDAO.countVotesByMovie(2).get(300));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Test 3: Mevcut oylar ilk kullanımda tablodan yüklenmeli")
+    void testLoadsExistingVotes() {
+        voteDAO.addVote(5, 1, 100);
+        voteDAO.addVote(5, 2, 100);
+
+        assertEquals(2, engine.countVotes(5, 100));
+        assertFalse(engine.addVote(5, 1, 100), "Tablodaki oy tekrar sayılmamalı");
+
+        engine.removeAllVotes(5);
+        assertEquals(0, engine.countVotes(5, 100));
+        engine.flush();
+        assertEquals(0, voteDAO.findVotesOfLobby(5).size());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Test 4: Eşzamanlı oylar kaybolmamalı")
+    void testConcurrentVotes() throws InterruptedException {
+        int users = 200;
+        int movies = 5;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < users; user++) {
+                int userId = user;
+                executor.submit(() -> {
+                    for (int movieId = 0; movieId < movies; movieId++) {
+                        engine.addVote(1, userId, movieId);
+                        engine.addVote(1, userId, movieId);
+                    }
+                    // Every other user withdraws the vote for movie 0.
+                    if (userId % 2 == 0) {
+                        engine.removeVote(1, userId, 0);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(users / 2, engine.countVotes(1, 0));
+        for (int movieId = 1; movieId < movies; movieId++) {
+            assertEquals(users, engine.countVotes(1, movieId));
+        }
+        assertEquals(movies, engine.rankMovies(1).length, "Sıralamada tüm filmler olmalı");
+        assertEquals(0, engine.rankMovies(1)[4], "En az oyu alan film sonda olmalı");
+
+        engine.flush();
+        List<Integer> counts = new ArrayList<>();
+        for (int movieId = 0; movieId < movies; movieId++) {
+            counts.add(voteDAO.countVotesByMovie(1).get(movieId));
+        }
+        assertEquals(List.of(users / 2, users, users, users, users), counts, "Tablo bellekteki sayılarla aynı olmalı");
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Lobi boşaltıldıktan sonraki flush diğer lobilerin oylarını kaybetmemeli")
+    void testFlushAfterEmptyLobby() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Lobby(id INTEGER PRIMARY KEY);
+                INSERT INTO Lobby VALUES (1), (2);
+                ALTER TABLE Vote ADD CONSTRAINT vote_lobby_fk FOREIGN KEY (lobby_id) REFERENCES Lobby(id);
+            """);
+        }
+        try {
+            engine.addVote(1, 10, 100);
+            engine.addVote(2, 10, 100);
+
+            // Database.emptyLobby: forget, then the last member leaves and the lobby is deleted
+            engine.forget(2);
+            assertEquals(1, voteDAO.findVotesOfLobby(2).size(), "Unutulan lobinin oyları yazılmış olmalı");
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("DELETE FROM Vote WHERE lobby_id = 2");
+                stmt.execute("DELETE FROM Lobby WHERE id = 2");
+            }
+
+            // A vote racing the delete, in the same batch as another lobby's votes
+            engine.addVote(2, 11, 100);
+            engine.addVote(1, 11, 100);
+            engine.addVote(1, 12, 200);
+            engine.flush();
+
+            assertEquals(3, voteDAO.findVotesOfLobby(1).size(), "Diğer lobinin oyları yazılmalı");
+            assertEquals(2, engine.countVotes(1, 100));
+            assertEquals(0, engine.countVotes(2, 100), "Silinen lobinin sayımı tablodan okunmalı");
+        } finally {
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("ALTER TABLE Vote DROP CONSTRAINT vote_lobby_fk");
+                stmt.execute("DROP TABLE Lobby");
+            }
+        }
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("Test 6: Kapatıldıktan sonraki oylar hemen yazılmalı")
+    void testVotesAfterClose() {
+        engine.close();
+        for (int movieId = 0; movieId < voteDAO.getBatchSize(); movieId++) {
+            assertTrue(engine.addVote(1, 10, movieId));
+        }
+        assertTrue(engine.removeVote(1, 10, 0));
+
+        assertEquals(voteDAO.getBatchSize() - 1, voteDAO.findVotesOfLobby(1).size(), "Kapalı motor oyları beklemeden yazmalı");
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Test 7: Aynı oy üzerinde yarışan ekleme ve geri alma tabloyu bellekle tutarlı bırakmalı")
+    void testRacingAddAndRemove() throws InterruptedException {
+        int rounds = 2000;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            executor.submit(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    engine.addVote(1, 10, 100);
+                }
+            });
+            executor.submit(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    engine.removeVote(1, 10, 100);
+                }
+            });
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        engine.flush();
+        int[] voted = engine.findMovieIdsOfUser(1, 10);
+        assertEquals(voted.length, voteDAO.findVotesOfLobby(1).size(), "Tablo bellekteki oyla aynı olmalı");
+        assertEquals(voted.length, engine.countVotes(1, 100));
+    }
+}
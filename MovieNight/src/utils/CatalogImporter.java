@@ -0,0 +1,552 @@
+package utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Bulk loader for movie catalog dumps.
+ *
+ * The input has one movie per line: title, description, trailerPath, genres
+ * and actors, tab separated, with genres and actors separated by '|'. Tabs,
+ * newlines and backslashes inside fields are escaped as in PostgreSQL's text
+ * format ({@code \t}, {@code \n}, {@code \\}). A first line starting with
+ * "title" is taken as a header.
+ *
+ * The file is memory-mapped one window at a time; each window is cut at line
+ * boundaries into slices that are decoded in parallel, then written with COPY
+ * on PostgreSQL or batched inserts elsewhere and committed. Memory therefore
+ * depends on the window size and the number of distinct genres and actors,
+ * not on the file size. Genres and actors are matched by name against the
+ * existing rows; their ids are assigned here, so nothing else may add genres
+ * or actors during an import. On PostgreSQL movie ids are reserved from the
+ * movie sequence a window at a time (see {@link IdAllocator}); elsewhere they
+ * are assigned here as well. The genre and actor sequences are advanced in
+ * each window's transaction, so an import that fails part way leaves them
+ * past every committed id.
+ */
+public class CatalogImporter {
+	private static final int DEFAULT_WINDOW_BYTES = 16 << 20;
+	private static final int MAX_WINDOW_BYTES = 1 << 30;
+	private static final int INSERT_BATCH_SIZE = 1000;
+	private static final char LIST_SEPARATOR = '|';
+	private static final int FIELD_COUNT = 5;
+
+	private final ConnectionProvider connectionProvider;
+	private final int windowBytes;
+	private final int parallelism;
+	private final byte delimiter;
+
+	public CatalogImporter(ConnectionProvider connectionProvider) {
+		this(connectionProvider, DEFAULT_WINDOW_BYTES, Runtime.getRuntime().availableProcessors(), '\t');
+	}
+
+	public CatalogImporter(ConnectionProvider connectionProvider, int windowBytes, int parallelism, char delimiter) {
+		if (delimiter >= 0x80 || delimiter == '\n' || delimiter == '\\') {
+			throw new IllegalArgumentException("Unsupported delimiter: " + delimiter);
+		}
+		this.connectionProvider = connectionProvider;
+		this.windowBytes = windowBytes;
+		this.parallelism = Math.max(1, parallelism);
+		this.delimiter = (byte) delimiter;
+	}
+
+	public static class Report {
+		public final long movies;
+		public final long genresAdded;
+		public final long actorsAdded;
+		public final long links;
+		public final long skippedLines;
+		public final long elapsedMillis;
+
+		Report(long movies, long genresAdded, long actorsAdded, long links, long skippedLines, long elapsedMillis) {
+			this.movies = movies;
+			this.genresAdded = genresAdded;
+			this.actorsAdded = actorsAdded;
+			this.links = links;
+			this.skippedLines = skippedLines;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public double rowsPerSecond() {
+			return elapsedMillis == 0 ? movies * 1000.0 : movies * 1000.0 / elapsedMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d movies, %d new genres, %d new actors, %d links in %.1f s (%.0f rows/s), %d lines skipped",
+					movies, genresAdded, actorsAdded, links, elapsedMillis / 1000.0, rowsPerSecond(), skippedLines);
+		}
+	}
+
+	// Told after each window is committed.
+	public interface Progress {
+		void windowImported(long movies, long bytesRead, long totalBytes);
+	}
+
+	private static final class Row {
+		final String title;
+		final String description;
+		final String trailerPath;
+		final String[] genres;
+		final String[] actors;
+
+		Row(String title, String description, String trailerPath, String[] genres, String[] actors) {
+			this.title = title;
+			this.description = description;
+			this.trailerPath = trailerPath;
+			this.genres = genres;
+			this.actors = actors;
+		}
+	}
+
+	private static final class Slice {
+		final List<Row> rows = new ArrayList<>();
+		int skipped;
+	}
+
+	// Names already in the database or added by this import, and the next free ids.
+	private static final class Catalog {
+		final Map<String, Integer> genres = new HashMap<>();
+		final Map<String, Integer> actors = new HashMap<>();
+		IdAllocator movieIds;  // null: nextMovieId is used
+		int nextMovieId;
+		int nextGenreId;
+		int nextActorId;
+	}
+
+	public Report importFile(Path file) throws IOException, SQLException {
+		return importFile(file, (movies, bytesRead, totalBytes) -> { });
+	}
+
+	public Report importFile(Path file, Progress progress) throws IOException, SQLException {
+		long start = System.currentTimeMillis();
+		long movies = 0;
+		long links = 0;
+		long skipped = 0;
+		int genresBefore;
+		int actorsBefore;
+		Catalog catalog;
+
+		ExecutorService decoders = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "catalog-import-decoder");
+			t.setDaemon(true);
+			return t;
+		});
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+			 Connection conn = connectionProvider.getConnection()) {
+			boolean postgres = conn.isWrapperFor(BaseConnection.class);
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try {
+				catalog = loadCatalog(conn);
+				if (postgres) {
+					// The sequence may lag behind ids assigned before, by this importer or the defaults.
+					advanceSequence(conn, "movie");
+					conn.commit();
+					catalog.movieIds = new IdAllocator(ConnectionProvider.of(conn), "movie_id_seq");
+				}
+				genresBefore = catalog.genres.size();
+				actorsBefore = catalog.actors.size();
+
+				long size = channel.size();
+				long position = 0;
+				int window = windowBytes;
+				while (position < size) {
+					int length = (int) Math.min(window, size - position);
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+					boolean last = position + length == size;
+					int end = last ? length : lastNewline(buffer, length) + 1;
+					if (end == 0) {
+						// A single line longer than the window
+						if (window >= MAX_WINDOW_BYTES) {
+							throw new IOException("Line at byte " + position + " is longer than " + MAX_WINDOW_BYTES + " bytes");
+						}
+						window *= 2;
+						continue;
+					}
+
+					List<Slice> slices = decode(buffer, end, position == 0, decoders);
+					List<Row> rows = new ArrayList<>();
+					for (Slice slice : slices) {
+						rows.addAll(slice.rows);
+						skipped += slice.skipped;
+					}
+					int namesBefore = catalog.genres.size() + catalog.actors.size();
+					links += write(conn, postgres, catalog, rows);
+					if (postgres && catalog.genres.size() + catalog.actors.size() > namesBefore) {
+						advanceSequences(conn);
+					}
+					conn.commit();
+					movies += rows.size();
+					position += end;
+					window = windowBytes;
+					progress.windowImported(movies, position, size);
+				}
+			} catch (SQLException | IOException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		} finally {
+			decoders.shutdownNow();
+		}
+		return new Report(movies, catalog.genres.size() - genresBefore, catalog.actors.size() - actorsBefore,
+				links, skipped, System.currentTimeMillis() - start);
+	}
+
+	private static int lastNewline(MappedByteBuffer buffer, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (buffer.get(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Cuts [0, end) into line-aligned slices and decodes them in parallel, keeping their order.
+	private List<Slice> decode(MappedByteBuffer buffer, int end, boolean firstWindow, ExecutorService decoders) throws IOException {
+		List<Callable<Slice>> tasks = new ArrayList<>();
+		int sliceStart = 0;
+		for (int i = 1; i <= parallelism && sliceStart < end; i++) {
+			int sliceEnd = i == parallelism ? end : (int) ((long) end * i / parallelism);
+			while (sliceEnd < end && sliceEnd > 0 && buffer.get(sliceEnd - 1) != '\n') {
+				sliceEnd++;
+			}
+			if (sliceEnd <= sliceStart) {
+				continue;
+			}
+			int from = sliceStart;
+			int to = sliceEnd;
+			boolean header = firstWindow && from == 0;
+			tasks.add(() -> decodeSlice(buffer.duplicate(), from, to, header));
+			sliceStart = sliceEnd;
+		}
+
+		List<Slice> slices = new ArrayList<>(tasks.size());
+		try {
+			for (Future<Slice> future : decoders.invokeAll(tasks)) {
+				slices.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Cannot decode catalog: " + e.getCause().getMessage(), e.getCause());
+		}
+		return slices;
+	}
+
+	private Slice decodeSlice(java.nio.ByteBuffer buffer, int from, int to, boolean mayHaveHeader) {
+		Slice slice = new Slice();
+		String[] fields = new String[FIELD_COUNT];
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = lineStart;
+			while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+			if (contentEnd > lineStart) {
+				Arrays.fill(fields, null);
+				int field = 0;
+				int fieldStart = lineStart;
+				for (int i = lineStart; i <= contentEnd && field < FIELD_COUNT; i++) {
+					if (i == contentEnd || buffer.get(i) == delimiter) {
+						fields[field++] = decodeField(buffer, fieldStart, i);
+						fieldStart = i + 1;
+					}
+				}
+				boolean header = mayHaveHeader && lineStart == from && "title".equalsIgnoreCase(fields[0]);
+				if (header) {
+					// not a movie
+				} else if (fields[0] == null || fields[0].isBlank()) {
+					slice.skipped++;
+				} else {
+					slice.rows.add(new Row(fields[0].strip(), emptyToNull(fields[1]), emptyToNull(fields[2]),
+							splitList(fields[3]), splitList(fields[4])));
+				}
+			}
+			lineStart = lineEnd + 1;
+		}
+		return slice;
+	}
+
+	private static String decodeField(java.nio.ByteBuffer buffer, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		buffer.get(from, bytes);
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		return value.indexOf('\\') < 0 ? value : unescape(value);
+	}
+
+	private static String unescape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				switch (next) {
+					case 't' -> sb.append('\t');
+					case 'n' -> sb.append('\n');
+					case 'r' -> sb.append('\r');
+					default -> sb.append(next);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String emptyToNull(String value) {
+		return value == null || value.isEmpty() ? null : value;
+	}
+
+	private static String[] splitList(String value) {
+		if (value == null || value.isBlank()) {
+			return new String[0];
+		}
+		List<String> names = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i <= value.length(); i++) {
+			if (i == value.length() || value.charAt(i) == LIST_SEPARATOR) {
+				String name = value.substring(start, i).strip();
+				if (!name.isEmpty() && !names.contains(name)) {
+					names.add(name);
+				}
+				start = i + 1;
+			}
+		}
+		return names.toArray(new String[0]);
+	}
+
+	private static Catalog loadCatalog(Connection conn) throws SQLException {
+		Catalog catalog = new Catalog();
+		try (Statement stmt = conn.createStatement()) {
+			catalog.nextMovieId = nextId(stmt, "movie");
+			catalog.nextGenreId = nextId(stmt, "genre");
+			catalog.nextActorId = nextId(stmt, "actor");
+			// Like GenreDAO.getGenre, the first row with a name wins.
+			try (ResultSet rs = stmt.executeQuery("SELECT id, name FROM genre ORDER BY id")) {
+				while (rs.next()) {
+					catalog.genres.putIfAbsent(rs.getString("name"), rs.getInt("id"));
+				}
+			}
+			try (ResultSet rs = stmt.executeQuery("SELECT id, name FROM actor ORDER BY id")) {
+				while (rs.next()) {
+					catalog.actors.putIfAbsent(rs.getString("name"), rs.getInt("id"));
+				}
+			}
+		}
+		return catalog;
+	}
+
+	private static int nextId(Statement stmt, String table) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	// Writes one window in foreign key order; returns the number of genre and actor links.
+	private static long write(Connection conn, boolean postgres, Catalog catalog, List<Row> rows) throws SQLException {
+		List<Object[]> newGenres = new ArrayList<>();
+		List<Object[]> newActors = new ArrayList<>();
+		List<Object[]> movies = new ArrayList<>(rows.size());
+		List<Object[]> hasGenre = new ArrayList<>();
+		List<Object[]> hasActor = new ArrayList<>();
+
+		int[] movieIds = catalog.movieIds != null ? catalog.movieIds.next(rows.size()) : null;
+		for (int r = 0; r < rows.size(); r++) {
+			Row row = rows.get(r);
+			int movieId = movieIds != null ? movieIds[r] : catalog.nextMovieId++;
+			int[] genreIds = new int[row.genres.length];
+			for (int i = 0; i < row.genres.length; i++) {
+				String name = row.genres[i];
+				Integer id = catalog.genres.get(name);
+				if (id == null) {
+					id = catalog.nextGenreId++;
+					catalog.genres.put(name, id);
+					newGenres.add(new Object[] {id, name});
+				}
+				genreIds[i] = id;
+				hasGenre.add(new Object[] {movieId, id});
+			}
+			for (String name : row.actors) {
+				Integer id = catalog.actors.get(name);
+				if (id == null) {
+					id = catalog.nextActorId++;
+					catalog.actors.put(name, id);
+					newActors.add(new Object[] {id, name});
+				}
+				hasActor.add(new Object[] {movieId, id});
+			}
+			if (postgres) {
+				// Filled here so the hasgenre trigger finds nothing left to append
+				movies.add(new Object[] {movieId, row.title, row.description, row.trailerPath, genreIds});
+			} else {
+				movies.add(new Object[] {movieId, row.title, row.description, row.trailerPath});
+			}
+		}
+
+		Loader loader = postgres ? new CopyLoader(conn) : new BatchLoader(conn);
+		loader.load("genre", new String[] {"id", "name"}, newGenres);
+		loader.load("actor", new String[] {"id", "name"}, newActors);
+		loader.load("movie", postgres
+				? new String[] {"id", "title", "description", "trailerPath", "genre_ids"}
+				: new String[] {"id", "title", "description", "trailerPath"}, movies);
+		loader.load("hasgenre", new String[] {"movie_id", "genre_id"}, hasGenre);
+		loader.load("hasactor", new String[] {"movie_id", "actor_id"}, hasActor);
+		return hasGenre.size() + hasActor.size();
+	}
+
+	// Genre and actor ids were assigned here, so SERIAL sequences must catch up for later inserts.
+	private static void advanceSequences(Connection conn) throws SQLException {
+		for (String table : new String[] {"genre", "actor"}) {
+			advanceSequence(conn, table);
+		}
+	}
+
+	// Only ever forward: another process may hold a block of ids beyond the highest one.
+	private static void advanceSequence(Connection conn, String table) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("SELECT setval(seq, GREATEST(MAX(id), pg_sequence_last_value(seq::regclass)))"
+					+ " FROM " + table + ", pg_get_serial_sequence('" + table + "', 'id') AS seq"
+					+ " GROUP BY seq HAVING MAX(id) IS NOT NULL");
+		}
+	}
+
+	private interface Loader {
+		void load(String table, String[] columns, List<Object[]> rows) throws SQLException;
+	}
+
+	private static final class CopyLoader implements Loader {
+		private final CopyManager copyManager;
+
+		CopyLoader(Connection conn) throws SQLException {
+			this.copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+		}
+
+		@Override
+		public void load(String table, String[] columns, List<Object[]> rows) throws SQLException {
+			if (rows.isEmpty()) {
+				return;
+			}
+			StringBuilder data = new StringBuilder();
+			for (Object[] row : rows) {
+				for (int i = 0; i < row.length; i++) {
+					if (i > 0) {
+						data.append('\t');
+					}
+					appendCopyValue(data, row[i]);
+				}
+				data.append('\n');
+			}
+			String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+			try {
+				copyManager.copyIn(sql, new StringReader(data.toString()));
+			} catch (IOException e) {
+				throw new SQLException("COPY into " + table + " failed: " + e.getMessage(), e);
+			}
+		}
+
+		private static void appendCopyValue(StringBuilder data, Object value) {
+			if (value == null) {
+				data.append("\\N");
+			} else if (value instanceof int[] ids) {
+				data.append('{');
+				for (int i = 0; i < ids.length; i++) {
+					if (i > 0) {
+						data.append(',');
+					}
+					data.append(ids[i]);
+				}
+				data.append('}');
+			} else {
+				String text = value.toString();
+				for (int i = 0; i < text.length(); i++) {
+					char c = text.charAt(i);
+					switch (c) {
+						case '\\' -> data.append("\\\\");
+						case '\t' -> data.append("\\t");
+						case '\n' -> data.append("\\n");
+						case '\r' -> data.append("\\r");
+						default -> data.append(c);
+					}
+				}
+			}
+		}
+	}
+
+	private static final class BatchLoader implements Loader {
+		private final Connection conn;
+
+		BatchLoader(Connection conn) {
+			this.conn = conn;
+		}
+
+		@Override
+		public void load(String table, String[] columns, List<Object[]> rows) throws SQLException {
+			if (rows.isEmpty()) {
+				return;
+			}
+			String placeholders = String.join(", ", java.util.Collections.nCopies(columns.length, "?"));
+			String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				int pending = 0;
+				for (Object[] row : rows) {
+					for (int i = 0; i < row.length; i++) {
+						stmt.setObject(i + 1, row[i]);
+					}
+					stmt.addBatch();
+					if (++pending == INSERT_BATCH_SIZE) {
+						stmt.executeBatch();
+						pending = 0;
+					}
+				}
+				if (pending > 0) {
+					stmt.executeBatch();
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("Usage: CatalogImporter <catalog.tsv>");
+			return;
+		}
+		try (Connection connection = DatabaseConnection.connect()) {
+			Report report = new CatalogImporter(ConnectionProvider.of(connection)).importFile(Paths.get(args[0]),
+					(movies, bytesRead, totalBytes) -> System.out.println(
+							"Imported " + movies + " movies (" + (bytesRead * 100 / totalBytes) + "%)"));
+			System.out.println(report);
+		} catch (IOException | SQLException e) {
+			System.err.println("Import error: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Waiters are served in arrival order (fair semaphore). Connections are
+ * validated on borrow, closed after sitting idle for too long, and retired
+ * once they reach their maximum lifetime. Each connection keeps its prepared
+ * statements in a {@link StatementCache} across borrows.
+ */
+public class ConnectionPool implements ConnectionProvider, AutoCloseable {
+	// Skip the validation round trip for connections returned this recently.
+	private static final long VALIDATION_BYPASS_MILLIS = 500;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final long borrowTimeoutMillis;
+	private final long idleTimeoutMillis;
+	private final long maxLifetimeMillis;
+	private final int statementCacheSize;
+
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	// Idle and borrowed, for statistics only
+	private final Set<PooledConnection> open = ConcurrentHashMap.newKeySet();
+	// Statement cache hits of connections already closed
+	private final LongAdder retiredStatementCacheHits = new LongAdder();
+	private final ScheduledExecutorService evictor;
+	private volatile boolean closed = false;
+
+	public ConnectionPool(String url, String user, String password, int maxSize) {
+		this(url, user, password, maxSize, 30_000, 600_000, 1_800_000);
+	}
+
+	public ConnectionPool(String url, String user, String password, int maxSize,
+			long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+		this(url, user, password, maxSize, borrowTimeoutMillis, idleTimeoutMillis, maxLifetimeMillis,
+				StatementCache.DEFAULT_CAPACITY);
+	}
+
+	// A statementCacheSize of 0 turns statement caching off.
+	public ConnectionPool(String url, String user, String password, int maxSize,
+			long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis, int statementCacheSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+		}
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.maxLifetimeMillis = maxLifetimeMillis;
+		this.statementCacheSize = Math.max(0, statementCacheSize);
+		this.permits = new Semaphore(maxSize, true);
+
+		this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "connection-pool-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1_000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+		evictor.scheduleAtFixedRate(this::evict, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+
+		try {
+			PooledConnection pooled;
+			// Most recently returned first, so the warmest connections are reused.
+			while ((pooled = idle.pollFirst()) != null) {
+				if (isUsable(pooled)) {
+					return pooled.lease();
+				}
+				pooled.closeQuietly();
+			}
+			pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+			open.add(pooled);
+			return pooled.lease();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		long now = System.currentTimeMillis();
+		if (now - pooled.createdAt >= maxLifetimeMillis) {
+			return false;
+		}
+		if (now - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS) {
+			return true;
+		}
+		try {
+			return pooled.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void release(PooledConnection pooled) {
+		try {
+			if (closed || pooled.raw.isClosed()
+					|| System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis) {
+				pooled.closeQuietly();
+				return;
+			}
+			// Leave the connection the way the next borrower expects it.
+			if (pooled.statements != null) {
+				pooled.statements.reclaim();
+			}
+			if (!pooled.raw.getAutoCommit()) {
+				pooled.raw.rollback();
+				pooled.raw.setAutoCommit(true);
+			}
+			pooled.lastReturnedAt = System.currentTimeMillis();
+			idle.offerFirst(pooled);
+		} catch (SQLException e) {
+			pooled.closeQuietly();
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void evict() {
+		long now = System.currentTimeMillis();
+		for (PooledConnection pooled : idle) {
+			if (now - pooled.lastReturnedAt >= idleTimeoutMillis || now - pooled.createdAt >= maxLifetimeMillis) {
+				if (idle.remove(pooled)) {
+					pooled.closeQuietly();
+				}
+			}
+		}
+	}
+
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	// Statements served from a statement cache, over every connection this pool has opened.
+	public long getStatementCacheHits() {
+		long hits = retiredStatementCacheHits.sum();
+		for (PooledConnection pooled : open) {
+			if (pooled.statements != null) {
+				hits += pooled.statements.getHits();
+			}
+		}
+		return hits;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		evictor.shutdownNow();
+		PooledConnection pooled;
+		while ((pooled = idle.pollFirst()) != null) {
+			pooled.closeQuietly();
+		}
+	}
+
+	private class PooledConnection {
+		private final Connection raw;
+		private final StatementCache statements;
+		private final long createdAt = System.currentTimeMillis();
+		private volatile long lastReturnedAt = createdAt;
+
+		PooledConnection(Connection raw) {
+			this.raw = raw;
+			this.statements = statementCacheSize > 0 ? new StatementCache(raw, statementCacheSize) : null;
+		}
+
+		// A fresh handle per borrow, so a stale handle cannot touch the next lease.
+		Connection lease() {
+			boolean[] returned = { false };
+			return (Connection) Proxy.newProxyInstance(
+					Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class },
+					(proxy, method, args) -> {
+						switch (method.getName()) {
+						case "close":
+							if (!returned[0]) {
+								returned[0] = true;
+								release(this);
+							}
+							return null;
+						case "isClosed":
+							return returned[0] || raw.isClosed();
+						default:
+							if (returned[0]) {
+								throw new SQLException("Connection has already been returned to the pool");
+							}
+							if (statements != null && method.getName().equals("prepareStatement")
+									&& method.getParameterCount() == 1) {
+								return statements.prepare((String) args[0]);
+							}
+							try {
+								return method.invoke(raw, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						}
+					});
+		}
+
+		void closeQuietly() {
+			if (open.remove(this) && statements != null) {
+				retiredStatementCacheHits.add(statements.getHits());
+			}
+			try {
+				raw.close();
+			} catch (SQLException e) {
+				System.err.println("Pool close error: " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source of JDBC connections for the DAOs. Every borrowed connection must be
+ * closed by the caller, which hands it back to the provider.
+ */
+public interface ConnectionProvider {
+
+	Connection getConnection() throws SQLException;
+
+	/**
+	 * Wraps a single, externally managed connection. Closing the borrowed
+	 * connection is a no-op, the owner of {@code connection} closes it.
+	 */
+	static ConnectionProvider of(Connection connection) {
+		return new SingleConnectionProvider(connection);
+	}
+}
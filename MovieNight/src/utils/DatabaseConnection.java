@@ -5,11 +5,16 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/MovieNight_DB";
+    private static final String URL = "jdbc:postgresql://localhost:5432/MovieNight_DB?reWriteBatchedInserts=true";
     private static final String USER = "postgres";
     private static final String PASSWORD = "123456";
+    private static final int POOL_SIZE = 10;
 
     public static Connection connect() throws SQLException {
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
+
+    public static ConnectionPool createPool() {
+        return new ConnectionPool(URL, USER, PASSWORD, POOL_SIZE);
+    }
 }
@@ -17,12 +17,18 @@ import models.User;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DatabaseInitializer {
-	public static void initialize(Connection connection) {
-		try(Statement stmt = connection.createStatement()){
-			String createTables = """
-				CREATE SEQUENCE user_id_seq START WITH 1 INCREMENT BY 1;
+	// Schema changes in version order, applied by SchemaMigrator. Never edit one that has
+	// shipped: add a new migration instead.
+	public static final List<Migration> MIGRATIONS = List.of(
+			Migration.postgres(1, "Baseline schema, functions and triggers", """
+				CREATE SEQUENCE IF NOT EXISTS user_id_seq START WITH 1 INCREMENT BY 1;
 				CREATE TABLE IF NOT EXISTS "User"(
                     id INT DEFAULT nextval('user_id_seq') PRIMARY KEY,
                     fname VARCHAR(50),
@@ -67,7 +73,8 @@ public class DatabaseInitializer {
 					id SERIAL PRIMARY KEY,
 					owner_id INTEGER REFERENCES "User"(id),
 					is_ready BOOLEAN DEFAULT FALSE,
-					date DATE
+					date DATE,
+					change_seq BIGINT NOT NULL DEFAULT 0
 				);
 				
 				CREATE TABLE IF NOT EXISTS InLobby (
@@ -98,84 +105,139 @@ public class DatabaseInitializer {
 					PRIMARY KEY (sender_id, receiver_id, lobby_id)
 				);
 				
-				CREATE OR REPLACE FUNCTION get_winning_movies_by_votes(param_lobby_id INT)
-				RETURNS TABLE(movie_id INT, movie_title TEXT, vote_count INT) AS $$
-				DECLARE
-				    movie_record RECORD;
-				    movie_vote_count INT;
-				    movie_cursor CURSOR FOR 
-				        SELECT m.id, m.title
-				        FROM movie m
-				        WHERE EXISTS (
-				            SELECT 1
-				            FROM vote v
-				            WHERE v.movie_id = m.id AND v.lobby_id = param_lobby_id
-				        );
+				-- Running vote count per lobby and movie, kept up to date by the vote triggers
+				CREATE TABLE IF NOT EXISTS vote_tally (
+					lobby_id INTEGER REFERENCES Lobby(id) ON DELETE CASCADE,
+					movie_id INTEGER REFERENCES Movie(id) ON DELETE CASCADE,
+					vote_count INTEGER NOT NULL DEFAULT 0,
+					PRIMARY KEY (lobby_id, movie_id)
+				);
+				
+				CREATE INDEX IF NOT EXISTS vote_tally_lobby_count_idx
+				ON vote_tally (lobby_id, vote_count DESC);
+				
+				CREATE OR REPLACE FUNCTION vote_tally_increment()
+				RETURNS TRIGGER AS $$
 				BEGIN
-				    -- Create a temporary table to hold the results
-				    CREATE TEMP TABLE movie_votes_temp (
-				        temp_movie_id INT,
-				        temp_movie_title TEXT,
-				        temp_vote_count INT
-				    ) ON COMMIT DROP;
-
-				    -- Loop over movies in the given lobby
-				    OPEN movie_cursor;
-				    LOOP
-				        FETCH NEXT FROM movie_cursor INTO movie_record;
-				        EXIT WHEN NOT FOUND;
+				    INSERT INTO vote_tally (lobby_id, movie_id, vote_count)
+				    VALUES (NEW.lobby_id, NEW.movie_id, 1)
+				    ON CONFLICT (lobby_id, movie_id)
+				    DO UPDATE SET vote_count = vote_tally.vote_count + 1;
+				    RETURN NEW;
+				END;
+				$$ LANGUAGE plpgsql;
 				
-				        -- Count votes for the current movie
-				        SELECT COUNT(*) INTO movie_vote_count
-				        FROM vote
+				CREATE OR REPLACE FUNCTION vote_tally_decrement()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    UPDATE vote_tally
+				    SET vote_count = vote_count - 1
+				    WHERE lobby_id = OLD.lobby_id AND movie_id = OLD.movie_id;
+				
+				    -- Drop the row once the last vote is gone, so reads only see voted movies
+				    DELETE FROM vote_tally
+				    WHERE lobby_id = OLD.lobby_id AND movie_id = OLD.movie_id AND vote_count <= 0;
+				    RETURN OLD;
+				END;
+				$$ LANGUAGE plpgsql;
+				
+				DROP TRIGGER IF EXISTS vote_tally_on_insert ON vote;
+				CREATE TRIGGER vote_tally_on_insert
+				AFTER INSERT ON vote
+				FOR EACH ROW
+				EXECUTE FUNCTION vote_tally_increment();
+				
+				DROP TRIGGER IF EXISTS vote_tally_on_delete ON vote;
+				CREATE TRIGGER vote_tally_on_delete
+				AFTER DELETE ON vote
+				FOR EACH ROW
+				EXECUTE FUNCTION vote_tally_decrement();
+				
+				-- Databases created before vote_tally existed: replace the old function and backfill
+				DROP FUNCTION IF EXISTS get_winning_movies_by_votes(INT);
+				
+				INSERT INTO vote_tally (lobby_id, movie_id, vote_count)
+				SELECT lobby_id, movie_id, COUNT(*)
+				FROM vote
+				GROUP BY lobby_id, movie_id
+				ON CONFLICT (lobby_id, movie_id) DO NOTHING;
 
-				        WHERE vote.movie_id = movie_record.id AND vote.lobby_id = param_lobby_id;
+				-- Catalog version counter, bumped on every change so MovieCatalog knows when to reload
+				CREATE TABLE IF NOT EXISTS catalog_version (
+					id INTEGER PRIMARY KEY CHECK (id = 1),
+					version BIGINT NOT NULL DEFAULT 0
+				);
 				
-				        -- Insert the movie and its vote count into the temporary table
-				        INSERT INTO movie_votes_temp (temp_movie_id, temp_movie_title, temp_vote_count)
-				        VALUES (movie_record.id, movie_record.title, movie_vote_count);
-				    END LOOP;
-				    CLOSE movie_cursor;
+				INSERT INTO catalog_version (id, version) VALUES (1, 0)
+				ON CONFLICT (id) DO NOTHING;
 				
-				    -- Return the results from the temporary table, using HAVING to exclude movies with 0 votes
-				    RETURN QUERY
-				    SELECT temp_movie_id AS movie_id, 
-				           temp_movie_title AS movie_title, 
-				           CAST(SUM(temp_vote_count) AS INT) AS vote_count
-				    FROM movie_votes_temp
-				    GROUP BY temp_movie_id, temp_movie_title
-				    HAVING SUM(temp_vote_count) > 0
-				    ORDER BY vote_count DESC;
-				
-				    RETURN;
+				CREATE OR REPLACE FUNCTION bump_catalog_version()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    UPDATE catalog_version SET version = version + 1 WHERE id = 1;
+				    RETURN NULL;
 				END;
 				$$ LANGUAGE plpgsql;
-
+				
+				DROP TRIGGER IF EXISTS movie_catalog_version ON movie;
+				CREATE TRIGGER movie_catalog_version
+				AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON movie
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION bump_catalog_version();
+				
+				DROP TRIGGER IF EXISTS genre_catalog_version ON genre;
+				CREATE TRIGGER genre_catalog_version
+				AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON genre
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION bump_catalog_version();
+				
+				DROP TRIGGER IF EXISTS hasgenre_catalog_version ON hasgenre;
+				CREATE TRIGGER hasgenre_catalog_version
+				AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON hasgenre
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION bump_catalog_version();
+				
+				-- Genre ids of each movie, kept in sync with hasgenre, so genre filters are one GIN lookup
+				ALTER TABLE movie ADD COLUMN IF NOT EXISTS genre_ids INT[] NOT NULL DEFAULT '{}';
+				
+				CREATE INDEX IF NOT EXISTS movie_genre_ids_idx
+				ON movie USING GIN (genre_ids);
+				
+				CREATE OR REPLACE FUNCTION sync_movie_genre_ids()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+				        UPDATE movie SET genre_ids = array_remove(genre_ids, OLD.genre_id)
+				        WHERE id = OLD.movie_id;
+				    END IF;
+				    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+				        UPDATE movie SET genre_ids = array_append(genre_ids, NEW.genre_id)
+				        WHERE id = NEW.movie_id AND NOT genre_ids @> ARRAY[NEW.genre_id];
+				    END IF;
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+				
+				DROP TRIGGER IF EXISTS hasgenre_sync_movie_genre_ids ON hasgenre;
+				CREATE TRIGGER hasgenre_sync_movie_genre_ids
+				AFTER INSERT OR UPDATE OR DELETE ON hasgenre
+				FOR EACH ROW
+				EXECUTE FUNCTION sync_movie_genre_ids();
+				
+				UPDATE movie m
+				SET genre_ids = COALESCE(
+				    (SELECT array_agg(hg.genre_id ORDER BY hg.genre_id) FROM hasgenre hg WHERE hg.movie_id = m.id),
+				    '{}');
+				
+				-- Movies having every given genre; an empty list matches nothing
 				CREATE OR REPLACE FUNCTION get_movies_by_all_genres(given_genre_ids INT[])
 				RETURNS TABLE(id INT, title VARCHAR(100), description TEXT, trailerPath VARCHAR(200)) AS $$
 				BEGIN
 				    RETURN QUERY
 				    SELECT m.id, m.title, m.description, m.trailerPath
 				    FROM movie m
-				    WHERE NOT EXISTS (
-				        -- Ensure that there are no genres in the given list that do not intersect with the movie's genres
-				        SELECT unnest(given_genre_ids)
-				        EXCEPT
-				        SELECT hg.genre_id
-				        FROM hasgenre hg
-				        WHERE hg.movie_id = m.id
-				    )
-				    AND (
-				        -- Ensure the movie has at least one genre from the given list
-				        SELECT COUNT(*) 
-				        FROM (
-				            SELECT unnest(given_genre_ids)
-				            INTERSECT
-				            SELECT hg.genre_id
-				            FROM hasgenre hg
-				            WHERE hg.movie_id = m.id
-				        ) AS matched_genres
-				    ) > 0;
+				    WHERE cardinality(given_genre_ids) > 0
+				    AND m.genre_ids @> given_genre_ids;
 				END;
 				$$ LANGUAGE plpgsql;
 				
@@ -198,44 +260,129 @@ public class DatabaseInitializer {
 				END;
 				$$ LANGUAGE plpgsql;
 				
+				DROP TRIGGER IF EXISTS prevent_unsuggest_if_voted_trigger ON suggestion;
 				CREATE TRIGGER prevent_unsuggest_if_voted_trigger
 				BEFORE DELETE ON suggestion
 				FOR EACH ROW
 				EXECUTE FUNCTION prevent_unsuggest_if_voted();
 				
-				CREATE OR REPLACE FUNCTION delete_lobby_when_empty()
+				-- Drops the lobbies a DELETE on inlobby left empty, with their votes, suggestions and
+				-- invitations. Once per statement: emptying a lobby costs the same however many members it had.
+				-- Databases without triggers get the same from LobbyDAO.deleteIfEmpty.
+				CREATE OR REPLACE FUNCTION delete_lobbies_when_empty()
 				RETURNS TRIGGER AS $$
+				DECLARE
+				    emptied INT[];
 				BEGIN
-				    -- Check if there are no users left in the lobby
-				    IF NOT EXISTS (
+				    SELECT array_agg(DISTINCT o.lobby_id) INTO emptied
+				    FROM old_members o
+				    WHERE NOT EXISTS (
 				        SELECT 1
-				        FROM inlobby
-				        WHERE lobby_id = OLD.lobby_id
-				    ) THEN
-				        -- Delete votes and suggestions if no users are left
-				        DELETE FROM vote
-				        WHERE lobby_id = OLD.lobby_id;				        
-				        DELETE FROM suggestion
-				        WHERE lobby_id = OLD.lobby_id;
-				        
-				        -- Then delete the lobby
-				        DELETE FROM lobby
-				        WHERE id = OLD.lobby_id;				        
+				        FROM inlobby il
+				        WHERE il.lobby_id = o.lobby_id
+				    );
+				
+				    IF emptied IS NULL THEN
+				        RETURN NULL;
 				    END IF;
 				
-				    -- Return the OLD row (not used, but required for the trigger)
-				    RETURN OLD;
+				    -- Votes first: prevent_unsuggest_if_voted refuses suggestions that still have votes
+				    DELETE FROM vote WHERE lobby_id = ANY (emptied);
+				    DELETE FROM suggestion WHERE lobby_id = ANY (emptied);
+				    DELETE FROM invitation WHERE lobby_id = ANY (emptied);
+				    DELETE FROM lobby WHERE id = ANY (emptied);
+				    RETURN NULL;
 				END;
 				$$ LANGUAGE plpgsql;
 
+				-- Databases created with the row-level version: replace it
+				DROP TRIGGER IF EXISTS delete_lobby_if_empty ON inlobby;
+				DROP FUNCTION IF EXISTS delete_lobby_when_empty();
+				
 				CREATE TRIGGER delete_lobby_if_empty
 				AFTER DELETE ON inlobby
+				REFERENCING OLD TABLE AS old_members
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION delete_lobbies_when_empty();
+				
+				-- Lobby change feed: bump Lobby.change_seq and NOTIFY lobby_<id> with table:op:user_id:movie_id:change_seq
+				ALTER TABLE lobby ADD COLUMN IF NOT EXISTS change_seq BIGINT NOT NULL DEFAULT 0;
+				
+				CREATE OR REPLACE FUNCTION notify_lobby_change()
+				RETURNS TRIGGER AS $$
+				DECLARE
+				    rec RECORD;
+				    changed_user INT := 0;
+				    changed_movie INT := 0;
+				    new_seq BIGINT;
+				BEGIN
+				    IF TG_OP = 'DELETE' THEN
+				        rec := OLD;
+				    ELSE
+				        rec := NEW;
+				    END IF;
+				
+				    IF TG_TABLE_NAME = 'suggestion' THEN
+				        changed_user := rec.suggested_by;
+				        changed_movie := rec.movie_id;
+				    ELSIF TG_TABLE_NAME = 'vote' THEN
+				        changed_user := rec.user_id;
+				        changed_movie := rec.movie_id;
+				    ELSE
+				        changed_user := rec.user_id;
+				    END IF;
+				
+				    UPDATE lobby SET change_seq = change_seq + 1
+				    WHERE id = rec.lobby_id
+				    RETURNING change_seq INTO new_seq;
+				
+				    PERFORM pg_notify('lobby_' || rec.lobby_id,
+				        TG_TABLE_NAME || ':' || left(TG_OP, 1) || ':' || changed_user || ':' || changed_movie || ':' || COALESCE(new_seq, 0));
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+				
+				CREATE OR REPLACE FUNCTION notify_lobby_ready()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    NEW.change_seq := OLD.change_seq + 1;
+				    PERFORM pg_notify('lobby_' || NEW.id, 'lobby:U:0:0:' || NEW.change_seq);
+				    RETURN NEW;
+				END;
+				$$ LANGUAGE plpgsql;
+				
+				DROP TRIGGER IF EXISTS vote_lobby_change ON vote;
+				CREATE TRIGGER vote_lobby_change
+				AFTER INSERT OR DELETE ON vote
 				FOR EACH ROW
-				EXECUTE FUNCTION delete_lobby_when_empty();
+				EXECUTE FUNCTION notify_lobby_change();
 				
-				CREATE VIEW user_identifiers AS
+				DROP TRIGGER IF EXISTS suggestion_lobby_change ON suggestion;
+				CREATE TRIGGER suggestion_lobby_change
+				AFTER INSERT OR DELETE ON suggestion
+				FOR EACH ROW
+				EXECUTE FUNCTION notify_lobby_change();
+				
+				DROP TRIGGER IF EXISTS inlobby_lobby_change ON inlobby;
+				CREATE TRIGGER inlobby_lobby_change
+				AFTER INSERT OR DELETE ON inlobby
+				FOR EACH ROW
+				EXECUTE FUNCTION notify_lobby_change();
+				
+				DROP TRIGGER IF EXISTS lobby_ready_change ON lobby;
+				CREATE TRIGGER lobby_ready_change
+				BEFORE UPDATE OF is_ready ON lobby
+				FOR EACH ROW
+				WHEN (OLD.is_ready IS DISTINCT FROM NEW.is_ready)
+				EXECUTE FUNCTION notify_lobby_ready();
+				
+				CREATE OR REPLACE VIEW user_identifiers AS
 				SELECT id, username
 				FROM "User";
+				
+				-- Case-insensitive username prefix search (lower(username) LIKE 'ab%') for the user directory
+				CREATE INDEX IF NOT EXISTS user_username_prefix_idx
+				ON "User" (lower(username) text_pattern_ops);
 								
 				CREATE OR REPLACE FUNCTION get_user_by_credentials(
 				    p_username VARCHAR(50),
@@ -258,9 +405,174 @@ public class DatabaseInitializer {
 				END;
 				$$ LANGUAGE plpgsql;
 
-			""";
-			stmt.execute(createTables);
-			System.out.println("Tables created successfully!.");
+			"""),
+			new Migration(2, "Indexes for the DAO lookups", """
+				-- Members by user: the lobby a user belongs to
+				CREATE INDEX IF NOT EXISTS inlobby_user_id_idx ON InLobby (user_id);
+
+				-- Invitations by receiver, and by lobby when a lobby is cleaned up
+				CREATE INDEX IF NOT EXISTS invitation_receiver_id_idx ON Invitation (receiver_id);
+				CREATE INDEX IF NOT EXISTS invitation_lobby_id_idx ON Invitation (lobby_id);
+
+				-- Votes of one suggested movie: counts, suggestion titles, prevent_unsuggest_if_voted
+				CREATE INDEX IF NOT EXISTS vote_lobby_movie_idx ON Vote (lobby_id, movie_id);
+
+				-- A user's latest lobby (LobbyDAO.findIdByOwner)
+				CREATE INDEX IF NOT EXISTS lobby_owner_id_idx ON Lobby (owner_id, id);
+
+				CREATE INDEX IF NOT EXISTS genre_name_idx ON Genre (name);
+				CREATE INDEX IF NOT EXISTS movie_title_idx ON Movie (title);
+
+				-- Movies of a genre
+				CREATE INDEX IF NOT EXISTS hasgenre_genre_id_idx ON HasGenre (genre_id);
+
+				-- Accounts created since the user directory's last refresh
+				CREATE INDEX IF NOT EXISTS user_created_at_idx ON "User" (created_at);
+			"""),
+			Migration.postgres(3, "Lobby notifications without the change_seq update", """
+				-- Updating Lobby.change_seq from every Vote, Suggestion and InLobby write locked the lobby
+				-- row until commit, serialising all voters of a lobby. Nothing on PostgreSQL reads it, so the
+				-- payload ends with the transaction id instead. The polling channel bumps change_seq itself.
+				CREATE OR REPLACE FUNCTION notify_lobby_change()
+				RETURNS TRIGGER AS $$
+				DECLARE
+				    rec RECORD;
+				    changed_user INT := 0;
+				    changed_movie INT := 0;
+				BEGIN
+				    IF TG_OP = 'DELETE' THEN
+				        rec := OLD;
+				    ELSE
+				        rec := NEW;
+				    END IF;
+
+				    IF TG_TABLE_NAME = 'suggestion' THEN
+				        changed_user := rec.suggested_by;
+				        changed_movie := rec.movie_id;
+				    ELSIF TG_TABLE_NAME = 'vote' THEN
+				        changed_user := rec.user_id;
+				        changed_movie := rec.movie_id;
+				    ELSE
+				        changed_user := rec.user_id;
+				    END IF;
+
+				    PERFORM pg_notify('lobby_' || rec.lobby_id,
+				        TG_TABLE_NAME || ':' || left(TG_OP, 1) || ':' || changed_user || ':' || changed_movie || ':' || txid_current());
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+			"""),
+			Migration.postgres(4, "Statement-level lobby triggers", """
+				-- The row-level tally, unsuggest and notify triggers ran once per member, vote and suggestion,
+				-- also for every row of a lobby being torn down. These versions run once per statement and read
+				-- the rows from transition tables, so emptying a lobby runs a fixed number of statements, one
+				-- DELETE per table with one call of each trigger. Those statements still touch each of the
+				-- lobby's members, votes and suggestions once.
+				COMMENT ON FUNCTION delete_lobbies_when_empty() IS
+				    'Deletes the lobbies a DELETE on inlobby left empty: four set-based DELETEs, each firing the statement-level triggers once.';
+
+				CREATE OR REPLACE FUNCTION vote_tally_decrement()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    UPDATE vote_tally t
+				    SET vote_count = t.vote_count - r.removed
+				    FROM (
+				        SELECT lobby_id, movie_id, COUNT(*) AS removed
+				        FROM removed_votes
+				        GROUP BY lobby_id, movie_id
+				    ) r
+				    WHERE t.lobby_id = r.lobby_id AND t.movie_id = r.movie_id;
+
+				    -- Drop the row once the last vote is gone, so reads only see voted movies
+				    DELETE FROM vote_tally t
+				    USING (SELECT DISTINCT lobby_id, movie_id FROM removed_votes) r
+				    WHERE t.lobby_id = r.lobby_id AND t.movie_id = r.movie_id AND t.vote_count <= 0;
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+
+				DROP TRIGGER IF EXISTS vote_tally_on_delete ON vote;
+				CREATE TRIGGER vote_tally_on_delete
+				AFTER DELETE ON vote
+				REFERENCING OLD TABLE AS removed_votes
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION vote_tally_decrement();
+
+				-- After the statement rather than before each row: raising still undoes the whole DELETE
+				CREATE OR REPLACE FUNCTION prevent_unsuggest_if_voted()
+				RETURNS TRIGGER AS $$
+				BEGIN
+				    IF EXISTS (
+				        SELECT 1
+				        FROM removed_suggestions s
+				        JOIN vote v ON v.lobby_id = s.lobby_id AND v.movie_id = s.movie_id
+				    ) THEN
+				        RAISE EXCEPTION 'Cannot unsuggest this movie as it has already been voted on.';
+				    END IF;
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+
+				DROP TRIGGER IF EXISTS prevent_unsuggest_if_voted_trigger ON suggestion;
+				CREATE TRIGGER prevent_unsuggest_if_voted_trigger
+				AFTER DELETE ON suggestion
+				REFERENCING OLD TABLE AS removed_suggestions
+				FOR EACH STATEMENT
+				EXECUTE FUNCTION prevent_unsuggest_if_voted();
+
+				-- One NOTIFY per lobby and statement. A single row keeps the detailed payload; more rows send
+				-- changed:U:0:0:<txid>, which clients treat as "reload". Identical payloads in one transaction
+				-- are delivered once, so a teardown notifies each lobby once.
+				CREATE OR REPLACE FUNCTION notify_lobby_change()
+				RETURNS TRIGGER AS $$
+				DECLARE
+				    r RECORD;
+				BEGIN
+				    FOR r IN
+				        SELECT lobby_id, COUNT(*) AS changed_rows,
+				               MIN(changed_user) AS changed_user, MIN(changed_movie) AS changed_movie
+				        FROM (
+				            SELECT (j ->> 'lobby_id')::INT AS lobby_id,
+				                   COALESCE(j ->> 'suggested_by', j ->> 'user_id', '0')::INT AS changed_user,
+				                   COALESCE(j ->> 'movie_id', '0')::INT AS changed_movie
+				            FROM changed c, to_jsonb(c) AS j
+				        ) row_changes
+				        GROUP BY lobby_id
+				    LOOP
+				        IF r.changed_rows = 1 THEN
+				            PERFORM pg_notify('lobby_' || r.lobby_id,
+				                TG_TABLE_NAME || ':' || left(TG_OP, 1) || ':' || r.changed_user || ':' || r.changed_movie || ':' || txid_current());
+				        ELSE
+				            PERFORM pg_notify('lobby_' || r.lobby_id, 'changed:U:0:0:' || txid_current());
+				        END IF;
+				    END LOOP;
+				    RETURN NULL;
+				END;
+				$$ LANGUAGE plpgsql;
+
+				DROP TRIGGER IF EXISTS vote_lobby_change ON vote;
+				DROP TRIGGER IF EXISTS suggestion_lobby_change ON suggestion;
+				DROP TRIGGER IF EXISTS inlobby_lobby_change ON inlobby;
+
+				-- A trigger with a transition table fires on one event only: one trigger per operation
+				CREATE TRIGGER vote_lobby_insert AFTER INSERT ON vote
+				REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+				CREATE TRIGGER vote_lobby_delete AFTER DELETE ON vote
+				REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+				CREATE TRIGGER suggestion_lobby_insert AFTER INSERT ON suggestion
+				REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+				CREATE TRIGGER suggestion_lobby_delete AFTER DELETE ON suggestion
+				REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+				CREATE TRIGGER inlobby_lobby_insert AFTER INSERT ON inlobby
+				REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+				CREATE TRIGGER inlobby_lobby_delete AFTER DELETE ON inlobby
+				REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION notify_lobby_change();
+			"""));
+	
+	public static void initialize(Connection connection) {
+		try {
+			int applied = new SchemaMigrator(ConnectionProvider.of(connection), MIGRATIONS).migrate();
+			System.out.println(applied == 0 ? "Schema is up to date." : "Tables created successfully!.");
 		} catch (Exception e) {
 			System.err.println("Hata: " + e.getMessage());
 		}
@@ -304,27 +616,14 @@ public class DatabaseInitializer {
 		};
 
 		UserDAO userDAO = new UserDAO(connection);
-		for (User u : users) {
-			userDAO.createUserWithID(u);
-		}
+		userDAO.createUsersWithID(Arrays.asList(users));
 
 		Lobby defaultLobby = new Lobby(0, 0, false, new Date(System.currentTimeMillis()));
 		LobbyDAO lobbyDAO = new LobbyDAO(connection);
 		lobbyDAO.createLobby(defaultLobby);
 
 		InvitationDAO invitationDAO = new InvitationDAO(connection);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[1]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[2]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[3]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[4]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[5]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[6]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[7]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[8]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[9]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[10]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[11]);
-		invitationDAO.sendInvitation(users[0], defaultLobby, users[12]);
+		invitationDAO.sendInvitations(users[0], defaultLobby, Arrays.asList(users).subList(1, 13));
 
 
 		// TODO: add a trailers
@@ -345,9 +644,7 @@ public class DatabaseInitializer {
 		};
 		
 		MovieDAO movieDAO = new MovieDAO(connection);
-		for (Movie m : movies) {
-			movieDAO.createMovieWithID(m);
-		}
+		movieDAO.createMoviesWithID(Arrays.asList(movies));
 
 		// NOTE: at least 10 genres added
 		Genre[] genres = {
@@ -365,66 +662,65 @@ public class DatabaseInitializer {
 		};
 
 		GenreDAO genreDAO = new GenreDAO(connection);
+		genreDAO.createGenres(Arrays.asList(genres));
+
+		// Genres of each movie, by index into movies
+		String[][] movieGenres = {
+			// kung fu panda : animation, adventure, action, family, comedy
+			{"animation", "comedy", "adventure", "family", "action"},
+			// kung fu panda 2 : animation, adventure, action, family, comedy 
+			{"animation", "comedy", "adventure", "family", "action"},
+			//cars : animation adventure, comedy family
+			{"animation", "adventure", "comedy", "family"},
+			// cars 2 : action spy adventure comedy animation crime family sci-fi
+			{"action", "spy", "adventure", "comedy", "animation", "crime", "family", "sci-fi"},
+			// interstellar : sci-fi adventure drama
+			{"sci-fi", "adventure", "drama"},
+			// lord of the rings : adventure drama fantasy
+			{"adventure", "drama", "fantasy"},
+			// Fight Club : drama
+			{"drama"},
+			// God Father : drama crime
+			{"drama", "crime"},
+			// up : animation adventure comedy drama family
+			{"animation", "comedy", "drama", "family"},
+			// reservoir dogs : crime
+			{"crime"},
+		};
+
+		Map<String, Genre> genresByName = new HashMap<>();
 		for (Genre g : genres) {
-			genreDAO.createGenre(g);
+			genresByName.put(g.getName(), g);
+		}
+		List<HasGenre> links = new ArrayList<>();
+		for (int i = 0; i < movies.length; i++) {
+			for (String name : movieGenres[i]) {
+				links.add(new HasGenre(movies[i].getId(), genresByName.get(name).getId()));
+			}
 		}
-
 		HasGenreDAO hasGenreDAO = new HasGenreDAO(connection);
+		hasGenreDAO.assignGenres(links);
+
+		advanceSequences(connection);
+	}
 
-		// kung fu panda : animation, adventure, action, family, comedy
-		hasGenreDAO.assignGenreToMovie(movies[0], genreDAO.getGenre("animation"));
-		hasGenreDAO.assignGenreToMovie(movies[0], genreDAO.getGenre("comedy"));
-		hasGenreDAO.assignGenreToMovie(movies[0], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[0], genreDAO.getGenre("family"));
-		hasGenreDAO.assignGenreToMovie(movies[0], genreDAO.getGenre("action"));
-
-		// kung fu panda 2 : animation, adventure, action, family, comedy 
-		hasGenreDAO.assignGenreToMovie(movies[1], genreDAO.getGenre("animation"));
-		hasGenreDAO.assignGenreToMovie(movies[1], genreDAO.getGenre("comedy"));
-		hasGenreDAO.assignGenreToMovie(movies[1], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[1], genreDAO.getGenre("family"));
-		hasGenreDAO.assignGenreToMovie(movies[1], genreDAO.getGenre("action"));
-
-		//cars : animation adventure, comedy family
-		hasGenreDAO.assignGenreToMovie(movies[2], genreDAO.getGenre("animation"));
-		hasGenreDAO.assignGenreToMovie(movies[2], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[2], genreDAO.getGenre("comedy"));
-		hasGenreDAO.assignGenreToMovie(movies[2], genreDAO.getGenre("family"));
-
-		// cars 2 : action spy adventure comedy animation crime family sci-fi
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("action"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("spy"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("comedy"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("animation"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("crime"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("family"));
-		hasGenreDAO.assignGenreToMovie(movies[3], genreDAO.getGenre("sci-fi"));
-
-		hasGenreDAO.assignGenreToMovie(movies[4], genreDAO.getGenre("sci-fi"));
-		hasGenreDAO.assignGenreToMovie(movies[4], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[4], genreDAO.getGenre("drama"));
-
-		// lord of the rings : adventure drama fantasy
-		hasGenreDAO.assignGenreToMovie(movies[5], genreDAO.getGenre("adventure"));
-		hasGenreDAO.assignGenreToMovie(movies[5], genreDAO.getGenre("drama"));
-		hasGenreDAO.assignGenreToMovie(movies[5], genreDAO.getGenre("fantasy"));
-
-		// Fight Club : drama
-		hasGenreDAO.assignGenreToMovie(movies[6], genreDAO.getGenre("drama"));
-
-		// God Father : drama crime
-		hasGenreDAO.assignGenreToMovie(movies[7], genreDAO.getGenre("drama"));
-		hasGenreDAO.assignGenreToMovie(movies[7], genreDAO.getGenre("crime"));
-
-		// up : animation adventure comedy drama family
-		hasGenreDAO.assignGenreToMovie(movies[8], genreDAO.getGenre("animation"));
-		hasGenreDAO.assignGenreToMovie(movies[8], genreDAO.getGenre("comedy"));
-		hasGenreDAO.assignGenreToMovie(movies[8], genreDAO.getGenre("drama"));
-		hasGenreDAO.assignGenreToMovie(movies[8], genreDAO.getGenre("family"));
-
-		// reservoir dogs : crime
-		hasGenreDAO.assignGenreToMovie(movies[9], genreDAO.getGenre("crime"));
+	// The defaults carry their own ids, so the sequences IdAllocator reserves from must move past them.
+	// Only ever forward: another process may hold a block beyond the highest id.
+	private static void advanceSequences(Connection connection) {
+		String[][] sequences = {
+				{ "user_id_seq", "\"User\"" },
+				{ "lobby_id_seq", "Lobby" },
+				{ "movie_id_seq", "Movie" },
+				{ "genre_id_seq", "Genre" },
+		};
+		try (Statement stmt = connection.createStatement()) {
+			for (String[] sequence : sequences) {
+				stmt.execute("SELECT setval('" + sequence[0] + "', GREATEST(MAX(id), pg_sequence_last_value('"
+						+ sequence[0] + "'))) FROM " + sequence[1] + " HAVING MAX(id) IS NOT NULL");
+			}
+		} catch (SQLException e) {
+			System.err.println("AdvanceSequences error: " + e.getMessage());
+		}
 	}
 	
 	public static void main(String[] args) {
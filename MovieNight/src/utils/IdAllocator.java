@@ -0,0 +1,116 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out ids for new rows from blocks reserved on a database sequence.
+ *
+ * One query takes a whole block of values from the sequence, and ids are then
+ * handed out from memory with a single atomic increment, so creating rows
+ * costs no round trip per id. Because every value still comes from the
+ * sequence, ids never clash with other processes or with rows inserted through
+ * the column default. The sequence keeps its increment of one: when several
+ * processes reserve at once a block may have gaps, which is harmless. Ids
+ * still in a block when the process ends are never used.
+ */
+public class IdAllocator {
+	public static final int DEFAULT_BLOCK_SIZE = 50;
+
+	private final ConnectionProvider connectionProvider;
+	private final String reserveQuery;
+	private final int blockSize;
+	// Not synchronized: callers are often virtual threads, which must not block in JDBC while pinned.
+	private final ReentrantLock refillLock = new ReentrantLock();
+	private volatile Block block = new Block(new int[0]);
+
+	public IdAllocator(ConnectionProvider connectionProvider, String sequence) {
+		this(connectionProvider, sequence, DEFAULT_BLOCK_SIZE);
+	}
+
+	public IdAllocator(ConnectionProvider connectionProvider, String sequence, int blockSize) {
+		if (!sequence.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+			throw new IllegalArgumentException("Not a sequence name: " + sequence);
+		}
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+		}
+		this.connectionProvider = connectionProvider;
+		this.reserveQuery = "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)";
+		this.blockSize = blockSize;
+	}
+
+	public int next() throws SQLException {
+		while (true) {
+			Block current = block;
+			int index = current.cursor.getAndIncrement();
+			if (index < current.ids.length) {
+				return current.ids[index];
+			}
+			refill(current);
+		}
+	}
+
+	// count ids at once, e.g. for a batch insert: the rest of the current block,
+	// then one reservation for whatever is still missing.
+	public int[] next(int count) throws SQLException {
+		int[] ids = new int[count];
+		int taken = 0;
+		Block current = block;
+		while (taken < count) {
+			int index = current.cursor.getAndIncrement();
+			if (index >= current.ids.length) {
+				break;
+			}
+			ids[taken++] = current.ids[index];
+		}
+		if (taken < count) {
+			int[] reserved = reserve(count - taken);
+			System.arraycopy(reserved, 0, ids, taken, reserved.length);
+		}
+		return ids;
+	}
+
+	private void refill(Block exhausted) throws SQLException {
+		refillLock.lock();
+		try {
+			// Whoever got the lock first has refilled already.
+			if (block == exhausted) {
+				block = new Block(reserve(blockSize));
+			}
+		} finally {
+			refillLock.unlock();
+		}
+	}
+
+	private int[] reserve(int count) throws SQLException {
+		int[] ids = new int[count];
+		int reserved = 0;
+		try (Connection conn = connectionProvider.getConnection();
+			 PreparedStatement stmt = conn.prepareStatement(reserveQuery)) {
+			stmt.setInt(1, count);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (reserved < count && rs.next()) {
+					ids[reserved++] = rs.getInt(1);
+				}
+			}
+		}
+		if (reserved < count) {
+			throw new SQLException("Reserved " + reserved + " of " + count + " ids");
+		}
+		return ids;
+	}
+
+	private static final class Block {
+		final int[] ids;
+		final AtomicInteger cursor = new AtomicInteger();
+
+		Block(int[] ids) {
+			this.ids = ids;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection provider that times what goes through it into a
+ * {@link QueryMetrics}: how long each borrow waited for a connection, and
+ * for every statement the time from execute until its result set is closed
+ * (so fetching the rows counts), the rows returned or updated, and whether
+ * it failed. Wrap the pool with it and build the DAOs, or a TransactionTemplate,
+ * on top; everything else is forwarded unchanged.
+ */
+public class InstrumentedConnectionProvider implements ConnectionProvider {
+	private final ConnectionProvider delegate;
+	private final QueryMetrics metrics;
+
+	public InstrumentedConnectionProvider(ConnectionProvider delegate, QueryMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	public QueryMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection;
+		try {
+			connection = delegate.getConnection();
+		} catch (SQLException | RuntimeException e) {
+			metrics.recordConnectionWait(System.nanoTime() - start, true);
+			throw e;
+		}
+		metrics.recordConnectionWait(System.nanoTime() - start, false);
+		return (Connection) Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					if (!method.getName().startsWith("prepare")) {
+						Object result = invoke(connection, method, args);
+						return result instanceof Statement statement
+								? new Timed(statement, null).proxy(method.getReturnType())
+								: result;
+					}
+					String sql = (String) args[0];
+					long prepareStart = System.nanoTime();
+					Object result;
+					try {
+						result = invoke(connection, method, args);
+					} catch (SQLException e) {
+						// Drivers such as H2 reject bad SQL here rather than on execute.
+						metrics.recordStatement(sql, System.nanoTime() - prepareStart, 0, true);
+						throw e;
+					}
+					return new Timed((Statement) result, sql).proxy(method.getReturnType());
+				});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	// One statement; sql is null for a plain Statement, whose executes carry their own.
+	private final class Timed {
+		private final Statement statement;
+		private final String sql;
+		// The query whose result set is still open; recorded once that closes.
+		private Execution open;
+
+		Timed(Statement statement, String sql) {
+			this.statement = statement;
+			this.sql = sql;
+		}
+
+		Object proxy(Class<?> type) {
+			Class<?> statementType = CallableStatement.class.isAssignableFrom(type) ? CallableStatement.class
+					: PreparedStatement.class.isAssignableFrom(type) ? PreparedStatement.class
+					: Statement.class;
+			return Proxy.newProxyInstance(
+					Connection.class.getClassLoader(),
+					new Class<?>[] { statementType },
+					(proxy, method, args) -> {
+						String name = method.getName();
+						if (name.equals("close")) {
+							finishOpen();
+							return invoke(statement, method, args);
+						}
+						if (!name.startsWith("execute")) {
+							return invoke(statement, method, args);
+						}
+						finishOpen();
+						String executed = sql != null ? sql : args != null && args.length > 0 ? (String) args[0] : null;
+						if (executed == null) {
+							return invoke(statement, method, args);
+						}
+						long start = System.nanoTime();
+						Object result;
+						try {
+							result = invoke(statement, method, args);
+						} catch (Throwable e) {
+							metrics.recordStatement(executed, System.nanoTime() - start, 0, true);
+							throw e;
+						}
+						if (result instanceof ResultSet rs) {
+							Execution execution = new Execution(executed, start);
+							open = execution;
+							return execution.watch(rs);
+						}
+						metrics.recordStatement(executed, System.nanoTime() - start, rowsOf(result), false);
+						return result;
+					});
+		}
+
+		private void finishOpen() {
+			Execution execution = open;
+			if (execution != null) {
+				open = null;
+				execution.finish();
+			}
+		}
+	}
+
+	// Update counts as rows; a plain execute reports none, and SUCCESS_NO_INFO (-2) is skipped.
+	private static long rowsOf(Object result) {
+		if (result instanceof Number count) {
+			return Math.max(0, count.longValue());
+		}
+		long rows = 0;
+		if (result instanceof int[] counts) {
+			for (int count : counts) {
+				rows += Math.max(0, count);
+			}
+		} else if (result instanceof long[] counts) {
+			for (long count : counts) {
+				rows += Math.max(0, count);
+			}
+		}
+		return rows;
+	}
+
+	private final class Execution {
+		private final String sql;
+		private final long start;
+		private long rows;
+		private boolean finished;
+
+		Execution(String sql, long start) {
+			this.sql = sql;
+			this.start = start;
+		}
+
+		ResultSet watch(ResultSet rs) {
+			return (ResultSet) Proxy.newProxyInstance(
+					ResultSet.class.getClassLoader(),
+					new Class<?>[] { ResultSet.class },
+					(proxy, method, args) -> {
+						switch (method.getName()) {
+						case "next":
+							Object hasRow = invoke(rs, method, args);
+							if ((Boolean) hasRow) {
+								rows++;
+							}
+							return hasRow;
+						case "close":
+							finish();
+							return invoke(rs, method, args);
+						default:
+							return invoke(rs, method, args);
+						}
+					});
+		}
+
+		void finish() {
+			if (!finished) {
+				finished = true;
+				metrics.recordStatement(sql, System.nanoTime() - start, rows, false);
+			}
+		}
+	}
+}
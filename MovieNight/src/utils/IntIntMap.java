@@ -0,0 +1,133 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to int hash map. Avoids boxing every key and value
+ * when DAOs hand back id-keyed counts.
+ */
+public class IntIntMap {
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	public IntIntMap() {
+		this(16);
+	}
+
+	public IntIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+	}
+
+	public int get(int key) {
+		return getOrDefault(key, 0);
+	}
+
+	public int getOrDefault(int key, int defaultValue) {
+		int slot = indexOf(key);
+		return slot < 0 ? defaultValue : values[slot];
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	public void put(int key, int value) {
+		checkKey(key);
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length) {
+			resize();
+		}
+	}
+
+	public int addTo(int key, int delta) {
+		int slot = indexOf(key);
+		if (slot >= 0) {
+			return values[slot] += delta;
+		}
+		put(key, delta);
+		return delta;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] keys() {
+		int[] result = new int[size];
+		int i = 0;
+		for (int key : keys) {
+			if (key != FREE) {
+				result[i++] = key;
+			}
+		}
+		return result;
+	}
+
+	public interface Consumer {
+		void accept(int key, int value);
+	}
+
+	public void forEach(Consumer consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				consumer.accept(keys[i], values[i]);
+			}
+		}
+	}
+
+	private int indexOf(int key) {
+		if (key == FREE) {
+			return -1;
+		}
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void resize() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		Arrays.fill(keys, FREE);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private static void checkKey(int key) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("Unsupported key: " + key);
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
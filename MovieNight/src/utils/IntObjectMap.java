@@ -0,0 +1,153 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to object hash map, for DAOs handing back entities
+ * keyed by id without boxing the keys.
+ */
+public class IntObjectMap<V> {
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+
+	public IntObjectMap() {
+		this(16);
+	}
+
+	public IntObjectMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		Arrays.fill(keys, FREE);
+	}
+
+	// Returns null for a missing key.
+	public V get(int key) {
+		return getOrDefault(key, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V getOrDefault(int key, V defaultValue) {
+		int slot = indexOf(key);
+		return slot < 0 ? defaultValue : (V) values[slot];
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	public void put(int key, V value) {
+		checkKey(key);
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length) {
+			resize();
+		}
+	}
+
+	// Returns the removed value, or null when the key was absent.
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int slot = indexOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		V removed = (V) values[slot];
+		// Backward shift: pull later entries of the probe run into the gap, so lookups need no tombstones.
+		int mask = keys.length - 1;
+		int gap = slot;
+		for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+		keys[gap] = FREE;
+		values[gap] = null;
+		size--;
+		return removed;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] keys() {
+		int[] result = new int[size];
+		int i = 0;
+		for (int key : keys) {
+			if (key != FREE) {
+				result[i++] = key;
+			}
+		}
+		return result;
+	}
+
+	public interface Consumer<V> {
+		void accept(int key, V value);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super V> consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				consumer.accept(keys[i], (V) values[i]);
+			}
+		}
+	}
+
+	private int indexOf(int key) {
+		if (key == FREE) {
+			return -1;
+		}
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void resize() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		Arrays.fill(keys, FREE);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				put(oldKeys[i], (V) oldValues[i]);
+			}
+		}
+	}
+
+	private static void checkKey(int key) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("Unsupported key: " + key);
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
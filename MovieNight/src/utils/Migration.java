@@ -0,0 +1,71 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * One numbered step of the schema, applied once by {@link SchemaMigrator}.
+ *
+ * The SQL may hold several statements. A migration that has shipped must not
+ * be edited: its checksum is recorded when it is applied, and a database that
+ * ran different SQL under the same version is refused. Change the schema with
+ * a new migration instead.
+ */
+public class Migration {
+	private final int version;
+	private final String description;
+	private final String sql;
+	private final boolean postgresOnly;
+	private final String checksum;
+
+	public Migration(int version, String description, String sql) {
+		this(version, description, sql, false);
+	}
+
+	private Migration(int version, String description, String sql, boolean postgresOnly) {
+		if (version < 1) {
+			throw new IllegalArgumentException("Migration version must be positive: " + version);
+		}
+		this.version = version;
+		this.description = description;
+		this.sql = sql;
+		this.postgresOnly = postgresOnly;
+		this.checksum = sha256(sql);
+	}
+
+	// For SQL only PostgreSQL runs (PL/pgSQL functions, triggers); other databases skip it.
+	public static Migration postgres(int version, String description, String sql) {
+		return new Migration(version, description, sql, true);
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public boolean appliesTo(boolean postgres) {
+		return postgres || !postgresOnly;
+	}
+
+	public String getChecksum() {
+		return checksum;
+	}
+
+	private static String sha256(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency, row and error counts per SQL template and per facade operation,
+ * the time spent waiting for a connection, and a log of the slowest
+ * statements. {@link InstrumentedConnectionProvider} feeds the statement and
+ * connection figures; callers such as the server time their operations with
+ * {@link #recordOperation}.
+ *
+ * A template is the SQL text with literals and placeholder lists folded, so
+ * "WHERE id IN (?, ?, ?)" and "WHERE id IN (?, ?)" share one entry.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+	public static final long DEFAULT_SLOW_QUERY_MILLIS = 200;
+	static final String OTHER = "(other)";
+	// Beyond this many templates or operations, e.g. from SQL built with ids in it, the rest share one entry.
+	private static final int MAX_TEMPLATES = 500;
+	private static final int MAX_SQL_TEXTS = 2_000;
+	private static final int MAX_TEMPLATE_LENGTH = 1_000;
+	private static final int SLOW_LOG_SIZE = 100;
+
+	private static final Pattern LITERALS = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern PLACEHOLDER_LISTS = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	// SQL text as executed to its statistics, so the template is only worked out once per text.
+	private final Map<String, Statistics> statementsBySql = new ConcurrentHashMap<>();
+	private final Map<String, Statistics> statements = new ConcurrentHashMap<>();
+	private final Map<String, Statistics> operations = new ConcurrentHashMap<>();
+	private final ArrayDeque<String> slowLog = new ArrayDeque<>(SLOW_LOG_SIZE);
+	private final LongAdder slowQueries = new LongAdder();
+	private final LongAdder connectionErrors = new LongAdder();
+	private volatile LatencyHistogram connectionWait = new LatencyHistogram();
+	private volatile long slowQueryThresholdNanos;
+	private volatile Instant since = Instant.now();
+	private ObjectName registeredName;
+
+	public QueryMetrics() {
+		this(DEFAULT_SLOW_QUERY_MILLIS);
+	}
+
+	public QueryMetrics(long slowQueryThresholdMillis) {
+		this.slowQueryThresholdNanos = thresholdNanos(slowQueryThresholdMillis);
+	}
+
+	public void recordStatement(String sql, long nanos, long rows, boolean failed) {
+		Statistics statistics = statementsBySql.get(sql);
+		if (statistics == null) {
+			statistics = statisticsOf(statements, templateOf(sql));
+			if (statementsBySql.size() < MAX_SQL_TEXTS) {
+				statementsBySql.putIfAbsent(sql, statistics);
+			}
+		}
+		statistics.record(nanos, rows, failed);
+		if (nanos >= slowQueryThresholdNanos) {
+			logSlowQuery(statistics.name, nanos, rows);
+		}
+	}
+
+	public void recordOperation(String operation, long nanos, boolean failed) {
+		statisticsOf(operations, operation).record(nanos, 0, failed);
+	}
+
+	public void recordConnectionWait(long nanos, boolean failed) {
+		connectionWait.record(nanos);
+		if (failed) {
+			connectionErrors.increment();
+		}
+	}
+
+	private static Statistics statisticsOf(Map<String, Statistics> map, String name) {
+		Statistics statistics = map.get(name);
+		if (statistics != null) {
+			return statistics;
+		}
+		if (map.size() >= MAX_TEMPLATES) {
+			name = OTHER;
+		}
+		return map.computeIfAbsent(name, Statistics::new);
+	}
+
+	static String templateOf(String sql) {
+		String template = LITERALS.matcher(sql).replaceAll("?");
+		template = PLACEHOLDER_LISTS.matcher(template).replaceAll("?, ...");
+		template = WHITESPACE.matcher(template).replaceAll(" ").trim();
+		return template.length() > MAX_TEMPLATE_LENGTH ? template.substring(0, MAX_TEMPLATE_LENGTH) + "..." : template;
+	}
+
+	// Parameters are left out: they may hold passwords.
+	private void logSlowQuery(String template, long nanos, long rows) {
+		slowQueries.increment();
+		String entry = String.format(Locale.ROOT, "%s %.1f ms, %d rows: %s", Instant.now(), millis(nanos), rows, template);
+		synchronized (slowLog) {
+			if (slowLog.size() == SLOW_LOG_SIZE) {
+				slowLog.pollFirst();
+			}
+			slowLog.addLast(entry);
+		}
+		System.err.println("Slow query (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, " + rows + " rows): " + template);
+	}
+
+	// Makes the figures visible over JMX, e.g. in jconsole; see QueryMetricsMXBean.
+	public void register(String name) {
+		try {
+			ObjectName objectName = new ObjectName("movienight:type=QueryMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			registeredName = objectName;
+		} catch (JMException e) {
+			System.err.println("JMX error: " + e.getMessage());
+		}
+	}
+
+	public void unregister() {
+		if (registeredName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+		} catch (JMException e) {
+			System.err.println("JMX error: " + e.getMessage());
+		}
+		registeredName = null;
+	}
+
+	public LatencyHistogram getStatementLatency(String sql) {
+		Statistics statistics = statements.get(templateOf(sql));
+		return statistics == null ? null : statistics.latency;
+	}
+
+	public LatencyHistogram getOperationLatency(String operation) {
+		Statistics statistics = operations.get(operation);
+		return statistics == null ? null : statistics.latency;
+	}
+
+	public LatencyHistogram getConnectionWait() {
+		return connectionWait;
+	}
+
+	@Override
+	public long getStatementCount() {
+		long count = 0;
+		for (Statistics statistics : statements.values()) {
+			count += statistics.latency.getCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getErrorCount() {
+		long count = 0;
+		for (Statistics statistics : statements.values()) {
+			count += statistics.errors.sum();
+		}
+		return count;
+	}
+
+	@Override
+	public long getRowCount() {
+		long count = 0;
+		for (Statistics statistics : statements.values()) {
+			count += statistics.rows.sum();
+		}
+		return count;
+	}
+
+	@Override
+	public long getSlowQueryCount() {
+		return slowQueries.sum();
+	}
+
+	@Override
+	public long getSlowQueryThresholdMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+	}
+
+	@Override
+	public void setSlowQueryThresholdMillis(long thresholdMillis) {
+		this.slowQueryThresholdNanos = thresholdNanos(thresholdMillis);
+	}
+
+	private static long thresholdNanos(long thresholdMillis) {
+		if (thresholdMillis < 0) {
+			throw new IllegalArgumentException("Slow query threshold must not be negative: " + thresholdMillis);
+		}
+		return TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	@Override
+	public long getConnectionWaitCount() {
+		return connectionWait.getCount();
+	}
+
+	@Override
+	public double getConnectionWaitMeanMillis() {
+		return millis(connectionWait.getMean());
+	}
+
+	@Override
+	public double getConnectionWaitP99Millis() {
+		return millis(connectionWait.getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getConnectionWaitMaxMillis() {
+		return millis(connectionWait.getMax());
+	}
+
+	@Override
+	public String[] getStatements() {
+		return lines(statements, true).toArray(new String[0]);
+	}
+
+	@Override
+	public String[] getOperations() {
+		return lines(operations, false).toArray(new String[0]);
+	}
+
+	@Override
+	public String[] getSlowQueries() {
+		synchronized (slowLog) {
+			return slowLog.toArray(new String[0]);
+		}
+	}
+
+	// Plain-text report, busiest entries (by total time) first.
+	@Override
+	public String dump() {
+		StringBuilder out = new StringBuilder();
+		out.append("Query metrics since ").append(since)
+				.append(", slow query threshold ").append(getSlowQueryThresholdMillis()).append(" ms\n");
+		out.append(String.format(Locale.ROOT,
+				"Connection wait: count %d, errors %d, mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+				connectionWait.getCount(), connectionErrors.sum(), getConnectionWaitMeanMillis(),
+				millis(connectionWait.getValueAtPercentile(50)), getConnectionWaitP99Millis(),
+				getConnectionWaitMaxMillis()));
+		out.append("\nOperations:\n")
+				.append(String.format(Locale.ROOT, "%9s %7s %9s %9s %9s %9s %9s  %s%n",
+						"count", "errors", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "operation"));
+		for (String line : lines(operations, false)) {
+			out.append(line).append('\n');
+		}
+		out.append("\nStatements:\n")
+				.append(String.format(Locale.ROOT, "%9s %9s %7s %9s %9s %9s %9s %9s  %s%n",
+						"count", "rows", "errors", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "template"));
+		for (String line : lines(statements, true)) {
+			out.append(line).append('\n');
+		}
+		out.append("\nSlow queries (").append(slowQueries.sum()).append(", latest last):\n");
+		for (String entry : getSlowQueries()) {
+			out.append(entry).append('\n');
+		}
+		return out.toString();
+	}
+
+	@Override
+	public void reset() {
+		statementsBySql.clear();
+		statements.clear();
+		operations.clear();
+		synchronized (slowLog) {
+			slowLog.clear();
+		}
+		slowQueries.reset();
+		connectionErrors.reset();
+		connectionWait = new LatencyHistogram();
+		since = Instant.now();
+	}
+
+	private static List<String> lines(Map<String, Statistics> map, boolean withRows) {
+		List<Statistics> sorted = new ArrayList<>(map.values());
+		sorted.sort(Comparator.comparingLong((Statistics s) -> s.latency.getTotal()).reversed());
+		List<String> lines = new ArrayList<>(sorted.size());
+		for (Statistics s : sorted) {
+			LatencyHistogram latency = s.latency;
+			String timings = String.format(Locale.ROOT, "%9.2f %9.2f %9.2f %9.2f %9.2f",
+					millis(latency.getMean()), millis(latency.getValueAtPercentile(50)),
+					millis(latency.getValueAtPercentile(95)), millis(latency.getValueAtPercentile(99)),
+					millis(latency.getMax()));
+			lines.add(withRows
+					? String.format(Locale.ROOT, "%9d %9d %7d %s  %s",
+							latency.getCount(), s.rows.sum(), s.errors.sum(), timings, s.name)
+					: String.format(Locale.ROOT, "%9d %7d %s  %s",
+							latency.getCount(), s.errors.sum(), timings, s.name));
+		}
+		return lines;
+	}
+
+	private static double millis(double nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private static final class Statistics {
+		final String name;
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder rows = new LongAdder();
+		final LongAdder errors = new LongAdder();
+
+		Statistics(String name) {
+			this.name = name;
+		}
+
+		void record(long nanos, long rows, boolean failed) {
+			latency.record(nanos);
+			this.rows.add(rows);
+			if (failed) {
+				errors.increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package utils;
+
+/**
+ * Management view of {@link QueryMetrics}, registered under
+ * {@code movienight:type=QueryMetrics,name=<name>}. Times are in milliseconds.
+ */
+public interface QueryMetricsMXBean {
+
+	long getStatementCount();
+
+	long getErrorCount();
+
+	long getRowCount();
+
+	long getSlowQueryCount();
+
+	long getSlowQueryThresholdMillis();
+
+	void setSlowQueryThresholdMillis(long thresholdMillis);
+
+	long getConnectionWaitCount();
+
+	double getConnectionWaitMeanMillis();
+
+	double getConnectionWaitP99Millis();
+
+	double getConnectionWaitMaxMillis();
+
+	// One line per SQL template: count, rows, errors, mean, p50, p95, p99, max, template.
+	String[] getStatements();
+
+	// One line per facade operation: count, errors, mean, p50, p95, p99, max, operation.
+	String[] getOperations();
+
+	String[] getSlowQueries();
+
+	String dump();
+
+	void reset();
+}
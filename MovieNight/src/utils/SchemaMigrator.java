@@ -0,0 +1,132 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings a database up to the latest {@link Migration}.
+ *
+ * Applied versions and their checksums are kept in schema_version. Starting
+ * against an up-to-date database costs one query; otherwise every pending
+ * migration runs in its own transaction together with its schema_version row,
+ * in version order. On PostgreSQL an advisory lock keeps two processes
+ * starting at once from running the same migration. H2 commits DDL as it
+ * goes, so there a failed migration may leave part of its work behind; write
+ * migrations with IF NOT EXISTS so that running them again is harmless.
+ */
+public class SchemaMigrator {
+	// Arbitrary key of the advisory lock taken while migrating
+	private static final long LOCK_KEY = 0x4D4E_5343_4845_4D41L;
+
+	private final TransactionTemplate transactions;
+	private final List<Migration> migrations;
+
+	public SchemaMigrator(ConnectionProvider connectionProvider, List<Migration> migrations) {
+		this.transactions = TransactionTemplate.of(connectionProvider);
+		this.migrations = new ArrayList<>(migrations);
+		this.migrations.sort((a, b) -> Integer.compare(a.getVersion(), b.getVersion()));
+		for (int i = 1; i < this.migrations.size(); i++) {
+			if (this.migrations.get(i).getVersion() == this.migrations.get(i - 1).getVersion()) {
+				throw new IllegalArgumentException("Duplicate migration version " + this.migrations.get(i).getVersion());
+			}
+		}
+	}
+
+	// Applies the pending migrations and returns how many ran. Throws when an applied
+	// migration no longer matches its checksum, before running anything.
+	public int migrate() throws SQLException {
+		boolean postgres;
+		Map<Integer, String> applied;
+		try (Connection conn = transactions.getConnection();
+			 Statement stmt = conn.createStatement()) {
+			postgres = "PostgreSQL".equals(conn.getMetaData().getDatabaseProductName());
+			stmt.execute("""
+				CREATE TABLE IF NOT EXISTS schema_version (
+					version INTEGER PRIMARY KEY,
+					description VARCHAR(200) NOT NULL,
+					checksum CHAR(64) NOT NULL,
+					applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+				)
+			""");
+			applied = findApplied(conn);
+		}
+
+		List<Migration> pending = new ArrayList<>();
+		for (Migration migration : migrations) {
+			if (!migration.appliesTo(postgres)) {
+				continue;
+			}
+			String checksum = applied.get(migration.getVersion());
+			if (checksum == null) {
+				pending.add(migration);
+			} else if (!checksum.equals(migration.getChecksum())) {
+				throw new SQLException("Migration " + migration.getVersion() + " (" + migration.getDescription()
+						+ ") was changed after it was applied");
+			}
+		}
+
+		int ran = 0;
+		for (Migration migration : pending) {
+			if (transactions.execute(() -> apply(migration, postgres))) {
+				System.out.println("Applied migration " + migration.getVersion() + ": " + migration.getDescription());
+				ran++;
+			}
+		}
+		return ran;
+	}
+
+	public Map<Integer, String> findApplied() throws SQLException {
+		try (Connection conn = transactions.getConnection()) {
+			return findApplied(conn);
+		}
+	}
+
+	private boolean apply(Migration migration, boolean postgres) throws SQLException {
+		try (Connection conn = transactions.getConnection()) {
+			if (postgres) {
+				try (PreparedStatement lock = conn.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+					lock.setLong(1, LOCK_KEY);
+					lock.execute();
+				}
+			}
+			// Another process may have got here first.
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM schema_version WHERE version = ?")) {
+				stmt.setInt(1, migration.getVersion());
+				try (ResultSet rs = stmt.executeQuery()) {
+					if (rs.next()) {
+						return false;
+					}
+				}
+			}
+			try (Statement stmt = conn.createStatement()) {
+				stmt.execute(migration.getSql());
+			}
+			try (PreparedStatement stmt = conn.prepareStatement(
+					"INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+				stmt.setInt(1, migration.getVersion());
+				stmt.setString(2, migration.getDescription());
+				stmt.setString(3, migration.getChecksum());
+				stmt.executeUpdate();
+			}
+			return true;
+		}
+	}
+
+	private static Map<Integer, String> findApplied(Connection conn) throws SQLException {
+		Map<Integer, String> applied = new HashMap<>();
+		try (Statement stmt = conn.createStatement();
+			 ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+			while (rs.next()) {
+				applied.put(rs.getInt(1), rs.getString(2));
+			}
+		}
+		return applied;
+	}
+}
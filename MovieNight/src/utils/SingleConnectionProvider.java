@@ -0,0 +1,32 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+class SingleConnectionProvider implements ConnectionProvider {
+	private final Connection connection;
+	private final Connection unclosable;
+
+	SingleConnectionProvider(Connection connection) {
+		this.connection = connection;
+		this.unclosable = (Connection) Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("close") && method.getParameterCount() == 0) {
+						return null;
+					}
+					try {
+						return method.invoke(this.connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	@Override
+	public Connection getConnection() {
+		return unclosable;
+	}
+}
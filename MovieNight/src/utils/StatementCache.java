@@ -0,0 +1,176 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Least recently used prepared statements of one physical connection, keyed
+ * by SQL text. Closing a handed out statement returns it to the cache.
+ *
+ * pgjdbc only switches a statement to a named server-side prepare after it
+ * was executed prepareThreshold (5) times, so a statement prepared and closed
+ * per call keeps being parsed and planned until the driver's own cache
+ * catches it. Reusing the statement object gets hot queries there and keeps
+ * the bound plan. The default capacity equals pgjdbc's
+ * preparedStatementCacheQueries (256), so an entry evicted here is one the
+ * driver would no longer hold server-side either.
+ */
+final class StatementCache {
+	static final int DEFAULT_CAPACITY = 256;
+
+	// Settings that would leak into the next borrower; such statements are not reused.
+	private static final Set<String> STICKY_SETTERS = Set.of(
+			"setFetchSize", "setFetchDirection", "setMaxRows", "setLargeMaxRows", "setMaxFieldSize",
+			"setQueryTimeout", "setEscapeProcessing", "setPoolable", "setCursorName");
+
+	private final Connection raw;
+	private final int capacity;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long hits;
+	private long misses;
+
+	StatementCache(Connection raw, int capacity) {
+		this.raw = raw;
+		this.capacity = capacity;
+	}
+
+	// A connection is leased to one borrower at a time, but the borrower may hand it to several threads.
+	synchronized PreparedStatement prepare(String sql) throws SQLException {
+		Entry entry = entries.get(sql);
+		if (entry != null && !entry.inUse) {
+			hits++;
+			return entry.checkOut();
+		}
+		misses++;
+		PreparedStatement stmt = raw.prepareStatement(sql);
+		if (entry != null) {
+			// Same SQL still open, e.g. a nested query; this copy is not cached.
+			return stmt;
+		}
+		entry = new Entry(stmt);
+		entries.put(sql, entry);
+		if (entries.size() > capacity) {
+			Iterator<Entry> eldest = entries.values().iterator();
+			Entry evicted = eldest.next();
+			eldest.remove();
+			evicted.evicted = true;
+			if (!evicted.inUse) {
+				closeQuietly(evicted.stmt);
+			}
+		}
+		return entry.checkOut();
+	}
+
+	// Called when the connection goes back to the pool: statements still open are closed for good.
+	synchronized void reclaim() {
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.inUse) {
+				it.remove();
+				entry.evicted = true;
+				entry.inUse = false;
+				closeQuietly(entry.stmt);
+			}
+		}
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	private synchronized void checkIn(Entry entry, boolean reusable) {
+		entry.inUse = false;
+		if (entry.evicted || !reusable) {
+			entries.values().remove(entry);
+			closeQuietly(entry.stmt);
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			System.err.println("Statement close error: " + e.getMessage());
+		}
+	}
+
+	private final class Entry {
+		final PreparedStatement stmt;
+		boolean inUse;
+		boolean evicted;
+
+		Entry(PreparedStatement stmt) {
+			this.stmt = stmt;
+		}
+
+		// A fresh handle per checkout, so a stale handle cannot touch the next user's statement.
+		PreparedStatement checkOut() {
+			inUse = true;
+			boolean[] state = { false, true };   // returned, reusable
+			List<ResultSet> results = new ArrayList<>(1);
+			return (PreparedStatement) Proxy.newProxyInstance(
+					PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class },
+					(proxy, method, args) -> {
+						String name = method.getName();
+						if (name.equals("close")) {
+							if (!state[0]) {
+								state[0] = true;
+								checkIn(this, state[1] && reset(results));
+							}
+							return null;
+						}
+						if (name.equals("isClosed")) {
+							return state[0] || stmt.isClosed();
+						}
+						if (state[0]) {
+							throw new SQLException("Statement has already been closed");
+						}
+						if (STICKY_SETTERS.contains(name)) {
+							state[1] = false;
+						}
+						try {
+							Object result = method.invoke(stmt, args);
+							if (result instanceof ResultSet rs) {
+								results.add(rs);
+							}
+							return result;
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		// Leaves the statement the way a fresh one would be; false if that failed.
+		private boolean reset(List<ResultSet> results) {
+			try {
+				for (ResultSet rs : results) {
+					rs.close();
+				}
+				stmt.clearParameters();
+				stmt.clearBatch();
+				stmt.clearWarnings();
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection provider that can bind one connection to a unit of work.
+ *
+ * Inside {@link #execute}, every {@link #getConnection()} on the calling
+ * thread returns the unit's connection, so DAOs built on this provider join
+ * it unchanged. Their commit, setAutoCommit and close calls are ignored and
+ * the outermost execute commits once. Since the DAOs log errors instead of
+ * throwing, a statement that fails to execute, or a rollback asked for by a
+ * DAO, marks the unit rollback-only. Outside a unit, connections come from
+ * the delegate as before.
+ */
+public class TransactionTemplate implements ConnectionProvider {
+	private final ConnectionProvider delegate;
+	private final ThreadLocal<Unit> current = new ThreadLocal<>();
+
+	public TransactionTemplate(ConnectionProvider delegate) {
+		this.delegate = delegate;
+	}
+
+	public static TransactionTemplate of(ConnectionProvider connectionProvider) {
+		return connectionProvider instanceof TransactionTemplate template
+				? template
+				: new TransactionTemplate(connectionProvider);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Unit unit = current.get();
+		return unit != null ? unit.view : delegate.getConnection();
+	}
+
+	public boolean isInTransaction() {
+		return current.get() != null;
+	}
+
+	// Runs the work in one transaction, joining the caller's unit if there is one.
+	public <T> T execute(UnitOfWork<T> work) throws SQLException {
+		Unit joined = current.get();
+		if (joined != null) {
+			try {
+				return work.run();
+			} catch (SQLException | RuntimeException e) {
+				joined.markRollbackOnly(e);
+				throw e;
+			}
+		}
+
+		try (Connection conn = delegate.getConnection()) {
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			Unit unit = new Unit(conn);
+			current.set(unit);
+			try {
+				T result = work.run();
+				if (unit.failure != null) {
+					throw new SQLException("Rolled back after: " + unit.failure.getMessage(), unit.failure);
+				}
+				conn.commit();
+				return result;
+			} catch (SQLException | RuntimeException e) {
+				try {
+					conn.rollback();
+				} catch (SQLException rollbackError) {
+					e.addSuppressed(rollbackError);
+				}
+				throw e;
+			} finally {
+				current.remove();
+				conn.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	// Like execute, but logs a failed transaction and reports it as false.
+	public boolean run(Runnable work) {
+		try {
+			execute(() -> {
+				work.run();
+				return null;
+			});
+			return true;
+		} catch (SQLException e) {
+			System.err.println("Transaction error: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private static final class Unit {
+		final Connection view;
+		Throwable failure;
+
+		Unit(Connection connection) {
+			this.view = (Connection) Proxy.newProxyInstance(
+					Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class },
+					(proxy, method, args) -> {
+						switch (method.getName()) {
+							case "close":
+							case "commit":
+							case "setAutoCommit":
+								return null;
+							case "rollback":
+								if (method.getParameterCount() == 0) {
+									markRollbackOnly(new SQLException("Rollback requested inside a transaction"));
+									return null;
+								}
+								break;
+							default:
+								break;
+						}
+						Object result = invoke(connection, method, args);
+						if (result instanceof Statement statement) {
+							return watch(statement, method.getReturnType());
+						}
+						return result;
+					});
+		}
+
+		void markRollbackOnly(Throwable cause) {
+			if (failure == null) {
+				failure = cause;
+			}
+		}
+
+		// Records statements that fail to execute; everything else is forwarded.
+		private Object watch(Statement statement, Class<?> type) {
+			Class<?> statementType = CallableStatement.class.isAssignableFrom(type) ? CallableStatement.class
+					: PreparedStatement.class.isAssignableFrom(type) ? PreparedStatement.class
+					: Statement.class;
+			return Proxy.newProxyInstance(
+					Connection.class.getClassLoader(),
+					new Class<?>[] { statementType },
+					(proxy, method, args) -> {
+						try {
+							return invoke(statement, method, args);
+						} catch (SQLException e) {
+							if (method.getName().startsWith("execute")) {
+								markRollbackOnly(e);
+							}
+							throw e;
+						}
+					});
+		}
+
+		private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
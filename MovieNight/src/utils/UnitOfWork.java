@@ -0,0 +1,13 @@
+package utils;
+
+import java.sql.SQLException;
+
+/**
+ * Work run by {@link TransactionTemplate#execute} on one connection and
+ * committed as a whole.
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+
+	T run() throws SQLException;
+}